@@ -0,0 +1,79 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs the benchmarks once for each of a set of thread counts and writes the results of all the
+ * runs to a single file, JSON by default, so that runs of different releases can be compared.
+ * <p>
+ * All the usual JMH command line options are accepted. When the thread count is given with
+ * {@code -t} only that thread count is used, otherwise the benchmarks run with the thread counts
+ * of the {@code synapse.benchmarks.threads} system property, "1,4,16" by default.
+ */
+public class BenchmarkRunner {
+
+    private static final String THREADS_PROPERTY = "synapse.benchmarks.threads";
+    private static final String DEFAULT_THREADS = "1,4,16";
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList()) {
+            // let JMH print the usage or the list of benchmarks
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ResultFormatType format = cmdOptions.getResultFormat().hasValue() ?
+                cmdOptions.getResultFormat().get() : ResultFormatType.JSON;
+        String file = cmdOptions.getResult().hasValue() ?
+                cmdOptions.getResult().get() : DEFAULT_RESULT_FILE;
+
+        List<Integer> threadCounts = new ArrayList<Integer>();
+        if (cmdOptions.getThreads().hasValue()) {
+            threadCounts.add(cmdOptions.getThreads().get());
+        } else {
+            for (String threads : System.getProperty(THREADS_PROPERTY, DEFAULT_THREADS).split(",")) {
+                threadCounts.add(Integer.parseInt(threads.trim()));
+            }
+        }
+
+        Collection<RunResult> results = new ArrayList<RunResult>();
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions).threads(threads);
+            results.addAll(new Runner(options.build()).run());
+        }
+
+        ResultFormatFactory.getInstance(format, file).writeOut(results);
+        System.out.println("Results of " + results.size() + " benchmarks written to " + file);
+    }
+}
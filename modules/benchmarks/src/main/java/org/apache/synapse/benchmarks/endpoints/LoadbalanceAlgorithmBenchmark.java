@@ -0,0 +1,129 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.endpoints;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
+import org.apache.synapse.endpoints.algorithms.AlgorithmContext;
+import org.apache.synapse.endpoints.algorithms.AtomicRoundRobin;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
+import org.apache.synapse.endpoints.algorithms.LeastOutstandingRequests;
+import org.apache.synapse.endpoints.algorithms.LoadbalanceAlgorithm;
+import org.apache.synapse.endpoints.algorithms.PowerOfTwoChoices;
+import org.apache.synapse.endpoints.algorithms.RoundRobin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses endpoints of a load balance group from many threads at once, as concurrent sends
+ * through a load balance endpoint do. Each choice is completed right away, as if the response
+ * had been received, so that the load aware algorithms keep track of the requests as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LoadbalanceAlgorithmBenchmark {
+
+    @Param({"RoundRobin", "AtomicRoundRobin", "LeastOutstandingRequests", "PowerOfTwoChoices"})
+    public String algorithmName;
+
+    @Param({"4", "16"})
+    public int endpointCount;
+
+    private LoadbalanceAlgorithm algorithm;
+    private AlgorithmContext algorithmContext;
+
+    @Setup
+    public void setUp() {
+        if ("RoundRobin".equals(algorithmName)) {
+            algorithm = new RoundRobin();
+        } else if ("AtomicRoundRobin".equals(algorithmName)) {
+            algorithm = new AtomicRoundRobin();
+        } else if ("LeastOutstandingRequests".equals(algorithmName)) {
+            algorithm = new LeastOutstandingRequests();
+        } else {
+            algorithm = new PowerOfTwoChoices();
+        }
+
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < endpointCount; i++) {
+            AddressEndpoint endpoint = new AddressEndpoint();
+            EndpointDefinition definition = new EndpointDefinition();
+            definition.setAddress("http://localhost:" + (9000 + i) + "/services/StockQuote");
+            endpoint.setDefinition(definition);
+            endpoints.add(endpoint);
+        }
+        LoadbalanceEndpoint loadbalanceEndpoint = new LoadbalanceEndpoint();
+        loadbalanceEndpoint.setName("LoadbalanceAlgorithmBenchmark");
+        algorithm.setEndpoints(endpoints);
+        algorithm.setLoadBalanceEndpoint(loadbalanceEndpoint);
+        loadbalanceEndpoint.setChildren(endpoints);
+        loadbalanceEndpoint.setAlgorithm(algorithm);
+
+        ConfigurationContext cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        loadbalanceEndpoint.init(new Axis2SynapseEnvironment(cfgCtx, new SynapseConfiguration()));
+        algorithmContext = new AlgorithmContext(false, cfgCtx, loadbalanceEndpoint.getName());
+    }
+
+    @Benchmark
+    public Endpoint choose(Sender sender) {
+        Endpoint endpoint = algorithm.getNextEndpoint(sender.message, algorithmContext);
+        EndpointLoad.requestsCompleted(sender.message, false);
+        return endpoint;
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+
+        MessageContext message;
+
+        @Setup
+        public void setUp() {
+            message = new Axis2MessageContext(
+                    new org.apache.axis2.context.MessageContext(), null, null);
+        }
+    }
+}
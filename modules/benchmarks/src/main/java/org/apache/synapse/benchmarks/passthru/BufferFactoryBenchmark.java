@@ -0,0 +1,90 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes buffers from a shared {@link BufferFactory} and releases them again, as each message
+ * takes the buffers of its source and target pipes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferFactoryBenchmark {
+
+    @Param({"0", "16"})
+    public int threadCacheSize;
+
+    @Param({"1", "4"})
+    public int buffersHeld;
+
+    private BufferFactory bufferFactory;
+
+    @Setup
+    public void setUp() {
+        bufferFactory = new BufferFactory(PipeBenchmark.BUFFER_SIZE, new HeapByteBufferAllocator(),
+                512, 4096, threadCacheSize);
+    }
+
+    @State(Scope.Thread)
+    public static class Held {
+
+        private ControlledByteBuffer[] buffers;
+
+        @Setup
+        public void setUp(BufferFactoryBenchmark benchmark) {
+            buffers = new ControlledByteBuffer[benchmark.buffersHeld];
+        }
+    }
+
+    @Benchmark
+    public int getAndRelease(Held held) {
+        ControlledByteBuffer[] buffers = held.buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = bufferFactory.getBuffer();
+        }
+        int capacity = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            capacity += buffers[i].capacity();
+            bufferFactory.release(buffers[i]);
+            buffers[i] = null;
+        }
+        return capacity;
+    }
+}
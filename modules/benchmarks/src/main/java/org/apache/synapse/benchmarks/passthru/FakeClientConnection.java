@@ -0,0 +1,134 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Client connection which is never connected to anything, only its context and metrics are
+ * used by the connection pool.
+ */
+public class FakeClientConnection implements NHttpClientConnection {
+
+    private final HttpContext context = new BasicHttpContext();
+
+    private final HttpConnectionMetrics metrics = new HttpConnectionMetrics() {
+        public long getRequestCount() {
+            return 0;
+        }
+
+        public long getResponseCount() {
+            return 0;
+        }
+
+        public long getSentBytesCount() {
+            return 0;
+        }
+
+        public long getReceivedBytesCount() {
+            return 0;
+        }
+
+        public Object getMetric(String metricName) {
+            return null;
+        }
+
+        public void reset() {
+        }
+    };
+
+    private boolean open = true;
+
+    private int socketTimeout = 0;
+
+    public HttpContext getContext() {
+        return context;
+    }
+
+    public HttpRequest getHttpRequest() {
+        return null;
+    }
+
+    public HttpResponse getHttpResponse() {
+        return null;
+    }
+
+    public int getStatus() {
+        return open ? ACTIVE : CLOSED;
+    }
+
+    public void submitRequest(HttpRequest request) {
+    }
+
+    public boolean isRequestSubmitted() {
+        return false;
+    }
+
+    public void resetOutput() {
+    }
+
+    public void resetInput() {
+    }
+
+    public void requestInput() {
+    }
+
+    public void suspendInput() {
+    }
+
+    public void requestOutput() {
+    }
+
+    public void suspendOutput() {
+    }
+
+    public void close() {
+        open = false;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public boolean isStale() {
+        return !open;
+    }
+
+    public void setSocketTimeout(int timeout) {
+        this.socketTimeout = timeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void shutdown() {
+        open = false;
+    }
+
+    public HttpConnectionMetrics getMetrics() {
+        return metrics;
+    }
+}
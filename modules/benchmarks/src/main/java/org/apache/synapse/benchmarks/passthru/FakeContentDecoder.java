@@ -0,0 +1,61 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.nio.ContentDecoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder which serves a fixed payload in chunks of at most the given size, as a socket would
+ * deliver a message in several reads.
+ */
+public class FakeContentDecoder implements ContentDecoder {
+
+    private final byte[] payload;
+    private final int chunkSize;
+    private int position;
+
+    public FakeContentDecoder(byte[] payload, int chunkSize) {
+        this.payload = payload;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Start serving the payload from the beginning again
+     */
+    public void reset() {
+        position = 0;
+    }
+
+    public int read(ByteBuffer dst) {
+        if (position == payload.length) {
+            return -1;
+        }
+        int length = Math.min(Math.min(dst.remaining(), chunkSize), payload.length - position);
+        dst.put(payload, position, length);
+        position += length;
+        return length;
+    }
+
+    public boolean isCompleted() {
+        return position == payload.length;
+    }
+}
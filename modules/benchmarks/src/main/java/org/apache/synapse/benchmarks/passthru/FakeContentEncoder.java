@@ -0,0 +1,66 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.nio.ContentEncoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder which discards what is written to it, accepting at most the given number of bytes per
+ * write as a socket with a limited send buffer would.
+ */
+public class FakeContentEncoder implements ContentEncoder {
+
+    private final int chunkSize;
+    private long bytesWritten;
+    private boolean completed;
+
+    public FakeContentEncoder(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Make the encoder ready for the next message
+     */
+    public void reset() {
+        bytesWritten = 0;
+        completed = false;
+    }
+
+    public int write(ByteBuffer src) {
+        int length = Math.min(src.remaining(), chunkSize);
+        src.position(src.position() + length);
+        bytesWritten += length;
+        return length;
+    }
+
+    public void complete() {
+        completed = true;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.synapse.transport.passthru.SourceRequest;
+import org.apache.synapse.transport.passthru.TargetRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the headers of an incoming request into a {@link SourceRequest} and adds them to a
+ * {@link TargetRequest}, which happens twice for every message relayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersBenchmark {
+
+    @Param({"8", "32"})
+    public int headerCount;
+
+    private BasicHttpRequest request;
+    private String[] names;
+    private String[] values;
+    private HttpRoute route;
+    private URL url;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        request = new BasicHttpRequest("POST", "/services/StockQuoteProxy");
+        names = new String[headerCount];
+        values = new String[headerCount];
+        for (int i = 0; i < headerCount; i++) {
+            names[i] = "X-Benchmark-Header-" + i;
+            values[i] = "value-" + i;
+            request.addHeader(names[i], values[i]);
+        }
+        route = new HttpRoute(new HttpHost("localhost", 9000));
+        url = new URL("http://localhost:9000/services/SimpleStockQuoteService");
+    }
+
+    @Benchmark
+    public SourceRequest sourceRequest() {
+        return new SourceRequest(null, request, null);
+    }
+
+    @Benchmark
+    public TargetRequest targetRequest() {
+        TargetRequest targetRequest = new TargetRequest(null, route, "POST", url, true);
+        for (int i = 0; i < headerCount; i++) {
+            targetRequest.addHeader(names[i], values[i]);
+        }
+        return targetRequest;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.synapse.transport.passthru.connections.HostConnections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases a connection from the pool of a single backend and releases it again, which is what
+ * every request to an endpoint does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostConnectionsBenchmark {
+
+    @Param({"16", "256"})
+    public int connections;
+
+    private HostConnections pool;
+
+    @Setup
+    public void setUp() {
+        pool = new HostConnections(new HttpRoute(new HttpHost("localhost", 8280)), 1024);
+        for (int i = 0; i < connections; i++) {
+            NHttpClientConnection conn = new FakeClientConnection();
+            pool.addConnection(conn);
+            pool.release(conn);
+        }
+    }
+
+    @Benchmark
+    public boolean leaseAndRelease() {
+        NHttpClientConnection conn = pool.getConnection();
+        if (conn == null) {
+            // more benchmark threads than pooled connections
+            return false;
+        }
+        pool.release(conn);
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relays a message through a {@link Pipe}, from a fake decoder to a fake encoder, the way the
+ * source and target handlers drive it for a pure pass-through message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipeBenchmark {
+
+    /** Buffer size of the default passthru-http.properties */
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Bytes transferred by a single socket read or write */
+    private static final int SOCKET_CHUNK_SIZE = 8 * 1024;
+
+    @Param({"1024", "16384", "262144", "1048576"})
+    public int payloadSize;
+
+    @Param({"false", "true"})
+    public boolean directRelay;
+
+    private BufferFactory bufferFactory;
+    private FakeIOControl ioControl;
+    private FakeContentDecoder decoder;
+    private FakeContentEncoder encoder;
+
+    @Setup
+    public void setUp() {
+        bufferFactory = new BufferFactory(BUFFER_SIZE, new HeapByteBufferAllocator(), 16);
+        ioControl = new FakeIOControl();
+        byte[] payload = new byte[payloadSize];
+        new Random(payloadSize).nextBytes(payload);
+        decoder = new FakeContentDecoder(payload, SOCKET_CHUNK_SIZE);
+        encoder = new FakeContentEncoder(SOCKET_CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public long relay() throws IOException {
+        decoder.reset();
+        encoder.reset();
+        ControlledByteBuffer buffer = bufferFactory.getBuffer();
+        Pipe pipe = new Pipe(ioControl, buffer, "benchmark", null);
+        pipe.attachConsumer(ioControl);
+        if (directRelay) {
+            pipe.enableDirectRelay();
+        }
+        while (!encoder.isCompleted()) {
+            pipe.produce(decoder);
+            pipe.consume(encoder);
+        }
+        bufferFactory.release(buffer);
+        return encoder.getBytesWritten();
+    }
+}
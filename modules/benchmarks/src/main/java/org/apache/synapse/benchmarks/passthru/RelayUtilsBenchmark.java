@@ -0,0 +1,91 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.passthru;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.ConfigurationContextFactory;
+import org.apache.axis2.context.MessageContext;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a SOAP message with {@link RelayUtils#buildMessage(MessageContext, boolean,
+ * java.io.InputStream)}, the cost paid whenever a mediator needs the message content.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelayUtilsBenchmark {
+
+    @Param({"1024", "16384", "262144"})
+    public int payloadSize;
+
+    private ConfigurationContext configurationContext;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws AxisFault {
+        configurationContext = ConfigurationContextFactory.createEmptyConfigurationContext();
+        payload = createEnvelope(payloadSize);
+    }
+
+    @Benchmark
+    public Object buildMessage() throws IOException {
+        MessageContext msgCtx = configurationContext.createMessageContext();
+        msgCtx.setProperty(Constants.Configuration.CONTENT_TYPE, "text/xml");
+        // early build skips the addressing dispatch, which needs deployed services
+        RelayUtils.buildMessage(msgCtx, true, new ByteArrayInputStream(payload));
+        msgCtx.getEnvelope().build();
+        return msgCtx.getEnvelope();
+    }
+
+    private static byte[] createEnvelope(int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        sb.append("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">")
+                .append("<soapenv:Body><m:getQuote xmlns:m=\"http://services.samples\">");
+        int i = 0;
+        while (sb.length() < size) {
+            sb.append("<m:symbol id=\"").append(i++).append("\">IBM</m:symbol>");
+        }
+        sb.append("</m:getQuote></soapenv:Body></soapenv:Envelope>");
+        return sb.toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.rest;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axis2.Constants;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.rest.API;
+import org.apache.synapse.rest.RESTRequestHandler;
+import org.apache.synapse.rest.Resource;
+import org.apache.synapse.rest.dispatch.URITemplateHelper;
+import org.apache.synapse.rest.dispatch.URLMappingHelper;
+import org.apache.synapse.transport.nhttp.NhttpConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches requests to one of a number of deployed APIs and to one of the resources of that
+ * API, the way the REST request handler does for each request received. The APIs have no
+ * sequences, so only the cost of finding the API and the resource is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class APIDispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int apiCount;
+
+    @Param({"20"})
+    public int resourcesPerAPI;
+
+    private final RESTRequestHandler handler = new RESTRequestHandler();
+
+    private MessageContext urlMappingRequest;
+    private MessageContext uriTemplateRequest;
+    private MessageContext unknownResourceRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        synapseConfig.setAxisConfiguration(axisConfig);
+        for (int i = 0; i < apiCount; i++) {
+            API api = new API("API" + i, "/services/api" + i);
+            for (int j = 0; j < resourcesPerAPI; j++) {
+                Resource mapped = new Resource();
+                mapped.setDispatcherHelper(new URLMappingHelper("/orders" + j + "/*"));
+                api.addResource(mapped);
+                Resource templated = new Resource();
+                templated.setDispatcherHelper(
+                        new URITemplateHelper("/customers" + j + "/{id}/orders/{order}"));
+                api.addResource(templated);
+            }
+            synapseConfig.addAPI(api.getName(), api);
+        }
+
+        Axis2SynapseEnvironment env = new Axis2SynapseEnvironment(
+                new ConfigurationContext(axisConfig), synapseConfig);
+        // the last resources of an API deployed half way through
+        String context = "/services/api" + (apiCount / 2);
+        int last = resourcesPerAPI - 1;
+        urlMappingRequest = newRequest(synapseConfig, env,
+                context + "/orders" + last + "/42?detail=full");
+        uriTemplateRequest = newRequest(synapseConfig, env,
+                context + "/customers" + last + "/7/orders/42");
+        unknownResourceRequest = newRequest(synapseConfig, env, context + "/invoices/42");
+    }
+
+    @Benchmark
+    public boolean urlMapping() {
+        return handler.process(urlMappingRequest);
+    }
+
+    @Benchmark
+    public boolean uriTemplate() {
+        return handler.process(uriTemplateRequest);
+    }
+
+    @Benchmark
+    public boolean unknownResource() {
+        return handler.process(unknownResourceRequest);
+    }
+
+    private static MessageContext newRequest(SynapseConfiguration synapseConfig,
+                                             Axis2SynapseEnvironment env,
+                                             String url) throws Exception {
+        org.apache.axis2.context.MessageContext axis2MsgCtx =
+                new org.apache.axis2.context.MessageContext();
+        axis2MsgCtx.setEnvelope(OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope());
+        axis2MsgCtx.setIncomingTransportName("http");
+        axis2MsgCtx.setProperty(Constants.Configuration.HTTP_METHOD, "GET");
+        axis2MsgCtx.setProperty(Constants.Configuration.TRANSPORT_IN_URL, url);
+        axis2MsgCtx.setProperty(NhttpConstants.REST_URL_POSTFIX, url.substring(1));
+        return new Axis2MessageContext(axis2MsgCtx, synapseConfig, env);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.store;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axis2.AxisFault;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores and consumes messages with an in memory store the way a burst buffer in front of a
+ * slow backend is used: producers and consumers running in parallel, while the size of the
+ * store is polled the way the JMX console does. Producers wait for room when the store is full.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryStoreBenchmark {
+
+    @Param({"1024", "100000"})
+    public int capacity;
+
+    private InMemoryStore store;
+
+    private final AtomicInteger producerCount = new AtomicInteger(0);
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryStore();
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(Constants.INMEMORY_CAPACITY, String.valueOf(capacity));
+        parameters.put(Constants.INMEMORY_PRODUCER_TIMEOUT, "1000");
+        store.setParameters(parameters);
+    }
+
+    @Benchmark
+    @Group("burstBuffer")
+    @GroupThreads(2)
+    public boolean enqueue(Producer producer) {
+        return producer.producer.storeMessage(producer.next());
+    }
+
+    @Benchmark
+    @Group("burstBuffer")
+    @GroupThreads(2)
+    public MessageContext dequeue(Consumer consumer) {
+        MessageContext message = consumer.consumer.receive();
+        if (message != null) {
+            consumer.consumer.ack();
+        }
+        return message;
+    }
+
+    @Benchmark
+    @Group("burstBuffer")
+    @GroupThreads(1)
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * Stores messages from a pool larger than the store, so that each stored message has an ID
+     * no other message in the store has
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+
+        MessageProducer producer;
+
+        private MessageContext[] messages;
+
+        private int next;
+
+        @Setup
+        public void setUp(InMemoryStoreBenchmark benchmark) throws AxisFault {
+            producer = benchmark.store.getProducer();
+            int id = benchmark.producerCount.incrementAndGet();
+            messages = new MessageContext[benchmark.capacity + 1];
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = newMessage("urn:uuid:" + id + "-" + i);
+            }
+        }
+
+        MessageContext next() {
+            MessageContext message = messages[next];
+            next = (next + 1) % messages.length;
+            return message;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Consumer {
+
+        MessageConsumer consumer;
+
+        @Setup
+        public void setUp(InMemoryStoreBenchmark benchmark) {
+            consumer = benchmark.store.getConsumer();
+        }
+    }
+
+    private static MessageContext newMessage(String messageID) throws AxisFault {
+        org.apache.axis2.context.MessageContext axis2MsgCtx =
+                new org.apache.axis2.context.MessageContext();
+        axis2MsgCtx.setEnvelope(OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope());
+        MessageContext synCtx = new Axis2MessageContext(axis2MsgCtx, null, null);
+        synCtx.setMessageID(messageID);
+        return synCtx;
+    }
+}
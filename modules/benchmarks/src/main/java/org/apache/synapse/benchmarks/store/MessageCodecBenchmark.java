@@ -0,0 +1,172 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.benchmarks.store;
+
+import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.commons.Axis2Message;
+import org.apache.synapse.message.store.impl.commons.MessageCodec;
+import org.apache.synapse.message.store.impl.commons.MessageCodecs;
+import org.apache.synapse.message.store.impl.commons.StorableMessage;
+import org.apache.synapse.message.store.impl.commons.SynapseMessage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a message the way the persistent message stores do, with each of the
+ * codecs a store can be configured with. The encoded size of the message is reported as the
+ * {@code encodedBytes} secondary result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    @Param({MessageCodecs.JAVA_CODEC, MessageCodecs.BINARY_CODEC})
+    public String codecName;
+
+    @Param({"soap", "json"})
+    public String payload;
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private MessageCodec codec;
+    private StorableMessage message;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = MessageCodecs.getCodec(Collections.<String, Object>singletonMap(
+                Constants.MESSAGE_CODEC, codecName));
+        message = newMessage("json".equals(payload), payloadSize);
+        encoded = codec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) throws IOException {
+        byte[] bytes = codec.encode(message);
+        size.encodedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public StorableMessage decode() throws IOException {
+        return codec.decode(encoded);
+    }
+
+    /**
+     * Reports the size of the encoded message
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long encodedBytes;
+    }
+
+    /**
+     * Create a message holding the fields and properties stored for a typical proxy service call
+     */
+    private static StorableMessage newMessage(boolean json, int payloadSize) {
+        Axis2Message axis2Msg = new Axis2Message();
+        axis2Msg.setMessageID("urn:uuid:9b2d7b8e-2c8f-4b3a-9d6e-1f0a6c3e5d21");
+        axis2Msg.setOperationName(new QName("http://services.samples", "mediate"));
+        axis2Msg.setAction("urn:getQuote");
+        axis2Msg.setService("StockQuoteProxy");
+        axis2Msg.setReplyToAddress("http://www.w3.org/2005/08/addressing/anonymous");
+        axis2Msg.setToAddress("http://localhost:9000/services/SimpleStockQuoteService");
+        axis2Msg.setTransportInName("http");
+        axis2Msg.setTransportOutName("http");
+        axis2Msg.setFLOW(1);
+
+        StringBuilder body = new StringBuilder();
+        if (json) {
+            body.append("{\"quotes\":[");
+            while (body.length() < payloadSize) {
+                body.append("{\"symbol\":\"IBM\",\"last\":132.57,\"volume\":8642710},");
+            }
+            body.setLength(body.length() - 1);
+            body.append("]}");
+            axis2Msg.setJsonStream(body.toString().getBytes());
+            axis2Msg.setSoapEnvelope("<soapenv:Envelope " +
+                    "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body/>" +
+                    "</soapenv:Envelope>");
+            axis2Msg.setDoingPOX(true);
+        } else {
+            body.append("<soapenv:Envelope " +
+                    "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>" +
+                    "<m:quotes xmlns:m=\"http://services.samples\">");
+            while (body.length() < payloadSize) {
+                body.append("<m:quote><m:symbol>IBM</m:symbol><m:last>132.57</m:last>" +
+                        "<m:volume>8642710</m:volume></m:quote>");
+            }
+            body.append("</m:quotes></soapenv:Body></soapenv:Envelope>");
+            axis2Msg.setSoapEnvelope(body.toString());
+        }
+
+        Map<String, Object> abstractProperties = new HashMap<String, Object>();
+        abstractProperties.put("TRANSPORT_IN_NAME", "http");
+        abstractProperties.put("messageType", json ? "application/json" : "text/xml");
+        abstractProperties.put("ContentType", json ? "application/json" : "text/xml");
+        abstractProperties.put("REST_URL_POSTFIX", "/quotes");
+        abstractProperties.put("HTTP_SC", 200);
+        abstractProperties.put("NO_ENTITY_BODY", Boolean.FALSE);
+        axis2Msg.addProperty("ABSTRACT_MC_PROPERTIES", abstractProperties);
+        Map<String, String> headers = new TreeMap<String, String>();
+        headers.put("Content__HYPHEN__Type", json ? "application__SLASH__json" : "text__SLASH__xml");
+        headers.put("Host", "localhost__COLON__8280");
+        headers.put("User__HYPHEN__Agent", "Synapse__SLASH__2.1");
+        headers.put("Accept", "*__SLASH__*");
+        axis2Msg.addProperty("TRANSPORT_HEADERS", headers);
+        axis2Msg.addProperty("TRANSPORT_IN_NAME", "http");
+        axis2Msg.addProperty("messageType", json ? "application/json" : "text/xml");
+
+        SynapseMessage synMsg = new SynapseMessage();
+        synMsg.addProperty("SYSTEM_DATE", "2018-06-01T10:15:30");
+        synMsg.addProperty("OUT_ONLY", "true");
+        synMsg.addProperty("FORCE_SC_ACCEPTED", "true");
+        synMsg.addProperty("symbol", "IBM");
+
+        StorableMessage message = new StorableMessage();
+        message.setAxis2message(axis2Msg);
+        message.setSynapseMessage(synMsg);
+        return message;
+    }
+}
@@ -58,6 +58,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.util.Iterator;
 import java.util.Properties;
 
@@ -66,6 +67,8 @@ public final class JsonUtil {
 
     private static final String ORG_APACHE_SYNAPSE_COMMONS_JSON_IS_JSON_OBJECT = "org.apache.synapse.commons.json.JsonInputStream.IsJsonObject";
 
+    private static final String ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD = "org.apache.synapse.commons.json.JsonInputStream.ParsedPayload";
+
     private static final QName JSON_OBJECT = new QName("jsonObject");
 
     private static final QName JSON_ARRAY = new QName("jsonArray");
@@ -836,9 +839,57 @@ public final class JsonUtil {
     public static InputStream setJsonStream(MessageContext messageContext, InputStream inputStream) {
         InputStream json = toReadOnlyStream(inputStream);
         messageContext.setProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM, json);
+        messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD);
         return json;
     }
 
+    /**
+     * Returns the parsed form of the JSON payload of this message context, as saved with
+     * {@link #setParsedJsonPayload(org.apache.axis2.context.MessageContext, Object)}.<br/>
+     * The parsed payload is discarded whenever the JSON stream of the message context is replaced or removed, so
+     * this method never returns a parsed form of a stale payload.
+     *
+     * @param messageContext Axis2 Message context
+     * @return the parsed JSON payload, or <tt>null</tt> if the current payload has not been parsed yet.
+     */
+    public static Object getParsedJsonPayload(MessageContext messageContext) {
+        if (messageContext == null) {
+            return null;
+        }
+        Object o = messageContext.getProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD);
+        if (!(o instanceof ParsedJsonPayload)) {
+            return null;
+        }
+        ParsedJsonPayload parsed = (ParsedJsonPayload) o;
+        // the stream property may have been replaced or removed without going through this class
+        if (parsed.stream != jsonStream(messageContext, false)) {
+            messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD);
+            return null;
+        }
+        return parsed.document;
+    }
+
+    /**
+     * Saves the parsed form of the current JSON payload of this message context, so that further reads of the
+     * payload in the same mediation flow need not parse the JSON stream again.<br/>
+     * The parsed payload is shared by all its readers and must not be modified.
+     *
+     * @param messageContext Axis2 Message context that contains a JSON payload.
+     * @param document       parsed JSON payload
+     */
+    public static void setParsedJsonPayload(MessageContext messageContext, Object document) {
+        if (messageContext == null) {
+            return;
+        }
+        InputStream json = jsonStream(messageContext, false);
+        if (json == null || document == null) {
+            messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD);
+            return;
+        }
+        messageContext.setProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD,
+                                   new ParsedJsonPayload(json, document));
+    }
+
     /**
      * Builds and returns a new JSON payload for a message context with a JSON string. This is deprecated and use
      * getNewJsonPayload for new implementations.
@@ -944,6 +995,7 @@ public final class JsonUtil {
     public static boolean removeJsonPayload(MessageContext messageContext) {
         messageContext.removeProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
         messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_IS_JSON_OBJECT);
+        messageContext.removeProperty(ORG_APACHE_SYNAPSE_COMMONS_JSON_PARSED_PAYLOAD);
         boolean removeChildren = true;
         if (!removeChildren) { // don't change this.
             if (logger.isTraceEnabled()) {
@@ -1013,6 +1065,26 @@ public final class JsonUtil {
         return hasAJsonPayload(messageContext) ? jsonStream(messageContext, true) : null;
     }
 
+    /**
+     * Removes the JSON payload from the provided message context and returns it as a stream that can be read only once.
+     * Unlike the stream returned by {@link #getJsonPayload(org.apache.axis2.context.MessageContext)}, this stream does
+     * not keep the content read from it in memory, so that a large payload can be processed while it arrives.
+     *
+     * @param messageContext Axis2 Message context
+     * @return {@link java.io.InputStream} of the JSON payload contained in the message context. Null otherwise.
+     */
+    public static InputStream consumeJsonPayload(MessageContext messageContext) {
+        InputStream is = getJsonPayload(messageContext);
+        if (is == null) {
+            return null;
+        }
+        removeJsonPayload(messageContext);
+        if (is instanceof ReadOnlyBIS) {
+            return ((ReadOnlyBIS) is).detach();
+        }
+        return is;
+    }
+
     /**
      * Returns a copy of the JSON stream contained in the provided Message Context.
      *
@@ -1217,8 +1289,20 @@ public final class JsonUtil {
         }
         InputStream json = jsonStream(sourceMc, true);
         try {
-            byte[] stream = IOUtils.toByteArray(json);
-            getNewJsonPayload(targetMc, new ByteArrayInputStream(stream), true, true);
+            SharedBytesStream shared;
+            if (json instanceof SharedBytesStream) {
+                shared = (SharedBytesStream) json;
+            } else {
+                // buffer the payload once and let the source and all its clones share the same bytes,
+                // each through its own stream, so that cloning a message N times does not copy it N times
+                Object parsed = getParsedJsonPayload(sourceMc);
+                shared = new SharedBytesStream(IOUtils.toByteArray(json));
+                sourceMc.setProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM, shared);
+                if (parsed != null) {
+                    setParsedJsonPayload(sourceMc, parsed);
+                }
+            }
+            getNewJsonPayload(targetMc, shared.share(), true, true);
         } catch (IOException e) {
             logger.error("#cloneJsonPayload. Could not clone JSON stream. Error>>> " + e.getLocalizedMessage());
             return false;
@@ -1249,6 +1333,10 @@ public final class JsonUtil {
         if (inputStream == null) {
             return null;
         }
+        if (inputStream instanceof SharedBytesStream) {
+            // already read only and re-readable, and backed by bytes that need no further buffering
+            return inputStream;
+        }
         return new ReadOnlyBIS(inputStream);
     }
 
@@ -1328,6 +1416,56 @@ public final class JsonUtil {
         return isObject != null && ((Boolean) isObject);
     }
 
+    /**
+     * A parsed JSON payload together with the JSON stream it was parsed from
+     */
+    private static final class ParsedJsonPayload {
+        private final InputStream stream;
+        private final Object document;
+
+        private ParsedJsonPayload(InputStream stream, Object document) {
+            this.stream = stream;
+            this.document = document;
+        }
+    }
+
+    /**
+     * An Un-closable, Read-Only, Reusable stream over a fully buffered JSON payload.<br/>
+     * The buffered bytes are never modified, so any number of streams obtained with {@link #share()} can read them
+     * concurrently, each from its own position.
+     */
+    static final class SharedBytesStream extends ByteArrayInputStream {
+
+        private SharedBytesStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        private SharedBytesStream share() {
+            return new SharedBytesStream(buf);
+        }
+
+        /**
+         * @return whether this stream reads the same buffered bytes as the given one
+         */
+        boolean sharesBytesWith(SharedBytesStream other) {
+            return buf == other.buf;
+        }
+
+        @Override
+        public void close() {
+            reset();
+        }
+
+        @Override
+        public void mark(int readlimit) {
+        }
+
+        @Override
+        public long skip(long n) {
+            return 0;
+        }
+    }
+
     /**
      * An Un-closable, Read-Only, Reusable, BufferedInputStream
      */
@@ -1364,6 +1502,14 @@ public final class JsonUtil {
             return true; //but we don't mark.
         }
 
+        /**
+         * Returns a stream over the whole content of this stream, which does not buffer what is read from the
+         * underlying stream. This stream must not be used afterwards.
+         */
+        private InputStream detach() {
+            return new SequenceInputStream(new ByteArrayInputStream(buf, 0, count), in);
+        }
+
         @Override
         public long skip(long n) {
             if (logger.isDebugEnabled()) {
@@ -47,9 +47,10 @@ public abstract class CallerContext implements Serializable, Cloneable {
     private String roleId;
     private long unitTime;
     /**
-     * Count to keep track of local (specific to this node) number of requests
+     * Count to keep track of local (specific to this node) number of requests, which have not
+     * been added to the global count yet
      */
-    private AtomicLong localCount = new AtomicLong(0);
+    private StripedCounter localCount = new StripedCounter();
 
     /**
      * Used for debugging purposes. *
@@ -71,10 +72,10 @@ public abstract class CallerContext implements Serializable, Cloneable {
         clone.firstAccessTime = this.firstAccessTime;
         clone.nextTimeWindow = this.nextTimeWindow;
         clone.globalCount = new AtomicLong(this.globalCount.longValue());
-        clone.localCount = new AtomicLong(this.localCount.longValue());
+        clone.localCount = new StripedCounter();
+        clone.localCount.add(this.localCount.sumThenReset());
 
         clone.roleId = this.roleId;
-        localCount.set(0);
         return clone;
     }
 
@@ -127,18 +128,19 @@ public abstract class CallerContext implements Serializable, Cloneable {
         boolean canAccess = false;
         int maxRequest = configuration.getMaximumRequestPerUnitTime();
         if (maxRequest != 0) {
-            if ((this.globalCount.get() + this.localCount.get()) < maxRequest) {    //If the globalCount is less than max request
+            long localCounter = this.localCount.sum();
+            if ((this.globalCount.get() + localCounter) < maxRequest) {    //If the globalCount is less than max request
                 if (log.isDebugEnabled()) {
                     log.debug("CallerContext Checking access if unit time is not over and less than max count>> Access "
-                            + "allowed=" + maxRequest + " available="+ (maxRequest - (this.globalCount.get() + this.localCount.get()))
+                            + "allowed=" + maxRequest + " available="+ (maxRequest - (this.globalCount.get() + this.localCount.sum()))
                             +" key=" + this.getId() + " currentGlobalCount=" + globalCount + " currentTime="
                             +  currentTime + " " + "nextTimeWindow=" + this.nextTimeWindow + " currentLocalCount=" + localCount + " Tier="
                             + configuration.getID() + " nextAccessTime=" + this.nextAccessTime);
                 }
                 canAccess = true;     // can continue access
-                this.localCount.incrementAndGet();
+                this.localCount.increment();
                 // Send the current state to others (clustered env)
-                throttleContext.flushCallerContext(this, id);
+                throttleContext.flushCallerContext(this, id, localCounter + 1, maxRequest);
                 // can complete access
 
             } else {
@@ -169,7 +171,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
                         if (log.isDebugEnabled()) {
                             log.debug("CallerContext Checking access if unit time is not over before time window exceed >> "
                                     + "Access allowed=" + maxRequest + " available="
-                                    +  (maxRequest - (this.globalCount.get() + this.localCount.get()))
+                                    +  (maxRequest - (this.globalCount.get() + this.localCount.sum()))
                                     + " key=" + this.getId() + " currentGlobalCount=" + globalCount
                                     + " currentTime=" + currentTime + " " + "nextTimeWindow=" + this.nextTimeWindow
                                     + " currentLocalCount=" + localCount + " " + "Tier=" + configuration.getID()
@@ -224,7 +226,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
         // if the unit time period (session time) has just over
         int maxRequest = configuration.getMaximumRequestPerUnitTime();
         if (maxRequest != 0) {
-            if ((this.globalCount.get() + this.localCount.get()) < maxRequest) {
+            if ((this.globalCount.get() + this.localCount.sum()) < maxRequest) {
                 if (this.nextTimeWindow != 0) {
                     // Removes and sends the current state to others  (clustered env)
                     //remove previous callercontext instance
@@ -239,7 +241,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
                 }
                 if (log.isDebugEnabled()) {
                     log.debug("CallerContext Checking access if unit time over next time window>> Access allowed="
-                            +  maxRequest + " available=" + (maxRequest - (this.globalCount.get() + this.localCount.get()))
+                            +  maxRequest + " available=" + (maxRequest - (this.globalCount.get() + this.localCount.sum()))
                             + " key=" + this.getId()+ " currentGlobalCount=" + globalCount + " currentTime=" + currentTime
                             + " nextTimeWindow=" + this.nextTimeWindow +" currentLocalCount=" + localCount + " Tier="
                             + configuration.getID() + " nextAccessTime="+ this.nextAccessTime);
@@ -252,7 +254,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
                 if ((this.nextAccessTime == 0) || (this.nextAccessTime <= currentTime)) {
                     if (log.isDebugEnabled()) {
                         log.debug("CallerContext Checking access if unit time over>> Access allowed=" + maxRequest
-                                + " available=" + (maxRequest - (this.globalCount.get() + this.localCount.get())) + " key=" + this.getId()
+                                + " available=" + (maxRequest - (this.globalCount.get() + this.localCount.sum())) + " key=" + this.getId()
                                 + " currentGlobalCount=" + globalCount + " currentTime=" + currentTime + " nextTimeWindow=" + this.nextTimeWindow
                                 + " currentLocalCount=" + localCount + " Tier=" + configuration.getID() + " nextAccessTime="
                                 + this.nextAccessTime);
@@ -317,7 +319,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
 
         int maxRequest = configuration.getMaximumRequestPerUnitTime();
         if (!(maxRequest == 0)) {
-            if ((this.globalCount.get() + this.localCount.get()) <= (maxRequest - 1)) {
+            if ((this.globalCount.get() + this.localCount.sum()) <= (maxRequest - 1)) {
                 if (this.nextTimeWindow != 0 && this.nextTimeWindow < (currentTime - this.unitTime)) {
                     if (log.isDebugEnabled()) {
                         log.debug("Removing caller with id " + this.id);
@@ -398,7 +400,7 @@ public abstract class CallerContext implements Serializable, Cloneable {
     }
 
     public void incrementLocalCounter() {
-        localCount.incrementAndGet();
+        localCount.increment();
     }
 
     public long getGlobalCounter() {
@@ -414,7 +416,26 @@ public abstract class CallerContext implements Serializable, Cloneable {
     }
 
     public long getLocalCounter() {
-        return localCount.get();
+        return localCount.sum();
+    }
+
+    /**
+     * Reset the local counter, returning the requests counted by it, so that they can be added
+     * to the global counter without losing the requests counted meanwhile
+     *
+     * @return the local count before the reset
+     */
+    public long drainLocalCounter() {
+        return localCount.sumThenReset();
+    }
+
+    /**
+     * Add requests back to the local counter, which could not be added to the global counter
+     *
+     * @param count number of requests
+     */
+    public void addLocalCounter(long count) {
+        localCount.add(count);
     }
 
     public void resetLocalCounter() {
@@ -8,11 +8,16 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.throttle.core.internal.ThrottleServiceDataHolder;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SharedParamManager {
 
-	private static Map<String, Long> counters= new ConcurrentHashMap<String, Long>();//Locally managed counters map for non clustered environment
+	private static ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();//Locally managed counters map for non clustered environment
 	private static Map<String, Long> timestamps = new ConcurrentHashMap<String, Long>();//Locally managed time stamps map for non clustered environment
 	private static Log log = LogFactory.getLog(SharedParamManager.class.getName());
 
@@ -32,13 +37,7 @@ public class SharedParamManager {
 		if(hazelcastInstance != null) {
 			return hazelcastInstance.getAtomicLong(id).get();
 		} else {
-			Long counter = counters.get(id);
-			if(counter != null) {
-				return counter;
-			} else {
-				counters.put(id, 0L);
-				return 0;
-			}
+			return getLocalCounter(id).get();
 		}
 	}
 
@@ -58,7 +57,7 @@ public class SharedParamManager {
 		if(hazelcastInstance != null) {
 			hazelcastInstance.getAtomicLong(id).set(value);
 		} else {
-			counters.put(id, value);
+			getLocalCounter(id).set(value);
 		}
 	}
 
@@ -75,10 +74,34 @@ public class SharedParamManager {
 		if(hazelcastInstance != null) {
 			return hazelcastInstance.getAtomicLong(id).addAndGet(value);
 		} else {
-			long currentCount = counters.get(id);
-			long updatedCount = currentCount + value;
-			counters.put(id, updatedCount);
-			return updatedCount;
+			return getLocalCounter(id).addAndGet(value);
+		}
+	}
+
+	/**
+	 * Asynchronously add given value to the distribute counter of caller context of given id. If it's not
+	 * distributed the local counter is updated right away. The returned future gives the global value after
+	 * adding the provided counter, so that the counters of many callers can be added without waiting for
+	 * each of them in turn
+	 *
+	 * @param id of the caller context
+	 * @param value to add to the global counter
+	 * @return future global counter
+	 */
+	public static Future<Long> asyncAddAndGetDistributedCounter(String id, final long value) {
+		HazelcastInstance hazelcastInstance = getHazelcastInstance();
+		id = ThrottleConstants.THROTTLE_SHARED_COUNTER_KEY + id;
+		if(hazelcastInstance != null) {
+			return ((AsyncAtomicLong) hazelcastInstance.getAtomicLong(id)).asyncAddAndGet(value);
+		} else {
+			final AtomicLong counter = getLocalCounter(id);
+			FutureTask<Long> future = new FutureTask<Long>(new Callable<Long>() {
+				public Long call() {
+					return counter.addAndGet(value);
+				}
+			});
+			future.run();
+			return future;
 		}
 	}
 
@@ -101,13 +124,7 @@ public class SharedParamManager {
 			asyncAtomicLong.asyncAddAndGet(value);
 			return currentGlobalCounter;
 		} else {
-			Long currentCount = counters.get(id);
-			if(currentCount == null) {
-				currentCount = 0L;
-			}
-			long updatedCount = currentCount + value;
-			counters.put(id, updatedCount);
-			return currentCount;
+			return getLocalCounter(id).getAndAdd(value);
 		}
 	}
 
@@ -127,13 +144,7 @@ public class SharedParamManager {
 			asyncAtomicLong.asyncAlter(new AddLocalCount(value));
 			return currentGlobalCounter;
 		} else {
-			Long currentCount = counters.get(id);
-			if(currentCount == null) {
-				currentCount = 0L;
-			}
-			long updatedCount = currentCount + value;
-			counters.put(id, updatedCount);
-			return currentCount;
+			return getLocalCounter(id).getAndAdd(value);
 		}
 	}
 
@@ -222,7 +233,7 @@ public class SharedParamManager {
 		if(hazelcastInstance != null) {
 			hazelcastInstance.getAtomicLong(key).set(timestamp);
 		} else {
-			timestamps.put(id, timestamp);
+			timestamps.put(key, timestamp);
 		}
 	}
 
@@ -261,6 +272,25 @@ public class SharedParamManager {
 		}
 	}
 
+	/**
+	 * Return the local counter standing in for the hazelcast shared counter with given full id, creating it
+	 * if needed
+	 *
+	 * @param id of the shared counter
+	 * @return local counter
+	 */
+	private static AtomicLong getLocalCounter(String id) {
+		AtomicLong counter = counters.get(id);
+		if(counter == null) {
+			counter = new AtomicLong(0);
+			AtomicLong existing = counters.putIfAbsent(id, counter);
+			if(existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
 	private static HazelcastInstance getHazelcastInstance() {
 		return ThrottleServiceDataHolder.getInstance().getHazelCastInstance();
 	}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.throttle.core;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter of the requests of a caller, which is spread over a number of cells once threads
+ * contend on it, so that they mostly update different cells. Reading the counter sums the cells.
+ * <p>
+ * Like {@code LongAdder}, which is not available on Java 7, the counter starts with a single
+ * base value and only allocates the cells after an update of the base fails under contention.
+ * Callers which are never counted concurrently, which is the common case with a caller per
+ * client address, therefore take no more memory than an atomic long.
+ */
+final class StripedCounter implements Serializable {
+
+    private static final long serialVersionUID = -3785473394154911402L;
+
+    /** Longs from one cell to the next, so that no two cells share a cache line */
+    private static final int PADDING = 8;
+
+    private static final int MAX_CELLS = 64;
+
+    private static final int CELLS = cellCount();
+
+    private final AtomicLong base = new AtomicLong();
+
+    /** Created on the first contended update */
+    private volatile AtomicLongArray cells;
+
+    void increment() {
+        add(1);
+    }
+
+    void add(long value) {
+        AtomicLongArray cells = this.cells;
+        if (cells == null) {
+            long current = base.get();
+            if (base.compareAndSet(current, current + value)) {
+                return;
+            }
+            cells = createCells();
+        }
+        cells.addAndGet(index(cells), value);
+    }
+
+    /**
+     * @return the current count, which is not an atomic snapshot while the counter is updated
+     */
+    long sum() {
+        long sum = base.get();
+        AtomicLongArray cells = this.cells;
+        if (cells != null) {
+            for (int i = 0; i < cells.length(); i += PADDING) {
+                sum += cells.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Reset the counter, returning its count. Counts added meanwhile are either returned or
+     * kept by the counter, but never lost.
+     *
+     * @return the count before the reset
+     */
+    long sumThenReset() {
+        long sum = base.getAndSet(0);
+        AtomicLongArray cells = this.cells;
+        if (cells != null) {
+            for (int i = 0; i < cells.length(); i += PADDING) {
+                sum += cells.getAndSet(i, 0);
+            }
+        }
+        return sum;
+    }
+
+    void set(long value) {
+        sumThenReset();
+        add(value);
+    }
+
+    /**
+     * @return whether the counter has been spread over cells
+     */
+    boolean isStriped() {
+        return cells != null;
+    }
+
+    private synchronized AtomicLongArray createCells() {
+        if (cells == null) {
+            cells = new AtomicLongArray(CELLS * PADDING);
+        }
+        return cells;
+    }
+
+    private static int index(AtomicLongArray cells) {
+        // thread ids are handed out in sequence, so consecutive workers take consecutive cells,
+        // the number of cells is that of the node the counter was created on
+        long id = Thread.currentThread().getId();
+        return ((int) (id ^ (id >>> 32)) & (cells.length() / PADDING - 1)) * PADDING;
+    }
+
+    private static int cellCount() {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() && count < MAX_CELLS) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
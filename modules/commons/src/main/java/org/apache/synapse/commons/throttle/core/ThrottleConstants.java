@@ -180,6 +180,7 @@ public final class ThrottleConstants {
     public static final String THROTTLING_POOL_SIZE = "throttling.pool.size";
     public static final String THROTTLING_REPLICATION_FREQUENCY = "throttling.replication.frequency";
     public static final String THROTTLING_KEYS_TO_REPLICATE = "throttling.keys.to.replicate";
+    public static final String THROTTLING_REPLICATION_ERROR_BUDGET = "throttling.replication.error.budget";
     public static final String WINDOW_REPLICATOR_POOL_SIZE = "throttlingWindowReplicator.pool.size";
     public static final String WINDOW_REPLICATOR_FREQUENCY = "throttlingWindowReplicator.replication.frequency";
 
@@ -22,9 +22,12 @@ import org.apache.axis2.context.ConfigurationContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.throttle.core.factory.ThrottleContextFactory;
+import org.apache.synapse.commons.throttle.core.internal.ThrottleServiceDataHolder;
 
-import java.util.*;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
@@ -37,10 +40,14 @@ public abstract class ThrottleContext {
 
     private static Log log = LogFactory.getLog(ThrottleContext.class.getName());
 
-    /* The callersMap that contains all registered callers for a particular throttle */
-    private Map callersMap;
-    /* For mapping id (ip | domainame) to TimeStamp */
-    private Map keyToTimeStampMap;
+    /* Size in milliseconds of the time buckets the registered callers are grouped by */
+    private static final long CALLER_BUCKET_SIZE = 1000;
+
+    /* The callersMap that contains all registered callers for a particular throttle, by the
+     time bucket their time window ends in and their id */
+    private ConcurrentNavigableMap<Long, ConcurrentMap<String, CallerContext>> callersMap;
+    /* For mapping id (ip | domainame) to the time bucket of the caller */
+    private ConcurrentMap<String, Long> keyToTimeStampMap;
     /* The Time which next cleaning for this throttle will have to take place */
     private long nextCleanTime;
     /* The configuration of a throttle */
@@ -62,6 +69,10 @@ public abstract class ThrottleContext {
 
     private ThrottleWindowReplicator throttleWindowReplicator;
 
+    /* Share of the maximum requests of a caller this node may admit before they are reconciled
+     with the cluster right away */
+    private double replicationErrorBudget;
+
     /**
      * default constructor – expects a throttle configuration.
      *
@@ -74,12 +85,14 @@ public abstract class ThrottleContext {
                     "from null a throttle configuration");
         }
         this.throttleReplicator = throttleReplicator;
-        this.keyToTimeStampMap = new ConcurrentHashMap();
-        this.callersMap = new ConcurrentSkipListMap();
+        this.keyToTimeStampMap = new ConcurrentHashMap<String, Long>();
+        this.callersMap = new ConcurrentSkipListMap<Long, ConcurrentMap<String, CallerContext>>();
         this.nextCleanTime = 0;
         this.throttleConfiguration = throttleConfiguration;
         this.debugOn = log.isDebugEnabled();
         this.throttleWindowReplicator = ThrottleContextFactory.getThrottleWindowReplicatorInstance();
+        this.replicationErrorBudget = Double.parseDouble(ThrottleServiceDataHolder.getInstance()
+                .getThrottleProperties().getThrottlingReplicationErrorBudget());
         ThrottleContextFactory.getThrottleContextCleanupTaskInstance().addThrottleContext(this);
     }
 
@@ -110,23 +123,11 @@ public abstract class ThrottleContext {
                 return dataHolder.getCallerContext(keyPrefix + id);
             }
             // for non - clustered  env
-            Long timeKey = (Long) keyToTimeStampMap.get(id);
+            Long timeKey = keyToTimeStampMap.get(id);
             if (timeKey != null) {
-                Object co = callersMap.get(timeKey);
-                if (co != null) {
-                    if (co instanceof CallerContext) {
-                        return (CallerContext) co;
-                    } else if (co instanceof LinkedList) {    // callers with same time window
-                        LinkedList callers = (LinkedList) co;
-                        synchronized (callers) {
-                            for (Iterator it = callers.iterator(); it.hasNext(); ) {
-                                CallerContext cc = (CallerContext) it.next();
-                                if (cc != null && id.equals(cc.getId())) {
-                                    return cc;
-                                }
-                            }
-                        }
-                    }
+                Map<String, CallerContext> callers = callersMap.get(timeKey);
+                if (callers != null) {
+                    return callers.get(id);
                 }
             }
         } else {
@@ -165,30 +166,40 @@ public abstract class ThrottleContext {
         if (dataHolder != null && keyPrefix != null) {
             dataHolder.addCallerContext(keyPrefix + id, callerContext);
         }
-        // for clean up list
-        Long time = new Long(callerContext.getNextTimeWindow());
-        if (!callersMap.containsKey(time)) {
-            callersMap.put(time, callerContext);
-        } else {
-            //if there are callersMap with same timewindow ,then use linkedList to hold those
-            Object callerObject = callersMap.get(time);
-            if (callerObject != null) {
-                if (callerObject instanceof CallerContext) {
-                    LinkedList callersWithSameTimeStamp = new LinkedList();
-                    callersWithSameTimeStamp.add(callerObject);
-                    callersWithSameTimeStamp.add(callerContext);
-                    callersMap.remove(time);
-                    callersMap.put(time, callersWithSameTimeStamp);
-                } else if (callerObject instanceof LinkedList) {
-                    LinkedList callersWithSameTimeStamp = (LinkedList) callerObject;
-                    synchronized (callersWithSameTimeStamp) {
-                        callersWithSameTimeStamp.add(callerContext);
-                    }
-                }
+        // for clean up list, callers whose time window ends in the same bucket are kept together
+        Long time = getCallerBucket(callerContext.getNextTimeWindow());
+        ConcurrentMap<String, CallerContext> callers = callersMap.get(time);
+        if (callers == null) {
+            callers = new ConcurrentHashMap<String, CallerContext>();
+            ConcurrentMap<String, CallerContext> existing = callersMap.putIfAbsent(time, callers);
+            if (existing != null) {
+                callers = existing;
             }
         }
+        callers.put(id, callerContext);
         //set Time Vs key
-        keyToTimeStampMap.put(id, time);
+        Long previousTime = keyToTimeStampMap.put(id, time);
+        if (previousTime != null && !previousTime.equals(time)) {
+            removeFromBucket(previousTime, id);
+        }
+    }
+
+    /**
+     * Helper method to find the time bucket of a time window, which is the end of the window
+     * rounded up so that a caller is never cleaned up before its window is over
+     *
+     * @param nextTimeWindow The end of the time window of a caller
+     * @return The time bucket of the caller
+     */
+    private static Long getCallerBucket(long nextTimeWindow) {
+        return ((nextTimeWindow + CALLER_BUCKET_SIZE - 1) / CALLER_BUCKET_SIZE) * CALLER_BUCKET_SIZE;
+    }
+
+    private void removeFromBucket(Long time, String id) {
+        Map<String, CallerContext> callers = callersMap.get(time);
+        if (callers != null) {
+            callers.remove(id);
+        }
     }
 
     /**
@@ -211,15 +222,14 @@ public abstract class ThrottleContext {
      * @param id The id of the caller
      */
     private void removeCaller(String id) {
-        Long time = (Long) keyToTimeStampMap.get(id);
-        // if (time != null) {
+        Long time = keyToTimeStampMap.remove(id);
         if (dataHolder != null && keyPrefix != null) {
             log.debug("Removing the caller with the configuration id " + id);
             dataHolder.removeCaller(keyPrefix + id);
         }
+        // only this caller is removed, not the others whose time window ends in the same bucket
         if (time != null) {
-            callersMap.remove(time);
-            keyToTimeStampMap.remove(id);
+            removeFromBucket(time, id);
         }
     }
 
@@ -236,51 +246,7 @@ public abstract class ThrottleContext {
             log.debug("Cleaning up process is executing");
         }
         if (time > nextCleanTime) {
-            SortedMap map = ((ConcurrentNavigableMap) callersMap).headMap(new Long(time));
-            if (map != null && map.size() > 0) {
-                for (Iterator it = map.values().iterator(); it.hasNext(); ) {
-                    Object o = it.next();
-                    if (o != null) {
-                        if (o instanceof CallerContext) { // In the case nextAccessTime is unique
-                            CallerContext c = ((CallerContext) o);
-                            String key = c.getId();
-                            String role = c.getRoleId();
-                            if (key != null) {
-                                if (dataHolder != null && keyPrefix != null) {
-                                    c = dataHolder.getCallerContext(keyPrefix + key);
-                                }
-                                if (c != null) {
-                                    c.cleanUpCallers(
-                                            this.throttleConfiguration.getCallerConfiguration(role)
-                                            , this
-                                            , time);
-                                }
-                            }
-                        }
-                        if (o instanceof LinkedList) { //In the case nextAccessTime of callers are same
-                            LinkedList callers = (LinkedList) o;
-                            synchronized (callers) {
-                                for (Iterator ite = callers.iterator(); ite.hasNext(); ) {
-                                    CallerContext c = (CallerContext) ite.next();
-                                    String key = c.getId();
-                                    String role = c.getRoleId();
-                                    if (key != null) {
-                                        if (dataHolder != null && keyPrefix != null) {
-                                            c = (CallerContext) dataHolder.getCallerContext(keyPrefix + key);
-                                        }
-                                        if (c != null) {
-                                            c.cleanUpCallers(
-                                                    this.throttleConfiguration.getCallerConfiguration(role)
-                                                    , this
-                                                    , time);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            cleanUpExpiredCallers(time);
             nextCleanTime = time + ThrottleConstants.DEFAULT_THROTTLE_CLEAN_PERIOD;
         }
     }
@@ -336,7 +302,7 @@ public abstract class ThrottleContext {
     public void addAndFlushCallerContext(CallerContext callerContext, String id) {
         if (callerContext != null && id != null) {
             addCaller(callerContext, id);
-            replicateCaller(id);
+            replicateCaller(id, false);
         }
     }
 
@@ -351,7 +317,28 @@ public abstract class ThrottleContext {
             String key = keyPrefix + id;
             dataHolder.addCallerContext(key, callerContext); // have to do ,because we always gets
             //  any property as non-replicable
-            replicateCaller(id);
+            replicateCaller(id, false);
+        }
+    }
+
+    /**
+     * To replicates the states of the already exist caller, which admitted the given number of
+     * requests on this node since its counters were last replicated. The counters are
+     * replicated right away rather than on the next run of the replicator, once that number
+     * exceeds the error budget of the maximum requests of the caller.
+     *
+     * @param callerContext The states of the caller
+     * @param id            The id of the remote caller
+     * @param localCount    Number of requests admitted locally and not replicated yet
+     * @param maxRequest    Maximum number of requests of the caller in a unit time
+     */
+    public void flushCallerContext(CallerContext callerContext, String id, long localCount,
+                                   int maxRequest) {
+        if (dataHolder != null && callerContext != null && id != null) {
+            String key = keyPrefix + id;
+            dataHolder.addCallerContext(key, callerContext);
+            long errorBudget = Math.max(1, (long) (maxRequest * replicationErrorBudget));
+            replicateCaller(id, localCount > errorBudget);
         }
     }
 
@@ -366,7 +353,7 @@ public abstract class ThrottleContext {
                 log.debug("REMOVING AND FLUSHING CALLER CONTEXT WITH ID " + id);
             }
             removeCaller(id);
-            replicateCaller(id);
+            replicateCaller(id, false);
         }
     }
 
@@ -389,9 +376,10 @@ public abstract class ThrottleContext {
     /**
      * Helper method to replicates states of the caller with given key
      *
-     * @param id The id of the caller
+     * @param id  The id of the caller
+     * @param now Whether to replicate the states right away
      */
-    private void replicateCaller(String id) {
+    private void replicateCaller(String id, boolean now) {
 
         if (configctx != null && keyPrefix != null) {
             try {
@@ -400,7 +388,7 @@ public abstract class ThrottleContext {
                 }
 
                 throttleReplicator.setConfigContext(configctx);
-                throttleReplicator.add(keyPrefix + id);
+                throttleReplicator.add(keyPrefix + id, now);
 
             } catch (Exception clusteringFault) {
                 log.error("Error during the replicating states ", clusteringFault);
@@ -436,52 +424,43 @@ public abstract class ThrottleContext {
      * @param time to clean up the caller contexts
      */
     public void cleanupCallers(long time) {
-
-        SortedMap map = ((ConcurrentNavigableMap) callersMap).headMap(new Long(time));
         if (log.isDebugEnabled()) {
-            log.debug("CallerMap Size before cleanup process : " + map.size());
+            log.debug("CallerMap Size before cleanup process : " + keyToTimeStampMap.size());
+        }
+        cleanUpExpiredCallers(time);
+        if (log.isDebugEnabled()) {
+            log.debug("CallerMap Size after cleanup process : " + keyToTimeStampMap.size());
         }
-        if (map != null && map.size() > 0) {
-            for (Iterator it = map.values().iterator(); it.hasNext(); ) {
-                Object o = it.next();
-                if (o != null) {
-                    if (o instanceof CallerContext) { // In the case nextAccessTime is unique
-                        CallerContext c = ((CallerContext) o);
-                        String key = c.getId();
-                        String role = c.getRoleId();
-                        if (key != null) {
-                            if (dataHolder != null && keyPrefix != null) {
-                                c = dataHolder.getCallerContext(keyPrefix + key);
-                            }
-                            if (c != null) {
-                                c.cleanUpCallers(
-                                        this.throttleConfiguration.getCallerConfiguration(role), this, time);
-                            }
-                        }
+    }
+
+    /**
+     * Helper method to clean up the callers whose time window ended before the given time, and
+     * drop the time buckets left empty
+     *
+     * @param time to clean up the caller contexts
+     */
+    private void cleanUpExpiredCallers(long time) {
+        Map<Long, ConcurrentMap<String, CallerContext>> expired = callersMap.headMap(time);
+        for (Iterator<Map.Entry<Long, ConcurrentMap<String, CallerContext>>> it =
+                     expired.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, ConcurrentMap<String, CallerContext>> bucket = it.next();
+            for (CallerContext c : bucket.getValue().values()) {
+                String key = c.getId();
+                String role = c.getRoleId();
+                if (key != null) {
+                    if (dataHolder != null && keyPrefix != null) {
+                        c = dataHolder.getCallerContext(keyPrefix + key);
                     }
-                    if (o instanceof LinkedList) { //In the case nextAccessTime of callers are same
-                        LinkedList callers = (LinkedList) o;
-                        Iterator ite = callers.iterator();
-                        while (ite.hasNext()) {
-                            CallerContext c = (CallerContext) ite.next();
-                            String key = c.getId();
-                            String role = c.getRoleId();
-                            if (key != null) {
-                                if (dataHolder != null && keyPrefix != null) {
-                                    c = (CallerContext) dataHolder.getCallerContext(keyPrefix + key);
-                                }
-                                if (c != null) {
-                                    c.cleanUpCallers(
-                                            this.throttleConfiguration.getCallerConfiguration(role), this, time);
-                                }
-                            }
-                        }
+                    if (c != null) {
+                        c.cleanUpCallers(
+                                this.throttleConfiguration.getCallerConfiguration(role), this, time);
                     }
                 }
             }
-        }
-        if (log.isDebugEnabled()) {
-            log.debug("CallerMap Size after cleanup process : " + map.size());
+            // new callers do not end their time window in an expired bucket
+            if (bucket.getValue().isEmpty()) {
+                callersMap.remove(bucket.getKey(), bucket.getValue());
+            }
         }
     }
 }
@@ -31,6 +31,7 @@ public class ThrottleProperties implements Serializable {
 	private String throttlingPoolSize;
 	private String throttlingReplicationFrequency;
 	private String throttlingKeysToReplicates;
+	private String throttlingReplicationErrorBudget;
 
 	public String getWindowReplicatorPoolSize() {
 		return windowReplicatorPoolSize;
@@ -132,4 +133,12 @@ public class ThrottleProperties implements Serializable {
 	public void setThrottlingKeysToReplicates(String throttlingKeysToReplicates) {
 		this.throttlingKeysToReplicates = throttlingKeysToReplicates;
 	}
+
+	public String getThrottlingReplicationErrorBudget() {
+		return throttlingReplicationErrorBudget;
+	}
+
+	public void setThrottlingReplicationErrorBudget(String throttlingReplicationErrorBudget) {
+		this.throttlingReplicationErrorBudget = throttlingReplicationErrorBudget;
+	}
 }
@@ -23,11 +23,17 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.throttle.core.internal.ThrottleServiceDataHolder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /* Runs a scheduled task, which replicates CallerContexts through the cluster.
- * Frequency of the job can be controlled
+ * Frequency of the job can be controlled. The local counters of the callers are added to the
+ * shared counters in batches, without waiting for one caller before replicating the next.
  */
 
 public class ThrottleReplicator {
@@ -41,14 +47,19 @@ public class ThrottleReplicator {
     private ThrottleProperties throttleProperties;
     private int replicatorCount;
 
-    private Set<String> set = new ConcurrentSkipListSet<String>();
+    private Set<String> set = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final ScheduledExecutorService executor;
+
+    /* Whether a replication is requested to run ahead of the schedule */
+    private final AtomicBoolean replicationRequested = new AtomicBoolean(false);
 
     public ThrottleReplicator() {
         throttleProperties = ThrottleServiceDataHolder.getInstance().getThrottleProperties();
         replicatorPoolSize = Integer.parseInt(throttleProperties.getThrottlingPoolSize());
 
         log.debug("Replicator pool size set to " + replicatorPoolSize);
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(replicatorPoolSize,
+        executor = Executors.newScheduledThreadPool(replicatorPoolSize,
                 new ThreadFactory() {
                     @Override
                     public Thread newThread(
@@ -76,55 +87,92 @@ public class ThrottleReplicator {
     }
 
     public void add(String key) {
+        add(key, false);
+    }
+
+    /**
+     * Add the key of a caller to be replicated
+     *
+     * @param key the key of the caller
+     * @param now true to replicate right away, rather than on the next scheduled run
+     */
+    public void add(String key, boolean now) {
         if (configContext == null) {
             throw new IllegalStateException("ConfigurationContext has not been set");
         }
-        synchronized (key.intern()) {
-            set.add(key);
-        }
+        set.add(key);
         if (log.isDebugEnabled()) {
             log.trace("Adding key " + key + " to replication list");
         }
+        if (now && replicationRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(new ReplicatorTask());
+            } catch (RejectedExecutionException e) {
+                replicationRequested.set(false);
+            }
+        }
     }
 
     private class ReplicatorTask implements Runnable {
         public void run() {
+            replicationRequested.set(false);
             try {
                 if (!set.isEmpty()) {
-                    for (String key : set) {
-                        synchronized (key.intern()) {
-                            ThrottleDataHolder dataHolder = (ThrottleDataHolder)
-                                    configContext.getProperty(ThrottleConstants.THROTTLE_INFO_KEY);
-                            CallerContext callerContext = dataHolder.getCallerContext(key);
-                            //get hazlecast instance and update counters
-                            //If both global and local counters are 0 then that means cleanup caller
-                            if (callerContext != null) {
-                                //If local counter > 0 and time window is not expired then only we have to replicate counters.
-                                //Otherwise we do not need to do replication.
-                                if (callerContext.getLocalCounter() > 0 &&
-                                        callerContext.getNextTimeWindow() > System.currentTimeMillis()) {
-	                                String id = callerContext.getId();
-	                                //First put local counter to variable and reset it just after it because
-	                                //if there are incoming requests coming. the local counter will be updated
-	                                //if that happen, reset will cause to miss the additional requests come after
-	                                //local counter value taken into the consideration
-	                                long localCounter = callerContext.getLocalCounter();
-	                                callerContext.resetLocalCounter();
-	                                Long distributedCounter = SharedParamManager.asyncGetAndAddDistributedCounter(id, localCounter);
-	                                //Update instance global counter with distributed counter
-                                    callerContext.setGlobalCounter(distributedCounter + localCounter);
-                                    if(log.isDebugEnabled()) {
-                                        log.debug("Increasing counters of context :" + callerContext.getId() + " "
-                                                  + "Replicated Count After  Update : distributedCounter =" +distributedCounter
-                                                  + " localCounter=" + localCounter + " total=" + (distributedCounter + localCounter));
-                                    }
-                                }
+                    ThrottleDataHolder dataHolder = (ThrottleDataHolder)
+                            configContext.getProperty(ThrottleConstants.THROTTLE_INFO_KEY);
+                    List<String> keys = new ArrayList<String>();
+                    List<CallerContext> callers = new ArrayList<CallerContext>();
+                    List<Long> localCounters = new ArrayList<Long>();
+                    List<Future<Long>> distributedCounters = new ArrayList<Future<Long>>();
+                    long currentTime = System.currentTimeMillis();
+
+                    for (Iterator<String> it = set.iterator();
+                         it.hasNext() && keys.size() < keysToReplicate; ) {
+                        String key = it.next();
+                        // a key added again from now on is replicated on the next run
+                        if (!set.remove(key)) {
+                            continue;
+                        }
+                        CallerContext callerContext = dataHolder.getCallerContext(key);
+                        //If local counter > 0 and time window is not expired then only we have to replicate counters.
+                        //Otherwise we do not need to do replication.
+                        if (callerContext != null && callerContext.getNextTimeWindow() > currentTime) {
+                            //Take the local counter and reset it at once, so that the requests coming
+                            //in meanwhile are counted for the next replication
+                            long localCounter = callerContext.drainLocalCounter();
+                            if (localCounter > 0) {
+                                keys.add(key);
+                                callers.add(callerContext);
+                                localCounters.add(localCounter);
+                                distributedCounters.add(SharedParamManager.asyncAddAndGetDistributedCounter(
+                                        callerContext.getId(), localCounter));
                             }
-	                        set.remove(key);
                         }
+                    }
 
+                    for (int i = 0; i < keys.size(); i++) {
+                        CallerContext callerContext = callers.get(i);
+                        long localCounter = localCounters.get(i);
+                        try {
+                            long distributedCounter = distributedCounters.get(i).get();
+                            //Update instance global counter with distributed counter
+                            callerContext.setGlobalCounter(distributedCounter);
+                            if (log.isDebugEnabled()) {
+                                log.debug("Increasing counters of context :" + callerContext.getId() + " "
+                                          + "Replicated Count After  Update : localCounter=" + localCounter
+                                          + " total=" + distributedCounter);
+                            }
+                        } catch (ExecutionException e) {
+                            // count the requests again, to replicate them on the next run
+                            callerContext.addLocalCounter(localCounter);
+                            set.add(keys.get(i));
+                            log.warn("Could not replicate the counter of caller : " + callerContext.getId(),
+                                    e.getCause());
+                        }
                     }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Throwable t) {
                 log.error("Could not replicate throttle data", t);
             }
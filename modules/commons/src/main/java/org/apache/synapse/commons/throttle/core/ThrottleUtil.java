@@ -139,6 +139,14 @@ public class ThrottleUtil {
 					throttleProperties.setThrottlingKeysToReplicates("25000");
 				}
 
+				String throttlingReplicationErrorBudget =
+						properties.getProperty(ThrottleConstants.THROTTLING_REPLICATION_ERROR_BUDGET);
+				if (!StringUtils.isEmpty(throttlingReplicationErrorBudget)) {
+					throttleProperties.setThrottlingReplicationErrorBudget(throttlingReplicationErrorBudget);
+				} else {
+					throttleProperties.setThrottlingReplicationErrorBudget("0.1");
+				}
+
 				String windowReplicatorPoolSize =
 						properties.getProperty(ThrottleConstants.WINDOW_REPLICATOR_POOL_SIZE);
 				if (windowReplicatorPoolSize != null && windowReplicatorPoolSize != "") {
@@ -169,6 +177,7 @@ public class ThrottleUtil {
 				throttleProperties.setThrottlingPoolSize("1");
 				throttleProperties.setThrottlingReplicationFrequency("50");
 				throttleProperties.setThrottlingKeysToReplicates("25000");
+				throttleProperties.setThrottlingReplicationErrorBudget("0.1");
 				throttleProperties.setWindowReplicatorPoolSize("1");
 				throttleProperties.setWindowReplicatorFrequency("50");
 			}
@@ -184,6 +193,7 @@ public class ThrottleUtil {
 			throttleProperties.setThrottlingPoolSize("1");
 			throttleProperties.setThrottlingReplicationFrequency("50");
 			throttleProperties.setThrottlingKeysToReplicates("25000");
+			throttleProperties.setThrottlingReplicationErrorBudget("0.1");
 			throttleProperties.setWindowReplicatorPoolSize("1");
 			throttleProperties.setWindowReplicatorFrequency("50");
 		}
@@ -22,6 +22,7 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.MessageContext;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 
 import javax.xml.stream.XMLStreamException;
@@ -138,6 +139,59 @@ public class JsonUtilTest extends TestCase {
         assertTrue("Json payload identified incorrectly", JsonUtil.cloneJsonPayload(sourceContext, targetContext));
     }
 
+    public void testClonedJsonPayloadIsIndependent() throws AxisFault {
+        MessageContext sourceContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(sourceContext, "{\"name\":\"WSO2\"}", true, true);
+        Object document = new Object();
+        JsonUtil.setParsedJsonPayload(sourceContext, document);
+        MessageContext firstClone = Util.newMessageContext();
+        MessageContext secondClone = Util.newMessageContext();
+        assertTrue(JsonUtil.cloneJsonPayload(sourceContext, firstClone));
+        assertTrue(JsonUtil.cloneJsonPayload(sourceContext, secondClone));
+        assertSame("Parsed payload of the source dropped by cloning", document,
+                   JsonUtil.getParsedJsonPayload(sourceContext));
+
+        JsonUtil.getNewJsonPayload(firstClone, "{\"name\":\"Synapse\"}", true, true);
+        assertEquals("{\"name\":\"Synapse\"}", new String(JsonUtil.jsonPayloadToByteArray(firstClone)));
+        assertEquals("{\"name\":\"WSO2\"}", new String(JsonUtil.jsonPayloadToByteArray(secondClone)));
+        assertEquals("{\"name\":\"WSO2\"}", new String(JsonUtil.jsonPayloadToByteArray(sourceContext)));
+        // each message context reads the shared payload from its own position
+        assertEquals("{\"name\":\"WSO2\"}", new String(JsonUtil.jsonPayloadToByteArray(secondClone)));
+    }
+
+    public void testConsumeJsonPayload() throws IOException {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, "[{\"id\":1},{\"id\":2}]", true, true);
+        // part of the payload has already been read into the buffer of the payload stream
+        assertEquals('[', JsonUtil.getJsonPayload(messageContext).read());
+        InputStream payload = JsonUtil.consumeJsonPayload(messageContext);
+        assertFalse("JSON payload not removed", JsonUtil.hasAJsonPayload(messageContext));
+        assertEquals("[{\"id\":1},{\"id\":2}]", IOUtils.toString(payload));
+    }
+
+    /**
+     * Cloning a JSON payload any number of times buffers it once, instead of copying it for every clone
+     */
+    public void testClonedJsonPayloadIsNotCopied() throws AxisFault {
+        MessageContext sourceContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(sourceContext, "{\"name\":\"WSO2\"}", true, true);
+        MessageContext[] clones = new MessageContext[100];
+        for (int i = 0; i < clones.length; i++) {
+            clones[i] = Util.newMessageContext();
+            assertTrue(JsonUtil.cloneJsonPayload(sourceContext, clones[i]));
+        }
+
+        JsonUtil.SharedBytesStream source = (JsonUtil.SharedBytesStream) sourceContext.getProperty(
+                Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+        for (MessageContext clone : clones) {
+            JsonUtil.SharedBytesStream cloned = (JsonUtil.SharedBytesStream) clone.getProperty(
+                    Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+            assertNotSame(source, cloned);
+            assertTrue("Cloned JSON payload was copied", source.sharesBytesWith(cloned));
+            assertEquals("{\"name\":\"WSO2\"}", new String(JsonUtil.jsonPayloadToByteArray(clone)));
+        }
+    }
+
     public void testJsonPayloadToByteArray() throws AxisFault, XMLStreamException {
         MessageContext messageContext = Util.newMessageContext("<jsonArray><jsonElement>10</jsonElement><jsonElement>20</jsonElement></jsonArray>");
         OMElement element = AXIOMUtil.stringToOM("<name>WSO2</name>");
@@ -157,4 +211,33 @@ public class JsonUtilTest extends TestCase {
         assertEquals("Empty array expected", 0, bytes.length);
     }
 
+    public void testParsedJsonPayloadInvalidatedOnNewPayload() throws AxisFault {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, "{\"name\":\"WSO2\"}", true, true);
+        assertNull("Payload should not be parsed yet", JsonUtil.getParsedJsonPayload(messageContext));
+        Object document = new Object();
+        JsonUtil.setParsedJsonPayload(messageContext, document);
+        assertSame("Parsed payload not reused", document, JsonUtil.getParsedJsonPayload(messageContext));
+        JsonUtil.getNewJsonPayload(messageContext, "{\"name\":\"Synapse\"}", true, true);
+        assertNull("Parsed payload of the previous payload returned",
+                   JsonUtil.getParsedJsonPayload(messageContext));
+    }
+
+    public void testParsedJsonPayloadInvalidatedOnRemove() throws AxisFault {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, "{\"name\":\"WSO2\"}", true, true);
+        JsonUtil.setParsedJsonPayload(messageContext, new Object());
+        JsonUtil.removeJsonPayload(messageContext);
+        assertNull("Parsed payload of a removed payload returned", JsonUtil.getParsedJsonPayload(messageContext));
+    }
+
+    public void testParsedJsonPayloadInvalidatedOnStreamReplaced() throws AxisFault, XMLStreamException {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, "{\"name\":\"WSO2\"}", true, true);
+        JsonUtil.setParsedJsonPayload(messageContext, new Object());
+        messageContext.setProperty("org.apache.synapse.commons.json.JsonInputStream",
+                                   JsonUtil.toJsonStream(AXIOMUtil.stringToOM("<name>Synapse</name>")));
+        assertNull("Parsed payload of a replaced stream returned", JsonUtil.getParsedJsonPayload(messageContext));
+    }
+
 }
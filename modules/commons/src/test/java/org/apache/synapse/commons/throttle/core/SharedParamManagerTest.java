@@ -0,0 +1,92 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the shared counters and timestamps, which are kept locally without a cluster
+ */
+public class SharedParamManagerTest extends TestCase {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS = 10000;
+
+    public void testCounter() throws Exception {
+        String id = "counter-" + getName();
+        assertEquals(0, SharedParamManager.getDistributedCounter(id));
+        assertEquals(5, SharedParamManager.addAndGetDistributedCounter(id, 5));
+        assertEquals(5, SharedParamManager.asyncGetAndAddDistributedCounter(id, 2));
+        assertEquals(7, SharedParamManager.asyncGetAndAlterDistributedCounter(id, 3));
+        assertEquals(12, SharedParamManager.asyncAddAndGetDistributedCounter(id, 2).get().longValue());
+        SharedParamManager.setDistributedCounter(id, 1);
+        assertEquals(1, SharedParamManager.getDistributedCounter(id));
+        SharedParamManager.removeCounter(id);
+        assertEquals(0, SharedParamManager.getDistributedCounter(id));
+    }
+
+    /**
+     * Adding to a counter which was never read should not fail
+     */
+    public void testAddToNewCounter() {
+        assertEquals(3, SharedParamManager.addAndGetDistributedCounter("new-" + getName(), 3));
+    }
+
+    /**
+     * Concurrent additions to the same counter should not be lost
+     */
+    public void testConcurrentAdditions() throws Exception {
+        final String id = "concurrent-" + getName();
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < INCREMENTS; j++) {
+                            SharedParamManager.addAndGetDistributedCounter(id, 1);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(THREADS * INCREMENTS, SharedParamManager.getDistributedCounter(id));
+    }
+
+    /**
+     * A timestamp should be read back with the id it was set with
+     */
+    public void testTimestamp() {
+        String id = "timestamp-" + getName();
+        assertEquals(0, SharedParamManager.getSharedTimestamp(id));
+        SharedParamManager.setSharedTimestamp(id, 1234);
+        assertEquals(1234, SharedParamManager.getSharedTimestamp(id));
+        assertEquals(1234, SharedParamManager.getSharedTimestampWithFullId(
+                ThrottleConstants.THROTTLE_TIMESTAMP_KEY + id));
+        SharedParamManager.removeTimestamp(id);
+        assertEquals(0, SharedParamManager.getSharedTimestamp(id));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the striped counter local requests of callers are counted with
+ */
+public class StripedCounterTest extends TestCase {
+
+    private static final int THREADS = 8;
+    private static final int INCREMENTS = 100000;
+
+    public void testCount() {
+        StripedCounter counter = new StripedCounter();
+        assertEquals(0, counter.sum());
+        counter.increment();
+        counter.add(41);
+        assertEquals(42, counter.sum());
+        assertEquals("42", counter.toString());
+        counter.set(7);
+        assertEquals(7, counter.sum());
+        assertEquals(7, counter.sumThenReset());
+        assertEquals(0, counter.sum());
+    }
+
+    /**
+     * A counter updated by one thread at a time should not allocate its cells
+     */
+    public void testNoCellsWithoutContention() {
+        StripedCounter counter = new StripedCounter();
+        for (int i = 0; i < INCREMENTS; i++) {
+            counter.increment();
+        }
+        assertFalse(counter.isStriped());
+        assertEquals(INCREMENTS, counter.sumThenReset());
+        assertFalse(counter.isStriped());
+    }
+
+    public void testConcurrentIncrements() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int i = 0; i < INCREMENTS; i++) {
+                    counter.increment();
+                }
+            }
+        }, null);
+        assertEquals(THREADS * INCREMENTS, counter.sum());
+    }
+
+    /**
+     * Requests counted while the counter is drained are either drained or kept by the counter
+     */
+    public void testDrainLosesNoCount() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final AtomicLong drained = new AtomicLong();
+        runConcurrently(new Runnable() {
+            public void run() {
+                for (int i = 0; i < INCREMENTS; i++) {
+                    counter.increment();
+                }
+            }
+        }, new Runnable() {
+            public void run() {
+                drained.addAndGet(counter.sumThenReset());
+            }
+        });
+        assertEquals(THREADS * INCREMENTS, drained.get() + counter.sum());
+    }
+
+    public void testSerialization() throws Exception {
+        StripedCounter counter = new StripedCounter();
+        counter.add(5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(counter);
+        out.close();
+        StripedCounter copy = (StripedCounter) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(5, copy.sum());
+        copy.increment();
+        assertEquals(6, copy.sum());
+    }
+
+    private static void runConcurrently(Runnable task, Runnable whileRunning) throws Exception {
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final Runnable counting = task;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        counting.run();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            if (whileRunning != null) {
+                whileRunning.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseCallerContext;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseThrottleConfiguration;
+import org.apache.synapse.commons.throttle.core.factory.ThrottleContextFactory;
+
+/**
+ * Tests the callers of a throttle context, which are grouped by the time bucket their time
+ * window ends in
+ */
+public class ThrottleContextTest extends TestCase {
+
+    private ThrottleContext throttleContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        throttleContext = ThrottleContextFactory.createThrottleContext(
+                ThrottleConstants.IP_BASE, new IPBaseThrottleConfiguration());
+    }
+
+    public void testAddAndGetCaller() {
+        CallerContext caller = newCaller("10.0.0.1", 1500);
+        throttleContext.addCallerContext(caller, "10.0.0.1");
+        assertSame(caller, throttleContext.getCallerContext("10.0.0.1"));
+        assertNull(throttleContext.getCallerContext("10.0.0.2"));
+        assertNull(throttleContext.getCallerContext(null));
+    }
+
+    /**
+     * Removing a caller should not remove the other callers whose window ends in the same bucket
+     */
+    public void testRemoveKeepsCallersOfSameBucket() {
+        CallerContext first = newCaller("10.0.0.1", 1200);
+        CallerContext second = newCaller("10.0.0.2", 1800);
+        throttleContext.addCallerContext(first, "10.0.0.1");
+        throttleContext.addCallerContext(second, "10.0.0.2");
+
+        throttleContext.removeCallerContext("10.0.0.1");
+        assertNull(throttleContext.getCallerContext("10.0.0.1"));
+        assertSame(second, throttleContext.getCallerContext("10.0.0.2"));
+    }
+
+    /**
+     * A caller added again with a new time window should only be kept in its new bucket
+     */
+    public void testCallerMovesToNewBucket() {
+        CallerContext caller = newCaller("10.0.0.1", 1500);
+        throttleContext.addCallerContext(caller, "10.0.0.1");
+        caller.setNextTimeWindow(5500);
+        throttleContext.addCallerContext(caller, "10.0.0.1");
+        assertSame(caller, throttleContext.getCallerContext("10.0.0.1"));
+
+        // the bucket of the previous window is empty and dropped without visiting the caller
+        throttleContext.cleanupCallers(3000);
+        assertSame(caller, throttleContext.getCallerContext("10.0.0.1"));
+
+        throttleContext.removeCallerContext("10.0.0.1");
+        assertNull(throttleContext.getCallerContext("10.0.0.1"));
+    }
+
+    /**
+     * A caller should not be cleaned up before its time window is over, although the window is
+     * rounded up to the end of its bucket
+     */
+    public void testCleanupSkipsCallersWithinWindow() {
+        CallerContext caller = newCaller("10.0.0.1", 1500);
+        throttleContext.addCallerContext(caller, "10.0.0.1");
+        throttleContext.cleanupCallers(1600);
+        assertSame(caller, throttleContext.getCallerContext("10.0.0.1"));
+    }
+
+    private static CallerContext newCaller(String id, long nextTimeWindow) {
+        CallerContext caller = new IPBaseCallerContext(id);
+        caller.setNextTimeWindow(nextTimeWindow);
+        return caller;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.commons.throttle.core;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseCallerContext;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseThrottleConfiguration;
+import org.apache.synapse.commons.throttle.core.impl.ipbase.IPBaseThrottleContext;
+import org.apache.synapse.commons.throttle.core.internal.ThrottleServiceDataHolder;
+
+/**
+ * Tests the replication of the local counters of callers to the shared counters, which are
+ * kept locally without a cluster
+ */
+public class ThrottleReplicatorTest extends TestCase {
+
+    private static final String THROTTLE_ID = "replicatorTest";
+
+    private static final long TIMEOUT = 10000;
+
+    private ConfigurationContext configurationContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        configurationContext = new ConfigurationContext(new AxisConfiguration());
+    }
+
+    /**
+     * The local counters of all the callers added for replication should be added to their
+     * shared counters in one run
+     */
+    public void testBatchReplication() throws Exception {
+        ThrottleReplicator replicator = newReplicator("50");
+        ThrottleContext throttleContext = newThrottleContext(replicator);
+        CallerContext[] callers = new CallerContext[3];
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = newCaller("batch-" + getName() + "-" + i);
+            for (int j = 0; j <= i; j++) {
+                callers[i].incrementLocalCounter();
+            }
+            throttleContext.addAndFlushCallerContext(callers[i], callers[i].getId());
+        }
+
+        for (int i = 0; i < callers.length; i++) {
+            waitForGlobalCounter(callers[i], i + 1);
+            assertEquals(0, callers[i].getLocalCounter());
+            assertEquals(i + 1, SharedParamManager.getDistributedCounter(callers[i].getId()));
+        }
+    }
+
+    /**
+     * Requests counted after a replication should be added to the shared counter on the next one
+     */
+    public void testRequestsCountedAfterReplication() throws Exception {
+        ThrottleReplicator replicator = newReplicator("50");
+        ThrottleContext throttleContext = newThrottleContext(replicator);
+        CallerContext caller = newCaller("again-" + getName());
+        caller.incrementLocalCounter();
+        throttleContext.addAndFlushCallerContext(caller, caller.getId());
+        waitForGlobalCounter(caller, 1);
+
+        caller.incrementLocalCounter();
+        caller.incrementLocalCounter();
+        throttleContext.flushCallerContext(caller, caller.getId());
+        waitForGlobalCounter(caller, 3);
+        assertEquals(0, caller.getLocalCounter());
+    }
+
+    /**
+     * A caller should only be replicated ahead of the schedule once it admitted more than the
+     * error budget of its maximum requests locally
+     */
+    public void testErrorBudgetFlush() throws Exception {
+        // the scheduled runs do not start during the test
+        ThrottleReplicator replicator = newReplicator("600000");
+        ThrottleContext throttleContext = newThrottleContext(replicator);
+        CallerContext caller = newCaller("budget-" + getName());
+        throttleContext.addCallerContext(caller, caller.getId());
+
+        // within the default budget of 10 of 100 requests
+        for (int i = 0; i < 10; i++) {
+            caller.incrementLocalCounter();
+        }
+        throttleContext.flushCallerContext(caller, caller.getId(), caller.getLocalCounter(), 100);
+        Thread.sleep(500);
+        assertEquals(0, caller.getGlobalCounter());
+        assertEquals(10, caller.getLocalCounter());
+
+        caller.incrementLocalCounter();
+        throttleContext.flushCallerContext(caller, caller.getId(), caller.getLocalCounter(), 100);
+        waitForGlobalCounter(caller, 11);
+        assertEquals(0, caller.getLocalCounter());
+    }
+
+    private ThrottleReplicator newReplicator(String frequency) {
+        ThrottleProperties properties = ThrottleServiceDataHolder.getInstance().getThrottleProperties();
+        String defaultFrequency = properties.getThrottlingReplicationFrequency();
+        properties.setThrottlingReplicationFrequency(frequency);
+        try {
+            return new ThrottleReplicator();
+        } finally {
+            properties.setThrottlingReplicationFrequency(defaultFrequency);
+        }
+    }
+
+    private ThrottleContext newThrottleContext(ThrottleReplicator replicator) {
+        ThrottleContext throttleContext =
+                new IPBaseThrottleContext(new IPBaseThrottleConfiguration(), replicator);
+        throttleContext.setThrottleId(THROTTLE_ID);
+        throttleContext.setConfigurationContext(configurationContext);
+        return throttleContext;
+    }
+
+    private static CallerContext newCaller(String id) {
+        CallerContext caller = new IPBaseCallerContext(id);
+        caller.setNextTimeWindow(System.currentTimeMillis() + 60000);
+        return caller;
+    }
+
+    private static void waitForGlobalCounter(CallerContext caller, long expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (caller.getGlobalCounter() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, caller.getGlobalCounter());
+    }
+}
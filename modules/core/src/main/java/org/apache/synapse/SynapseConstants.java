@@ -443,6 +443,8 @@ public final class SynapseConstants {
     public static final String PRESERVE_PROCESSED_HEADERS = "preserveProcessedHeaders";
     // Property name for preserving the envelope before sending
     public static final String PRESERVE_ENVELOPE = "PRESERVE_ENVELOPE";
+    // Endpoint property name for the number of connections opened to the endpoint when deployed
+    public static final String PREWARM_CONNECTIONS = "PREWARM_CONNECTIONS";
     // Property name for preserving the envelope in case of loadbalance failover endpoint with content aware scenario
     public static final String LB_FO_ENDPOINT_ORIGINAL_MESSAGE = "LB_FO_ENDPOINT_ORIGINAL_MESSAGE";
 
@@ -525,6 +527,85 @@ public final class SynapseConstants {
     //Enable message building when doing failover
     public static final String BUILD_MESSAGE_ON_FAILOVER = "build.message.on.failover.enable";
 
+    //Compiled stylesheets kept by each XSLT mediator
+    public static final String XSLT_TEMPLATE_CACHE_SIZE = "synapse.xslt.template.cache.size";
+    public static final int DEFAULT_XSLT_TEMPLATE_CACHE_SIZE = 100;
+    //Time in milliseconds after which an unused compiled stylesheet is dropped
+    public static final String XSLT_TEMPLATE_CACHE_MAX_IDLE = "synapse.xslt.template.cache.max.idle";
+    public static final long DEFAULT_XSLT_TEMPLATE_CACHE_MAX_IDLE = 60 * 60 * 1000;
+    //Reusable transformers kept per compiled stylesheet
+    public static final String XSLT_TRANSFORMER_POOL_SIZE = "synapse.xslt.transformer.pool.size";
+    public static final int DEFAULT_XSLT_TRANSFORMER_POOL_SIZE = 16;
+
+    //Share mutable property values between a cloned message and its clones until first use
+    public static final String CLONE_COPY_ON_WRITE = "synapse.clone.copy.on.write";
+    public static final boolean DEFAULT_CLONE_COPY_ON_WRITE = false;
+
+    //Tick duration in milliseconds and number of buckets of the hashed wheel timer
+    public static final String WHEEL_TIMER_TICK = "synapse.wheel.timer.tick";
+    public static final long DEFAULT_WHEEL_TIMER_TICK = 100;
+    public static final String WHEEL_TIMER_SIZE = "synapse.wheel.timer.size";
+    public static final int DEFAULT_WHEEL_TIMER_SIZE = 512;
+
+    //Passive outlier detection of the members of load balance and failover groups
+    public static final String OUTLIER_DETECTION = "synapse.endpoint.outlier.detection.enabled";
+    public static final boolean DEFAULT_OUTLIER_DETECTION = false;
+    //Time in milliseconds over which the responses of a member are judged
+    public static final String OUTLIER_DETECTION_WINDOW = "synapse.endpoint.outlier.detection.window";
+    public static final long DEFAULT_OUTLIER_DETECTION_WINDOW = 10 * 1000;
+    //Responses a member must have in the window before it can be ejected
+    public static final String OUTLIER_DETECTION_MIN_REQUESTS =
+            "synapse.endpoint.outlier.detection.min.requests";
+    public static final int DEFAULT_OUTLIER_DETECTION_MIN_REQUESTS = 20;
+    //Share of failed responses at which a member is ejected
+    public static final String OUTLIER_DETECTION_FAILURE_RATE =
+            "synapse.endpoint.outlier.detection.failure.rate";
+    public static final double DEFAULT_OUTLIER_DETECTION_FAILURE_RATE = 0.5;
+    //How many times the median response time of the other members a member is ejected at,
+    //and the response time in milliseconds below which members are never ejected as slow
+    public static final String OUTLIER_DETECTION_LATENCY_FACTOR =
+            "synapse.endpoint.outlier.detection.latency.factor";
+    public static final double DEFAULT_OUTLIER_DETECTION_LATENCY_FACTOR = 3;
+    public static final String OUTLIER_DETECTION_MIN_LATENCY =
+            "synapse.endpoint.outlier.detection.min.latency";
+    public static final long DEFAULT_OUTLIER_DETECTION_MIN_LATENCY = 100;
+    //Largest percentage of the members of a group which may be ejected at the same time
+    public static final String OUTLIER_DETECTION_MAX_EJECTION_PERCENT =
+            "synapse.endpoint.outlier.detection.max.ejection.percent";
+    public static final int DEFAULT_OUTLIER_DETECTION_MAX_EJECTION_PERCENT = 50;
+    //Time in milliseconds a member is first ejected for, growing with each repeated ejection
+    //up to the maximum, and the time over which its traffic is ramped back up after
+    public static final String OUTLIER_DETECTION_EJECTION_TIME =
+            "synapse.endpoint.outlier.detection.ejection.time";
+    public static final long DEFAULT_OUTLIER_DETECTION_EJECTION_TIME = 30 * 1000;
+    public static final String OUTLIER_DETECTION_MAX_EJECTION_TIME =
+            "synapse.endpoint.outlier.detection.max.ejection.time";
+    public static final long DEFAULT_OUTLIER_DETECTION_MAX_EJECTION_TIME = 5 * 60 * 1000;
+    public static final String OUTLIER_DETECTION_RAMP_TIME =
+            "synapse.endpoint.outlier.detection.ramp.time";
+    public static final long DEFAULT_OUTLIER_DETECTION_RAMP_TIME = 30 * 1000;
+
+    //Hedging of the requests of load balance and failover endpoints with hedging enabled.
+    //Percentile of the response times of the group after which a hedged request is sent
+    public static final String HEDGING_PERCENTILE = "synapse.endpoint.hedging.percentile";
+    public static final double DEFAULT_HEDGING_PERCENTILE = 95;
+    //Least delay in milliseconds, and least responses in the window before requests are hedged
+    public static final String HEDGING_MIN_DELAY = "synapse.endpoint.hedging.min.delay";
+    public static final long DEFAULT_HEDGING_MIN_DELAY = 10;
+    public static final String HEDGING_MIN_RESPONSES = "synapse.endpoint.hedging.min.responses";
+    public static final long DEFAULT_HEDGING_MIN_RESPONSES = 100;
+    //HTTP methods of the requests which may be hedged, as they are idempotent
+    public static final String HEDGING_METHODS = "synapse.endpoint.hedging.methods";
+    public static final String DEFAULT_HEDGING_METHODS = "GET,HEAD,OPTIONS";
+
+    //Retries and hedged requests allowed for each request sent by a group with hedging enabled,
+    //and retries always allowed per second
+    public static final String RETRY_BUDGET_RATIO = "synapse.endpoint.retry.budget.ratio";
+    public static final double DEFAULT_RETRY_BUDGET_RATIO = 0.1;
+    public static final String RETRY_BUDGET_MIN_PER_SECOND =
+            "synapse.endpoint.retry.budget.min.per.second";
+    public static final int DEFAULT_RETRY_BUDGET_MIN_PER_SECOND = 10;
+
     /**
      * Message content property of incoming transport-in name
      */
@@ -66,8 +66,10 @@ import org.apache.synapse.message.processor.impl.AbstractMessageProcessor;
 import org.apache.synapse.message.store.MessageStore;
 import org.apache.synapse.registry.Registry;
 import org.apache.synapse.rest.API;
+import org.apache.synapse.rest.APIIndex;
 import org.apache.synapse.startup.quartz.StartUpController;
 import org.apache.synapse.task.TaskManager;
+import org.apache.synapse.util.concurrent.HashedWheelTimer;
 import org.apache.synapse.util.xpath.ext.SynapseXpathFunctionContextProvider;
 import org.apache.synapse.util.xpath.ext.SynapseXpathVariableResolver;
 import org.apache.synapse.util.xpath.ext.XpathExtensionUtil;
@@ -150,6 +152,17 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
      */
     private Timer synapseTimer = new Timer(true);
 
+    /**
+     * This will provide the timer for the large numbers of short lived timeouts of the mediators
+     */
+    private HashedWheelTimer synapseWheelTimer = new HashedWheelTimer("SynapseWheelTimer",
+            Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.WHEEL_TIMER_TICK,
+                    String.valueOf(SynapseConstants.DEFAULT_WHEEL_TIMER_TICK))),
+            Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.WHEEL_TIMER_SIZE,
+                    String.valueOf(SynapseConstants.DEFAULT_WHEEL_TIMER_SIZE))));
+
     /**
      * Hold reference to the Axis2 ConfigurationContext
      */
@@ -194,6 +207,11 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
     private Map<String, API> apiTable = Collections.synchronizedMap(new LinkedHashMap<String, API>());
 
+    /**
+     * APIs compiled for dispatching, rebuilt after the API table changes
+     */
+    private volatile APIIndex apiIndex;
+
     private Map<String, InboundEndpoint> inboundEndpointMap = new ConcurrentHashMap<String, InboundEndpoint>();
     
     /**
@@ -426,6 +444,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             if (reOrder) {
                 reconstructAPITable();
             }
+            apiIndex = null;
             for (SynapseObserver o : observers) {
                 o.apiAdded(api);
             }
@@ -446,6 +465,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             }        	
             apiTable.put(name, api);
             reconstructAPITable();
+            apiIndex = null;
             for (SynapseObserver o : observers) {
                 o.apiUpdated(api);
             }
@@ -456,6 +476,26 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return Collections.unmodifiableCollection(apiTable.values());
     }
 
+    /**
+     * Get the deployed APIs compiled for dispatching requests. The index is built when first
+     * requested after the APIs change, and replaced as a whole when they change again.
+     *
+     * @return index of the deployed APIs
+     */
+    public APIIndex getAPIIndex() {
+        APIIndex index = apiIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = apiIndex;
+                if (index == null) {
+                    index = new APIIndex(apiTable.values());
+                    apiIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     public synchronized API getAPI(String name) {
         return apiTable.get(name);
     }
@@ -464,6 +504,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         API api = apiTable.get(name);
         if (api != null) {
             apiTable.remove(name);
+            apiIndex = null;
             for (SynapseObserver o : observers) {
                 o.apiRemoved(api);
             }
@@ -1257,6 +1298,17 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         return synapseTimer;
     }
 
+    /**
+     * Get the hashed wheel timer of the Synapse Configuration. Unlike the timer returned by
+     * {@link #getSynapseTimer()}, scheduling and cancelling a timeout on this timer never
+     * contend on a lock, so it should be used for timeouts which are set for each message.
+     *
+     * @return synapseWheelTimer hashed wheel timer of the configuration
+     */
+    public HashedWheelTimer getSynapseWheelTimer() {
+        return synapseWheelTimer;
+    }
+
     /**
      * Get the startup collection in the configuration
      *
@@ -1431,6 +1483,8 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         // clear the timer tasks of Synapse
         synapseTimer.cancel();
         synapseTimer = null;
+        synapseWheelTimer.stop();
+        synapseWheelTimer = null;
 
         // stop and shutdown all the proxy services
         for (ProxyService p : getProxyServices()) {
@@ -2291,6 +2345,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             }
         }
         apiTable = duplicateAPITable;
+        apiIndex = null;
     }
 
 }
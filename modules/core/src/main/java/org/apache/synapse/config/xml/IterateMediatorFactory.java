@@ -25,6 +25,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.mediators.eip.splitter.IterateMediator;
 import org.apache.synapse.mediators.eip.Target;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
@@ -40,6 +41,7 @@ import java.util.Properties;
  * <p/>
  * <pre>
  * &lt;iterate [continueParent=(true | false)] [preservePayload=(true | false)]
+ *          [streaming=(true | false)] [maxInFlight="int"]
  *          (attachPath="xpath")? expression="xpath"&gt;
  *   &lt;target [to="uri"] [soapAction="qname"] [sequence="sequence_ref"]
  *          [endpoint="endpoint_ref"]&gt;
@@ -52,6 +54,12 @@ import java.util.Properties;
  *   &lt;/target&gt;+
  * &lt;/iterate&gt;
  * </pre>
+ * <p/>
+ * With streaming set to true, the payload is split while it is read as a stream, and at most
+ * maxInFlight split messages are in flight at a time, counting those waiting for the response of
+ * a request they sent. Streaming requires an expression
+ * that selects elements by name, and does not preserve the payload. The payload of the original
+ * message is consumed by the split.
  */
 public class IterateMediatorFactory extends AbstractMediatorFactory {
 
@@ -65,6 +73,8 @@ public class IterateMediatorFactory extends AbstractMediatorFactory {
     private static final QName ATT_PREPLD = new QName("preservePayload");
     private static final QName ATT_ATTACHPATH = new QName("attachPath");
     private static final QName ATT_SEQUENCIAL = new QName("sequential");
+    private static final QName ATT_STREAMING = new QName("streaming");
+    private static final QName ATT_MAX_IN_FLIGHT = new QName("maxInFlight");
 
     private static final QName ID_Q
             = new QName(XMLConfigConstants.NULL_NAMESPACE, "id");
@@ -152,6 +162,32 @@ public class IterateMediatorFactory extends AbstractMediatorFactory {
                 attachPath.getAttributeValue(), e);
         }
 
+        OMAttribute streaming = elem.getAttribute(ATT_STREAMING);
+        if (streaming != null && Boolean.valueOf(streaming.getAttributeValue())) {
+            if (mediator.isPreservePayload()) {
+                handleException("Wrong configuration for the iterate mediator :: the payload " +
+                    "can not be preserved when splitting it as a stream");
+            }
+            try {
+                mediator.setStreaming(true);
+            } catch (SynapseException e) {
+                handleException("Unable to build the IterateMediator. " + e.getMessage(), e);
+            }
+        }
+
+        OMAttribute maxInFlight = elem.getAttribute(ATT_MAX_IN_FLIGHT);
+        if (maxInFlight != null) {
+            try {
+                mediator.setMaxInFlight(Integer.parseInt(maxInFlight.getAttributeValue()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid maxInFlight value for the iterate mediator : " +
+                    maxInFlight.getAttributeValue(), e);
+            }
+            if (mediator.getMaxInFlight() <= 0) {
+                handleException("The maxInFlight value of the iterate mediator should be positive");
+            }
+        }
+
         boolean asynchronous = true;
         OMAttribute asynchronousAttr = elem.getAttribute(ATT_SEQUENCIAL);
         if (asynchronousAttr != null && asynchronousAttr.getAttributeValue().equals("true")) {
@@ -29,6 +29,7 @@ import org.apache.synapse.mediators.eip.splitter.IterateMediator;
  *
  * <pre>
  * &lt;iterate [continueParent=(true | false)] [preservePayload=(true | false)]
+ *          [streaming=(true | false)] [maxInFlight="int"]
  *          (attachPath="xpath")? expression="xpath"&gt;
  *   &lt;target [to="uri"] [soapAction="qname"] [sequence="sequence_ref"]
  *          [endpoint="endpoint_ref"]&gt;
@@ -75,6 +76,14 @@ public class IterateMediatorSerializer extends AbstractMediatorSerializer {
             itrElem.addAttribute("preservePayload", Boolean.toString(true), nullNS);
         }
 
+        if (itrMed.isStreaming()) {
+            itrElem.addAttribute("streaming", Boolean.toString(true), nullNS);
+        }
+
+        if (itrMed.getMaxInFlight() != IterateMediator.DEFAULT_MAX_IN_FLIGHT) {
+            itrElem.addAttribute("maxInFlight", Integer.toString(itrMed.getMaxInFlight()), nullNS);
+        }
+
         if (itrMed.isAttachPathPresent()) {
             SynapsePathSerializer.serializePath(itrMed.getAttachPath(), itrElem, "attachPath");
         }
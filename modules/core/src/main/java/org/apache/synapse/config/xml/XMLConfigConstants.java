@@ -116,6 +116,7 @@ public class XMLConfigConstants {
 	public static final String LOADBALANCE_POLICY = "policy";
 	public static final String LOADBALANCE_ALGORITHM = "algorithm";
 	public static final String BUILD_MESSAGE = "buildMessage";
+	public static final String HEDGING = "hedging";
 
     //TODO FIX-RUWAN
     public static final String ALGORITHM_NAME = "policy";
@@ -90,6 +90,11 @@ public class FailoverEndpointFactory extends EndpointFactory {
                     failoverEndpoint.setBuildMessageAtt(true);
                 }
             }
+
+            String hedging = failoverElement.getAttributeValue(new QName(XMLConfigConstants.HEDGING));
+            if (hedging != null && JavaUtils.isTrueExplicitly(hedging)) {
+                failoverEndpoint.setHedging(true);
+            }
             
             // process the parameters
             processProperties(failoverEndpoint, epConfig);
@@ -56,6 +56,10 @@ public class FailoverEndpointSerializer extends EndpointSerializer {
                     Boolean.toString(failoverEndpoint.isBuildMessageAtt()), null);
         }
 
+        if (failoverEndpoint.isHedging()) {
+            failoverElement.addAttribute(XMLConfigConstants.HEDGING, "true", null);
+        }
+
         if (failoverEndpoint.getChildren() != null) {
             for (Endpoint childEndpoint : failoverEndpoint.getChildren()) {
                 failoverElement.addChild(EndpointSerializer.getElementFromEndpoint(childEndpoint));
@@ -145,6 +145,11 @@ public final class LoadbalanceEndpointFactory extends EndpointFactory {
                 }
             }
 
+            String hedging = loadbalanceElement.getAttributeValue(new QName(XMLConfigConstants.HEDGING));
+            if (hedging != null && JavaUtils.isTrueExplicitly(hedging)) {
+                loadbalanceEndpoint.setHedging(true);
+            }
+
             // process the parameters
             processProperties(loadbalanceEndpoint, epConfig);
 
@@ -66,6 +66,10 @@ public class LoadbalanceEndpointSerializer extends EndpointSerializer {
                     .addAttribute(XMLConfigConstants.BUILD_MESSAGE, Boolean.toString(loadbalanceEndpoint.isBuildMessageAtt()), null);
         }
 
+        if (loadbalanceEndpoint.isHedging()) {
+            loadbalanceElement.addAttribute(XMLConfigConstants.HEDGING, "true", null);
+        }
+
         // Serialize endpoint elements which are children of the loadbalance element
         if (loadbalanceEndpoint.getChildren() != null) {
             for (Endpoint childEndpoint : loadbalanceEndpoint.getChildren()) {
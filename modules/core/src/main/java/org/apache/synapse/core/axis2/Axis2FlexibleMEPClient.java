@@ -48,6 +48,8 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessController;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessReplicator;
 import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
+import org.apache.synapse.mediators.eip.splitter.IterationWindow;
 import org.apache.synapse.message.senders.blocking.BlockingMsgSender;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
@@ -535,6 +537,8 @@ public class Axis2FlexibleMEPClient {
         // synapseOutMessageContext
         AsyncCallback callback = new AsyncCallback(axisOutMsgCtx, synapseOutMessageContext);
         if (!outOnlyMessage) {
+            // a split message of a streamed iteration stays in flight until the response
+            IterationWindow.requestSent(synapseOutMessageContext);
             if (endpoint != null) {
                 // set the timeout time and the timeout action to the callback, so that the
                 // TimeoutHandler can detect timed out callbacks and take appropriate action.
@@ -608,6 +612,8 @@ public class Axis2FlexibleMEPClient {
         //at the last point of mediation engine where the client get invoked we reduce concurrent
         // throttling count for OUT_ONLY messages
         if (outOnlyMessage) {
+            // no response is awaited, so the request no longer loads the endpoint
+            EndpointLoad.requestsCompleted(synapseOutMessageContext, false);
             Boolean isConcurrencyThrottleEnabled = (Boolean) synapseOutMessageContext
                     .getProperty(SynapseConstants.SYNAPSE_CONCURRENCY_THROTTLE);
             if (isConcurrencyThrottleEnabled != null && isConcurrencyThrottleEnabled) {
@@ -42,6 +42,7 @@ import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.synapse.mediators.template.TemplateMediator;
 import org.apache.synapse.rest.RESTConstants;
+import org.apache.synapse.util.MessageHelper;
 
 import java.util.*;
 
@@ -66,6 +67,12 @@ public class Axis2MessageContext implements MessageContext {
      */
     private final Map<String, Object> properties = new HashMap<String, Object>();
 
+    /**
+     * Keys of the properties whose values are still shared with the message context this one was
+     * cloned from, or with its clones. Such a value is copied the first time it is looked up
+     */
+    private Set<String> sharedProperties = null;
+
     /**
      * Local entries fetched from the configuration or from the registry for the transactional
      * resource access
@@ -290,11 +297,24 @@ public class Axis2MessageContext implements MessageContext {
      * @return an unmodifiable map of message context properties
      */
     public Map<String, Object> getProperties() {
+        if (sharedProperties != null) {
+            for (String key : new ArrayList<String>(sharedProperties)) {
+                getProperty(key);
+            }
+        }
         return Collections.unmodifiableMap(properties);
     }
 
     public Object getProperty(String key) {
-        return properties.get(key);
+        Object value = properties.get(key);
+        if (value != null && sharedProperties != null && sharedProperties.remove(key)) {
+            // the caller may modify the value in place, so take a private copy of it first
+            synchronized (value) {
+                value = MessageHelper.clonePropertyValue(key, value);
+            }
+            properties.put(key, value);
+        }
+        return value;
     }
 
     public void setProperty(String key, Object value) {
@@ -303,6 +323,9 @@ public class Axis2MessageContext implements MessageContext {
         }
 
         properties.put(key, value);
+        if (sharedProperties != null) {
+            sharedProperties.remove(key);
+        }
 
         // do not commit response by default in the server process
         if (SynapseConstants.RESPONSE.equals(key) &&
@@ -316,6 +339,33 @@ public class Axis2MessageContext implements MessageContext {
         return properties.keySet();
     }
 
+    /**
+     * Copies all the properties of this message context to the given clone, without copying
+     * their values. Values which may be modified in place, such as lists and XML elements, are
+     * marked as shared in both message contexts, and each message context takes a private copy
+     * of such a value only when it is first looked up. Values which are never looked up after
+     * cloning are never copied.
+     *
+     * @param clone message context cloned from this one
+     */
+    public void shareProperties(Axis2MessageContext clone) {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            clone.setProperty(key, value);
+            if (MessageHelper.isClonedOnCopy(key, value)) {
+                if (sharedProperties == null) {
+                    sharedProperties = new HashSet<String>();
+                }
+                if (clone.sharedProperties == null) {
+                    clone.sharedProperties = new HashSet<String>();
+                }
+                sharedProperties.add(key);
+                clone.sharedProperties.add(key);
+            }
+        }
+    }
+
     /**
      * Constructor for the Axis2MessageContext inside Synapse
      *
@@ -63,7 +63,9 @@ import org.apache.synapse.mediators.MediatorWorker;
 import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.synapse.rest.RESTRequestHandler;
 import org.apache.synapse.task.SynapseTaskManager;
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.transport.passthru.util.VirtualThreadWorkerPool;
 import org.apache.synapse.unittest.UnitTestingExecutor;
 import org.apache.synapse.util.concurrent.InboundThreadPool;
 import org.apache.synapse.util.concurrent.SynapseThreadPool;
@@ -79,6 +81,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This is the Axis2 implementation of the SynapseEnvironment
@@ -156,11 +159,25 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
             keepAlive = Long.parseLong(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ALIVE));
         } catch (Exception ignore) {}
 
-        this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
-                SynapseThreadPool.SYNAPSE_THREAD_GROUP),
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
-                SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        PassThroughConfiguration passThroughConfig = PassThroughConfiguration.getInstance();
+        ThreadFactory virtualThreadFactory = null;
+        if (passThroughConfig.isWorkerPoolVirtualThreads()) {
+            virtualThreadFactory = VirtualThreadWorkerPool.newVirtualThreadFactory(
+                    synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+                        SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        }
+
+        if (virtualThreadFactory != null) {
+            // bounded by the same configured limit as the pass-through workers, not by pool size
+            this.executorService = new VirtualThreadWorkerPool(
+                passThroughConfig.getWorkerPoolMaxConcurrency(), virtualThreadFactory);
+        } else {
+            this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
+                    SynapseThreadPool.SYNAPSE_THREAD_GROUP),
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+                    SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        }
 
 		int ibCoreThreads = InboundThreadPool.INBOUND_CORE_THREADS;
 		int ibMaxThreads = InboundThreadPool.INBOUND_MAX_THREADS;
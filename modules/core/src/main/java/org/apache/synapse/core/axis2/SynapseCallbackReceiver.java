@@ -49,8 +49,12 @@ import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.FailoverEndpoint;
+import org.apache.synapse.endpoints.HedgedRequest;
+import org.apache.synapse.endpoints.OutlierDetector;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
 import org.apache.synapse.endpoints.dispatch.Dispatcher;
 import org.apache.synapse.mediators.MediatorFaultHandler;
+import org.apache.synapse.mediators.eip.splitter.IterationWindow;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.Pipe;
@@ -60,8 +64,10 @@ import org.apache.synapse.util.ConcurrencyThrottlingUtils;
 import org.apache.synapse.util.ResponseAcceptEncodingProcessor;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Stack;
 import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is the message receiver that receives the responses for outgoing messages sent out
@@ -75,6 +81,13 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
 
     private static final Log log = LogFactory.getLog(SynapseCallbackReceiver.class);
 
+    /**
+     * The callbacks cancelled before their response was received, mapped by their message IDs
+     * until their response is no longer expected, so that a late response is dropped quietly
+     */
+    private final Map<String, AsyncCallback> cancelledCallbacks =
+            new ConcurrentHashMap<String, AsyncCallback>();
+
     /**
      * Create the *single* instance of this class that would be used by all anonymous services
      * used for outgoing messaging.
@@ -85,7 +98,8 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                                    ServerContextInformation contextInformation) {
 
         // create the Timer object and a TimeoutHandler task
-        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, contextInformation);
+        TimeoutHandler timeoutHandler =
+                new TimeoutHandler(callbackStore, cancelledCallbacks, contextInformation);
         
         Timer timeOutTimer = synCfg.getSynapseTimer();
         long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
@@ -107,6 +121,39 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
         if (RuntimeStatisticCollector.isStatisticsEnabled()) {
             CallbackStatisticCollector.addCallback(synCtx, MsgID);
         }
+        HedgedRequest.callbackAdded(synCtx, MsgID, this);
+    }
+
+    /**
+     * Cancel the callback registered for an outgoing message, as its response is no longer
+     * needed. A response received for it later on is dropped.
+     *
+     * @param messageID message ID the callback is registered with
+     */
+    public void cancelCallback(String messageID) {
+        AsyncCallback callback = (AsyncCallback) callbackStore.remove(messageID);
+        if (callback == null) {
+            return;
+        }
+        synchronized (callback) {
+            if (callback.isMarkedForRemoval()) {
+                return;
+            }
+            callback.setMarkedForRemoval();
+        }
+        cancelledCallbacks.put(messageID, callback);
+
+        org.apache.synapse.MessageContext synCtx = callback.getSynapseOutMsgCtx();
+        ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synCtx);
+        EndpointLoad.requestsCompleted(synCtx, false);
+        IterationWindow.responseReceived(synCtx);
+        if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+            CallbackStatisticCollector.callbackCompletionEvent(synCtx, messageID);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Callback cancelled for request message id : " + messageID +
+                    ". Pending callbacks count : " + callbackStore.size());
+        }
     }
 
     /**
@@ -130,6 +177,11 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED))) {
             if (callbackStore.containsKey(messageCtx.getMessageID())) {
                 AsyncCallback callback = (AsyncCallback) callbackStore.remove(messageCtx.getMessageID());
+                if (callback != null) {
+                    EndpointLoad.requestsCompleted(callback.getSynapseOutMsgCtx(), false);
+                    OutlierDetector.responseReceived(callback.getSynapseOutMsgCtx(), false);
+                    IterationWindow.responseReceived(callback.getSynapseOutMsgCtx());
+                }
                 if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                     CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(),
                             messageCtx.getMessageID());
@@ -183,6 +235,20 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                     }
                     callback.setMarkedForRemoval();
                 }
+                boolean sendingFault =
+                        Boolean.TRUE.equals(messageCtx.getProperty(SynapseConstants.SENDING_FAULT));
+                EndpointLoad.requestsCompleted(SynapseOutMsgCtx, sendingFault);
+                // server errors count as failures of the endpoint for the outlier detection
+                Object statusCode = messageCtx.getProperty(SynapseConstants.HTTP_SC);
+                OutlierDetector.responseReceived(SynapseOutMsgCtx, sendingFault ||
+                        (statusCode instanceof Integer && (Integer) statusCode >= 500));
+                IterationWindow.responseReceived(SynapseOutMsgCtx);
+                // only the first response to the attempts of a hedged request is mediated, the
+                // body of any other is read so that its connection and buffer are released
+                if (!sendingFault && !HedgedRequest.responseReceived(SynapseOutMsgCtx)) {
+                    RelayUtils.consumeAndDiscardMessage(messageCtx);
+                    return;
+                }
 
                 if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                     CallbackStatisticCollector.updateParentsForCallback(SynapseOutMsgCtx, messageID);
@@ -195,11 +261,24 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                     handleMessage(messageID, messageCtx, SynapseOutMsgCtx, (AsyncCallback) callback);
                 }
             } else {
-                // TODO invoke a generic synapse error handler for this message
-                log.warn("Synapse received a response for the request with message Id : " +
-                        messageID + " and correlation_id : " + messageCtx.getProperty(PassThroughConstants
-                        .CORRELATION_ID) + " But a callback is not registered (anymore) to process " +
-                        "this response");
+                AsyncCallback cancelled = cancelledCallbacks.remove(messageID);
+                if (cancelled != null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Dropping the response for the request with message Id : " +
+                                messageID + " as its callback was cancelled");
+                    }
+                    // the response time of an attempt of a hedged request is learnt all the same
+                    if (!Boolean.TRUE.equals(messageCtx.getProperty(SynapseConstants.SENDING_FAULT))) {
+                        HedgedRequest.responseReceived(cancelled.getSynapseOutMsgCtx());
+                    }
+                    RelayUtils.consumeAndDiscardMessage(messageCtx);
+                } else {
+                    // TODO invoke a generic synapse error handler for this message
+                    log.warn("Synapse received a response for the request with message Id : " +
+                            messageID + " and correlation_id : " + messageCtx.getProperty(PassThroughConstants
+                            .CORRELATION_ID) + " But a callback is not registered (anymore) to process " +
+                            "this response");
+                }
             }
 
         } else if (!messageCtx.isPropertyTrue(NhttpConstants.SC_ACCEPTED)){
@@ -30,16 +30,21 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.aspects.flow.statistics.collectors.CallbackStatisticCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.endpoints.OutlierDetector;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
+import org.apache.synapse.mediators.eip.splitter.IterationWindow;
 import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.util.ConcurrencyThrottlingUtils;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An object of this class is registered to be invoked in some predefined time intervals. This
@@ -59,6 +64,8 @@ public class TimeoutHandler extends TimerTask {
 
     /** The callback map - already a Collections.synchronized() hash map */
     private final Map callbackStore;
+    /** The cancelled callbacks, mapped by the message IDs they were registered with */
+    private final Map<String, AsyncCallback> cancelledCallbacks;
     /** a lock to prevent concurrent execution while ensuring least overhead */
     private final Object lock = new Object();
     private boolean alreadyExecuting = false;
@@ -68,7 +75,13 @@ public class TimeoutHandler extends TimerTask {
     private ServerContextInformation contextInfo = null;
 
     public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo) {
+        this(callbacks, new ConcurrentHashMap<String, AsyncCallback>(), contextInfo);
+    }
+
+    public TimeoutHandler(Map callbacks, Map<String, AsyncCallback> cancelledCallbacks,
+                          ServerContextInformation contextInfo) {
         this.callbackStore = callbacks;
+        this.cancelledCallbacks = cancelledCallbacks;
         this.contextInfo = contextInfo;
         this.globalTimeout = SynapseConfigUtils.getGlobalTimeoutInterval();
         log.info("This engine will expire all callbacks after " +
@@ -103,6 +116,17 @@ public class TimeoutHandler extends TimerTask {
         //clear all the expired sessions
         SALSessions.getInstance().clearSessions();
 
+        // forget the cancelled callbacks whose responses are no longer expected
+        if (!cancelledCallbacks.isEmpty()) {
+            long currentTime = currentTime();
+            Iterator<AsyncCallback> cancelled = cancelledCallbacks.values().iterator();
+            while (cancelled.hasNext()) {
+                if (cancelled.next().getTimeOutOn() <= currentTime) {
+                    cancelled.remove();
+                }
+            }
+        }
+
         // checks if callback store contains at least one entry before proceeding. otherwise getting
         // the time for doing nothing would be a inefficient task.
 
@@ -136,6 +160,10 @@ public class TimeoutHandler extends TimerTask {
                             callback.setMarkedForRemoval();
                             toRemove.add(key);
                         }
+                        // complete before the fault handlers, which may send to another endpoint
+                        EndpointLoad.requestsCompleted(callback.getSynapseOutMsgCtx(), true);
+                        OutlierDetector.responseReceived(callback.getSynapseOutMsgCtx(), true);
+                        IterationWindow.responseReceived(callback.getSynapseOutMsgCtx());
 
                         if (callback.getTimeOutAction() != SynapseConstants.NONE) {
 
@@ -22,6 +22,7 @@ package org.apache.synapse.endpoints;
 import org.apache.axis2.clustering.ClusteringAgent;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.description.AxisOperation;
+import org.apache.axis2.description.TransportOutDescription;
 import org.apache.axis2.transport.base.BaseConstants;
 import org.apache.axis2.util.JavaUtils;
 import org.apache.commons.logging.Log;
@@ -48,9 +49,12 @@ import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.mediators.MediatorFaultHandler;
 import org.apache.synapse.mediators.MediatorProperty;
+import org.apache.synapse.transport.passthru.PassThroughHttpSender;
 import org.apache.synapse.transport.passthru.util.RelayConstants;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
@@ -273,6 +277,7 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
             context = new EndpointContext(getName(), getDefinition(), isClusteringEnabled,
                     cc, metricsMBean);
+            prewarmConnections(cc);
         }
         initialized = true;
 
@@ -287,6 +292,56 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
                 definition.isAddressingOn() || definition.isUseMTOM()|| definition.isUseSwa());
     }
 
+    /**
+     * Open the number of connections given by the {@link SynapseConstants#PREWARM_CONNECTIONS}
+     * property to the server of this endpoint, so that the first messages sent after deployment
+     * do not pay for the TCP and TLS handshakes. Only the pass-through transport supports this.
+     *
+     * @param cc Axis2 configuration context
+     */
+    private void prewarmConnections(ConfigurationContext cc) {
+        MediatorProperty property = getProperty(SynapseConstants.PREWARM_CONNECTIONS);
+        if (property == null || property.getValue() == null
+                || definition == null || definition.getAddress() == null) {
+            return;
+        }
+
+        int count;
+        try {
+            count = Integer.parseInt(property.getValue().trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid " + SynapseConstants.PREWARM_CONNECTIONS + " value : "
+                    + property.getValue() + " for endpoint : " + getName());
+            return;
+        }
+
+        // only the part of an URI template before the first variable identifies the server
+        String address = definition.getAddress();
+        int variable = address.indexOf('{');
+        if (variable >= 0) {
+            address = address.substring(0, variable);
+        }
+        URL url;
+        try {
+            url = new URL(address);
+        } catch (MalformedURLException e) {
+            url = null;
+        }
+        if (count <= 0 || url == null || url.getHost() == null || url.getHost().isEmpty()) {
+            return;
+        }
+
+        TransportOutDescription transportOut =
+                cc.getAxisConfiguration().getTransportOut(url.getProtocol());
+        if (transportOut != null && transportOut.getSender() instanceof PassThroughHttpSender) {
+            int requested = ((PassThroughHttpSender) transportOut.getSender())
+                    .prewarmConnections(address, count);
+            if (requested > 0 && log.isDebugEnabled()) {
+                log.debug("Opening " + requested + " connections for endpoint : " + getName());
+            }
+        }
+    }
+
     public List<String> getCommentsList() {
         return commentsList;
     }
@@ -365,6 +420,9 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         synCtx.pushFaultHandler(this);
         // add this as the last endpoint to process this message - used by statistics counting code
         synCtx.setProperty(SynapseConstants.LAST_ENDPOINT, this);
+        if (context != null && context.isOutlierDetectionEnabled()) {
+            OutlierDetector.messageSent(synCtx);
+        }
         // set message level metrics collector
         org.apache.axis2.context.MessageContext axis2Ctx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         axis2Ctx.setProperty(BaseConstants.METRICS_COLLECTOR, metricsMBean);
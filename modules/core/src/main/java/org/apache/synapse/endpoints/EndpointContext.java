@@ -28,6 +28,8 @@ import org.apache.synapse.util.Replicator;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class is one of the key classes of the Endpoint management in Synapse. It maintains the
@@ -80,6 +82,9 @@ public class EndpointContext {
     /** Metrics bean to notify the state changes */
     private EndpointView metricsBean = null;
 
+    /** Outlier detection of the load balance or failover group this endpoint belongs to */
+    private volatile OutlierDetector.Member outlierDetection = null;
+
     // for clustered mode operation, keys pre-computed and used for replication
     private final String STATE_KEY;
     private final String NEXT_RETRY_TIME_KEY;
@@ -169,17 +174,33 @@ public class EndpointContext {
      * @param state the new state of the endpoint
      */
     private void setState(int state) {
+        if (isClustered) {
+            Map<String, Object> states = new LinkedHashMap<String, Object>();
+            setState(state, states);
+            // replicate all the properties changed with the state as a single update
+            Replicator.setAndReplicateStates(states, cfgCtx);
+        } else {
+            setState(state, null);
+        }
+    }
+
+    /**
+     * Update the internal state of the endpoint
+     *
+     * @param state  the new state of the endpoint
+     * @param states the replicated properties changed with the state, in a clustered environment
+     */
+    private void setState(int state, Map<String, Object> states) {
 
         recordStatistics(state);
 
         if (isClustered) {
-            Replicator.setAndReplicateState(STATE_KEY, state, cfgCtx);
+            states.put(STATE_KEY, state);
             if (definition == null) return;
             switch (state) {
                 case ST_ACTIVE: {
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
+                    states.put(REMAINING_RETRIES_KEY, definition.getRetriesOnTimeoutBeforeSuspend());
+                    states.put(LAST_SUSPEND_DURATION_KEY, null);
                     break;
                 }
                 case ST_TIMEOUT: {
@@ -194,14 +215,13 @@ public class EndpointContext {
                                 " has been marked for SUSPENSION," +
                                 " but no further retries remain. Thus it will be SUSPENDED.");
 
-                        setState(ST_SUSPENDED);
+                        setState(ST_SUSPENDED, states);
 
                     } else {
-                        Replicator.setAndReplicateState(
-                                REMAINING_RETRIES_KEY, (retries - 1), cfgCtx);
+                        states.put(REMAINING_RETRIES_KEY, retries - 1);
                         long nextRetry = System.currentTimeMillis()
                                 + definition.getRetryDurationOnTimeout();
-                        Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetry, cfgCtx);
+                        states.put(NEXT_RETRY_TIME_KEY, nextRetry);
 
                         log.warn("Endpoint : " + endpointName + printEndpointAddress() +
                                 " is marked as TIMEOUT and " +
@@ -211,15 +231,14 @@ public class EndpointContext {
                     break;
                 }
                 case ST_SUSPENDED: {
-                    computeNextRetryTimeForSuspended();
+                    computeNextRetryTimeForSuspended(states);
                     break;
                 }
                 case ST_OFF: {
                     // mark as in maintenence, and reset all other information
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition == null ? -1 :
-                                    definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
+                    states.put(REMAINING_RETRIES_KEY, definition == null ? -1 :
+                            definition.getRetriesOnTimeoutBeforeSuspend());
+                    states.put(LAST_SUSPEND_DURATION_KEY, null);
                     break;
                 }
             }
@@ -245,7 +264,7 @@ public class EndpointContext {
                                 + " has been marked for SUSPENSION, "
                                 + "but no further retries remain. Thus it will be SUSPENDED.");
 
-                        setState(ST_SUSPENDED);
+                        setState(ST_SUSPENDED, null);
 
                     } else {
                         localRemainingRetries = retries - 1;
@@ -261,7 +280,7 @@ public class EndpointContext {
                     break;
                 }
                 case ST_SUSPENDED: {
-                    computeNextRetryTimeForSuspended();
+                    computeNextRetryTimeForSuspended(null);
                     break;
                 }
                 case ST_OFF: {
@@ -320,8 +339,10 @@ public class EndpointContext {
 
     /**
      * Compute the suspension duration according to the geometric series parameters defined
+     *
+     * @param states the replicated properties changed with the state, in a clustered environment
      */
-    private void computeNextRetryTimeForSuspended() {
+    private void computeNextRetryTimeForSuspended(Map<String, Object> states) {
         boolean notYetSuspended = true;
         long lastSuspendDuration = definition.getInitialSuspendDuration();
         if (isClustered) {
@@ -348,8 +369,8 @@ public class EndpointContext {
         long nextRetryTime = System.currentTimeMillis() + nextSuspendDuration;
 
         if (isClustered) {
-            Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, nextSuspendDuration, cfgCtx);
-            Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetryTime, cfgCtx);
+            states.put(LAST_SUSPEND_DURATION_KEY, nextSuspendDuration);
+            states.put(NEXT_RETRY_TIME_KEY, nextRetryTime);
         } else {
             localLastSuspendDuration = nextSuspendDuration;
             localNextRetryTime = nextRetryTime;
@@ -362,6 +383,83 @@ public class EndpointContext {
                 "Next retry after : " + new Date(nextRetryTime));
     }
 
+    /**
+     * A response, fault or timeout was received for a message sent through this endpoint, while
+     * it is a member of a group checked for outliers
+     *
+     * @param latency time in milliseconds the endpoint took to respond
+     * @param failed  true if the message failed
+     */
+    void onResponse(long latency, boolean failed) {
+        OutlierDetector.Member member = outlierDetection;
+        if (member == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        member.record(now, latency, failed);
+        if (isState(ST_ACTIVE)) {
+            long duration = member.getDetector().checkMember(member, endpointName, now);
+            if (duration > 0) {
+                suspendOutlier(now, duration);
+            }
+        }
+    }
+
+    /**
+     * Suspend this endpoint for the given time, as it was ejected from its group as an outlier
+     *
+     * @param now      current time in milliseconds
+     * @param duration time in milliseconds to suspend the endpoint for
+     */
+    private void suspendOutlier(long now, long duration) {
+        recordStatistics(ST_SUSPENDED);
+        long nextRetryTime = now + duration;
+        if (isClustered) {
+            Map<String, Object> states = new LinkedHashMap<String, Object>();
+            states.put(STATE_KEY, ST_SUSPENDED);
+            states.put(LAST_SUSPEND_DURATION_KEY, duration);
+            states.put(NEXT_RETRY_TIME_KEY, nextRetryTime);
+            Replicator.setAndReplicateStates(states, cfgCtx);
+        } else {
+            localState = ST_SUSPENDED;
+            localLastSuspendDuration = duration;
+            localNextRetryTime = nextRetryTime;
+        }
+
+        log.warn("Suspending endpoint : " + endpointName + printEndpointAddress() +
+                " as an outlier - current suspend duration is : " + duration + "ms - " +
+                "Next retry after : " + new Date(nextRetryTime));
+    }
+
+    /**
+     * Set the outlier detection of the load balance or failover group this endpoint belongs to
+     *
+     * @param outlierDetection the state of this endpoint in the outlier detection of its group
+     */
+    void setOutlierDetection(OutlierDetector.Member outlierDetection) {
+        this.outlierDetection = outlierDetection;
+    }
+
+    OutlierDetector.Member getOutlierDetection() {
+        return outlierDetection;
+    }
+
+    /**
+     * @return true if this endpoint belongs to a group which is checked for outliers
+     */
+    boolean isOutlierDetectionEnabled() {
+        return outlierDetection != null;
+    }
+
+    /**
+     * @return false if the traffic of this endpoint is being ramped back up after it was
+     *         ejected as an outlier, and this message is not part of its share
+     */
+    private boolean admit() {
+        OutlierDetector.Member member = outlierDetection;
+        return member == null || member.admit(System.currentTimeMillis());
+    }
+
     /**
      * Checks if the endpoint is in the state ST_ACTIVE. In a clustered environment, the non
      * availability of a clustered STATE_KEY implies that this endpoint is active
@@ -386,16 +484,16 @@ public class EndpointContext {
             if (state == null) {
                 // state has not yet been replicated..
                 // first replication occurs on first timeout or fault
-                return true;
+                return admit();
 
             } else {
                 if (state == ST_ACTIVE) {
-                    return true;
+                    return admit();
 
                 } else if (state == ST_OFF) {
                     return false;
 
-                } else if (System.currentTimeMillis() >= nextRetryTime) {
+                } else if (System.currentTimeMillis() >= nextRetryTime && admit()) {
                     // if we are not active, but reached the next retry time, return true but do not
                     // make a state change. We will make the state change on a successful send
                     // if we are in the ST_TIMEOUT state, reduce a remaining retry
@@ -425,12 +523,12 @@ public class EndpointContext {
         } else {
 
             if (localState == ST_ACTIVE) {
-                return true;
+                return admit();
 
             } else if (localState == ST_OFF) {
                 return false;
 
-            } else if (System.currentTimeMillis() >= localNextRetryTime) {
+            } else if (System.currentTimeMillis() >= localNextRetryTime && admit()) {
 
                 // if we are not active, but reached the next retry time, return true but do not
                 // make a state change. We will make the state change on a successful send
@@ -470,6 +568,7 @@ public class EndpointContext {
      */
     public void switchOff() {
         log.info("Manually switching off endpoint : " + endpointName + printEndpointAddress() );
+        resetOutlierDetection();
         setState(ST_OFF);
     }
 
@@ -478,9 +577,17 @@ public class EndpointContext {
      */
     public void switchOn() {
         log.info("Manually activating endpoint : " + endpointName + printEndpointAddress());
+        resetOutlierDetection();
         setState(ST_ACTIVE);
     }
 
+    private void resetOutlierDetection() {
+        OutlierDetector.Member member = outlierDetection;
+        if (member != null) {
+            member.reset();
+        }
+    }
+
     public boolean isState(int s) {
         if (isClustered) {
             Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
@@ -70,9 +70,21 @@ public class FailoverEndpoint extends AbstractEndpoint {
     /** check message need to be built before sending */
     private boolean buildMessage = false;
 
+    /** Hedge the requests sent to the child endpoints, and limit retries to a budget */
+    private boolean hedging = false;
+
+    /** Hedging delay and retry budget of this endpoint, if hedging is enabled */
+    private HedgingPolicy hedgingPolicy = null;
+
     public void init(SynapseEnvironment synapseEnvironment) {
         if (!initialized) {
             super.init(synapseEnvironment);
+            if (getChildren() != null && OutlierDetector.isEnabled()) {
+                OutlierDetector.attach(getChildren());
+            }
+            if (hedging) {
+                hedgingPolicy = new HedgingPolicy();
+            }
             buildMessage = Boolean.parseBoolean(
                     SynapsePropertiesLoader.getPropertyValue(SynapseConstants.BUILD_MESSAGE_ON_FAILOVER, "false"));
         }
@@ -184,7 +196,7 @@ public class FailoverEndpoint extends AbstractEndpoint {
                     if(endpoint.getName() != null){
                     	mEndpointLog.put(endpoint.getName(), null);
                     }
-                    endpoint.send(synCtx);
+                    sendToChild(endpoint, synCtx, isARetry);
                     break;
                 }
             }
@@ -211,7 +223,7 @@ public class FailoverEndpoint extends AbstractEndpoint {
                     metricsMBean.reportSendingFault(SynapseConstants.ENDPOINT_FO_FAIL_OVER);
                 }
                 synCtx.pushFaultHandler(this);
-                currentEndpoint.send(synCtx);
+                sendToChild(currentEndpoint, synCtx, isARetry);
 
             } else {
                 boolean foundEndpoint = false;
@@ -223,7 +235,7 @@ public class FailoverEndpoint extends AbstractEndpoint {
                             metricsMBean.reportSendingFault(SynapseConstants.ENDPOINT_FO_FAIL_OVER);
                         }
                         synCtx.pushFaultHandler(this);
-                        currentEndpoint.send(synCtx);
+                        sendToChild(currentEndpoint, synCtx, isARetry);
                         break;
                     }
                 }
@@ -240,6 +252,11 @@ public class FailoverEndpoint extends AbstractEndpoint {
     }
 
     public void onChildEndpointFail(Endpoint endpoint, MessageContext synMessageContext) {
+        // another attempt of a hedged request may still respond
+        if (HedgedRequest.attemptFailed(synMessageContext)) {
+            return;
+        }
+
         //If there is a failure in child endpoint, restore the original message envelope from the message context
         if (synMessageContext.getProperty(SynapseConstants.LB_FO_ENDPOINT_ORIGINAL_MESSAGE) != null) {
             try {
@@ -251,6 +268,14 @@ public class FailoverEndpoint extends AbstractEndpoint {
         }
         logOnChildEndpointFail(endpoint, synMessageContext);
         if (((AbstractEndpoint)endpoint).isRetry(synMessageContext)) {
+            if (hedgingPolicy != null && hedgingPolicy.getRetryBudget().tryRetry() == null) {
+                String msg = "Failover endpoint : " +
+                        (getName() != null ? getName() : SynapseConstants.ANONYMOUS_ENDPOINT) +
+                        " - the retry budget is exhausted, not sending message to another endpoint";
+                log.warn(msg);
+                informFailure(synMessageContext, SynapseConstants.ENDPOINT_FO_NONE_READY, msg);
+                return;
+            }
             if (log.isDebugEnabled()) {
                 log.debug(this + " Retry Attempt for Request with [Message ID : " +
                         synMessageContext.getMessageID() + "], [To : " +
@@ -301,6 +326,18 @@ public class FailoverEndpoint extends AbstractEndpoint {
         this.buildMessageAtt = buildMessage;
     }
 
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /**
+     * Set hedging attribute from failover config
+     * @param hedging true to hedge idempotent requests and limit retries to the retry budget
+     */
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
     /**
      * Set whether failover config has the buildMessage config
      * @param available true or false
@@ -309,6 +346,19 @@ public class FailoverEndpoint extends AbstractEndpoint {
         this.isBuildMessageAttAvailable = available;
     }
 
+    /**
+     * Send the message to a child endpoint, preparing to hedge it if this is the first attempt
+     * @param endpoint child endpoint to send to
+     * @param synCtx Synapse Context
+     * @param isARetry true if the message is sent to another child after a failure
+     */
+    private void sendToChild(Endpoint endpoint, MessageContext synCtx, boolean isARetry) {
+        if (hedgingPolicy != null && !isARetry) {
+            HedgedRequest.prepare(hedgingPolicy, getChildren(), endpoint, synCtx);
+        }
+        endpoint.send(synCtx);
+    }
+
     /**
      * Build the message
      * @param synCtx Synapse Context
@@ -0,0 +1,312 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.SynapseCallbackReceiver;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.util.MessageHelper;
+import org.apache.synapse.util.concurrent.HashedWheelTimer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request sent by a load balance or failover endpoint with hedging enabled. When the member
+ * the request was sent to has not responded within the hedging delay of the group, a copy of the
+ * request is sent to the next ready member. The first response received is mediated and the
+ * callback of the other attempt is cancelled, while a failure of one attempt is ignored as long
+ * as the other may still respond.
+ * <p>
+ * Each hedged request takes a retry from the retry budget of the group, so hedging can not
+ * multiply the load on backends which are slow as a whole.
+ */
+public final class HedgedRequest {
+
+    private static final Log log = LogFactory.getLog(HedgedRequest.class);
+
+    /** Message context property holding the attempt of a hedged request it is sent as */
+    private static final String ATTEMPT = "synapse.endpoint.hedged.request.attempt";
+
+    private static final int PENDING = 0;
+    private static final int RESPONDED = 1;
+    private static final int FAILED = 2;
+
+    private final HedgingPolicy policy;
+    private final List<Endpoint> members;
+    private final Endpoint member;
+
+    private final Attempt primary;
+
+    /** the copy of the request to hedge with, and its attempt */
+    private volatile MessageContext hedgeCtx;
+    private volatile Attempt hedge;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    /** attempts which were sent and neither responded nor failed */
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private volatile HashedWheelTimer.Timeout timeout;
+
+    private HedgedRequest(HedgingPolicy policy, List<Endpoint> members, Endpoint member) {
+        this.policy = policy;
+        this.members = members;
+        this.member = member;
+        this.primary = new Attempt(this);
+    }
+
+    /**
+     * Prepare to hedge a request a group endpoint is about to send to one of its members for
+     * the first time. If the group has learnt its hedging delay and has retries left, a copy of
+     * the request is taken and sent to another member once the delay has elapsed.
+     *
+     * @param policy  the hedging policy of the group
+     * @param members the members of the group
+     * @param member  the member the request is sent to
+     * @param synCtx  the request
+     */
+    static void prepare(HedgingPolicy policy, List<Endpoint> members, Endpoint member,
+                        MessageContext synCtx) {
+        policy.getRetryBudget().requestSent();
+        if (!policy.isHedgeable(synCtx)) {
+            return;
+        }
+
+        HedgedRequest request = new HedgedRequest(policy, members, member);
+        synCtx.setProperty(ATTEMPT, request.primary);
+        request.primary.sentAt = System.nanoTime();
+
+        long delay = policy.getDelay(System.currentTimeMillis());
+        if (delay > 0 && members.size() > 1 && policy.getRetryBudget().hasRetries()) {
+            request.schedule(synCtx, delay);
+        }
+    }
+
+    /**
+     * Called when a response other than a sending fault is received for a request, including
+     * a response received after the callback of the request was cancelled
+     *
+     * @param synCtx the request
+     * @return false if the request was hedged and the response of another attempt is already
+     *         being mediated, so that this response must be dropped
+     */
+    public static boolean responseReceived(MessageContext synCtx) {
+        Object attempt = synCtx.getProperty(ATTEMPT);
+        if (!(attempt instanceof Attempt)) {
+            return true;
+        }
+        // the request may be sent on after the response, without being hedged again
+        synCtx.getPropertyKeySet().remove(ATTEMPT);
+        return ((Attempt) attempt).request.onResponse((Attempt) attempt);
+    }
+
+    /**
+     * Called when the callback of a request is registered, so that the attempt of a hedged
+     * request can be cancelled later on
+     *
+     * @param synCtx    the request
+     * @param messageID message ID the callback is registered with
+     * @param receiver  the callback receiver the callback is registered with
+     */
+    public static void callbackAdded(MessageContext synCtx, String messageID,
+                                     SynapseCallbackReceiver receiver) {
+        Object attempt = synCtx.getProperty(ATTEMPT);
+        if (attempt instanceof Attempt) {
+            ((Attempt) attempt).callbackAdded(messageID, receiver);
+        }
+    }
+
+    /**
+     * Called by a group endpoint when sending a request to a member failed
+     *
+     * @param synCtx the request
+     * @return true if the failure is to be ignored, as another attempt of the hedged request
+     *         may still respond or has responded already
+     */
+    static boolean attemptFailed(MessageContext synCtx) {
+        Object attempt = synCtx.getProperty(ATTEMPT);
+        if (!(attempt instanceof Attempt)) {
+            return false;
+        }
+        HedgedRequest request = ((Attempt) attempt).request;
+        if (request.pending.decrementAndGet() > 0 || !request.state.compareAndSet(PENDING, FAILED)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Ignoring the failure of an attempt of the hedged request with " +
+                        "[Message ID : " + synCtx.getMessageID() + "]");
+            }
+            return true;
+        }
+        // all attempts failed, so the request fails over as any other
+        request.cancelTimeout();
+        synCtx.getPropertyKeySet().remove(ATTEMPT);
+        return false;
+    }
+
+    private boolean onResponse(Attempt attempt) {
+        // the response time of the primary attempt is learnt whether it responded first or not,
+        // as the faster of two attempts would make the hedging delay shorter and shorter
+        if (attempt == primary) {
+            policy.responseReceived(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attempt.sentAt));
+        }
+        if (!state.compareAndSet(PENDING, RESPONDED)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Dropping a response of the hedged request as another attempt " +
+                        "responded first");
+            }
+            return false;
+        }
+        cancelTimeout();
+
+        Attempt other = attempt == primary ? hedge : primary;
+        if (other != null) {
+            other.cancel();
+        }
+        return true;
+    }
+
+    private void schedule(MessageContext synCtx, long delay) {
+        try {
+            // the message is sent twice, so it is built before its stream is consumed
+            RelayUtils.buildMessage(((Axis2MessageContext) synCtx).getAxis2MessageContext());
+            hedgeCtx = MessageHelper.cloneMessageContext(synCtx);
+        } catch (Exception e) {
+            log.warn("Error preparing to hedge the request with [Message ID : " +
+                    synCtx.getMessageID() + "], the request is not hedged", e);
+            return;
+        }
+        // the copy does not hold the tickets and throttle permits of the original
+        EndpointLoad.clearRequests(hedgeCtx);
+        hedgeCtx.setProperty(SynapseConstants.SYNAPSE_CONCURRENCY_THROTTLE, false);
+        hedge = new Attempt(this);
+        hedgeCtx.setProperty(ATTEMPT, hedge);
+
+        final MessageContext original = synCtx;
+        timeout = synCtx.getConfiguration().getSynapseWheelTimer().schedule(new Runnable() {
+            public void run() {
+                // send from a worker, as sending blocks the timer thread for too long
+                original.getEnvironment().getExecutorService().execute(new Runnable() {
+                    public void run() {
+                        sendHedge();
+                    }
+                });
+            }
+        }, delay);
+    }
+
+    private void sendHedge() {
+        if (state.get() != PENDING) {
+            return;
+        }
+        Endpoint next = getNextMember();
+        if (next == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("No other member is ready to hedge the request with [Message ID : " +
+                        hedgeCtx.getMessageID() + "]");
+            }
+            return;
+        }
+        RetryBudget retryBudget = policy.getRetryBudget();
+        RetryBudget.Retry retry = retryBudget.tryRetry();
+        if (retry == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("The retry budget is exhausted, not hedging the request with " +
+                        "[Message ID : " + hedgeCtx.getMessageID() + "]");
+            }
+            return;
+        }
+
+        int count;
+        do {
+            count = pending.get();
+            if (count <= 0 || state.get() != PENDING) {
+                retryBudget.refund(retry);
+                return;
+            }
+        } while (!pending.compareAndSet(count, count + 1));
+
+        if (log.isDebugEnabled()) {
+            log.debug("Hedging the request with [Message ID : " + hedgeCtx.getMessageID() +
+                    "] to endpoint : " + next);
+        }
+        hedge.sentAt = System.nanoTime();
+        next.send(hedgeCtx);
+    }
+
+    /**
+     * @return the first ready member after the one the request was sent to, or null
+     */
+    private Endpoint getNextMember() {
+        int index = members.indexOf(member);
+        for (int i = 1; i < members.size(); i++) {
+            Endpoint endpoint = members.get((index + i) % members.size());
+            if (endpoint != member && endpoint.readyToSend()) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    private void cancelTimeout() {
+        HashedWheelTimer.Timeout scheduled = timeout;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
+    }
+
+    /**
+     * One of the messages sent for a hedged request
+     */
+    private static final class Attempt {
+
+        private final HedgedRequest request;
+
+        private volatile long sentAt;
+        private volatile String messageID;
+        private volatile SynapseCallbackReceiver receiver;
+
+        private Attempt(HedgedRequest request) {
+            this.request = request;
+        }
+
+        private void callbackAdded(String messageID, SynapseCallbackReceiver receiver) {
+            this.receiver = receiver;
+            this.messageID = messageID;
+            // an attempt can not respond before its callback is added, so another one did
+            if (request.state.get() == RESPONDED) {
+                cancel();
+            }
+        }
+
+        private void cancel() {
+            String id = messageID;
+            SynapseCallbackReceiver callbackReceiver = receiver;
+            if (id != null && callbackReceiver != null) {
+                callbackReceiver.cancelCallback(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.jmx.LatencyHistogram;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The hedging settings and state of a load balance or failover endpoint with hedging enabled.
+ * It learns the response times of the group over a sliding window, to find the delay after
+ * which a request is hedged, and holds the retry budget of the group.
+ */
+class HedgingPolicy {
+
+    /** Length in milliseconds of each period of the response time window */
+    private static final long PERIOD = 1000;
+
+    /** Number of periods in the response time window */
+    private static final int WINDOW = 10;
+
+    private final LatencyHistogram responseTimes = new LatencyHistogram(WINDOW);
+
+    /** time in milliseconds the response time window is moved forward at next */
+    private final AtomicLong nextRoll = new AtomicLong(0);
+
+    /** delay in milliseconds after which requests are hedged, 0 until enough responses are seen */
+    private volatile long delay = 0;
+
+    private final double percentile;
+    private final long minDelay;
+    private final long minResponses;
+    private final Set<String> methods = new HashSet<String>();
+
+    private final RetryBudget retryBudget;
+
+    HedgingPolicy() {
+        percentile = Double.parseDouble(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.HEDGING_PERCENTILE,
+                String.valueOf(SynapseConstants.DEFAULT_HEDGING_PERCENTILE)));
+        minDelay = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.HEDGING_MIN_DELAY,
+                String.valueOf(SynapseConstants.DEFAULT_HEDGING_MIN_DELAY)));
+        minResponses = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.HEDGING_MIN_RESPONSES,
+                String.valueOf(SynapseConstants.DEFAULT_HEDGING_MIN_RESPONSES)));
+        for (String method : SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.HEDGING_METHODS, SynapseConstants.DEFAULT_HEDGING_METHODS).split(",")) {
+            if (method.trim().length() > 0) {
+                methods.add(method.trim().toUpperCase());
+            }
+        }
+        retryBudget = new RetryBudget(
+                Double.parseDouble(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.RETRY_BUDGET_RATIO,
+                        String.valueOf(SynapseConstants.DEFAULT_RETRY_BUDGET_RATIO))),
+                Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.RETRY_BUDGET_MIN_PER_SECOND,
+                        String.valueOf(SynapseConstants.DEFAULT_RETRY_BUDGET_MIN_PER_SECOND))));
+    }
+
+    /**
+     * @param synCtx the request
+     * @return true if the request may be hedged, that is if it awaits a response and its HTTP
+     *         method is one of the idempotent methods configured
+     */
+    boolean isHedgeable(MessageContext synCtx) {
+        if ("true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+            return false;
+        }
+        Object method = ((Axis2MessageContext) synCtx).getAxis2MessageContext().getProperty(
+                org.apache.axis2.Constants.Configuration.HTTP_METHOD);
+        return method != null && methods.contains(method.toString().toUpperCase());
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return the delay in milliseconds after which a request is hedged, or 0 if requests are
+     *         not hedged yet as too few responses were received
+     */
+    long getDelay(long now) {
+        long roll = nextRoll.get();
+        if (now >= roll && nextRoll.compareAndSet(roll, now + PERIOD)) {
+            responseTimes.rollWindow();
+            long value = responseTimes.getWindowPercentile(percentile, minResponses);
+            delay = value < 0 ? 0 : Math.max(minDelay, value);
+        }
+        return delay;
+    }
+
+    /**
+     * Record the time a member of the group took to respond to a request
+     *
+     * @param responseTime response time in milliseconds
+     */
+    void responseReceived(long responseTime) {
+        responseTimes.record(responseTime);
+    }
+
+    RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+}
@@ -38,6 +38,7 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.endpoints.algorithms.AlgorithmContext;
+import org.apache.synapse.endpoints.algorithms.EndpointLoad;
 import org.apache.synapse.endpoints.algorithms.LoadbalanceAlgorithm;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
@@ -104,6 +105,12 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
      */
     private boolean buildMessageAtt = false;
 
+    /** Hedge the requests sent to the child endpoints, and limit retries to a budget */
+    private boolean hedging = false;
+
+    /** Hedging delay and retry budget of this endpoint, if hedging is enabled */
+    private HedgingPolicy hedgingPolicy = null;
+
     @Override
     public void init(SynapseEnvironment synapseEnvironment) {
         ConfigurationContext cc =
@@ -113,6 +120,12 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
             if (algorithmContext == null) {
                 algorithmContext = new AlgorithmContext(isClusteringEnabled, cc, getName());
             }
+            if (getChildren() != null && OutlierDetector.isEnabled()) {
+                OutlierDetector.attach(getChildren());
+            }
+            if (hedging) {
+                hedgingPolicy = new HedgingPolicy();
+            }
 
             // if the loadbalancing algorithm implements the ManagedLifecycle interface
             // initlize the algorithm
@@ -220,6 +233,10 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
                 }
             }
             synCtx.pushFaultHandler(this);
+            if (hedgingPolicy != null &&
+                    synCtx.getProperty(SynapseConstants.LAST_ENDPOINT) == null) {
+                HedgedRequest.prepare(hedgingPolicy, getChildren(), endpoint, synCtx);
+            }
             endpoint.send(synCtx);
 
         } else if (activeMembers != null && !activeMembers.isEmpty()) {
@@ -322,6 +339,14 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
     @Override
     public void onChildEndpointFail(Endpoint endpoint, MessageContext synMessageContext) {
 
+        // a child which fails before a callback is registered does not complete its request
+        EndpointLoad.requestsCompleted(synMessageContext, true);
+
+        // another attempt of a hedged request may still respond
+        if (HedgedRequest.attemptFailed(synMessageContext)) {
+            return;
+        }
+
         //If there is a failure in child endpoint, restore the original message envelope from the message context
         if (synMessageContext.getProperty(SynapseConstants.LB_FO_ENDPOINT_ORIGINAL_MESSAGE) != null) {
             try {
@@ -335,6 +360,14 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
         // resend (to a different endpoint) only if we support failover
         if (failover) {
             if (((AbstractEndpoint)endpoint).isRetry(synMessageContext)) {
+                if (hedgingPolicy != null && hedgingPolicy.getRetryBudget().tryRetry() == null) {
+                    String msg = "Loadbalance endpoint : " +
+                            (getName() != null ? getName() : SynapseConstants.ANONYMOUS_ENDPOINT) +
+                            " - the retry budget is exhausted, not sending message to another endpoint";
+                    log.warn(msg);
+                    informFailure(synMessageContext, SynapseConstants.ENDPOINT_LB_NONE_READY, msg);
+                    return;
+                }
                 if (log.isDebugEnabled()) {
                     log.debug(this + " Retry Attempt for Request with [Message ID : " +
                             synMessageContext.getMessageID() + "], [To : " +
@@ -504,6 +537,18 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
         this.isBuildMessageAttAvailable = available;
     }
 
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    /**
+     * Set hedging attribute from loadbalance config
+     * @param hedging true to hedge idempotent requests and limit retries to the retry budget
+     */
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
     /**
      * Build the message
      * @param synCtx Synapse Context
@@ -0,0 +1,398 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the members of a load balance or failover group which fail or respond much slower
+ * than the other members of the group, from the responses received for the messages sent to
+ * them, and ejects them from the group for a while. Unlike the suspension on configured error
+ * codes, this takes the failure rate and the response time over a sliding window into account,
+ * so that a member which keeps failing some of its messages or which becomes slow is ejected
+ * without waiting for a specific error.
+ * <p>
+ * An ejected member is suspended through its {@link EndpointContext}. The time it is ejected
+ * for grows each time it is ejected again shortly after recovering, and once the time is over
+ * it gets a small share of its traffic, which is ramped back up to the full share over time.
+ * No more than a configured percentage of the members of a group are ejected at the same time.
+ * <p>
+ * The statistics are kept per Synapse instance with atomic counters, and only the resulting
+ * state changes are replicated in a cluster.
+ */
+public class OutlierDetector {
+
+    private static final Log log = LogFactory.getLog(OutlierDetector.class);
+
+    /**
+     * Message context property holding the time in nanoseconds a message was sent to a member
+     */
+    private static final String SEND_TIME = "synapse.endpoint.outlier.detection.send.time";
+
+    /** Share of its traffic a member gets right after its ejection is over */
+    private static final double INITIAL_RAMP_SHARE = 0.1;
+
+    /** Number of buckets the window of responses of a member is divided into */
+    private static final int BUCKETS = 10;
+
+    private final long bucketWidth;
+    private final int minRequests;
+    private final double failureRate;
+    private final double latencyFactor;
+    private final long minLatency;
+    private final int maxEjectionPercent;
+    private final long ejectionTime;
+    private final long maxEjectionTime;
+    private final long rampTime;
+
+    private final Member[] members;
+
+    private OutlierDetector(List<Endpoint> endpoints) {
+        long window = getProperty(SynapseConstants.OUTLIER_DETECTION_WINDOW,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_WINDOW);
+        bucketWidth = Math.max(1, window / BUCKETS);
+        minRequests = (int) getProperty(SynapseConstants.OUTLIER_DETECTION_MIN_REQUESTS,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_MIN_REQUESTS);
+        failureRate = Double.parseDouble(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.OUTLIER_DETECTION_FAILURE_RATE,
+                String.valueOf(SynapseConstants.DEFAULT_OUTLIER_DETECTION_FAILURE_RATE)));
+        latencyFactor = Double.parseDouble(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.OUTLIER_DETECTION_LATENCY_FACTOR,
+                String.valueOf(SynapseConstants.DEFAULT_OUTLIER_DETECTION_LATENCY_FACTOR)));
+        minLatency = getProperty(SynapseConstants.OUTLIER_DETECTION_MIN_LATENCY,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_MIN_LATENCY);
+        maxEjectionPercent = (int) getProperty(
+                SynapseConstants.OUTLIER_DETECTION_MAX_EJECTION_PERCENT,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_MAX_EJECTION_PERCENT);
+        ejectionTime = getProperty(SynapseConstants.OUTLIER_DETECTION_EJECTION_TIME,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_EJECTION_TIME);
+        maxEjectionTime = Math.max(ejectionTime, getProperty(
+                SynapseConstants.OUTLIER_DETECTION_MAX_EJECTION_TIME,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_MAX_EJECTION_TIME));
+        rampTime = getProperty(SynapseConstants.OUTLIER_DETECTION_RAMP_TIME,
+                SynapseConstants.DEFAULT_OUTLIER_DETECTION_RAMP_TIME);
+
+        members = new Member[endpoints.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new Member(this);
+        }
+    }
+
+    /**
+     * @return true if the members of load balance and failover groups are checked for outliers
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.OUTLIER_DETECTION,
+                String.valueOf(SynapseConstants.DEFAULT_OUTLIER_DETECTION)));
+    }
+
+    /**
+     * Start detecting the outliers among the members of a group. Only the members which send
+     * messages themselves take part, that is the initialized leaf endpoints, as nested groups
+     * and indirect endpoints keep their state elsewhere.
+     *
+     * @param endpoints the members of the load balance or failover group
+     */
+    public static void attach(List<Endpoint> endpoints) {
+        OutlierDetector detector = new OutlierDetector(endpoints);
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get(i);
+            if (endpoint instanceof AbstractEndpoint && !(endpoint instanceof IndirectEndpoint)
+                    && ((AbstractEndpoint) endpoint).isLeafEndpoint()) {
+                EndpointContext context = ((AbstractEndpoint) endpoint).getContext();
+                if (context != null) {
+                    context.setOutlierDetection(detector.members[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when a member of a group sends a message
+     *
+     * @param synCtx the message being sent
+     */
+    static void messageSent(MessageContext synCtx) {
+        synCtx.setProperty(SEND_TIME, System.nanoTime());
+    }
+
+    /**
+     * Called when a response, a fault or a timeout is received for a message. Records the
+     * outcome with the member of a group which sent the message, if any.
+     *
+     * @param synCtx the message sent
+     * @param failed true if the message could not be delivered, timed out, or the response
+     *               was a server error
+     */
+    public static void responseReceived(MessageContext synCtx, boolean failed) {
+        Object sentAt = synCtx.getProperty(SEND_TIME);
+        if (!(sentAt instanceof Long)) {
+            return;
+        }
+        Set keySet = synCtx.getPropertyKeySet();
+        if (keySet != null) {
+            keySet.remove(SEND_TIME);
+        }
+        Object endpoint = synCtx.getProperty(SynapseConstants.LAST_ENDPOINT);
+        if (endpoint instanceof AbstractEndpoint) {
+            EndpointContext context = ((AbstractEndpoint) endpoint).getContext();
+            if (context != null) {
+                context.onResponse((System.nanoTime() - (Long) sentAt) / 1000000, failed);
+            }
+        }
+    }
+
+    /**
+     * Check if a member is an outlier, and eject it if it is
+     *
+     * @param member the member to check
+     * @param name   name of the member endpoint, for logging
+     * @param now    current time in milliseconds
+     * @return the time in milliseconds the member is ejected for, or 0 if it is not ejected
+     */
+    long checkMember(Member member, String name, long now) {
+        long[] stats = member.getStatistics(now);
+        long requests = stats[0];
+        if (requests < minRequests) {
+            return 0;
+        }
+
+        String reason;
+        long failures = stats[1];
+        double latency = (double) stats[2] / requests;
+        if (failures >= failureRate * requests) {
+            reason = failures + " of its last " + requests + " messages failed";
+        } else if (latency >= minLatency) {
+            double median = getMedianLatency(member, now);
+            if (median <= 0 || latency < latencyFactor * median) {
+                return 0;
+            }
+            reason = "it responds in " + (long) latency + "ms on average, while the other " +
+                    "members of its group respond in " + (long) median + "ms";
+        } else {
+            return 0;
+        }
+
+        int ejected = 0;
+        for (Member m : members) {
+            if (m.isEjected(now)) {
+                ejected++;
+            }
+        }
+        if ((ejected + 1) * 100 > maxEjectionPercent * members.length) {
+            if (log.isDebugEnabled()) {
+                log.debug("Endpoint : " + name + " is an outlier as " + reason + ", but is not " +
+                        "ejected as " + ejected + " members of its group are already ejected");
+            }
+            return 0;
+        }
+
+        long duration = member.eject(now);
+        if (duration > 0) {
+            log.warn("Endpoint : " + name + " is ejected from its group as " + reason);
+        }
+        return duration;
+    }
+
+    /**
+     * @return the median of the average response times of the other members which have
+     *         responded enough to be judged, or 0 if there are none
+     */
+    private double getMedianLatency(Member member, long now) {
+        double[] latencies = new double[members.length];
+        int count = 0;
+        for (Member m : members) {
+            if (m != member && !m.isEjected(now)) {
+                long[] stats = m.getStatistics(now);
+                if (stats[0] >= minRequests) {
+                    latencies[count++] = (double) stats[2] / stats[0];
+                }
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(latencies, 0, count);
+        return count % 2 == 1 ? latencies[count / 2] :
+                (latencies[count / 2 - 1] + latencies[count / 2]) / 2;
+    }
+
+    private static long getProperty(String name, long defaultValue) {
+        return Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * The responses received from a member over the sliding window, and its ejection state
+     */
+    static final class Member {
+
+        private final OutlierDetector detector;
+
+        private final Bucket[] buckets = new Bucket[BUCKETS];
+
+        /** time in milliseconds the current or last ejection ends at, 0 if never ejected */
+        private final AtomicLong ejectedUntil = new AtomicLong(0);
+
+        /** time in milliseconds the traffic is ramped up to the full share at */
+        private volatile long rampedUntil = 0;
+
+        /** consecutive ejections, updated by the thread which ejects the member */
+        private volatile int ejections = 0;
+
+        Member(OutlierDetector detector) {
+            this.detector = detector;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        OutlierDetector getDetector() {
+            return detector;
+        }
+
+        /**
+         * Record the outcome of a message sent to the member
+         *
+         * @param now     current time in milliseconds
+         * @param latency time in milliseconds the member took to respond
+         * @param failed  true if the message failed
+         */
+        void record(long now, long latency, boolean failed) {
+            long slot = now / detector.bucketWidth;
+            Bucket bucket = buckets[(int) (slot % BUCKETS)];
+            long current = bucket.slot.get();
+            if (current != slot) {
+                if (current > slot || !bucket.slot.compareAndSet(current, slot)) {
+                    // another thread moved the bucket on, it is close enough to drop this one
+                    if (bucket.slot.get() != slot) {
+                        return;
+                    }
+                } else {
+                    bucket.requests.set(0);
+                    bucket.failures.set(0);
+                    bucket.latency.set(0);
+                }
+            }
+            bucket.requests.incrementAndGet();
+            if (failed) {
+                bucket.failures.incrementAndGet();
+            }
+            bucket.latency.addAndGet(latency);
+        }
+
+        /**
+         * @return the number of messages, failures and the total response time in the window
+         */
+        long[] getStatistics(long now) {
+            long slot = now / detector.bucketWidth;
+            long[] stats = new long[3];
+            for (Bucket bucket : buckets) {
+                long bucketSlot = bucket.slot.get();
+                if (bucketSlot <= slot && bucketSlot > slot - BUCKETS) {
+                    stats[0] += bucket.requests.get();
+                    stats[1] += bucket.failures.get();
+                    stats[2] += bucket.latency.get();
+                }
+            }
+            return stats;
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntil.get() > now;
+        }
+
+        /**
+         * Eject the member, unless it is already ejected
+         *
+         * @param now current time in milliseconds
+         * @return the time in milliseconds the member is ejected for, 0 if it was not ejected
+         */
+        long eject(long now) {
+            long lastEjectedUntil = ejectedUntil.get();
+            if (lastEjectedUntil > now) {
+                return 0;
+            }
+            // members which stayed healthy for long enough start over with the shortest ejection
+            int count = lastEjectedUntil == 0 ||
+                    now - lastEjectedUntil > detector.maxEjectionTime ? 1 : ejections + 1;
+            long duration = Math.min(detector.ejectionTime * count, detector.maxEjectionTime);
+            if (!ejectedUntil.compareAndSet(lastEjectedUntil, now + duration)) {
+                return 0;
+            }
+            ejections = count;
+            rampedUntil = now + duration + detector.rampTime;
+            // judge the member afresh once it is let back in
+            for (Bucket bucket : buckets) {
+                bucket.slot.set(-1);
+            }
+            return duration;
+        }
+
+        /**
+         * Clear the ejection of the member, when the endpoint is switched on or off manually
+         */
+        void reset() {
+            ejectedUntil.set(0);
+            rampedUntil = 0;
+            ejections = 0;
+        }
+
+        /**
+         * Decide if the member may be sent the next message. Members which are not ejected
+         * get all their traffic, while members recovering from an ejection get a share growing
+         * from a tenth to all of their traffic over the ramp time.
+         *
+         * @param now current time in milliseconds
+         * @return true if the member may be sent the message
+         */
+        boolean admit(long now) {
+            long rampEnd = rampedUntil;
+            if (now >= rampEnd) {
+                return true;
+            }
+            long rampStart = ejectedUntil.get();
+            if (now < rampStart) {
+                return false;
+            }
+            double share = INITIAL_RAMP_SHARE + (1 - INITIAL_RAMP_SHARE) *
+                    (now - rampStart) / Math.max(1, rampEnd - rampStart);
+            return ThreadLocalRandom.current().nextDouble() < share;
+        }
+    }
+
+    private static final class Bucket {
+        private final AtomicLong slot = new AtomicLong(-1);
+        private final AtomicLong requests = new AtomicLong(0);
+        private final AtomicLong failures = new AtomicLong(0);
+        private final AtomicLong latency = new AtomicLong(0);
+    }
+}
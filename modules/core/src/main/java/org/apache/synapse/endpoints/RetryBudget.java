@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The retries and hedged requests a group endpoint may still send, so that retrying does not
+ * multiply the load on backends which are already slow or failing. Each request sent by the
+ * group adds a share of a retry to the budget, and each retry takes a whole one. A minimum number
+ * of retries per second is allowed on top of that, so that groups with little traffic can retry.
+ * <p>
+ * The balance is kept in thousandths of a retry in an atomic counter, so that taking a retry
+ * does not lock.
+ */
+final class RetryBudget {
+
+    private static final long UNIT = 1000;
+
+    /** Requests whose share of a retry may be saved up at most */
+    private static final long MAX_SAVED_REQUESTS = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final int minPerSecond;
+
+    private final AtomicLong balance = new AtomicLong(0);
+
+    /** the second the retries allowed per second are counted for, and the retries counted */
+    private final AtomicLong reserveSecond = new AtomicLong(0);
+    private final AtomicInteger reserveUsed = new AtomicInteger(0);
+
+    /**
+     * @param ratio        retries allowed for each request sent
+     * @param minPerSecond retries allowed per second, whatever the number of requests sent
+     */
+    RetryBudget(double ratio, int minPerSecond) {
+        this.deposit = Math.max(0, (long) (ratio * UNIT));
+        this.capacity = Math.max(UNIT, deposit * MAX_SAVED_REQUESTS);
+        this.minPerSecond = Math.max(0, minPerSecond);
+    }
+
+    /**
+     * Add the share of a retry of a request sent
+     */
+    void requestSent() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * Take a retry from the budget
+     *
+     * @return the retry taken, to refund it if it is not sent, or null if no retry may be sent
+     */
+    Retry tryRetry() {
+        long current = balance.get();
+        while (current >= UNIT) {
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return Retry.FROM_BALANCE;
+            }
+            current = balance.get();
+        }
+
+        long second = System.currentTimeMillis() / 1000;
+        long counted = reserveSecond.get();
+        if (counted != second && reserveSecond.compareAndSet(counted, second)) {
+            reserveUsed.set(0);
+        }
+        int used;
+        do {
+            used = reserveUsed.get();
+            if (used >= minPerSecond) {
+                return null;
+            }
+        } while (!reserveUsed.compareAndSet(used, used + 1));
+        return new Retry(second);
+    }
+
+    /**
+     * Give back a retry which was taken but not sent, to where it was taken from. A retry taken
+     * from the retries allowed in a second which has passed is not given back, as those of the
+     * current second are counted anew.
+     *
+     * @param retry the retry taken
+     */
+    void refund(Retry retry) {
+        if (retry.second < 0) {
+            long current;
+            do {
+                current = balance.get();
+            } while (!balance.compareAndSet(current, Math.min(capacity, current + UNIT)));
+        } else if (reserveSecond.get() == retry.second) {
+            reserveUsed.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return true if a retry would probably be allowed now, without taking it
+     */
+    boolean hasRetries() {
+        return balance.get() >= UNIT || reserveSecond.get() != System.currentTimeMillis() / 1000
+                || reserveUsed.get() < minPerSecond;
+    }
+
+    /**
+     * A retry taken from the budget, which remembers whether it was taken from the balance or
+     * from the retries allowed in a second
+     */
+    static final class Retry {
+
+        private static final Retry FROM_BALANCE = new Retry(-1);
+
+        /** the second the retry was allowed in, or -1 if it was taken from the balance */
+        private final long second;
+
+        private Retry(long second) {
+            this.second = second;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.axis2.clustering.Member;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A round robin load balancing algorithm which takes turns with an atomic counter instead of
+ * locking the algorithm context, so that concurrent sends through the load balance endpoint do
+ * not wait on each other. Unlike {@link RoundRobin}, the position is kept by the algorithm
+ * itself and is not shared through the configuration context in a cluster.
+ */
+public class AtomicRoundRobin implements LoadbalanceAlgorithm {
+
+    /**
+     * Endpoints list for the round robin algorithm
+     */
+    protected List<Endpoint> endpoints = null;
+
+    private List<Member> members;
+
+    private final AtomicInteger nextEndpoint = new AtomicInteger(0);
+
+    private final AtomicInteger nextMember = new AtomicInteger(0);
+
+    public void setApplicationMembers(List<Member> members) {
+        this.members = members;
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public void setLoadBalanceEndpoint(Endpoint endpoint) {
+    }
+
+    /**
+     * Choose the next active endpoint in turn. If there are no active endpoints available,
+     * returns null.
+     *
+     * @param synCtx           MessageContext instance which holds all per-message properties
+     * @param algorithmContext The context in which holds run time states related to the algorithm
+     * @return endpoint to send the next message
+     */
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+        List<Endpoint> endpoints = this.endpoints;
+        if (endpoints == null || endpoints.isEmpty()) {
+            return null;
+        }
+        int size = endpoints.size();
+        for (int attempts = 0; attempts < size; attempts++) {
+            Endpoint endpoint = endpoints.get(nextIndex(nextEndpoint, size));
+            if (endpoint.readyToSend()) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
+        List<Member> members = this.members;
+        if (members == null || members.isEmpty()) {
+            return null;
+        }
+        Member current = null;
+        int size = members.size();
+        for (int attempts = 0; attempts < size; attempts++) {
+            current = members.get(nextIndex(nextMember, size));
+            if (!current.isSuspended()) {
+                break;
+            }
+        }
+        // like the round robin algorithm, fall back to a suspended member if all are suspended
+        return current;
+    }
+
+    public void reset(AlgorithmContext algorithmContext) {
+        nextEndpoint.set(0);
+        nextMember.set(0);
+    }
+
+    public String getName() {
+        return "AtomicRoundRobin";
+    }
+
+    @Override
+    public LoadbalanceAlgorithm clone() {
+        return new AtomicRoundRobin();
+    }
+
+    /**
+     * Take the next turn of a counter shared by concurrent senders
+     *
+     * @param counter the turns taken so far
+     * @param size    number of positions to take turns on
+     * @return the position in [0, size) for this turn
+     */
+    static int nextIndex(AtomicInteger counter, int size) {
+        // the counter is allowed to overflow, so drop the sign bit before taking the remainder
+        return (counter.getAndIncrement() & Integer.MAX_VALUE) % size;
+    }
+}
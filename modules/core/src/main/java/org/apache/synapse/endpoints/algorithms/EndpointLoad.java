@@ -0,0 +1,164 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the number of outstanding requests of an endpoint in a load balance group, and the
+ * exponentially weighted moving average of the time the endpoint took to respond. Algorithms
+ * record a request against the load of the endpoint they choose with
+ * {@link #requestSent(MessageContext, EndpointLoad)}, and the request is completed when its
+ * response, fault or timeout is handled, through {@link #requestsCompleted(MessageContext, boolean)}.
+ */
+public class EndpointLoad {
+
+    /**
+     * Message context property holding the requests recorded against endpoint loads, which are
+     * yet to complete. A message has more than one when load balance endpoints are nested
+     */
+    private static final String OUTSTANDING_REQUESTS = "synapse.lb.outstanding.requests";
+
+    /**
+     * Weight of the latest response time in the moving average
+     */
+    private static final double ALPHA = 0.3;
+
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+
+    /** moving average of the response time in nanoseconds, stored as the bits of a double */
+    private final AtomicLong latency = new AtomicLong(Double.doubleToLongBits(0));
+
+    /**
+     * @return the number of requests sent to the endpoint, which have not completed yet
+     */
+    public int getOutstandingRequests() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return the moving average of the response time of the endpoint in nanoseconds, or 0 if
+     *         no request sent to the endpoint has completed yet
+     */
+    public double getLatency() {
+        return Double.longBitsToDouble(latency.get());
+    }
+
+    /**
+     * The cost of sending another request to the endpoint, taking both the response time and the
+     * requests already waiting on the endpoint into account
+     *
+     * @return the cost of sending a request to the endpoint
+     */
+    public double getCost() {
+        int pending = outstanding.get();
+        double average = getLatency();
+        // an endpoint with no completed requests costs only what is queued on it, so that new
+        // endpoints are tried before their response time is known
+        return average == 0 ? pending : average * (pending + 1);
+    }
+
+    void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    void requestCompleted(long elapsedNanos, boolean failed) {
+        outstanding.decrementAndGet();
+        while (true) {
+            long bits = latency.get();
+            double average = Double.longBitsToDouble(bits);
+            double sample = elapsedNanos;
+            if (failed) {
+                // a failure which is returned quickly should not attract more requests
+                sample = Math.max(sample, 2 * average);
+            }
+            double updated = average == 0 ? sample : average + ALPHA * (sample - average);
+            if (latency.compareAndSet(bits, Double.doubleToLongBits(updated))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record a request sent with the given message against the load of an endpoint
+     *
+     * @param synCtx the message being sent
+     * @param load   load of the endpoint chosen to send the message to
+     */
+    @SuppressWarnings("unchecked")
+    public static void requestSent(MessageContext synCtx, EndpointLoad load) {
+        List<OutstandingRequest> requests =
+                (List<OutstandingRequest>) synCtx.getProperty(OUTSTANDING_REQUESTS);
+        if (requests == null) {
+            requests = new ArrayList<OutstandingRequest>(2);
+            synCtx.setProperty(OUTSTANDING_REQUESTS, requests);
+        }
+        load.requestStarted();
+        requests.add(new OutstandingRequest(load, System.nanoTime()));
+    }
+
+    /**
+     * Complete the requests recorded with the given message, when a response, a fault or a
+     * timeout has been received for it, or when no response is expected. Does nothing if no
+     * requests are outstanding for the message, so this may be called more than once.
+     *
+     * @param synCtx the message sent
+     * @param failed true if the message could not be delivered or timed out
+     */
+    @SuppressWarnings("unchecked")
+    public static void requestsCompleted(MessageContext synCtx, boolean failed) {
+        List<OutstandingRequest> requests =
+                (List<OutstandingRequest>) synCtx.getProperty(OUTSTANDING_REQUESTS);
+        if (requests == null || requests.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (OutstandingRequest request : requests) {
+            request.load.requestCompleted(now - request.sentAt, failed);
+        }
+        requests.clear();
+    }
+
+    /**
+     * Forget the requests recorded with the given message without completing them, for a copy
+     * of a message which is sent on its own while the original still holds the requests
+     *
+     * @param synCtx the copy of the message
+     */
+    public static void clearRequests(MessageContext synCtx) {
+        synCtx.getPropertyKeySet().remove(OUTSTANDING_REQUESTS);
+    }
+
+    private static class OutstandingRequest {
+
+        private final EndpointLoad load;
+        private final long sentAt;
+
+        private OutstandingRequest(EndpointLoad load, long sentAt) {
+            this.load = load;
+            this.sentAt = sentAt;
+        }
+    }
+}
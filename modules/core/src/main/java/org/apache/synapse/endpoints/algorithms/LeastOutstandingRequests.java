@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A load balancing algorithm which sends each message to the active endpoint with the fewest
+ * requests awaiting a response. Slow endpoints accumulate outstanding requests and so receive
+ * fewer new ones. The requests are counted per algorithm, that is per load balance endpoint,
+ * as they are sent, and are completed when the response, fault or timeout is received, as
+ * tracked by {@link EndpointLoad}.
+ */
+public class LeastOutstandingRequests extends AtomicRoundRobin {
+
+    /**
+     * Load of each endpoint, in the order of the endpoints list
+     */
+    private volatile EndpointLoad[] loads = new EndpointLoad[0];
+
+    /** where the search for the least loaded endpoint starts, so that ties are spread out */
+    private final AtomicInteger start = new AtomicInteger(0);
+
+    @Override
+    public void setEndpoints(List<Endpoint> endpoints) {
+        EndpointLoad[] loads = new EndpointLoad[endpoints != null ? endpoints.size() : 0];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new EndpointLoad();
+        }
+        this.loads = loads;
+        super.setEndpoints(endpoints);
+    }
+
+    /**
+     * Load of an endpoint of the load balance group
+     *
+     * @param index position of the endpoint in the endpoints list
+     * @return the load of the endpoint
+     */
+    public EndpointLoad getEndpointLoad(int index) {
+        return loads[index];
+    }
+
+    @Override
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+        List<Endpoint> endpoints = this.endpoints;
+        EndpointLoad[] loads = this.loads;
+        if (endpoints == null || endpoints.isEmpty() || loads.length != endpoints.size()) {
+            return null;
+        }
+        int index = choose(endpoints, loads);
+        if (index < 0) {
+            return null;
+        }
+        EndpointLoad.requestSent(synCtx, loads[index]);
+        return endpoints.get(index);
+    }
+
+    /**
+     * Choose the endpoint to send the next message to
+     *
+     * @param endpoints the endpoints of the load balance group
+     * @param loads     the loads of the endpoints, in the same order
+     * @return position of the chosen endpoint, or -1 if no endpoint is active
+     */
+    protected int choose(List<Endpoint> endpoints, EndpointLoad[] loads) {
+        int size = endpoints.size();
+        int offset = nextIndex(start, size);
+        int chosen = -1;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size && least > 0; i++) {
+            int index = (offset + i) % size;
+            int outstanding = loads[index].getOutstandingRequests();
+            if (outstanding < least && endpoints.get(index).readyToSend()) {
+                chosen = index;
+                least = outstanding;
+            }
+        }
+        return chosen;
+    }
+
+    @Override
+    public String getName() {
+        return "LeastOutstandingRequests";
+    }
+
+    @Override
+    public LoadbalanceAlgorithm clone() {
+        return new LeastOutstandingRequests();
+    }
+}
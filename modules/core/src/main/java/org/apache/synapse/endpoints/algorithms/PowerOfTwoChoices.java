@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A load balancing algorithm which picks two active endpoints at random and sends the message
+ * to the one which costs less, the cost being the moving average of its response time scaled
+ * by the requests outstanding on it (see {@link EndpointLoad#getCost()}). Comparing only two
+ * endpoints keeps the choice cheap and avoids sending every message to the same endpoint
+ * while its statistics catch up, yet steers requests away from endpoints which are slow.
+ */
+public class PowerOfTwoChoices extends LeastOutstandingRequests {
+
+    @Override
+    protected int choose(List<Endpoint> endpoints, EndpointLoad[] loads) {
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0).readyToSend() ? 0 : -1;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        boolean firstReady = endpoints.get(first).readyToSend();
+        boolean secondReady = endpoints.get(second).readyToSend();
+        if (firstReady && secondReady) {
+            double firstCost = loads[first].getCost();
+            double secondCost = loads[second].getCost();
+            if (firstCost != secondCost) {
+                return firstCost < secondCost ? first : second;
+            }
+            return loads[first].getOutstandingRequests() <=
+                    loads[second].getOutstandingRequests() ? first : second;
+        } else if (firstReady) {
+            return first;
+        } else if (secondReady) {
+            return second;
+        }
+        // both picks are inactive, so look through the rest of the group
+        return super.choose(endpoints, loads);
+    }
+
+    @Override
+    public String getName() {
+        return "PowerOfTwoChoices";
+    }
+
+    @Override
+    public LoadbalanceAlgorithm clone() {
+        return new PowerOfTwoChoices();
+    }
+}
@@ -70,6 +70,19 @@ public class Target {
      * mediation returns <code>false</code>, <code>true</code> otherwise
      */
     public boolean mediate(MessageContext synCtx) {
+        return mediate(synCtx, asynchronous);
+    }
+
+    /**
+     * process the message through this target, overriding whether a target sequence is
+     * mediated in a different thread than the calling thread
+     *
+     * @param synCtx - MessageContext to be mediated
+     * @param asynchronous - whether the target sequence should be mediated asynchronously
+     * @return <code>false</code> if the target is mediated as synchronous and the sequence
+     * mediation returns <code>false</code>, <code>true</code> otherwise
+     */
+    public boolean mediate(MessageContext synCtx, boolean asynchronous) {
 
         boolean returnValue = true;
 
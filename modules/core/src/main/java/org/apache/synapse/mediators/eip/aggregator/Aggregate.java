@@ -19,6 +19,7 @@
 
 package org.apache.synapse.mediators.eip.aggregator;
 
+import com.google.gson.JsonArray;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.FaultHandler;
@@ -26,6 +27,7 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.eip.EIPConstants;
+import org.apache.synapse.util.concurrent.HashedWheelTimer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,8 +35,10 @@ import java.util.TimerTask;
 
 /**
  * An instance of this class is created to manage each aggregation group, and it holds
- * the aggregation properties and the messages collected during aggregation. This class also
- * times out itself after the timeout expires it
+ * the aggregation properties and the messages collected during aggregation. Each message is
+ * merged into the aggregated message as soon as it is collected, so that completing the
+ * aggregation does not have to merge all of them at once. This class also times out itself
+ * after the timeout expires it
  */
 public class Aggregate extends TimerTask {
 
@@ -51,10 +55,22 @@ public class Aggregate extends TimerTask {
     /** The AggregateMediator that should be invoked on completion of the aggregation */
     private AggregateMediator aggregateMediator = null;
     private List<MessageContext> messages = new ArrayList<MessageContext>();
+    /**
+     * The number of messages in this aggregation group as announced by the splitter, or -1 if
+     * not known yet. A streaming splitter only announces it with the last message it creates
+     */
+    private int expectedCount = -1;
     private boolean locked = false;
-    private boolean completed = false;
+    private volatile boolean completed = false;
     private SynapseEnvironment synEnv = null;
 
+    /** The message into which the collected messages have been merged so far */
+    private MessageContext aggregatedMessage = null;
+    /** The JSON results collected so far, when the aggregation expression is a JSON path */
+    private JsonArray aggregatedJson = null;
+    /** Timeout scheduled for this aggregation on the hashed wheel timer, if any */
+    private volatile HashedWheelTimer.Timeout timeout = null;
+
     /**
      * Fault handler for the aggregate mediator
      */
@@ -88,20 +104,63 @@ public class Aggregate extends TimerTask {
     }
 
     /**
-     * Add a message to the interlan message list
+     * Add a message to the interlan message list, and merge it into the aggregated message
      *
      * @param synCtx message to be added into this aggregation group
      * @return true if the message was added or false if not
      */
     public synchronized boolean addMessage(MessageContext synCtx) {
+        if (completed) {
+            return false;
+        }
         if (maxCount <= 0 || (maxCount > 0 && messages.size() < maxCount)) {
+            aggregateMediator.mergeMessage(this, synCtx);
             messages.add(synCtx);
+            updateExpectedCount(synCtx);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Mark this aggregation group as completed. Once marked, no more messages are added to it,
+     * so the aggregated message is no longer modified
+     *
+     * @return true if this call completed the aggregation, false if it was already completed
+     */
+    public synchronized boolean markCompleted() {
+        if (completed) {
+            return false;
+        }
+        completed = true;
+        return true;
+    }
+
+    /**
+     * Schedule the timeout of this aggregation group
+     *
+     * @param timer the timer to schedule the timeout on
+     * @param delayMillis the timeout duration in milliseconds
+     */
+    public void scheduleTimeout(HashedWheelTimer timer, long delayMillis) {
+        timeout = timer.schedule(this, delayMillis);
+        if (completed) {
+            // completed while being scheduled
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        boolean cancelled = super.cancel();
+        HashedWheelTimer.Timeout scheduledTimeout = timeout;
+        if (scheduledTimeout != null) {
+            cancelled = scheduledTimeout.cancel() || cancelled;
+        }
+        return cancelled;
+    }
+
     /**
      * Has this aggregation group completed?
      *
@@ -116,22 +175,14 @@ public class Aggregate extends TimerTask {
             // if any messages have been collected, check if the completion criteria is met
             if (!messages.isEmpty()) {
 
-                // get total messages for this group, from the first message we have collected
-                MessageContext mc = messages.get(0);
-                Object prop = mc.getProperty(EIPConstants.MESSAGE_SEQUENCE +
-                        (aggregateMediator.getId() != null ? "." + aggregateMediator.getId() : ""));
-            
-                if (prop != null && prop instanceof String) {
-                    String[] msgSequence = prop.toString().split(
-                            EIPConstants.MESSAGE_SEQUENCE_DELEMITER);
-                    int total = Integer.parseInt(msgSequence[1]);
+                if (expectedCount > 0) {
 
                     if (synLog.isTraceOrDebugEnabled()) {
                         synLog.traceOrDebug(messages.size() +
-                                " messages of " + total + " collected in current aggregation");
+                                " messages of " + expectedCount + " collected in current aggregation");
                     }
 
-                    if (messages.size() >= total) {
+                    if (messages.size() >= expectedCount) {
                         synLog.traceOrDebug("Aggregation complete");
                         return true;
                     }
@@ -174,10 +225,45 @@ public class Aggregate extends TimerTask {
         return false;
     }
 
-    public MessageContext getLastMessage() {
+    /**
+     * Read the total number of messages of this group from the message sequence property of the
+     * given message. Messages of a streaming split carry a negative total, except the last one
+     *
+     * @param synCtx message added to this aggregation group
+     */
+    private void updateExpectedCount(MessageContext synCtx) {
+        Object prop = synCtx.getProperty(EIPConstants.MESSAGE_SEQUENCE +
+                (aggregateMediator.getId() != null ? "." + aggregateMediator.getId() : ""));
+
+        if (prop != null && prop instanceof String) {
+            String[] msgSequence = prop.toString().split(EIPConstants.MESSAGE_SEQUENCE_DELEMITER);
+            int total = Integer.parseInt(msgSequence[1]);
+            if (total > 0) {
+                expectedCount = total;
+            }
+        }
+    }
+
+    public synchronized MessageContext getLastMessage() {
         return messages.get(messages.size() - 1);
     }
 
+    MessageContext getAggregatedMessage() {
+        return aggregatedMessage;
+    }
+
+    void setAggregatedMessage(MessageContext aggregatedMessage) {
+        this.aggregatedMessage = aggregatedMessage;
+    }
+
+    JsonArray getAggregatedJson() {
+        return aggregatedJson;
+    }
+
+    void setAggregatedJson(JsonArray aggregatedJson) {
+        this.aggregatedJson = aggregatedJson;
+    }
+
     public long getTimeoutMillis() {
         return timeoutMillis;
     }
@@ -227,19 +313,15 @@ public class Aggregate extends TimerTask {
     }
 
     public void run() {
-        while (true) {
-            if (completed) {
-                break;
-            }
-            if (getLock()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
-                            "expired at : " + expiryTimeMillis);
-                }
-                synEnv.getExecutorService().execute(new AggregateTimeout(this));
-                break;
-            }
+        if (completed) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Time : " + System.currentTimeMillis() + " and this aggregator " +
+                    "expired at : " + expiryTimeMillis);
         }
+        // do not hold up the timer thread, which serves the timeouts of all the aggregations
+        synEnv.getExecutorService().execute(new AggregateTimeout(this));
     }
 
     /**
@@ -251,8 +333,10 @@ public class Aggregate extends TimerTask {
      * allow them to be garbage collected
      *
      */
-    public void clear() {
+    public synchronized void clear() {
         messages = null;
+        aggregatedMessage = null;
+        aggregatedJson = null;
     }
 
     private class AggregateTimeout implements Runnable {
@@ -60,6 +60,8 @@ import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Aggregate a number of messages that are determined to be for a particular group, and combine
@@ -70,6 +72,8 @@ import java.util.*;
  * An instance of this mediator will register with a Timer to be notified after a specified timeout,
  * so that aggregations that never would complete could be timed out and cleared from memory and
  * any fault conditions handled
+ * Aggregations of different correlations do not share any lock, and each collected message is
+ * merged into the aggregated message of its aggregation as soon as it arrives
  */
 public class AggregateMediator extends AbstractMediator implements ManagedLifecycle,
                                                                    FlowContinuableMediator {
@@ -102,17 +106,14 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     private SequenceMediator onCompleteSequence = null;
 
     /** The active aggregates currently being processd */
-    private Map<String, Aggregate> activeAggregates =
-        Collections.synchronizedMap(new HashMap<String, Aggregate>());
+    private final ConcurrentMap<String, Aggregate> activeAggregates =
+            new ConcurrentHashMap<String, Aggregate>();
 
     private String id = null;
 
     /** Property which contains the Enclosing element of the aggregated message */
     private String enclosingElementPropertyName = null;
 
-    /** Lock object to provide the synchronized access to the activeAggregates on checking */
-    private final Object lock = new Object();
-
     /** Reference to the synapse environment */
     private SynapseEnvironment synapseEnv;
 
@@ -206,49 +207,9 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
             }
             if (result != null) {
 
-                while (aggregate == null) {
-
-                    synchronized (lock) {
-
-                        if (activeAggregates.containsKey(correlateExpression.toString())) {
-
-                            aggregate = activeAggregates.get(correlateExpression.toString());
-                            if (aggregate != null) {
-                                if (!aggregate.getLock()) {
-                                    aggregate = null;
-                                }
-                            }
-
-                        } else {
-
-                            if (synLog.isTraceOrDebugEnabled()) {
-                                synLog.traceOrDebug("Creating new Aggregator - " +
-                                        (completionTimeoutMillis > 0 ? "expires in : "
-                                                + (completionTimeoutMillis / 1000) + "secs" :
-                                                "without expiry time"));
-                            }
-                            if (isAggregationCompleted(synCtx)) {
-                                return false;
-                            }
-
-                            Double minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                            Double maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                    
-                            aggregate = new Aggregate(
-                                    synCtx.getEnvironment(),
-                                    correlateExpression.toString(),
-                                    completionTimeoutMillis,
-                                    minMsg.intValue(),
-                                    maxMsg.intValue(), this, synCtx.getFaultStack().peek());
-
-                            if (completionTimeoutMillis > 0) {
-                                synCtx.getConfiguration().getSynapseTimer().
-                                        schedule(aggregate, completionTimeoutMillis);
-                            }
-                            aggregate.getLock();
-                            activeAggregates.put(correlateExpression.toString(), aggregate);
-                        }
-                    }
+                aggregate = getAggregate(synCtx, correlateExpression.toString(), synLog);
+                if (aggregate == null) {
+                    return false;
                 }
 
             } else if (synCtx.getProperty(correlationIdName) != null) {
@@ -258,63 +219,12 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
                 // which thus can be used to uniquely group messages into aggregates
 
                 Object o = synCtx.getProperty(correlationIdName);
-                String correlation;
 
                 if (o != null && o instanceof String) {
-                    correlation = (String) o;
-                    while (aggregate == null) {
-                        synchronized (lock) {
-                            if (activeAggregates.containsKey(correlation)) {
-                                aggregate = activeAggregates.get(correlation);
-                                if (aggregate != null) {
-                                    if (!aggregate.getLock()) {
-                                        aggregate = null;
-                                    }
-                                } else {
-                                    break;
-                                }
-                            } else {
-                                if (synLog.isTraceOrDebugEnabled()) {
-                                    synLog.traceOrDebug("Creating new Aggregator - " +
-                                            (completionTimeoutMillis > 0 ? "expires in : "
-                                                    + (completionTimeoutMillis / 1000) + "secs" :
-                                                    "without expiry time"));
-                                }
-
-                                if (isAggregationCompleted(synCtx)) {
-                                    return false;
-                                }
-
-                                Double minMsg = -1.0;
-                                if (minMessagesToComplete != null) {
-                                    minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
-                                }
-                                Double maxMsg = -1.0;
-                                if (maxMessagesToComplete != null) {
-                                    maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
-                                }
-
-                                aggregate = new Aggregate(
-                                        synCtx.getEnvironment(),
-                                        correlation,
-                                        completionTimeoutMillis,
-                                        minMsg.intValue(),
-                                        maxMsg.intValue(), this, synCtx.getFaultStack().peek());
-
-                                if (completionTimeoutMillis > 0) {
-                                    synchronized(aggregate) {
-                                        if (!aggregate.isCompleted()) {
-                                            synCtx.getConfiguration().getSynapseTimer().
-                                                schedule(aggregate, completionTimeoutMillis);
-                                        }
-                                    }
-                                }
-                                aggregate.getLock();
-                                activeAggregates.put(correlation, aggregate);
-                            }
-                        }
+                    aggregate = getAggregate(synCtx, (String) o, synLog);
+                    if (aggregate == null) {
+                        return false;
                     }
-                    
                 } else {
                     synLog.traceOrDebug("Unable to find aggrgation correlation property");
                     return true;
@@ -347,8 +257,6 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
                     synLog.traceOrDebug("End : Aggregate mediator");
                     isAggregateComplete = onCompleteSeqResult;
                     return onCompleteSeqResult;
-                } else {
-                    aggregate.releaseLock();
                 }
 
             } else {
@@ -369,6 +277,64 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         return false;
     }
 
+    /**
+     * Get the active aggregate of the given correlation, or create and register a new one if
+     * there is none. Aggregates are looked up and registered without locking, so messages of
+     * different correlations never wait for each other.
+     *
+     * @param synCtx      message to be aggregated
+     * @param correlation the correlation of the message
+     * @param synLog      the Synapse log to use
+     * @return the aggregate, or null if the aggregation of this correlation has already been
+     * completed
+     */
+    private Aggregate getAggregate(MessageContext synCtx, String correlation, SynapseLog synLog) {
+
+        Aggregate aggregate = activeAggregates.get(correlation);
+        if (aggregate != null) {
+            return aggregate;
+        }
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Creating new Aggregator - " +
+                    (completionTimeoutMillis > 0 ? "expires in : "
+                            + (completionTimeoutMillis / 1000) + "secs" :
+                            "without expiry time"));
+        }
+
+        if (isAggregationCompleted(synCtx)) {
+            return null;
+        }
+
+        Double minMsg = -1.0;
+        if (minMessagesToComplete != null) {
+            minMsg = Double.parseDouble(minMessagesToComplete.evaluateValue(synCtx));
+        }
+        Double maxMsg = -1.0;
+        if (maxMessagesToComplete != null) {
+            maxMsg = Double.parseDouble(maxMessagesToComplete.evaluateValue(synCtx));
+        }
+
+        Aggregate newAggregate = new Aggregate(
+                synCtx.getEnvironment(),
+                correlation,
+                completionTimeoutMillis,
+                minMsg.intValue(),
+                maxMsg.intValue(), this, synCtx.getFaultStack().peek());
+
+        aggregate = activeAggregates.putIfAbsent(correlation, newAggregate);
+        if (aggregate != null) {
+            // another message of the same correlation created the aggregate first
+            return aggregate;
+        }
+
+        if (completionTimeoutMillis > 0) {
+            newAggregate.scheduleTimeout(
+                    synCtx.getConfiguration().getSynapseWheelTimer(), completionTimeoutMillis);
+        }
+        return newAggregate;
+    }
+
     /*
      * Check whether aggregation is already completed by time-out/receiving required number of min/max messages,
       * and we are receiving a message after the aggregation is completed.
@@ -428,9 +394,7 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
      */
     public boolean completeAggregate(Aggregate aggregate) {
 
-        boolean markedCompletedNow = false;
-        boolean wasComplete = aggregate.isCompleted();
-        if (wasComplete) {
+        if (!aggregate.markCompleted()) {
             return false;
         }
 
@@ -439,30 +403,20 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         }
 
         // cancel the timer
-        synchronized(this) {
-            if (!aggregate.isCompleted()) {
-                aggregate.cancel();
-                aggregate.setCompleted(true);
-
-                MessageContext lastMessage = aggregate.getLastMessage();
-                if (lastMessage != null) {
-                    Object aggregateTimeoutHolderObj =
-                            lastMessage.getProperty(id != null ? EIPConstants.EIP_SHARED_DATA_HOLDER + "." + id :
-                                                    EIPConstants.EIP_SHARED_DATA_HOLDER);
-
-                    if (aggregateTimeoutHolderObj != null) {
-                        SharedDataHolder sharedDataHolder = (SharedDataHolder) aggregateTimeoutHolderObj;
-                        sharedDataHolder.markAggregationCompletion();
-                    }
-                }
-                markedCompletedNow = true;
+        aggregate.cancel();
+
+        MessageContext lastMessage = aggregate.getLastMessage();
+        if (lastMessage != null) {
+            Object aggregateTimeoutHolderObj =
+                    lastMessage.getProperty(id != null ? EIPConstants.EIP_SHARED_DATA_HOLDER + "." + id :
+                                            EIPConstants.EIP_SHARED_DATA_HOLDER);
+
+            if (aggregateTimeoutHolderObj != null) {
+                SharedDataHolder sharedDataHolder = (SharedDataHolder) aggregateTimeoutHolderObj;
+                sharedDataHolder.markAggregationCompletion();
             }
         }
 
-        if (!markedCompletedNow) {
-            return false;
-        }
-        
         MessageContext newSynCtx = getAggregatedMessage(aggregate);
 
         if (newSynCtx == null) {
@@ -484,7 +438,7 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
         }
 
         aggregate.clear();
-        activeAggregates.remove(aggregate.getCorrelation());
+        activeAggregates.remove(aggregate.getCorrelation(), aggregate);
 
         if ((correlateExpression != null &&
             correlateExpression.toString().equals(aggregate.getCorrelation())) ||
@@ -515,59 +469,78 @@ public class AggregateMediator extends AbstractMediator implements ManagedLifecy
     }
 
     /**
-     * Get the aggregated message from the specified Aggregate instance
+     * Merge a newly collected message into the aggregated message of the given aggregate. The
+     * first message collected is copied to start the aggregated message. This is called with the
+     * lock of the aggregate held, so that the messages of an aggregate are merged one at a time.
      *
      * @param aggregate the Aggregate object that holds collected messages and properties of the
      * aggregation
-     * @return the aggregated message context
+     * @param synCtx the collected message
      */
-    private MessageContext getAggregatedMessage(Aggregate aggregate) {
+    void mergeMessage(Aggregate aggregate, MessageContext synCtx) {
 
-        MessageContext newCtx = null;
-        JsonArray jsonArray = new JsonArray();
-        JsonElement result;
         boolean isJSONAggregation = aggregationExpression instanceof SynapseJsonPath;
+        MessageContext newCtx = aggregate.getAggregatedMessage();
 
-        for (MessageContext synCtx : aggregate.getMessages()) {
-            
-            if (newCtx == null) {
-                try {
-                    newCtx = MessageHelper.cloneMessageContext(synCtx, true, false, true);
-                } catch (AxisFault axisFault) {
-                    handleException(aggregate, "Error creating a copy of the message", axisFault, synCtx);
-                }
+        if (newCtx == null) {
+            try {
+                newCtx = MessageHelper.cloneMessageContext(synCtx, true, false, true);
+            } catch (AxisFault axisFault) {
+                handleException("Error creating a copy of the message", axisFault, synCtx);
+            }
 
+            if (log.isDebugEnabled()) {
+                log.debug("Generating Aggregated message from : " + newCtx.getEnvelope());
+            }
+            if (isJSONAggregation) {
+                JsonArray jsonArray = new JsonArray();
+                jsonArray.add(EIPUtils.getJSONElement(synCtx, (SynapseJsonPath) aggregationExpression));
+                aggregate.setAggregatedJson(jsonArray);
+            }
+            aggregate.setAggregatedMessage(newCtx);
+        } else {
+            try {
                 if (log.isDebugEnabled()) {
-                    log.debug("Generating Aggregated message from : " + newCtx.getEnvelope());
+                    log.debug("Merging message : " + synCtx.getEnvelope() + " using XPath : " +
+                            aggregationExpression);
                 }
                 if (isJSONAggregation) {
-                    jsonArray.add(EIPUtils.getJSONElement(synCtx, (SynapseJsonPath) aggregationExpression));
+                    aggregate.getAggregatedJson().add(
+                            EIPUtils.getJSONElement(synCtx, (SynapseJsonPath) aggregationExpression));
+                } else {
+                    EIPUtils.enrichEnvelope(newCtx.getEnvelope(), synCtx.getEnvelope(), synCtx, (SynapseXPath)
+                                    aggregationExpression);
                 }
-            } else {
-                try {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Merging message : " + synCtx.getEnvelope() + " using XPath : " +
-                                aggregationExpression);
-                    }
-                    if (isJSONAggregation) {
-                        jsonArray.add(EIPUtils.getJSONElement(synCtx, (SynapseJsonPath) aggregationExpression));
-                    } else {
-                        EIPUtils.enrichEnvelope(newCtx.getEnvelope(), synCtx.getEnvelope(), synCtx, (SynapseXPath)
-                                        aggregationExpression);
-                    }
 
-                    if (log.isDebugEnabled()) {
-                        log.debug("Merged result : " + newCtx.getEnvelope());
-                    }
-
-                } catch (JaxenException e) {
-                    handleException(aggregate, "Error merging aggregation results using XPath : " +
-                            aggregationExpression.toString(), e, synCtx);
-                } catch (SynapseException e) {
-                    handleException(aggregate, "Error evaluating expression: " + aggregationExpression.toString() , e, synCtx);
+                if (log.isDebugEnabled()) {
+                    log.debug("Merged result : " + newCtx.getEnvelope());
                 }
+
+            } catch (JaxenException e) {
+                handleException("Error merging aggregation results using XPath : " +
+                        aggregationExpression.toString(), e, synCtx);
+            } catch (SynapseException e) {
+                handleException("Error evaluating expression: " + aggregationExpression.toString() , e, synCtx);
             }
         }
+    }
+
+    /**
+     * Get the aggregated message from the specified Aggregate instance
+     *
+     * @param aggregate the Aggregate object that holds collected messages and properties of the
+     * aggregation
+     * @return the aggregated message context
+     */
+    private MessageContext getAggregatedMessage(Aggregate aggregate) {
+
+        MessageContext newCtx = aggregate.getAggregatedMessage();
+        if (newCtx == null) {
+            return null;
+        }
+        JsonArray jsonArray = aggregate.getAggregatedJson();
+        JsonElement result;
+        boolean isJSONAggregation = aggregationExpression instanceof SynapseJsonPath;
 
         // setting json array as the result
         result = jsonArray;
@@ -39,6 +39,7 @@ import org.apache.synapse.SynapseLog;
 import org.apache.synapse.aspects.AspectConfiguration;
 import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.flow.statistics.StatisticIdentityGenerator;
+import org.apache.synapse.aspects.flow.statistics.collectors.CloseEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.aspects.flow.statistics.data.artifact.ArtifactHolder;
@@ -55,6 +56,7 @@ import org.apache.synapse.mediators.eip.SharedDataHolder;
 import org.apache.synapse.mediators.eip.EIPConstants;
 import org.apache.synapse.mediators.eip.EIPUtils;
 import org.apache.synapse.mediators.eip.Target;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.util.MessageHelper;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 import org.apache.synapse.util.xpath.SynapseXPath;
@@ -104,6 +106,28 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
      */
     private boolean isAttachPathPresent;
 
+    /** The default maximum number of split messages in flight at a time in streaming mode */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    /**
+     * Split the payload while reading it as a stream instead of building it in memory first, so
+     * that the memory used by the iteration does not grow with the size of the payload
+     */
+    private boolean streaming = false;
+
+    /**
+     * The maximum number of split messages which are being mediated asynchronously or wait for
+     * the response of a request they sent at a time in streaming mode. Reading the payload is
+     * paused while the limit is reached
+     */
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    /** Splitter evaluating the expression on the payload stream in streaming mode */
+    private StreamingSplitter streamingSplitter = null;
+
+    /** Set while a thread of the executor mediates a split message of a streamed iteration */
+    private static final ThreadLocal<Boolean> MEDIATING_STREAMED_MESSAGE = new ThreadLocal<Boolean>();
+
     /**
      * Splits the message by iterating over the results of the given Path expression
      *
@@ -133,8 +157,11 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
 
         try {
 
+            if (streaming) {
+                splitStream(synCtx, synLog);
+
             // check whether expression contains jsonpath or xpath and process according to it
-            if (expression != null && expression instanceof SynapseJsonPath) {
+            } else if (expression != null && expression instanceof SynapseJsonPath) {
 
                 // SynapseJSONPath implementation reads the JSON stream and execute the JSON path.
                 Object resultValue = expression.evaluate(synCtx);
@@ -184,21 +211,7 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
                         if (target.isAsynchronous()) {
                             target.mediate(iteratedMsgCtx);
                         } else {
-                            try {
-                                /*
-                                 * if Iteration is sequential we won't be able to execute correct fault
-                                 * handler as data are lost with clone message ending execution. So here we
-                                 * copy fault stack of clone message context to original message context
-                                 */
-                                target.mediate(iteratedMsgCtx);
-                            } catch (SynapseException synEx) {
-                                copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
-                                throw synEx;
-                            } catch (Exception e) {
-                                copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
-                                handleException("Exception occurred while executing sequential iteration " +
-                                        "in the Iterator Mediator", e, synCtx);
-                            }
+                            mediateSequentially(synCtx, iteratedMsgCtx);
                         }
                     }
                 }
@@ -251,21 +264,7 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
                     if (target.isAsynchronous()) {
                         target.mediate(iteratedMsgCtx);
                     } else {
-                        try {
-                            /*
-                             * if Iteration is sequential we won't be able to execute correct fault
-                             * handler as data are lost with clone message ending execution. So here we
-                             * copy fault stack of clone message context to original message context
-                             */
-                            target.mediate(iteratedMsgCtx);
-                        } catch (SynapseException synEx) {
-                            copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
-                            throw synEx;
-                        } catch (Exception e) {
-                            copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
-                            handleException("Exception occurred while executing sequential iteration " +
-                                    "in the Iterator Mediator", e, synCtx);
-                        }
+                        mediateSequentially(synCtx, iteratedMsgCtx);
                     }
                 }
             }
@@ -294,6 +293,164 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
         return continueParent;
     }
 
+    /**
+     * Splits the payload of the message while reading it as a stream. Each split message is
+     * created as soon as its element has been read, and the reading is paused while the maximum
+     * number of split messages are in flight. Since the total number of
+     * messages is only known once the payload has been read, only the last split message carries
+     * it in its message sequence property, the others carry -1 instead
+     *
+     * @param synCtx original message context, of which the payload is consumed
+     * @param synLog the Synapse log to use
+     * @throws Exception if the payload cannot be read or split
+     */
+    private void splitStream(MessageContext synCtx, SynapseLog synLog) throws Exception {
+
+        // build the message without building the body, which is only read once as a stream
+        RelayUtils.buildMessage(((Axis2MessageContext) synCtx).getAxis2MessageContext(), false);
+        SOAPEnvelope envelope = synCtx.getEnvelope();
+
+        StreamingSplitter.Cursor cursor = streamingSplitter.open(synCtx);
+        IterationWindow window = new IterationWindow(maxInFlight);
+        int msgNumber = 0;
+        try {
+            // read one element ahead to know which split message is the last one
+            Object next = cursor.next();
+            while (next != null) {
+                Object current = next;
+                next = cursor.next();
+                int msgCount = next == null ? msgNumber + 1 : -1;
+
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebug("Submitting streamed message " + (msgNumber + 1) +
+                            (target.isAsynchronous() ? " for processing in parallel" :
+                                    " for processing sequentially"));
+                }
+
+                if (!target.isAsynchronous()) {
+                    MessageContext iteratedMsgCtx =
+                            getStreamedMessage(synCtx, msgNumber++, msgCount, envelope, current);
+                    ContinuationStackManager.
+                            addReliantContinuationState(iteratedMsgCtx, 0, getMediatorPosition());
+                    mediateSequentially(synCtx, iteratedMsgCtx);
+                    continue;
+                }
+
+                // take a place in the window before the split message is created
+                try {
+                    window.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    handleException("Interrupted while waiting to submit the streamed " +
+                            "message " + (msgNumber + 1), e, synCtx);
+                }
+                MessageContext iteratedMsgCtx = null;
+                try {
+                    iteratedMsgCtx =
+                            getStreamedMessage(synCtx, msgNumber++, msgCount, envelope, current);
+                    ContinuationStackManager.
+                            addReliantContinuationState(iteratedMsgCtx, 0, getMediatorPosition());
+                    window.enter(iteratedMsgCtx);
+                } finally {
+                    if (iteratedMsgCtx == null) {
+                        window.release();
+                    }
+                }
+                mediateAsynchronously(iteratedMsgCtx);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Splitting the payload stream with : " + expression +
+                    " resulted in " + msgNumber + " elements");
+        }
+    }
+
+    /**
+     * Mediates a streamed split message through the target in a thread of the Synapse executor.
+     * The message gives its place in the window back once its mediation has completed and no
+     * request it sent awaits a response anymore.
+     * <p>
+     * A streamed iteration nested in the target of another one is already mediated in a thread
+     * of the executor, and mediates its split messages in that thread. Otherwise it could wait
+     * for a place in its window while the messages holding the places are queued behind it.
+     *
+     * @param iteratedMsgCtx split message to be mediated, which holds a place in the window
+     */
+    private void mediateAsynchronously(final MessageContext iteratedMsgCtx) {
+        if (Boolean.TRUE.equals(MEDIATING_STREAMED_MESSAGE.get())) {
+            mediateStreamedMessage(iteratedMsgCtx);
+            return;
+        }
+        if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+            OpenEventCollector.reportFlowAsynchronousEvent(iteratedMsgCtx);
+        }
+        try {
+            iteratedMsgCtx.getEnvironment().getExecutorService().execute(new Runnable() {
+                public void run() {
+                    MEDIATING_STREAMED_MESSAGE.set(Boolean.TRUE);
+                    try {
+                        mediateStreamedMessage(iteratedMsgCtx);
+                    } finally {
+                        MEDIATING_STREAMED_MESSAGE.remove();
+                        if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+                            CloseEventCollector.closeFlowForcefully(iteratedMsgCtx, false);
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            IterationWindow.mediationCompleted(iteratedMsgCtx);
+            throw e;
+        }
+    }
+
+    /**
+     * Mediates a streamed split message through the target in the current thread, and releases
+     * the hold of the mediation on the place of the message in the window once done
+     *
+     * @param iteratedMsgCtx split message to be mediated, which holds a place in the window
+     */
+    private void mediateStreamedMessage(MessageContext iteratedMsgCtx) {
+        try {
+            target.mediate(iteratedMsgCtx, false);
+        } catch (Exception e) {
+            log.error("Error mediating a streamed message of the iteration", e);
+            if (!iteratedMsgCtx.getFaultStack().isEmpty()) {
+                ((FaultHandler) iteratedMsgCtx.getFaultStack().pop())
+                        .handleFault(iteratedMsgCtx, e);
+            }
+        } finally {
+            IterationWindow.mediationCompleted(iteratedMsgCtx);
+        }
+    }
+
+    /**
+     * Mediates a split message through the target in the current thread
+     *
+     * @param synCtx         original message context
+     * @param iteratedMsgCtx split message to be mediated
+     */
+    private void mediateSequentially(MessageContext synCtx, MessageContext iteratedMsgCtx) {
+        try {
+            /*
+             * if Iteration is sequential we won't be able to execute correct fault
+             * handler as data are lost with clone message ending execution. So here we
+             * copy fault stack of clone message context to original message context
+             */
+            target.mediate(iteratedMsgCtx);
+        } catch (SynapseException synEx) {
+            copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
+            throw synEx;
+        } catch (Exception e) {
+            copyFaultyIteratedMessage(synCtx, iteratedMsgCtx);
+            handleException("Exception occurred while executing sequential iteration " +
+                    "in the Iterator Mediator", e, synCtx);
+        }
+    }
+
     /**
      * Copy fault stack and properties of the iteratedMsgCtx to synCtx
      *
@@ -371,26 +528,14 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
                                               int msgCount, Object rootJsonObject, Object node)
             throws AxisFault, JaxenException {
 
-        // clone the message for the mediation in iteration
-        MessageContext newCtx = MessageHelper.cloneMessageContext(synCtx);
+        // clone the message for the mediation in iteration, without copying the JSON payload
+        // since it is replaced below
+        MessageContext newCtx = MessageHelper.cloneMessageContext(synCtx, true, false);
 
         //Remove the original jsonstream from the context
         JsonUtil.removeJsonPayload(((Axis2MessageContext) newCtx).getAxis2MessageContext());
 
-        if (id != null) {
-            // set the parent correlation details to the cloned MC -
-            //                              for the use of aggregation like tasks
-            newCtx.setProperty(EIPConstants.AGGREGATE_CORRELATION + "." + id,
-                    synCtx.getMessageID());
-            // set the messageSequence property for possibal aggreagtions
-            newCtx.setProperty(
-                    EIPConstants.MESSAGE_SEQUENCE + "." + id,
-                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
-        } else {
-            newCtx.setProperty(
-                    EIPConstants.MESSAGE_SEQUENCE,
-                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
-        }
+        setMessageSequence(synCtx, newCtx, msgNumber, msgCount);
         // Initially set the extracted object as root and send if payload is not preserved
         Object rootObject = node;
 
@@ -438,20 +583,7 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
         // clone the message context without cloning the SOAP envelope, for the mediation in iteration.
         MessageContext newCtx = MessageHelper.cloneMessageContext(synCtx, false, false);
 
-        if (id != null) {
-            // set the parent correlation details to the cloned MC -
-            //                              for the use of aggregation like tasks
-            newCtx.setProperty(EIPConstants.AGGREGATE_CORRELATION + "." + id,
-                    synCtx.getMessageID());
-            // set the messageSequence property for possibal aggreagtions
-            newCtx.setProperty(
-                    EIPConstants.MESSAGE_SEQUENCE + "." + id,
-                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
-        } else {
-            newCtx.setProperty(
-                    EIPConstants.MESSAGE_SEQUENCE,
-                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
-        }
+        setMessageSequence(synCtx, newCtx, msgNumber, msgCount);
 
         // get a clone of the envelope to be attached
         SOAPEnvelope newEnvelope = MessageHelper.cloneSOAPEnvelope(envelope);
@@ -494,6 +626,66 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
         return newCtx;
     }
 
+    /**
+     * Creates a new message context for an element read from the payload stream, which carries
+     * the headers of the original envelope and only the element as its payload
+     *
+     * @param synCtx    - original message context
+     * @param msgNumber - message number in the iteration
+     * @param msgCount  - total number of messages in the split, or -1 if not known yet
+     * @param envelope  - original envelope of which the headers are copied
+     * @param element   - XML element or JSON element read from the payload stream
+     * @return newCtx created by the iteration
+     * @throws AxisFault if there is a message creation failure
+     */
+    private MessageContext getStreamedMessage(MessageContext synCtx, int msgNumber, int msgCount,
+        SOAPEnvelope envelope, Object element) throws AxisFault {
+
+        MessageContext newCtx = MessageHelper.cloneMessageContext(synCtx, false, false);
+        setMessageSequence(synCtx, newCtx, msgNumber, msgCount);
+
+        SOAPEnvelope newEnvelope = MessageHelper.cloneSOAPHeaders(envelope);
+        newCtx.setEnvelope(newEnvelope);
+        if (element instanceof OMElement) {
+            newEnvelope.getBody().addChild((OMElement) element);
+        } else {
+            JsonUtil.getNewJsonPayload(((Axis2MessageContext) newCtx).getAxis2MessageContext(),
+                    element.toString(), true, true);
+        }
+
+        // Set isServerSide property in the cloned message context
+        ((Axis2MessageContext) newCtx).getAxis2MessageContext().setServerSide(
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext().isServerSide());
+
+        return newCtx;
+    }
+
+    /**
+     * Sets the correlation and message sequence properties used to aggregate the split messages
+     *
+     * @param synCtx    - original message context
+     * @param newCtx    - split message context
+     * @param msgNumber - message number in the iteration
+     * @param msgCount  - total number of messages in the split
+     */
+    private void setMessageSequence(MessageContext synCtx, MessageContext newCtx, int msgNumber,
+                                    int msgCount) {
+        if (id != null) {
+            // set the parent correlation details to the cloned MC -
+            //                              for the use of aggregation like tasks
+            newCtx.setProperty(EIPConstants.AGGREGATE_CORRELATION + "." + id,
+                    synCtx.getMessageID());
+            // set the messageSequence property for possibal aggreagtions
+            newCtx.setProperty(
+                    EIPConstants.MESSAGE_SEQUENCE + "." + id,
+                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
+        } else {
+            newCtx.setProperty(
+                    EIPConstants.MESSAGE_SEQUENCE,
+                    msgNumber + EIPConstants.MESSAGE_SEQUENCE_DELEMITER + msgCount);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////
     //                        Getters and Setters                                        //
     ///////////////////////////////////////////////////////////////////////////////////////
@@ -520,6 +712,9 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
 
     public void setExpression(SynapsePath expression) {
         this.expression = expression;
+        if (streaming) {
+            streamingSplitter = StreamingSplitter.create(expression);
+        }
     }
 
     public SynapsePath getAttachPath() {
@@ -559,6 +754,29 @@ public class IterateMediator extends AbstractMediator implements ManagedLifecycl
         isAttachPathPresent = attachPathPresent;
     }
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Enables or disables splitting the payload as a stream. The expression has to be set first
+     *
+     * @param streaming whether to split the payload as a stream
+     * @throws SynapseException if the expression cannot be evaluated on a stream
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        streamingSplitter = streaming ? StreamingSplitter.create(expression) : null;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
     public void init(SynapseEnvironment se) {
 
         synapseEnv = se;
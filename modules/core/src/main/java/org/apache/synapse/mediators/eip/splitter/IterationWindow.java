@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.splitter;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of split messages of a streamed iteration which are in flight. A split
+ * message takes a place in the window before it is created, and keeps it until its mediation
+ * has completed and the response, fault or timeout of each request it sent has been handled.
+ * Requests are recorded with {@link #requestSent(MessageContext)} when a callback is registered
+ * for them, and completed with {@link #responseReceived(MessageContext)} where the callback is
+ * done with, in the same places as the concurrency throttle.
+ */
+public class IterationWindow {
+
+    /** Message context property holding the place of a split message in the window */
+    private static final String PLACE = "synapse.iterate.window.place";
+
+    /** Message context property set while a request sent with the message awaits a response */
+    private static final String AWAITING_RESPONSE = "synapse.iterate.window.awaiting";
+
+    private final Semaphore places;
+
+    IterationWindow(int size) {
+        places = new Semaphore(size);
+    }
+
+    /**
+     * Wait until a split message can be put in flight
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        places.acquire();
+    }
+
+    /**
+     * Hand the place acquired last over to a split message, which holds it until it is
+     * released with {@link #mediationCompleted(MessageContext)} and no request sent with the
+     * message awaits a response anymore
+     *
+     * @param synCtx split message
+     */
+    void enter(MessageContext synCtx) {
+        synCtx.setProperty(PLACE, new Place(this));
+    }
+
+    /**
+     * Give back a place which was acquired but not handed over to a split message
+     */
+    void release() {
+        places.release();
+    }
+
+    int getAvailablePlaces() {
+        return places.availablePermits();
+    }
+
+    /**
+     * Release the hold of the mediation of a split message on its place
+     *
+     * @param synCtx split message
+     */
+    static void mediationCompleted(MessageContext synCtx) {
+        Object place = synCtx.getProperty(PLACE);
+        if (place instanceof Place) {
+            ((Place) place).release();
+        }
+    }
+
+    /**
+     * Record a request sent with the given message, if it is a split message of a streamed
+     * iteration. The message keeps its place until the response is received.
+     *
+     * @param synCtx message being sent
+     */
+    public static void requestSent(MessageContext synCtx) {
+        Object place = synCtx.getProperty(PLACE);
+        if (!(place instanceof Place)) {
+            return;
+        }
+        Object awaiting = synCtx.getProperty(AWAITING_RESPONSE);
+        if (awaiting instanceof AtomicBoolean) {
+            // a request which still awaits its response holds the place already
+            if (!((AtomicBoolean) awaiting).compareAndSet(false, true)) {
+                return;
+            }
+        } else {
+            synCtx.setProperty(AWAITING_RESPONSE, new AtomicBoolean(true));
+        }
+        ((Place) place).holds.incrementAndGet();
+    }
+
+    /**
+     * Complete the request sent with the given message, when its response, fault or timeout
+     * has been handled. Does nothing if no request of a split message awaits a response, so
+     * this may be called more than once.
+     *
+     * @param synCtx message sent
+     */
+    public static void responseReceived(MessageContext synCtx) {
+        Object awaiting = synCtx.getProperty(AWAITING_RESPONSE);
+        if (awaiting instanceof AtomicBoolean && ((AtomicBoolean) awaiting).compareAndSet(true, false)) {
+            Object place = synCtx.getProperty(PLACE);
+            if (place instanceof Place) {
+                ((Place) place).release();
+            }
+        }
+    }
+
+    /**
+     * Place of a split message in the window, held by its mediation and its request in flight
+     */
+    private static class Place {
+
+        private final IterationWindow window;
+
+        private final AtomicInteger holds = new AtomicInteger(1);
+
+        private Place(IterationWindow window) {
+            this.window = window;
+        }
+
+        private void release() {
+            if (holds.decrementAndGet() == 0) {
+                window.places.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.splitter;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.config.xml.SynapsePath;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.util.xpath.SynapseJsonPath;
+import org.apache.synapse.util.xpath.SynapseXPath;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the payload of a message into the elements selected by a simple path while reading the
+ * payload as a stream, so that only the element being split is held in memory at a time.
+ * <p/>
+ * XML payloads are split on the elements selected by a path of element names relative to the
+ * SOAP body, given as <code>$body/orders/order</code>, <code>/soapenv:Envelope/soapenv:Body/orders/order</code>
+ * or <code>//order</code>. JSON payloads are split on the elements of the array selected by a
+ * path of member names, such as <code>$.orders</code> or <code>$.orders[*]</code>.
+ */
+abstract class StreamingSplitter {
+
+    private static final Log log = LogFactory.getLog(StreamingSplitter.class);
+
+    private static final Pattern XML_STEP = Pattern.compile("\\*|([\\w.\\-]+:)?([\\w.\\-]+|\\*)");
+
+    /**
+     * Reads the split elements of the payload of a single message
+     */
+    interface Cursor {
+
+        /**
+         * @return the next split element, or null once the whole payload has been read
+         */
+        Object next() throws XMLStreamException, IOException;
+
+        void close();
+    }
+
+    /**
+     * Start reading the payload of the given message. The payload is consumed by the returned
+     * cursor, and is therefore no longer available in the message afterwards
+     *
+     * @param synCtx message of which the payload is split
+     * @return cursor over the split elements
+     */
+    abstract Cursor open(MessageContext synCtx) throws IOException;
+
+    /**
+     * Create a splitter for the given iterate expression
+     *
+     * @param expression XPath or JSON path selecting the elements to be split
+     * @return splitter for the expression
+     * @throws SynapseException if the expression cannot be evaluated on a stream
+     */
+    static StreamingSplitter create(SynapsePath expression) {
+        if (expression instanceof SynapseJsonPath) {
+            return createJsonSplitter(((SynapseJsonPath) expression).getJsonPathExpression());
+        } else if (expression instanceof SynapseXPath) {
+            return createXmlSplitter((SynapseXPath) expression);
+        }
+        throw new SynapseException("An expression is required to split messages as a stream");
+    }
+
+    private static StreamingSplitter createXmlSplitter(SynapseXPath xpath) {
+        String path = xpath.getExpression() == null ? "" : xpath.getExpression().trim();
+        boolean descendant = false;
+        String[] names;
+        if (path.startsWith("//")) {
+            descendant = true;
+            names = new String[] {path.substring(2)};
+        } else if (path.startsWith("$body/")) {
+            names = path.substring("$body/".length()).split("/", -1);
+        } else if (path.startsWith("/")) {
+            String[] absolute = path.substring(1).split("/", -1);
+            if (absolute.length < 3 || !absolute[0].endsWith("Envelope")
+                    || !absolute[1].endsWith("Body")) {
+                throw unsupportedPath(path);
+            }
+            names = new String[absolute.length - 2];
+            System.arraycopy(absolute, 2, names, 0, names.length);
+        } else {
+            throw unsupportedPath(path);
+        }
+
+        Step[] steps = new Step[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (!XML_STEP.matcher(names[i]).matches()) {
+                throw unsupportedPath(path);
+            }
+            steps[i] = createStep(xpath, names[i], path);
+        }
+        return new XmlSplitter(steps, descendant);
+    }
+
+    private static Step createStep(SynapseXPath xpath, String name, String path) {
+        int colon = name.indexOf(':');
+        String localName = colon < 0 ? name : name.substring(colon + 1);
+        String namespaceURI = "";
+        if (colon > 0) {
+            String prefix = name.substring(0, colon);
+            namespaceURI = xpath.getNamespaceContext().translateNamespacePrefixToUri(prefix);
+            if (namespaceURI == null) {
+                throw new SynapseException("Undeclared namespace prefix " + prefix + " in the path " + path);
+            }
+        } else if ("*".equals(name)) {
+            // any element regardless of its namespace
+            namespaceURI = null;
+        }
+        return new Step(namespaceURI, "*".equals(localName) ? null : localName);
+    }
+
+    private static StreamingSplitter createJsonSplitter(String path) {
+        String jsonPath = path == null ? "" : path.trim();
+        if (!jsonPath.startsWith("$")) {
+            throw unsupportedPath(jsonPath);
+        }
+        List<String> names = new ArrayList<String>();
+        int index = 1;
+        while (index < jsonPath.length()) {
+            if (jsonPath.startsWith("[*]", index) && index + 3 == jsonPath.length()) {
+                break;
+            } else if (jsonPath.charAt(index) == '.') {
+                int end = index + 1;
+                while (end < jsonPath.length() && jsonPath.charAt(end) != '.'
+                        && jsonPath.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == index + 1 || "*".equals(jsonPath.substring(index + 1, end))) {
+                    throw unsupportedPath(jsonPath);
+                }
+                names.add(jsonPath.substring(index + 1, end));
+                index = end;
+            } else if (jsonPath.startsWith("['", index)) {
+                int end = jsonPath.indexOf("']", index + 2);
+                if (end < 0) {
+                    throw unsupportedPath(jsonPath);
+                }
+                names.add(jsonPath.substring(index + 2, end));
+                index = end + 2;
+            } else {
+                throw unsupportedPath(jsonPath);
+            }
+        }
+        return new JsonSplitter(names.toArray(new String[names.size()]), jsonPath);
+    }
+
+    private static SynapseException unsupportedPath(String path) {
+        return new SynapseException("The path " + path + " cannot be evaluated while streaming, " +
+                "only simple element paths such as $body/a/b or //b, and JSON paths to an array " +
+                "such as $.a.b are supported");
+    }
+
+    /**
+     * An element name in an XML path, where a null namespace or local name matches any
+     */
+    private static final class Step {
+
+        private final String namespaceURI;
+
+        private final String localName;
+
+        private Step(String namespaceURI, String localName) {
+            this.namespaceURI = namespaceURI;
+            this.localName = localName;
+        }
+
+        private boolean matches(XMLStreamReader reader) {
+            if (localName != null && !localName.equals(reader.getLocalName())) {
+                return false;
+            }
+            if (namespaceURI != null) {
+                String uri = reader.getNamespaceURI();
+                return namespaceURI.equals(uri == null ? "" : uri);
+            }
+            return true;
+        }
+    }
+
+    private static final class XmlSplitter extends StreamingSplitter {
+
+        private final Step[] steps;
+
+        private final boolean descendant;
+
+        private XmlSplitter(Step[] steps, boolean descendant) {
+            this.steps = steps;
+            this.descendant = descendant;
+        }
+
+        Cursor open(MessageContext synCtx) {
+            SOAPEnvelope envelope = synCtx.getEnvelope();
+            XmlCursor cursor = new XmlCursor(envelope.getBody().getXMLStreamReaderWithoutCaching());
+            Iterator namespaces = envelope.getAllDeclaredNamespaces();
+            while (namespaces.hasNext()) {
+                OMNamespace ns = (OMNamespace) namespaces.next();
+                cursor.inScope(ns.getPrefix(), ns.getNamespaceURI());
+            }
+            return cursor;
+        }
+
+        private final class XmlCursor implements Cursor {
+
+            private final XMLStreamReader reader;
+
+            private final OMFactory fac = OMAbstractFactory.getOMFactory();
+
+            private boolean started = false;
+
+            private boolean finished = false;
+
+            /** Depth of the current element below the body, or -1 before reaching the body */
+            private int depth = -1;
+
+            /** Number of leading steps of the path matched by the current elements */
+            private int matchedDepth = 0;
+
+            /**
+             * Prefixed namespaces declared by the envelope and the elements enclosing the
+             * current position, as prefix and URI pairs with the innermost last
+             */
+            private final List<String[]> namespaces = new ArrayList<String[]>();
+
+            /** Number of in scope namespaces outside of each element enclosing the position */
+            private final List<Integer> scopes = new ArrayList<Integer>();
+
+            private XmlCursor(XMLStreamReader reader) {
+                this.reader = reader;
+            }
+
+            public Object next() throws XMLStreamException {
+                while (!finished) {
+                    int event;
+                    if (started) {
+                        if (!reader.hasNext()) {
+                            finished = true;
+                            break;
+                        }
+                        event = reader.next();
+                    } else {
+                        event = reader.getEventType();
+                        started = true;
+                    }
+
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (depth < 0) {
+                            // the first element read is the body itself
+                            depth = 0;
+                            enterScope();
+                            continue;
+                        }
+                        depth++;
+                        if (matches()) {
+                            OMElement element = buildElement();
+                            if (!descendant) {
+                                matchedDepth--;
+                            }
+                            depth--;
+                            return element;
+                        }
+                        enterScope();
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        leaveScope();
+                        if (depth == 0) {
+                            finished = true;
+                        } else {
+                            if (matchedDepth == depth) {
+                                matchedDepth--;
+                            }
+                            depth--;
+                        }
+                    } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                        finished = true;
+                    }
+                }
+                return null;
+            }
+
+            private void inScope(String prefix, String uri) {
+                if (prefix != null && prefix.length() > 0 && uri != null && uri.length() > 0) {
+                    namespaces.add(new String[] {prefix, uri});
+                }
+            }
+
+            /**
+             * Add the namespaces declared by the element at the current position of the reader
+             * to the namespaces in scope, until the end of the element
+             */
+            private void enterScope() {
+                scopes.add(namespaces.size());
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    inScope(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+                }
+            }
+
+            private void leaveScope() {
+                if (!scopes.isEmpty()) {
+                    int size = scopes.remove(scopes.size() - 1);
+                    while (namespaces.size() > size) {
+                        namespaces.remove(namespaces.size() - 1);
+                    }
+                }
+            }
+
+            private boolean matches() {
+                if (descendant) {
+                    return steps[0].matches(reader);
+                }
+                if (depth == matchedDepth + 1 && depth <= steps.length
+                        && steps[depth - 1].matches(reader)) {
+                    matchedDepth = depth;
+                    return depth == steps.length;
+                }
+                return false;
+            }
+
+            /**
+             * Build the element at the current position of the reader, leaving the reader at the
+             * end of that element
+             */
+            private OMElement buildElement() throws XMLStreamException {
+                OMElement root = createElement(null);
+                OMElement current = root;
+                int level = 1;
+                while (level > 0) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            current = createElement(current);
+                            level++;
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            level--;
+                            if (level > 0) {
+                                current = (OMElement) current.getParent();
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                            fac.createOMText(current, reader.getText());
+                            break;
+                        case XMLStreamConstants.CDATA:
+                            fac.createOMText(current, reader.getText(),
+                                    XMLStreamConstants.CDATA);
+                            break;
+                        case XMLStreamConstants.COMMENT:
+                            fac.createOMComment(current, reader.getText());
+                            break;
+                        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                            fac.createOMProcessingInstruction(current, reader.getPITarget(),
+                                    reader.getPIData());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                return root;
+            }
+
+            private OMElement createElement(OMElement parent) {
+                OMElement element;
+                String namespaceURI = reader.getNamespaceURI();
+                if (namespaceURI == null || namespaceURI.length() == 0) {
+                    element = parent == null ? fac.createOMElement(reader.getLocalName(), null)
+                            : fac.createOMElement(reader.getLocalName(), null, parent);
+                } else {
+                    String prefix = reader.getPrefix();
+                    OMNamespace ns = fac.createOMNamespace(namespaceURI, prefix == null ? "" : prefix);
+                    element = parent == null ? fac.createOMElement(reader.getLocalName(), ns)
+                            : fac.createOMElement(reader.getLocalName(), ns, parent);
+                }
+
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = reader.getNamespacePrefix(i);
+                    String uri = reader.getNamespaceURI(i);
+                    if (prefix == null || prefix.length() == 0) {
+                        if (uri != null && uri.length() > 0) {
+                            element.declareDefaultNamespace(uri);
+                        }
+                    } else {
+                        element.declareNamespace(uri, prefix);
+                    }
+                }
+
+                if (parent == null) {
+                    // the split element is detached from its ancestors, so it declares the
+                    // namespaces they bring in scope, which its content or attribute values may
+                    // use. The default namespace is left out, as element names are resolved.
+                    Set<String> declared = new HashSet<String>();
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        declared.add(reader.getNamespacePrefix(i));
+                    }
+                    if (element.getNamespace() != null) {
+                        declared.add(element.getNamespace().getPrefix());
+                    }
+                    for (int i = namespaces.size() - 1; i >= 0; i--) {
+                        String[] ns = namespaces.get(i);
+                        if (declared.add(ns[0])) {
+                            element.declareNamespace(ns[1], ns[0]);
+                        }
+                    }
+                }
+
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String uri = reader.getAttributeNamespace(i);
+                    OMNamespace ns = null;
+                    if (uri != null && uri.length() > 0) {
+                        ns = fac.createOMNamespace(uri, reader.getAttributePrefix(i));
+                    }
+                    element.addAttribute(reader.getAttributeLocalName(i),
+                            reader.getAttributeValue(i), ns);
+                }
+                return element;
+            }
+
+            public void close() {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    log.debug("Error closing the payload reader of a streamed split", e);
+                }
+            }
+        }
+    }
+
+    private static final class JsonSplitter extends StreamingSplitter {
+
+        private final String[] names;
+
+        private final String path;
+
+        private JsonSplitter(String[] names, String path) {
+            this.names = names;
+            this.path = path;
+        }
+
+        Cursor open(MessageContext synCtx) throws IOException {
+            InputStream payload = JsonUtil.consumeJsonPayload(
+                    ((Axis2MessageContext) synCtx).getAxis2MessageContext());
+            if (payload == null) {
+                return new JsonCursor(null);
+            }
+            return new JsonCursor(new JsonReader(new InputStreamReader(payload, "UTF-8")));
+        }
+
+        private final class JsonCursor implements Cursor {
+
+            private final JsonReader reader;
+
+            private final JsonParser parser = new JsonParser();
+
+            private boolean started = false;
+
+            private boolean finished;
+
+            private JsonCursor(JsonReader reader) {
+                this.reader = reader;
+                this.finished = reader == null;
+            }
+
+            public Object next() throws IOException {
+                if (!started) {
+                    started = true;
+                    finished = !moveToArray();
+                }
+                if (finished || !reader.hasNext()) {
+                    finished = true;
+                    return null;
+                }
+                return parser.parse(reader);
+            }
+
+            /**
+             * Move the reader into the array selected by the path
+             *
+             * @return false if the payload does not contain the path
+             */
+            private boolean moveToArray() throws IOException {
+                for (String name : names) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        return false;
+                    }
+                    reader.beginObject();
+                    boolean found = false;
+                    while (reader.hasNext()) {
+                        if (name.equals(reader.nextName())) {
+                            found = true;
+                            break;
+                        }
+                        reader.skipValue();
+                    }
+                    if (!found) {
+                        return false;
+                    }
+                }
+                if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    throw new SynapseException("JSON element expressed by the path " + path
+                            + " is not a valid JSON array that can be iterated");
+                }
+                reader.beginArray();
+                return true;
+            }
+
+            public void close() {
+                if (reader == null) {
+                    return;
+                }
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    log.debug("Error closing the payload reader of a streamed split", e);
+                }
+            }
+        }
+    }
+}
@@ -58,7 +58,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -83,7 +82,6 @@ public class PayloadFactoryMediator extends AbstractMediator {
     private final static QName TEXT_ELEMENT = new QName("http://ws.apache.org/commons/ns/payload", "text");
     private final static String ESCAPE_DOUBLE_QUOTE_WITH_FIVE_BACK_SLASHES = "\\\\\"";
     private final static String ESCAPE_DOUBLE_QUOTE_WITH_NINE_BACK_SLASHES = "\\\\\\\\\"";
-    private final static String ESCAPE_BACK_SLASH_WITH_SIXTEEN_BACK_SLASHES = "\\\\\\\\\\\\\\\\";
     private final static String ESCAPE_DOLLAR_WITH_SIX_BACK_SLASHES = "\\\\\\$";
     private final static String ESCAPE_DOLLAR_WITH_TEN_BACK_SLASHES = "\\\\\\\\\\$";
     private final static String ESCAPE_BACKSPACE_WITH_EIGHT_BACK_SLASHES = "\\\\\\\\b";
@@ -93,8 +91,17 @@ public class PayloadFactoryMediator extends AbstractMediator {
     private final static String ESCAPE_TAB_WITH_EIGHT_BACK_SLASHES = "\\\\\\\\t";
     public static final String QUOTE_STRING_IN_PAYLOAD_FACTORY_JSON = "QUOTE_STRING_IN_PAYLOAD_FACTORY_JSON";
 
+    private final static String XML_PADDING_START = "<pfPadding>";
+    private final static String XML_PADDING_END = "</pfPadding>";
+    private final static String DEFAULT_XML_VERSION = "1.0";
+
     private List<Argument> pathArgumentList = new ArrayList<Argument>();
-    private Pattern pattern = Pattern.compile("\\$(\\d)+");
+
+    /** Compiled form of the static format */
+    private PayloadTemplate template;
+
+    /** Compiled form of the dynamic format last read from the registry */
+    private volatile PayloadTemplate dynamicTemplate;
     private static Pattern validJsonNumber = Pattern.compile("^-?(0|([1-9]\\d*))(\\.\\d+)?([eE][+-]?\\d+)?$");
 
     private static final Log log = LogFactory.getLog(PayloadFactoryMediator.class);
@@ -113,8 +120,7 @@ public class PayloadFactoryMediator extends AbstractMediator {
             }
         }
 
-        String format = formatRaw;
-        return mediate(synCtx, format);
+        return transformPayload(synCtx);
     }
 
     /**
@@ -156,16 +162,14 @@ public class PayloadFactoryMediator extends AbstractMediator {
         }
     }
 
-    private boolean mediate(MessageContext synCtx, String format) {
+    private boolean transformPayload(MessageContext synCtx) {
 
         if (!isDoingXml(synCtx) && !isDoingJson(synCtx)) {
             log.error("#mediate. Could not identify the payload format of the existing payload prior to mediate.");
             return false;
         }
         org.apache.axis2.context.MessageContext axis2MessageContext = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-        StringBuffer result = new StringBuffer();
-        regexTransform(result, synCtx, format);
-        String out = result.toString().trim();
+        String out = transform(synCtx).trim();
         if (log.isDebugEnabled()) {
             log.debug("#mediate. Transformed payload format>>> " + out);
         }
@@ -196,34 +200,46 @@ public class PayloadFactoryMediator extends AbstractMediator {
     }
 
     /**
-     * Calls the replace function. isFormatDynamic check is used to remove indentations which come from registry based
-     * configurations.
+     * Renders the payload from the compiled format. isFormatDynamic check is used to remove indentations which come
+     * from registry based configurations.
      *
-     * @param result
      * @param synCtx
-     * @param format
+     * @return the rendered payload
      */
-    private void regexTransform(StringBuffer result, MessageContext synCtx, String format) {
+    private String transform(MessageContext synCtx) {
+        PayloadTemplate payloadTemplate;
         if (isFormatDynamic()) {
             String key = formatKey.evaluateValue(synCtx);
             Object entry = synCtx.getEntry(key);
             if (entry == null) {
                 handleException("Key " + key + " not found ", synCtx);
             }
-            String text = "";
-            if (entry instanceof OMElement) {
-                OMElement omElement = ((OMElement) entry).cloneOMElement();
-                removeIndentations(omElement);
-                text = omElement.toString();
-            } else if (entry instanceof OMText) {
-                text = ((OMText) entry).getText();
-            } else if (entry instanceof String) {
-                text = (String) entry;
+            payloadTemplate = dynamicTemplate;
+            // registry entries are cached, so the format only has to be compiled again when the entry changes
+            if (payloadTemplate == null || payloadTemplate.getSource() != entry) {
+                String text = "";
+                if (entry instanceof OMElement) {
+                    OMElement omElement = ((OMElement) entry).cloneOMElement();
+                    removeIndentations(omElement);
+                    text = omElement.toString();
+                } else if (entry instanceof OMText) {
+                    text = ((OMText) entry).getText();
+                } else if (entry instanceof String) {
+                    text = (String) entry;
+                }
+                payloadTemplate = PayloadTemplate.compile(text, entry);
+                dynamicTemplate = payloadTemplate;
             }
-            replace(text, result, synCtx);
         } else {
-            replace(format, result, synCtx);
+            payloadTemplate = template;
+            if (payloadTemplate == null) {
+                payloadTemplate = PayloadTemplate.compile(formatRaw == null ? "" : formatRaw, null);
+                template = payloadTemplate;
+            }
         }
+        StringBuilder result = new StringBuilder(payloadTemplate.estimateLength());
+        replace(payloadTemplate, result, synCtx);
+        return result.toString();
     }
 
     /**
@@ -262,171 +278,244 @@ public class PayloadFactoryMediator extends AbstractMediator {
     }
 
     /**
-     * Replaces the payload format with SynapsePath arguments which are evaluated using getArgValues().
+     * Renders the payload format with SynapsePath arguments which are evaluated using getArgValues().
      *
-     * @param format
+     * @param payloadTemplate
      * @param result
      * @param synCtx
      */
-    private void replace(String format, StringBuffer result, MessageContext synCtx) {
-        HashMap<String, ArgumentDetails>[] argValues = getArgValues(synCtx);
-        HashMap<String, ArgumentDetails> replacement;
-        Map.Entry<String, ArgumentDetails> replacementEntry;
-        String replacementValue = null;
-        Matcher matcher;
-
-        if (JSON_TYPE.equals(mediaType) || TEXT_TYPE.equals(mediaType)) {
-            matcher = pattern.matcher(format);
+    private void replace(PayloadTemplate payloadTemplate, StringBuilder result, MessageContext synCtx) {
+        ArgumentDetails[] argDetails = new ArgumentDetails[pathArgumentList.size()];
+        String[] argValues = getArgValues(synCtx, argDetails);
+        boolean padding = !(JSON_TYPE.equals(mediaType) || TEXT_TYPE.equals(mediaType));
+
+        if (padding) {
+            result.append(XML_PADDING_START);
+        }
+        int placeholders = payloadTemplate.getPlaceholderCount();
+        int i = 0;
+        for (; i < placeholders; i++) {
+            result.append(payloadTemplate.getLiteral(i));
+            int argIndex = payloadTemplate.getArgumentIndex(i);
+            if (argIndex < 1 || argIndex > argValues.length) {
+                log.error("#replace. Mis-match detected between number of formatters and arguments");
+                break;
+            }
+            appendArgument(result, argValues[argIndex - 1], argDetails[argIndex - 1], synCtx);
+        }
+        if (i < placeholders) {
+            // leave the rest of the format as it is
+            payloadTemplate.appendRemainder(result, i);
         } else {
-            matcher = pattern.matcher("<pfPadding>" + format + "</pfPadding>");
+            result.append(payloadTemplate.getLiteral(placeholders));
         }
-        try {
-            while (matcher.find()) {
-                String matchSeq = matcher.group();
-                int argIndex;
-                try {
-                    argIndex = Integer.parseInt(matchSeq.substring(1, matchSeq.length()));
-                } catch (NumberFormatException e) {
-                    argIndex = Integer.parseInt(matchSeq.substring(2, matchSeq.length()-1));
-                }
-                replacement = argValues[argIndex-1];
-                replacementEntry =  replacement.entrySet().iterator().next();
-                if(mediaType.equals(JSON_TYPE) && inferReplacementType(replacementEntry).equals(XML_TYPE)) {
-                    // XML to JSON conversion here
-                    try {
-                        replacementValue = "<jsonObject>" + replacementEntry.getKey() + "</jsonObject>";
-                        OMElement omXML = AXIOMUtil.stringToOM(replacementValue);
-                        replacementValue = JsonUtil.toJsonString(omXML).toString();
-                        replacementValue = escapeSpecialCharactersOfJson(replacementValue);
-                    } catch (XMLStreamException e) {
-                        handleException("Error parsing XML for JSON conversion, please check your xPath expressions return valid XML: ", synCtx);
-                    } catch (AxisFault e) {
-                        handleException("Error converting XML to JSON", synCtx);
-                    } catch (OMException e) {
-                        //if the logic comes to this means, it was tried as a XML, which means it has
-                        // "<" as starting element and ">" as end element, so basically if the logic comes here, that means
-                        //value is a string value, that means No conversion required, as path evaluates to regular String.
-                        replacementValue = replacementEntry.getKey();
-
-                        // This is to replace " with \" and \\ with \\\\
-                        //replacing other json special characters i.e \b, \f, \n \r, \t
-                        replacementValue = escapeSpecialChars(replacementValue);
+        if (padding) {
+            result.append(XML_PADDING_END);
+        }
+    }
 
+    /**
+     * Appends the value of an argument, converted and escaped as required by the media type of the payload.
+     *
+     * @param result
+     * @param value evaluated argument
+     * @param details type of the argument
+     * @param synCtx
+     */
+    private void appendArgument(StringBuilder result, String value, ArgumentDetails details,
+                                MessageContext synCtx) {
+        String replacementType = inferReplacementType(value, details);
+        if (mediaType.equals(JSON_TYPE) && replacementType.equals(XML_TYPE)) {
+            // XML to JSON conversion here
+            // the conversions still produce Matcher replacement strings, see appendReplacement()
+            try {
+                OMElement omXML = AXIOMUtil.stringToOM(
+                        "<jsonObject>" + Matcher.quoteReplacement(value) + "</jsonObject>");
+                appendReplacement(result, escapeSpecialCharactersOfJson(JsonUtil.toJsonString(omXML).toString()));
+            } catch (XMLStreamException e) {
+                handleException("Error parsing XML for JSON conversion, please check your xPath expressions return valid XML: ", synCtx);
+            } catch (AxisFault e) {
+                handleException("Error converting XML to JSON", synCtx);
+            } catch (OMException e) {
+                //if the logic comes to this means, it was tried as a XML, which means it has
+                // "<" as starting element and ">" as end element, so basically if the logic comes here, that means
+                //value is a string value, that means No conversion required, as path evaluates to regular String.
+                appendJsonEscaped(result, value);
+            }
+        } else if (mediaType.equals(XML_TYPE) && replacementType.equals(JSON_TYPE)) {
+            // JSON to XML conversion here
+            try {
+                String replacementValue = escapeSpecialCharactersOfXml(Matcher.quoteReplacement(value));
+                OMElement omXML = JsonUtil.toXml(IOUtils.toInputStream(replacementValue), false);
+                if (JsonUtil.isAJsonPayloadElement(omXML)) { // remove <jsonObject/> from result.
+                    Iterator children = omXML.getChildElements();
+                    StringBuilder childrenStr = new StringBuilder();
+                    while (children.hasNext()) {
+                        childrenStr.append((children.next()).toString().trim());
                     }
-                } else if(mediaType.equals(XML_TYPE) && inferReplacementType(replacementEntry).equals(JSON_TYPE)) {
-                    // JSON to XML conversion here
-                    try {
-                        replacementValue = replacementEntry.getKey();
-                        replacementValue = escapeSpecialCharactersOfXml(replacementValue);
-                        OMElement omXML = JsonUtil.toXml(IOUtils.toInputStream(replacementValue), false);
-                        if (JsonUtil.isAJsonPayloadElement(omXML)) { // remove <jsonObject/> from result.
-                            Iterator children = omXML.getChildElements();
-                            String childrenStr = "";
-                            while (children.hasNext()) {
-                                childrenStr += (children.next()).toString().trim();
-                            }
-                            replacementValue = childrenStr;
-                        } else { ///~
-                            replacementValue = omXML.toString();
-                        }
-                        //replacementValue = omXML.toString();
-                    } catch (AxisFault e) {
-                        handleException("Error converting JSON to XML, please check your JSON Path expressions return valid JSON: ", synCtx);
-                    }
-                } else {
-                    // No conversion required, as path evaluates to regular String.
-                    replacementValue = replacementEntry.getKey();
-                    String trimmedReplacementValue = replacementValue.trim();
-                    // This is to replace " with \" and \\ with \\\\
-                    //replacing other json special characters i.e \b, \f, \n \r, \t
-                    if (mediaType.equals(JSON_TYPE) && inferReplacementType(replacementEntry).equals(JSON_TYPE) &&
-                            isEscapeXmlChars()) {
-                        //checks whether the escapeXmlChars attribute is true when media-type and evaluator is json and
-                        //escapes xml chars. otherwise json messages with non escaped xml characters will fail to build
-                        //in content aware mediators.
-                        replacementValue = escapeXMLSpecialChars(replacementValue);
-                    }
-                    else if (mediaType.equals(JSON_TYPE) && inferReplacementType(replacementEntry).equals(STRING_TYPE) &&
-                            (!trimmedReplacementValue.startsWith("{") && !trimmedReplacementValue.startsWith("["))) {
-                        replacementValue = escapeSpecialChars(replacementValue);
-                        // Check for following property which will force the string to include quotes
-                        Object force_string_quote = synCtx.getProperty(QUOTE_STRING_IN_PAYLOAD_FACTORY_JSON);
-                        // skip double quotes if replacement is boolean or null or valid json number
-                        if (force_string_quote != null && ((String) force_string_quote).equalsIgnoreCase("true")
-                                && !trimmedReplacementValue.equals("true") && !trimmedReplacementValue.equals("false")
-                                && !trimmedReplacementValue.equals("null")
-                                && !validJsonNumber.matcher(trimmedReplacementValue).matches()) {
-                            replacementValue = "\"" + replacementValue + "\"";
-                        }
-                    }
-                    else if ((mediaType.equals(JSON_TYPE) && inferReplacementType(replacementEntry).equals(JSON_TYPE)) &&
-                            (!trimmedReplacementValue.startsWith("{") && !trimmedReplacementValue.startsWith("["))) {
-                        // This is to handle only the string value
-                        replacementValue = replacementValue.replaceAll("\"", ESCAPE_DOUBLE_QUOTE_WITH_NINE_BACK_SLASHES);
-                    }
+                    replacementValue = childrenStr.toString();
+                } else { ///~
+                    replacementValue = omXML.toString();
+                }
+                appendReplacement(result, replacementValue);
+            } catch (AxisFault e) {
+                handleException("Error converting JSON to XML, please check your JSON Path expressions return valid JSON: ", synCtx);
+            }
+        } else if (mediaType.equals(JSON_TYPE)) {
+            // No conversion required, as path evaluates to regular String.
+            String trimmedReplacementValue = value.trim();
+            boolean structured = trimmedReplacementValue.startsWith("{") || trimmedReplacementValue.startsWith("[");
+            if (replacementType.equals(JSON_TYPE) && isEscapeXmlChars()) {
+                //checks whether the escapeXmlChars attribute is true when media-type and evaluator is json and
+                //escapes xml chars. otherwise json messages with non escaped xml characters will fail to build
+                //in content aware mediators.
+                appendControlCharsEscaped(result, value);
+            } else if (replacementType.equals(STRING_TYPE) && !structured) {
+                // Check for following property which will force the string to include quotes
+                Object force_string_quote = synCtx.getProperty(QUOTE_STRING_IN_PAYLOAD_FACTORY_JSON);
+                // skip double quotes if replacement is boolean or null or valid json number
+                boolean quote = force_string_quote != null && ((String) force_string_quote).equalsIgnoreCase("true")
+                        && !trimmedReplacementValue.equals("true") && !trimmedReplacementValue.equals("false")
+                        && !trimmedReplacementValue.equals("null")
+                        && !validJsonNumber.matcher(trimmedReplacementValue).matches();
+                if (quote) {
+                    result.append('"');
+                }
+                // This is to replace " with \" and \ with \\
+                //replacing other json special characters i.e \b, \f, \n \r, \t
+                appendJsonEscaped(result, value);
+                if (quote) {
+                    result.append('"');
                 }
-                matcher.appendReplacement(result, replacementValue);
+            } else if (replacementType.equals(JSON_TYPE) && !structured) {
+                // This is to handle only the string value
+                appendQuotesEscaped(result, value);
+            } else {
+                result.append(value);
+            }
+        } else {
+            result.append(value);
+        }
+    }
+
+    /**
+     * Appends a string produced for Matcher.appendReplacement(), in which a backslash escapes the following
+     * character.
+     *
+     * @param result
+     * @param replacement
+     */
+    private void appendReplacement(StringBuilder result, String replacement) {
+        int length = replacement.length();
+        for (int i = 0; i < length; i++) {
+            char c = replacement.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                c = replacement.charAt(++i);
+            }
+            result.append(c);
+        }
+    }
+
+    /**
+     * Appends a string with the JSON special characters ", \, \b, \f, \n, \r and \t escaped.
+     *
+     * @param result
+     * @param value
+     */
+    private void appendJsonEscaped(StringBuilder result, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    result.append("\\\"");
+                    break;
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                default:
+                    appendControlCharEscaped(result, c);
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            log.error("#replace. Mis-match detected between number of formatters and arguments", e);
         }
-        matcher.appendTail(result);
     }
 
     /**
-     * Helper method to replace required char values with escape characters.
+     * Appends a string with the control characters \b, \f, \n, \r and \t escaped.
      *
-     * @param replaceString
-     * @return replacedString
+     * @param result
+     * @param value
      */
-    private String escapeSpecialChars(String replaceString) {
-        return replaceString.replaceAll(Matcher.quoteReplacement("\\\\"), ESCAPE_BACK_SLASH_WITH_SIXTEEN_BACK_SLASHES)
-                .replaceAll("\"", ESCAPE_DOUBLE_QUOTE_WITH_NINE_BACK_SLASHES)
-                .replaceAll("\b", ESCAPE_BACKSPACE_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\f", ESCAPE_FORMFEED_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\n", ESCAPE_NEWLINE_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\r", ESCAPE_CRETURN_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\t", ESCAPE_TAB_WITH_EIGHT_BACK_SLASHES);
+    private void appendControlCharsEscaped(StringBuilder result, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            appendControlCharEscaped(result, value.charAt(i));
+        }
+    }
+
+    private void appendControlCharEscaped(StringBuilder result, char c) {
+        switch (c) {
+            case '\b':
+                result.append("\\b");
+                break;
+            case '\f':
+                result.append("\\f");
+                break;
+            case '\n':
+                result.append("\\n");
+                break;
+            case '\r':
+                result.append("\\r");
+                break;
+            case '\t':
+                result.append("\\t");
+                break;
+            default:
+                result.append(c);
+        }
     }
 
     /**
-     * Helper method to replace required char values with escape characters for XML.
+     * Appends a string with double quotes escaped.
      *
-     * @param replaceString
-     * @return replacedString
+     * @param result
+     * @param value
      */
-    private String escapeXMLSpecialChars(String replaceString) {
-        return replaceString.replaceAll("\b", ESCAPE_BACKSPACE_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\f", ESCAPE_FORMFEED_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\n", ESCAPE_NEWLINE_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\r", ESCAPE_CRETURN_WITH_EIGHT_BACK_SLASHES)
-                .replaceAll("\t", ESCAPE_TAB_WITH_EIGHT_BACK_SLASHES);
+    private void appendQuotesEscaped(StringBuilder result, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                result.append('\\');
+            }
+            result.append(c);
+        }
     }
 
     /**
-     * Helper function that takes a Map of String, ArgumentDetails where key contains the value of an evaluated SynapsePath
-     * expression and value contains the type of SynapsePath + deepcheck status in use.
+     * Helper function that takes the value of an evaluated SynapsePath expression and the type of SynapsePath +
+     * deepcheck status in use.
      *
      * It returns the type of conversion required (XML | JSON | String) based on the actual returned value and the path
      * type.
      *
-     * @param entry
+     * @param value
+     * @param details
      * @return
      */
-    private String inferReplacementType(Map.Entry<String, ArgumentDetails> entry) {
-        if (entry.getValue().isLiteral()){
+    private String inferReplacementType(String value, ArgumentDetails details) {
+        if (details.isLiteral()){
             return STRING_TYPE;
-        } else if (entry.getValue().getPathType().equals(SynapsePath.X_PATH)
-           && entry.getValue().isXml()) {
+        } else if (details.getPathType().equals(SynapsePath.X_PATH)
+           && details.isXml()) {
             return XML_TYPE;
-        } else if(entry.getValue().getPathType().equals(SynapsePath.X_PATH)
-                  && !entry.getValue().isXml()) {
+        } else if(details.getPathType().equals(SynapsePath.X_PATH)
+                  && !details.isXml()) {
             return STRING_TYPE;
-        } else if(entry.getValue().getPathType().equals(SynapsePath.JSON_PATH)
-                  && isJson(entry.getKey())) {
+        } else if(details.getPathType().equals(SynapsePath.JSON_PATH)
+                  && isJson(value)) {
             return JSON_TYPE;
-        } else if(entry.getValue().getPathType().equals(SynapsePath.JSON_PATH)
-                  && !isJson((entry.getKey()))) {
+        } else if(details.getPathType().equals(SynapsePath.JSON_PATH)
+                  && !isJson((value))) {
             return STRING_TYPE;
         } else {
             return STRING_TYPE;
@@ -505,14 +594,16 @@ public class PayloadFactoryMediator extends AbstractMediator {
     }
 
     /**
-     * Goes through SynapsePath argument list, evaluating each by calling stringValueOf and returns a HashMap String, String
-     * array where each item will contain a hash map with key "evaluated expression" and value "SynapsePath type".
+     * Goes through SynapsePath argument list, evaluating each by calling stringValueOf and returns the evaluated
+     * expressions, while filling the given array with the SynapsePath type of each.
      * @param synCtx
+     * @param argDetails array to fill with the details of each argument
      * @return
      */
-    private HashMap<String, ArgumentDetails>[] getArgValues(MessageContext synCtx) {
-        HashMap<String, ArgumentDetails>[] argValues = new HashMap[pathArgumentList.size()];
-        HashMap<String, ArgumentDetails> valueMap;
+    private String[] getArgValues(MessageContext synCtx, ArgumentDetails[] argDetails) {
+        String[] argValues = new String[pathArgumentList.size()];
+        // the XML version of the envelope is only looked up once, and only if a value has to be escaped
+        String xmlVersion = null;
         String value = "";
         for (int i = 0; i < pathArgumentList.size(); ++i) {       /*ToDo use foreach*/
             Argument arg = pathArgumentList.get(i);
@@ -521,9 +612,11 @@ public class PayloadFactoryMediator extends AbstractMediator {
                 value = arg.getValue();
                 details.setXml(isXML(value));
                 if (!details.isXml()) {
-                    value = escapeXMLEnvelope(synCtx, value);
+                    if (xmlVersion == null) {
+                        xmlVersion = getXMLVersion(synCtx);
+                    }
+                    value = escapeXml(value, xmlVersion);
                 }
-                value = Matcher.quoteReplacement(value);
             } else if (arg.getExpression() != null) {
                 value = arg.getExpression().stringValueOf(synCtx);
                 details.setLiteral(arg.isLiteral());
@@ -532,9 +625,11 @@ public class PayloadFactoryMediator extends AbstractMediator {
                     // of the payload is XML.
                     details.setXml(isXML(value));
                     if (!details.isXml() && XML_TYPE.equals(getType()) && !isJson(value.trim(), arg.getExpression())) {
-                        value = escapeXMLEnvelope(synCtx, value);
+                        if (xmlVersion == null) {
+                            xmlVersion = getXMLVersion(synCtx);
+                        }
+                        value = escapeXml(value, xmlVersion);
                     }
-                    value = Matcher.quoteReplacement(value);
                 } else {
                     value = "";
                 }
@@ -542,15 +637,13 @@ public class PayloadFactoryMediator extends AbstractMediator {
                 handleException("Unexpected arg type detected", synCtx);
             }
             //value = value.replace(String.valueOf((char) 160), " ").trim();
-            valueMap = new HashMap<String, ArgumentDetails>();
             if (null != arg.getExpression()) {
                 details.setPathType(arg.getExpression().getPathType());
-                valueMap.put(value, details);
             } else {
                 details.setPathType(SynapsePath.X_PATH);
-                valueMap.put(value, details);
             }
-            argValues[i] = valueMap;
+            argValues[i] = value;
+            argDetails[i] = details;
         }
         return argValues;
     }
@@ -561,6 +654,7 @@ public class PayloadFactoryMediator extends AbstractMediator {
 
     public void setFormat(String format) {
         this.formatRaw = format;
+        this.template = format != null ? PayloadTemplate.compile(format, null) : null;
     }
 
     public void addPathArgument(Argument arg) {
@@ -578,6 +672,11 @@ public class PayloadFactoryMediator extends AbstractMediator {
      * @return
      */
     private boolean isXML(String value) {
+        String trimmed = value.trim();
+        // an XML document starts with a tag, no need to run the parser on anything else
+        if (trimmed.length() < 4 || trimmed.charAt(0) != '<' || !trimmed.endsWith(">")) {
+            return false;
+        }
         try {
             AXIOMUtil.stringToOM(value);
             value = value.trim();
@@ -687,14 +786,13 @@ public class PayloadFactoryMediator extends AbstractMediator {
     }
 
     /**
-     * Escapes XML special characters
+     * Checks and returns XML version of the envelope, defaulting to 1.0 if it cannot be determined
      *
      * @param msgCtx Message Context
-     * @param value XML String which needs to be escaped
-     * @return XML special char escaped string
+     * @return xmlVersion in XML Declaration
      */
-    private String escapeXMLEnvelope(MessageContext msgCtx, String value) {
-        String xmlVersion = "1.0"; //Default is set to 1.0
+    private String getXMLVersion(MessageContext msgCtx) {
+        String xmlVersion = DEFAULT_XML_VERSION;
 
         try {
             xmlVersion = checkXMLVersion(msgCtx);
@@ -705,7 +803,17 @@ public class PayloadFactoryMediator extends AbstractMediator {
         } catch (ParserConfigurationException e) {
             log.error("Error building message envelope document", e);
         }
+        return xmlVersion;
+    }
 
+    /**
+     * Escapes XML special characters
+     *
+     * @param value XML String which needs to be escaped
+     * @param xmlVersion XML version of the message envelope
+     * @return XML special char escaped string
+     */
+    private String escapeXml(String value, String xmlVersion) {
         if("1.1".equals(xmlVersion)) {
             return org.apache.commons.text.StringEscapeUtils.escapeXml11(value);
         } else {
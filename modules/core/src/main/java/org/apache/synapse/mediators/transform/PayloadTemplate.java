@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format of a payload factory mediator, split once into the literal text and the <tt>$n</tt>
+ * argument placeholders between them, so that a payload can be rendered without scanning the
+ * format again.
+ */
+final class PayloadTemplate {
+
+    /** Object the format was read from, used to detect changes of a dynamic format */
+    private final Object source;
+
+    /** Literal text of the format, one more than the number of placeholders */
+    private final String[] literals;
+
+    /** 1 based argument index of each placeholder, -1 if the index is not a valid number */
+    private final int[] argumentIndexes;
+
+    /** Text of each placeholder as it appears in the format */
+    private final String[] placeholders;
+
+    private final int literalLength;
+
+    private PayloadTemplate(Object source, String[] literals, int[] argumentIndexes,
+                            String[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.argumentIndexes = argumentIndexes;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Splits a format at the placeholders matching <tt>\$(\d)+</tt>.
+     *
+     * @param format format of the payload
+     * @param source object the format was read from, may be null
+     * @return the compiled template
+     */
+    static PayloadTemplate compile(String format, Object source) {
+        List<String> literals = new ArrayList<String>();
+        List<String> placeholders = new ArrayList<String>();
+        int length = format.length();
+        int literalStart = 0;
+        int i = 0;
+        while (i < length) {
+            if (format.charAt(i) == '$' && i + 1 < length && isDigit(format.charAt(i + 1))) {
+                int end = i + 2;
+                while (end < length && isDigit(format.charAt(end))) {
+                    end++;
+                }
+                literals.add(format.substring(literalStart, i));
+                placeholders.add(format.substring(i, end));
+                literalStart = end;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        literals.add(format.substring(literalStart));
+
+        int[] argumentIndexes = new int[placeholders.size()];
+        for (int j = 0; j < argumentIndexes.length; j++) {
+            try {
+                argumentIndexes[j] = Integer.parseInt(placeholders.get(j).substring(1));
+            } catch (NumberFormatException e) {
+                argumentIndexes[j] = -1;
+            }
+        }
+        return new PayloadTemplate(source, literals.toArray(new String[literals.size()]),
+                argumentIndexes, placeholders.toArray(new String[placeholders.size()]));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    Object getSource() {
+        return source;
+    }
+
+    int getPlaceholderCount() {
+        return argumentIndexes.length;
+    }
+
+    /**
+     * @param i index of the literal, from 0 to the number of placeholders
+     * @return literal text preceding the placeholder with the same index, or the trailing text
+     */
+    String getLiteral(int i) {
+        return literals[i];
+    }
+
+    int getArgumentIndex(int i) {
+        return argumentIndexes[i];
+    }
+
+    /**
+     * Appends the format from the given placeholder onwards, without replacing any placeholders.
+     */
+    void appendRemainder(StringBuilder result, int placeholder) {
+        for (int i = placeholder; i < placeholders.length; i++) {
+            result.append(placeholders[i]).append(literals[i + 1]);
+        }
+    }
+
+    /**
+     * @return initial capacity of a buffer which should hold a rendered payload without resizing
+     */
+    int estimateLength() {
+        return literalLength + 32 * argumentIndexes.length;
+    }
+}
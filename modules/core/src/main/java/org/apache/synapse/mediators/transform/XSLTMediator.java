@@ -30,7 +30,9 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.Entry;
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
@@ -59,10 +61,9 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * The XSLT mediator performs an XSLT transformation requested, using
@@ -199,7 +200,16 @@ public class XSLTMediator extends AbstractMediator {
      * Unique string used as a key for each template
      * The Template instance used to create a Transformer object. This is  thread-safe
      */
-    private Map<String, Templates> cachedTemplatesMap = new Hashtable<String, Templates>();
+    private final XSLTTemplateCache templateCache = new XSLTTemplateCache(
+            Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.XSLT_TEMPLATE_CACHE_SIZE,
+                    String.valueOf(SynapseConstants.DEFAULT_XSLT_TEMPLATE_CACHE_SIZE))),
+            Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.XSLT_TEMPLATE_CACHE_MAX_IDLE,
+                    String.valueOf(SynapseConstants.DEFAULT_XSLT_TEMPLATE_CACHE_MAX_IDLE))),
+            Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.XSLT_TRANSFORMER_POOL_SIZE,
+                    String.valueOf(SynapseConstants.DEFAULT_XSLT_TRANSFORMER_POOL_SIZE))));
 
     /**
      * The TransformerFactory instance which use to create Templates. This is not thread-safe.
@@ -208,7 +218,7 @@ public class XSLTMediator extends AbstractMediator {
     private final TransformerFactory transFact = TransformerFactory.newInstance();
 
     /**
-     * Lock used to ensure thread-safe creation and use of the above Transformer
+     * Lock used to ensure thread-safe use of the above TransformerFactory
      */
     private final Object transformerLock = new Object();
 
@@ -278,7 +288,7 @@ public class XSLTMediator extends AbstractMediator {
      * @param synCtx current message
      * @param synLog the logger to be used
      */
-    private void performXSLT(MessageContext synCtx, SynapseLog synLog) {
+    private void performXSLT(final MessageContext synCtx, final SynapseLog synLog) {
 
         OMNode sourceNode = source.selectOMNode(synCtx, synLog);
         boolean isSoapEnvelope = (sourceNode == synCtx.getEnvelope());
@@ -286,41 +296,44 @@ public class XSLTMediator extends AbstractMediator {
         boolean isSoapHeader = (sourceNode == synCtx.getEnvelope().getHeader());
 
         // Derive actual key from message context
-        String generatedXsltKey = xsltKey.evaluateValue(synCtx);
-
-        // get templates from generatedXsltKey
-        Templates cachedTemplates = null;
+        final String generatedXsltKey = xsltKey.evaluateValue(synCtx);
 
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Transformation source : " + sourceNode.toString());
         }
 
-        // determine if it is needed to create or create the template
-        if (isCreationOrRecreationRequired(synCtx)) {
-            // many threads can see this and come here for acquiring the lock
-            synchronized (transformerLock) {
-                // only first thread should create the template
-                if (isCreationOrRecreationRequired(synCtx)) {
-                    cachedTemplates = createTemplate(synCtx, synLog, generatedXsltKey);
-                } else {
-                    cachedTemplates = cachedTemplatesMap.get(generatedXsltKey);
-                }
-            }
-        }
-        else{
-            //If already cached template then load it from cachedTemplatesMap
-            synchronized (transformerLock){
-                cachedTemplates = cachedTemplatesMap.get(generatedXsltKey);
+        // get templates from generatedXsltKey, only the first thread asking for a key compiles it
+        XSLTTemplateCache.CachedTemplates cachedTemplates = null;
+        Templates templates = null;
+        if (useCache) {
+            try {
+                cachedTemplates = templateCache.get(generatedXsltKey,
+                        isRecreationRequired(synCtx, generatedXsltKey), new Callable<Templates>() {
+                            public Templates call() {
+                                return createTemplate(synCtx, synLog, generatedXsltKey);
+                            }
+                        });
+            } catch (SynapseException e) {
+                throw e;
+            } catch (Exception e) {
+                handleException("Error creating XSLT transformer using : " + xsltKey, e, synCtx);
             }
+        } else {
+            templates = createTemplate(synCtx, synLog, generatedXsltKey);
         }
 
+        Transformer transformer = null;
         try {
             // perform transformation
-            Transformer transformer = null;
             try {
-                transformer = cachedTemplates.newTransformer();
+                transformer = cachedTemplates != null ? cachedTemplates.borrowTransformer() :
+                        templates.newTransformer();
             } catch (NullPointerException ex) {
                 handleException("Unable to create Transformer using cached template", ex, synCtx);
+            } catch (TransformerException e) {
+                throw e;
+            } catch (Exception e) {
+                handleException("Unable to create Transformer using cached template", e, synCtx);
             }
             if (!properties.isEmpty()) {
                 // set the parameters which will pass to the Transformation
@@ -450,11 +463,15 @@ public class XSLTMediator extends AbstractMediator {
 
         } catch (TransformerException e) {
             handleException("Error performing XSLT transformation using : " + xsltKey, e, synCtx);
+        } finally {
+            if (cachedTemplates != null) {
+                cachedTemplates.releaseTransformer(transformer);
+            }
         }
     }
 
     /**
-     * Create a XSLT template object and assign it to the cachedTemplates variable
+     * Create a XSLT template object
      * @param synCtx current message
      * @param synLog logger to use
      * @param generatedXsltKey evaluated xslt key(real key value) for dynamic or static key 
@@ -464,23 +481,21 @@ public class XSLTMediator extends AbstractMediator {
         // Assign created template
         Templates cachedTemplates = null;
 
-        // Set an error listener (SYNAPSE-307).
-        transFact.setErrorListener(new ErrorListenerImpl(synLog, STYLESHEET_PARSING_ACTIVITY));
-        // Allow xsl:import and xsl:include resolution
-        transFact.setURIResolver(new CustomJAXPURIResolver(resourceMap, synCtx.getConfiguration(), synCtx));
-
         try {
-            cachedTemplates = transFact.newTemplates(
-                    SynapseConfigUtils.getStreamSource(synCtx.getEntry(generatedXsltKey)));
+            synchronized (transformerLock) {
+                // Set an error listener (SYNAPSE-307).
+                transFact.setErrorListener(new ErrorListenerImpl(synLog, STYLESHEET_PARSING_ACTIVITY));
+                // Allow xsl:import and xsl:include resolution
+                transFact.setURIResolver(new CustomJAXPURIResolver(resourceMap, synCtx.getConfiguration(), synCtx));
+                cachedTemplates = transFact.newTemplates(
+                        SynapseConfigUtils.getStreamSource(synCtx.getEntry(generatedXsltKey)));
+            }
             if (cachedTemplates == null) {
                 // if cached template creation failed
                 handleException("Error compiling the XSLT with key : " + xsltKey, synCtx);
-            } else {
-                if (useCache) {
-                    // if cached template is created then put it in to cachedTemplatesMap
-                    cachedTemplatesMap.put(generatedXsltKey, cachedTemplates);
-                }
             }
+        } catch (SynapseException e) {
+            throw e;
         } catch (Exception e) {
             handleException("Error creating XSLT transformer using : " + xsltKey, e, synCtx);
         }
@@ -488,32 +503,17 @@ public class XSLTMediator extends AbstractMediator {
     }
 
     /**
-     * Utility method to determine weather it is needed to create a XSLT template
+     * Utility method to determine weather a cached XSLT template has to be created again
      *
      * @param synCtx current message
-     * @return true if it is needed to create a new XSLT template
+     * @param generatedXsltKey evaluated xslt key
+     * @return true if the XSLT template has to be created again
      */
-    private boolean isCreationOrRecreationRequired(MessageContext synCtx) {
-        if (!useCache){
-            return true;
-        } else {
-            // Derive actual key from message context
-            String generatedXsltKey = xsltKey.evaluateValue(synCtx);
-
-            // if there are no cachedTemplates inside cachedTemplatesMap or
-            // if the template related to this generated key is not cached
-            // then it need to be cached
-            if (cachedTemplatesMap.isEmpty() || !cachedTemplatesMap.containsKey(generatedXsltKey)) {
-                // this is a creation case
-                return true;
-            } else {
-                // build transformer - if necessary
-                Entry dp = synCtx.getConfiguration().getEntryDefinition(generatedXsltKey);
-                // if the xsltKey refers to a dynamic resource, and if it has been expired
-                // it is a recreation case
-                return dp != null && dp.isDynamic() && (!dp.isCached() || dp.isExpired());
-            }
-        }
+    private boolean isRecreationRequired(MessageContext synCtx, String generatedXsltKey) {
+        Entry dp = synCtx.getConfiguration().getEntryDefinition(generatedXsltKey);
+        // if the xsltKey refers to a dynamic resource, and if it has been expired
+        // it is a recreation case
+        return dp != null && dp.isDynamic() && (!dp.isCached() || dp.isExpired());
     }
 
     public SynapseXPath getSource() {
@@ -0,0 +1,272 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.transform;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.URIResolver;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded cache of compiled stylesheets, keyed by the evaluated key of the stylesheet.
+ * <p>
+ * Each key is compiled by a single thread, threads asking for the same key in the meantime wait
+ * for that compilation instead of compiling the stylesheet again. The cache holds at most
+ * <tt>maxSize</tt> stylesheets, evicting the least recently used one when full, and drops
+ * stylesheets which have not been used for <tt>maxIdleTime</tt> milliseconds.
+ * <p>
+ * Every cached stylesheet keeps a pool of {@link Transformer}s, which are reset and reused by
+ * later messages instead of creating a new transformer per message.
+ */
+public class XSLTTemplateCache {
+
+    private static final Log log = LogFactory.getLog(XSLTTemplateCache.class);
+
+    public static final String MBEAN_CATEGORY = "XSLTMediator";
+    public static final String MBEAN_ID = "TemplateCache";
+
+    /** Statistics of all the template caches of this server */
+    private static final XSLTTemplateCacheView statistics = new XSLTTemplateCacheView();
+
+    private static final AtomicBoolean mbeanRegistered = new AtomicBoolean(false);
+
+    private final ConcurrentMap<String, CachedTemplates> cache =
+            new ConcurrentHashMap<String, CachedTemplates>();
+
+    private final int maxSize;
+
+    private final long maxIdleTime;
+
+    private final int transformerPoolSize;
+
+    /**
+     * @param maxSize             maximum number of stylesheets cached
+     * @param maxIdleTime         time in milliseconds after which an unused stylesheet is dropped,
+     *                            0 or less to keep stylesheets until they are evicted
+     * @param transformerPoolSize number of transformers pooled per stylesheet, 0 to disable
+     */
+    public XSLTTemplateCache(int maxSize, long maxIdleTime, int transformerPoolSize) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.maxIdleTime = maxIdleTime;
+        this.transformerPoolSize = Math.max(transformerPoolSize, 0);
+        if (mbeanRegistered.compareAndSet(false, true)) {
+            MBeanRegistrar.getInstance().registerMBean(statistics, MBEAN_CATEGORY, MBEAN_ID);
+        }
+    }
+
+    /**
+     * Get the compiled stylesheet for a key, compiling it if it is not cached yet.
+     *
+     * @param key      evaluated key of the stylesheet
+     * @param recreate whether the cached stylesheet is stale and must be compiled again
+     * @param compiler compiles the stylesheet, only called by one thread at a time for a key
+     * @return the compiled stylesheet
+     * @throws Exception if the stylesheet could not be compiled
+     */
+    public CachedTemplates get(String key, boolean recreate, Callable<Templates> compiler)
+            throws Exception {
+        long now = System.currentTimeMillis();
+        CachedTemplates cached = cache.get(key);
+        if (cached != null && cached.isDone()) {
+            if (recreate || isIdle(cached, now)) {
+                // another thread may have replaced it in the meantime, in which case that is used
+                CachedTemplates fresh = new CachedTemplates(compiler, transformerPoolSize, now);
+                if (cache.replace(key, cached, fresh)) {
+                    statistics.evicted();
+                    return compile(key, fresh);
+                }
+                cached = cache.get(key);
+            }
+        }
+
+        if (cached == null) {
+            CachedTemplates fresh = new CachedTemplates(compiler, transformerPoolSize, now);
+            cached = cache.putIfAbsent(key, fresh);
+            if (cached == null) {
+                evictIfFull(now);
+                return compile(key, fresh);
+            }
+        }
+
+        statistics.hit();
+        cached.lastAccessTime = now;
+        return await(key, cached);
+    }
+
+    private CachedTemplates compile(String key, CachedTemplates cached) throws Exception {
+        statistics.compiled();
+        cached.task.run();
+        return await(key, cached);
+    }
+
+    private CachedTemplates await(String key, CachedTemplates cached) throws Exception {
+        try {
+            cached.task.get();
+            return cached;
+        } catch (ExecutionException e) {
+            // do not keep the failure, the next message will try to compile the stylesheet again
+            cache.remove(key, cached);
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isIdle(CachedTemplates cached, long now) {
+        return maxIdleTime > 0 && now - cached.lastAccessTime > maxIdleTime;
+    }
+
+    /**
+     * Drop idle stylesheets, and the least recently used ones while the cache is over its size.
+     */
+    private void evictIfFull(long now) {
+        if (cache.size() <= maxSize) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, CachedTemplates>> it = cache.entrySet().iterator();
+             it.hasNext(); ) {
+            CachedTemplates cached = it.next().getValue();
+            if (cached.isDone() && isIdle(cached, now)) {
+                it.remove();
+                statistics.evicted();
+            }
+        }
+        while (cache.size() > maxSize) {
+            String eldestKey = null;
+            CachedTemplates eldest = null;
+            for (Map.Entry<String, CachedTemplates> entry : cache.entrySet()) {
+                CachedTemplates cached = entry.getValue();
+                if (cached.isDone() && (eldest == null ||
+                        cached.lastAccessTime < eldest.lastAccessTime)) {
+                    eldestKey = entry.getKey();
+                    eldest = cached;
+                }
+            }
+            if (eldest == null) {
+                // everything is still being compiled
+                return;
+            }
+            if (cache.remove(eldestKey, eldest)) {
+                statistics.evicted();
+                if (log.isDebugEnabled()) {
+                    log.debug("Evicted the compiled stylesheet with key : " + eldestKey);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public static XSLTTemplateCacheView getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * A compiled stylesheet, or the compilation of a stylesheet that is in progress, together
+     * with its pool of transformers.
+     */
+    public static final class CachedTemplates {
+
+        private final FutureTask<Templates> task;
+
+        private final BlockingQueue<Transformer> transformers;
+
+        private volatile long lastAccessTime;
+
+        private CachedTemplates(Callable<Templates> compiler, int poolSize, long now) {
+            this.task = new FutureTask<Templates>(compiler);
+            this.transformers = poolSize > 0 ? new ArrayBlockingQueue<Transformer>(poolSize) : null;
+            this.lastAccessTime = now;
+        }
+
+        private boolean isDone() {
+            return task.isDone();
+        }
+
+        public Templates getTemplates() throws Exception {
+            return task.get();
+        }
+
+        /**
+         * Take a transformer from the pool, or create one if the pool is empty.
+         *
+         * @return a transformer for this stylesheet
+         * @throws Exception if a transformer could not be created
+         */
+        public Transformer borrowTransformer() throws Exception {
+            Transformer transformer = transformers != null ? transformers.poll() : null;
+            if (transformer != null) {
+                statistics.transformerReused();
+                return transformer;
+            }
+            Templates templates = task.get();
+            if (templates == null) {
+                throw new TransformerConfigurationException("Stylesheet has not been compiled");
+            }
+            return templates.newTransformer();
+        }
+
+        /**
+         * Return a transformer to the pool once the transformation is over.
+         *
+         * @param transformer a transformer obtained from {@link #borrowTransformer()}
+         */
+        public void releaseTransformer(Transformer transformer) {
+            if (transformer == null || transformers == null) {
+                return;
+            }
+            try {
+                // the resolver of the factory is only copied to a transformer when it is created,
+                // while reset() drops it in some implementations, such as the XSLTC of the JDK
+                URIResolver uriResolver = transformer.getURIResolver();
+                // reset() alone does not drop the parameters of every implementation
+                transformer.clearParameters();
+                // clears the error listener and output properties of the last message
+                transformer.reset();
+                transformer.setURIResolver(uriResolver);
+            } catch (UnsupportedOperationException e) {
+                return;
+            }
+            transformers.offer(transformer);
+        }
+    }
+}
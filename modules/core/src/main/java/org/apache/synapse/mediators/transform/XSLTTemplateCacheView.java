@@ -0,0 +1,78 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.transform;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the compiled stylesheet caches of all the XSLT mediators.
+ */
+public class XSLTTemplateCacheView implements XSLTTemplateCacheViewMBean {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong compiles = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong transformerReuses = new AtomicLong();
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void compiled() {
+        compiles.incrementAndGet();
+    }
+
+    void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    void transformerReused() {
+        transformerReuses.incrementAndGet();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getCompileCount() {
+        return compiles.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getTransformerReuseCount() {
+        return transformerReuses.get();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + compiles.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public void reset() {
+        hits.set(0);
+        compiles.set(0);
+        evictions.set(0);
+        transformerReuses.set(0);
+    }
+}
@@ -81,4 +81,21 @@ public final class ForwardingProcessorConstants {
      * Message store to keep un-processable messages of message processor
      */
     public static final String FAIL_MESSAGES_STORE = "message.processor.failMessagesStore";
+
+    /**
+     * Number of messages forwarded in parallel, each with a message consumer of its own
+     */
+    public static final String CONCURRENCY = "concurrency";
+
+    /**
+     * Indicates if the messages must be forwarded in the order they were stored. Messages are
+     * only forwarded in parallel when this is set to false
+     */
+    public static final String ORDERED = "ordered";
+
+    /**
+     * Indicates if the store is polled again right away as long as it has messages, and only
+     * polled once in an interval when it is empty
+     */
+    public static final String ADAPTIVE_POLLING = "adaptive.polling";
 }
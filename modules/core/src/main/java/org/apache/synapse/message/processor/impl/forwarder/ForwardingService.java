@@ -48,8 +48,12 @@ import org.apache.synapse.message.processor.MessageProcessorConstants;
 import org.apache.synapse.message.processor.impl.ScheduledMessageProcessor;
 import org.apache.synapse.message.senders.blocking.BlockingMsgSender;
 import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.impl.jms.JmsStore;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+import org.apache.synapse.message.store.impl.rabbitmq.RabbitMQStore;
 import org.apache.synapse.task.Task;
 import org.apache.synapse.util.MessageHelper;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -58,6 +62,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -66,10 +72,21 @@ import java.util.regex.Pattern;
  * This task is responsible for forwarding a request to a given endpoint. This
  * is based on a blocking implementation and can send only one message at a
  * time. Also this supports Throttling and reliable messaging.
+ * <p>
+ * When the concurrency of the processor is more than one, the task starts
+ * additional services which forward messages in parallel, each with a message
+ * consumer of its own. Messages are then no longer forwarded in the order they
+ * were stored, so this is only done when ordering is not required, and only
+ * for stores whose consumers compete for messages.
  */
 public class ForwardingService implements Task, ManagedLifecycle {
 	private static final Log log = LogFactory.getLog(ForwardingService.class);
 
+	/*
+	 * Initial wait before polling an empty store again, when polling adaptively
+	 */
+	private static final long MIN_IDLE_DELAY = 10;
+
 	// The consumer that is associated with the particular message store
 	private MessageConsumer messageConsumer;
 
@@ -169,6 +186,40 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 */
 	private boolean isResponseValidationNotRequired = false;
 
+	/*
+	 * Number of messages forwarded in parallel, by this service and the workers
+	 */
+	private int concurrency = 1;
+
+	/*
+	 * Whether the store is polled again right away as long as it has messages
+	 */
+	private boolean isAdaptivePolling = false;
+
+	/*
+	 * Current wait before polling an empty store again, when polling adaptively
+	 */
+	private long idleDelay = 0;
+
+	/*
+	 * Services forwarding messages in parallel with this one and the threads
+	 * running them, guarded by this
+	 */
+	private List<ForwardingService> workers;
+	private ExecutorService workerExecutor;
+	private ExecutorService stoppedWorkerExecutor;
+
+	// Whether this service is a worker started by another service
+	private boolean isWorker = false;
+
+	/*
+	 * Set when a worker is stopped. isTerminated cannot be used for this, as
+	 * it is reset whenever a message is received.
+	 */
+	private volatile boolean isWorkerStopped = false;
+
+	private ForwardingStatistics statistics = new ForwardingStatistics();
+
 	Pattern httpPattern = Pattern.compile("^(http|https|hl7):");
 
 	public ForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
@@ -220,58 +271,15 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				deactivateMessageProcessor(null);
 			}
 		}
+		if (initialized && concurrency > 1 && !messageProcessor.isDeactivated()) {
+			startWorkers();
+		}
+		boolean received;
 		do {
-			resetService();
-			MessageContext messageContext = null;
-			try {
-				if (!this.messageProcessor.isDeactivated()) {
-					messageContext = fetch();
-					if (messageContext != null) {
-
-						Set proSet = messageContext.getPropertyKeySet();
-						if (proSet != null) {
-							if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
-								proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
-							}
-						}
-						// Now it is NOT terminated anymore.
-						isTerminated = messageProcessor.isDeactivated();
-						dispatch(messageContext);
-					} else {
-						// either the connection is broken or there are no new
-						// massages.
-						if (log.isDebugEnabled()) {
-							log.debug("No messages were received for message processor ["
-									+ messageProcessor.getName() + "]");
-						}
-
-						// this means we have consumed all the messages
-						if (isRunningUnderCronExpression()) {
-							break;
-						}
-					}
-				} else {
-					/*
-					 * we need this because when start the server while the
-					 * processors in deactivated mode
-					 * the deactivation may not come in to play because the
-					 * service may not be running.
-					 */
-					isTerminated = true;
-
-					if (log.isDebugEnabled()) {
-						log.debug("Exiting service since the message processor is deactivated");
-					}
-				}
-			} catch (Throwable e) {
-				/*
-				 * All the possible recoverable exceptions are handles case by
-				 * case and yet if it comes this
-				 * we have to shutdown the processor
-				 */
-				log.fatal("Deactivating the message processor [" + this.messageProcessor.getName()
-						+ "]", e);
-				deactivateMessageProcessor(messageContext);
+			received = forwardNext();
+			// this means we have consumed all the messages
+			if (!received && isRunningUnderCronExpression()) {
+				break;
 			}
 
 			if (log.isDebugEnabled()) {
@@ -300,10 +308,13 @@ public class ForwardingService implements Task, ManagedLifecycle {
 			 */
 			if (interval > 0 && interval < MessageProcessorConstants.THRESHOULD_INTERVAL &&
 					!isRunningUnderCronExpression()) {
-				try {
-					Thread.sleep(interval);
-				} catch (InterruptedException e) {
-					log.debug("Current Thread was interrupted while it is sleeping.");
+				long delay = getPollingDelay(received);
+				if (delay > 0) {
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						log.debug("Current Thread was interrupted while it is sleeping.");
+					}
 				}
 			}
 
@@ -323,7 +334,12 @@ public class ForwardingService implements Task, ManagedLifecycle {
 					!isRunningUnderCronExpression()) {
 				break;
 			}
-		} while ((isThrottling || isRunningUnderCronExpression()) && !isTerminated);
+			/*
+			 * When polling adaptively, keep forwarding while the store has
+			 * messages, instead of waiting for the next schedule of the task.
+			 */
+		} while ((isThrottling || isRunningUnderCronExpression() || (isAdaptivePolling && received))
+				&& !isTerminated);
 
 		if (log.isDebugEnabled()) {
 			log.debug("Exiting service thread of message processor ["
@@ -331,6 +347,170 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		}
 	}
 
+	/**
+	 * Receives a message from the store and forwards it.
+	 *
+	 * @return <code>true</code> if a message was received from the store
+	 */
+	private boolean forwardNext() {
+		resetService();
+		MessageContext messageContext = null;
+		try {
+			if (!this.messageProcessor.isDeactivated()) {
+				messageContext = fetch();
+				if (messageContext != null) {
+
+					Set proSet = messageContext.getPropertyKeySet();
+					if (proSet != null) {
+						if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
+							proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
+						}
+					}
+					// Now it is NOT terminated anymore.
+					isTerminated = messageProcessor.isDeactivated();
+					statistics.dispatchStarted();
+					try {
+						dispatch(messageContext);
+					} finally {
+						statistics.dispatchCompleted();
+					}
+					return true;
+				} else {
+					// either the connection is broken or there are no new
+					// massages.
+					if (log.isDebugEnabled()) {
+						log.debug("No messages were received for message processor ["
+								+ messageProcessor.getName() + "]");
+					}
+				}
+			} else {
+				/*
+				 * we need this because when start the server while the
+				 * processors in deactivated mode
+				 * the deactivation may not come in to play because the
+				 * service may not be running.
+				 */
+				isTerminated = true;
+
+				if (log.isDebugEnabled()) {
+					log.debug("Exiting service since the message processor is deactivated");
+				}
+			}
+		} catch (Throwable e) {
+			/*
+			 * All the possible recoverable exceptions are handles case by
+			 * case and yet if it comes this
+			 * we have to shutdown the processor
+			 */
+			log.fatal("Deactivating the message processor [" + this.messageProcessor.getName()
+					+ "]", e);
+			deactivateMessageProcessor(messageContext);
+		}
+		return messageContext != null;
+	}
+
+	/**
+	 * Gives the time to wait before polling the store again. When polling
+	 * adaptively, the store is polled again right away after a message was
+	 * received, and the wait doubles up to the interval while it stays empty.
+	 *
+	 * @param received whether the last poll received a message
+	 * @return time to wait in milliseconds
+	 */
+	private long getPollingDelay(boolean received) {
+		if (!isAdaptivePolling) {
+			return interval;
+		}
+		if (received) {
+			idleDelay = 0;
+		} else if (idleDelay == 0) {
+			idleDelay = Math.min(MIN_IDLE_DELAY, interval);
+		} else {
+			idleDelay = Math.min(idleDelay * 2, interval);
+		}
+		return idleDelay;
+	}
+
+	/**
+	 * Starts the workers forwarding messages in parallel with this service,
+	 * unless they are running already.
+	 */
+	private synchronized void startWorkers() {
+		if (workerExecutor != null) {
+			return;
+		}
+		if (stoppedWorkerExecutor != null) {
+			// wait for the workers to be done with the messages they were forwarding when stopped
+			if (!stoppedWorkerExecutor.isTerminated()) {
+				return;
+			}
+			stoppedWorkerExecutor = null;
+		}
+		if (workers == null) {
+			workers = new ArrayList<ForwardingService>(concurrency - 1);
+			for (int i = 1; i < concurrency; i++) {
+				ForwardingService worker =
+						new ForwardingService(messageProcessor, sender, synapseEnvironment, interval);
+				worker.isWorker = true;
+				worker.init(synapseEnvironment);
+				workers.add(worker);
+			}
+		}
+		String name = messageProcessor.getName();
+		workerExecutor = Executors.newFixedThreadPool(workers.size(),
+				new SynapseThreadFactory(new ThreadGroup("forwarding-" + name), "ForwardingService-" + name));
+		for (final ForwardingService worker : workers) {
+			worker.isWorkerStopped = false;
+			worker.isTerminated = false;
+			workerExecutor.execute(new Runnable() {
+				public void run() {
+					worker.forwardUntilTerminated();
+				}
+			});
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Started " + workers.size() + " workers of message processor [" + name + "]");
+		}
+	}
+
+	/**
+	 * Stops the workers forwarding messages in parallel with this service. A
+	 * worker stops once it is done with the message it is forwarding.
+	 */
+	private synchronized void stopWorkers() {
+		if (workerExecutor == null) {
+			return;
+		}
+		for (ForwardingService worker : workers) {
+			worker.isWorkerStopped = true;
+			worker.terminate();
+		}
+		workerExecutor.shutdown();
+		stoppedWorkerExecutor = workerExecutor;
+		workerExecutor = null;
+	}
+
+	/**
+	 * Forwards messages until the service is terminated. This is run by the
+	 * threads of the workers.
+	 */
+	private void forwardUntilTerminated() {
+		while (!isWorkerStopped && !messageProcessor.isDeactivated()) {
+			long delay = getPollingDelay(forwardNext());
+			if (delay > 0 && !isWorkerStopped) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					log.debug("Current Thread was interrupted while it is sleeping.");
+				}
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Exiting worker thread of message processor ["
+					+ this.messageProcessor.getName() + "]");
+		}
+	}
+
 	public void init(SynapseEnvironment se) throws SynapseException {
 		// Setting up the JMS consumer here.
 		try {
@@ -408,6 +588,35 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		// Setting the interval value.
 		interval = Long.parseLong((String) parametersMap.get(MessageProcessorConstants.INTERVAL));
 
+		if (parametersMap.get(ForwardingProcessorConstants.ADAPTIVE_POLLING) != null) {
+			isAdaptivePolling = Boolean.parseBoolean(
+					String.valueOf(parametersMap.get(ForwardingProcessorConstants.ADAPTIVE_POLLING)));
+		}
+
+		if (!isWorker && parametersMap.get(ForwardingProcessorConstants.CONCURRENCY) != null) {
+			concurrency = Integer.parseInt(
+					String.valueOf(parametersMap.get(ForwardingProcessorConstants.CONCURRENCY)).trim());
+			boolean isOrdered = parametersMap.get(ForwardingProcessorConstants.ORDERED) == null ||
+					Boolean.parseBoolean(String.valueOf(parametersMap.get(ForwardingProcessorConstants.ORDERED)));
+			if (concurrency > 1 && (isOrdered || isRunningUnderCronExpression())) {
+				log.warn("Message processor [" + messageProcessor.getName() + "] forwards one message at a " +
+						"time, as messages can only be forwarded in parallel when ordering is not required " +
+						"and no cron expression is used");
+				concurrency = 1;
+			}
+			if (concurrency > 1 && !hasCompetingConsumers(
+					se.getSynapseConfiguration().getMessageStore(messageProcessor.getMessageStoreName()))) {
+				log.warn("Message processor [" + messageProcessor.getName() + "] forwards one message at a " +
+						"time, as the consumers of message store [" + messageProcessor.getMessageStoreName() +
+						"] would receive the same messages");
+				concurrency = 1;
+			}
+		}
+
+		if (messageProcessor instanceof ScheduledMessageForwardingProcessor) {
+			statistics = ((ScheduledMessageForwardingProcessor) messageProcessor).getStatistics();
+		}
+
 		/*
 		 * Make sure to set the isInitialized flag to TRUE in order to avoid
 		 * re-initialization.
@@ -415,6 +624,19 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		initialized = true;
 	}
 
+	/**
+	 * Checks whether each message of the store is received by only one of its
+	 * consumers, which is required to forward messages in parallel. The
+	 * consumers of a JDBC store read the oldest rows without claiming them, so
+	 * they would all forward the same messages.
+	 *
+	 * @param store message store of the processor
+	 * @return <code>true</code> if the consumers of the store compete for messages
+	 */
+	static boolean hasCompetingConsumers(MessageStore store) {
+		return store instanceof JmsStore || store instanceof RabbitMQStore || store instanceof InMemoryStore;
+	}
+
 	private Set<Integer> getNonRetryStatusCodes() {
 		Set<Integer> nonRetryCodes = new HashSet<Integer>();
 		if (nonRetryStatusCodes != null) {
@@ -660,6 +882,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		messageConsumer.ack();
 		attemptCount = 0;
 		isSuccessful = true;
+		statistics.messageForwarded();
 
 		if (log.isDebugEnabled()) {
 			log.debug("Successfully forwarded the message to endpoint ["
@@ -813,6 +1036,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	public boolean terminate() {
 		try {
 			isTerminated = true;
+			stopWorkers();
 			// Thread.currentThread().interrupt();
 
 			if (log.isDebugEnabled()) {
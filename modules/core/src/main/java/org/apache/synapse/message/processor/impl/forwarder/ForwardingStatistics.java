@@ -0,0 +1,89 @@
+/**
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the messages a forwarding processor is forwarding and has forwarded, across all the
+ * services forwarding messages for it.
+ */
+class ForwardingStatistics {
+
+    /**
+     * Period over which the throughput is measured
+     */
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+
+    private final AtomicLong forwarded = new AtomicLong(0);
+
+    // throughput of the last complete window, guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowStartCount = 0;
+    private double throughput = 0;
+
+    /**
+     * Called when a message has been received from the store and is about to be forwarded
+     */
+    void dispatchStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Called when the service is done with a message, whether it was forwarded or not
+     */
+    void dispatchCompleted() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Called when a message has been forwarded successfully
+     */
+    void messageForwarded() {
+        forwarded.incrementAndGet();
+    }
+
+    int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    long getForwardedCount() {
+        return forwarded.get();
+    }
+
+    /**
+     * @return messages forwarded per second, measured over the last period of at least a second
+     */
+    synchronized double getThroughput() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            long count = forwarded.get();
+            // the window only ends when read, so it may be longer than a second
+            throughput = (count - windowStartCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            windowStart = now;
+            windowStartCount = count;
+        }
+        return throughput;
+    }
+}
@@ -67,4 +67,20 @@ public class MessageForwardingProcessorView implements MessageForwardingProcesso
         assert processor != null;
         processor.deactivate();
     }
+
+    public int getConcurrency() {
+        return processor.getConcurrency();
+    }
+
+    public int getInFlightCount() {
+        return processor.getStatistics().getInFlightCount();
+    }
+
+    public long getForwardedCount() {
+        return processor.getStatistics().getForwardedCount();
+    }
+
+    public double getThroughput() {
+        return processor.getStatistics().getThroughput();
+    }
 }
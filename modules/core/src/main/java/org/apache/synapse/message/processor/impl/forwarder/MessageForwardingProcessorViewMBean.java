@@ -86,4 +86,32 @@ public interface MessageForwardingProcessorViewMBean {
      * This will stop the processing of Messages.
      */
     public void deactivate();
+
+    /**
+     * Get the number of messages the Message Processor forwards in parallel
+     *
+     * @return maximum number of messages in flight
+     */
+    public int getConcurrency();
+
+    /**
+     * Get the number of messages being forwarded at the moment
+     *
+     * @return number of messages received from the store and not yet forwarded or dropped
+     */
+    public int getInFlightCount();
+
+    /**
+     * Get the number of messages forwarded successfully since the Message Processor was created
+     *
+     * @return number of messages forwarded
+     */
+    public long getForwardedCount();
+
+    /**
+     * Get the rate at which messages are being forwarded
+     *
+     * @return messages forwarded per second, measured over the last second or more
+     */
+    public double getThroughput();
 }
@@ -30,6 +30,11 @@ import org.apache.synapse.task.Task;
 public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcessor {
     private MessageForwardingProcessorView view;
 
+    /**
+     * Counts the messages forwarded by all the services of this processor
+     */
+    private final ForwardingStatistics statistics = new ForwardingStatistics();
+
 	@Override
 	public void init(SynapseEnvironment se) {
 		parameters.put(ForwardingProcessorConstants.THROTTLE,
@@ -71,6 +76,30 @@ public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcess
     public MessageForwardingProcessorView getView() {
         return view;
     }
+
+    ForwardingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return number of messages the processor forwards in parallel
+     */
+    public int getConcurrency() {
+        if (parameters == null) {
+            return 1;
+        }
+        Object concurrency = parameters.get(ForwardingProcessorConstants.CONCURRENCY);
+        Object ordered = parameters.get(ForwardingProcessorConstants.ORDERED);
+        if (concurrency == null || ordered == null || Boolean.parseBoolean(ordered.toString()) ||
+                isThrottling(cronExpression)) {
+            return 1;
+        }
+        if (synapseEnvironment != null && !ForwardingService.hasCompetingConsumers(
+                synapseEnvironment.getSynapseConfiguration().getMessageStore(messageStore))) {
+            return 1;
+        }
+        return Math.max(Integer.parseInt(concurrency.toString().trim()), 1);
+    }
     
 	@Override
 	protected Task getTask() {
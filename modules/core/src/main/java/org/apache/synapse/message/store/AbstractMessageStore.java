@@ -106,7 +106,6 @@ public abstract class AbstractMessageStore implements MessageStore {
 
     private static final long maxEnDequeuable = Long.MAX_VALUE;
 
-    private final Object messageCountLock = new Object();
 
     /** Name of the artifact container from which the message store deployed */
     private String artifactContainerName;
@@ -254,24 +253,17 @@ public abstract class AbstractMessageStore implements MessageStore {
 
 
     public void enqueued() {
-        synchronized (messageCountLock) {
-            enqueued.compareAndSet(maxEnDequeuable, 0);
-            enqueued.incrementAndGet();
-        }
+        enqueued.compareAndSet(maxEnDequeuable, 0);
+        enqueued.incrementAndGet();
     }
 
     public void dequeued() {
-        synchronized (messageCountLock) {
-            dequeued.compareAndSet(maxEnDequeuable, 0);
-            dequeued.incrementAndGet();
-        }
+        dequeued.compareAndSet(maxEnDequeuable, 0);
+        dequeued.incrementAndGet();
     }
 
     public long difference() {
-        synchronized (messageCountLock) {
-            long diff = enqueued.get() - dequeued.get();
-            return diff;
-        }
+        return enqueued.get() - dequeued.get();
     }
 
     /**
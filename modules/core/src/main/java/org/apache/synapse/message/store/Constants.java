@@ -34,5 +34,14 @@ public final class Constants {
     public static final String DEPRECATED_INMEMORY_CLASS = "org.apache.synapse.message.store.InMemoryMessageStore";
     public static final String DEPRECATED_JMS_CLASS = "org.wso2.carbon.message.store.persistence.jms.JMSMessageStore";
 
+    /** Parameter naming the codec persistent message stores write their messages with */
+    public static final String MESSAGE_CODEC = "store.message.codec";
+
+    /** Parameter bounding the number of messages an in memory store holds */
+    public static final String INMEMORY_CAPACITY = "store.inmemory.capacity";
+
+    /** Parameter giving the milliseconds a producer waits for room in a full in memory store */
+    public static final String INMEMORY_PRODUCER_TIMEOUT = "store.inmemory.producer.timeout";
+
 }
 
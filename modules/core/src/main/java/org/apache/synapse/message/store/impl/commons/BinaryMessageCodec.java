@@ -0,0 +1,521 @@
+/**
+ *  Copyright (c) 2005-2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stores messages in a compact binary form. Unlike Java serialization the format does not carry
+ * any class descriptors, so it stays readable across releases as long as the version it is
+ * written with is known.
+ * <p>
+ * A message starts with the {@link #MAGIC} bytes and the format version, followed by the fields
+ * of the message in a fixed order. Numbers are written as variable length integers, strings and
+ * byte arrays are prefixed with their length, and the SOAP envelope and JSON payload are written
+ * as raw bytes. A property name is written only the first time it occurs in a message and
+ * referred to by its index in the names seen so far afterwards.
+ * <p>
+ * Messages written with Java serialization are decoded as well, so that the messages stored
+ * before upgrading can still be read.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    /**
+     * First bytes of every message written by this codec
+     */
+    static final byte[] MAGIC = {'S', 'M'};
+
+    /**
+     * Version of the format written by this codec
+     */
+    static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // flags of a message
+    private static final int FLAG_AXIS2_MESSAGE = 1;
+    private static final int FLAG_SYNAPSE_MESSAGE = 1 << 1;
+    private static final int FLAG_RESPONSE = 1 << 2;
+    private static final int FLAG_FAULT_RESPONSE = 1 << 3;
+    private static final int FLAG_MTOM = 1 << 4;
+    private static final int FLAG_SWA = 1 << 5;
+    private static final int FLAG_POX = 1 << 6;
+    private static final int FLAG_GET = 1 << 7;
+
+    // types of the values of properties
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_FALSE = 3;
+    private static final int TYPE_INTEGER = 4;
+    private static final int TYPE_LONG = 5;
+    private static final int TYPE_DOUBLE = 6;
+    private static final int TYPE_CHARACTER = 7;
+    private static final int TYPE_BYTES = 8;
+    private static final int TYPE_MAP = 9;
+    private static final int TYPE_SORTED_MAP = 10;
+    private static final int TYPE_SERIALIZED = 11;
+
+    public byte[] encode(StorableMessage message) throws IOException {
+        Output out = new Output();
+        out.writeRaw(MAGIC);
+        out.writeVarInt(VERSION);
+
+        Axis2Message axis2Msg = message.getAxis2message();
+        SynapseMessage synMsg = message.getSynapseMessage();
+        int flags = 0;
+        if (axis2Msg != null) {
+            flags |= FLAG_AXIS2_MESSAGE;
+            flags |= axis2Msg.isDoingMTOM() ? FLAG_MTOM : 0;
+            flags |= axis2Msg.isDoingSWA() ? FLAG_SWA : 0;
+            flags |= axis2Msg.isDoingPOX() ? FLAG_POX : 0;
+            flags |= axis2Msg.isDoingGET() ? FLAG_GET : 0;
+        }
+        if (synMsg != null) {
+            flags |= FLAG_SYNAPSE_MESSAGE;
+            flags |= synMsg.isResponse() ? FLAG_RESPONSE : 0;
+            flags |= synMsg.isFaultResponse() ? FLAG_FAULT_RESPONSE : 0;
+        }
+        out.writeVarInt(flags);
+        out.writeSignedVarInt(message.getPriority());
+
+        if (axis2Msg != null) {
+            out.writeString(axis2Msg.getMessageID());
+            out.writeString(axis2Msg.getOperationAction());
+            QName operationName = axis2Msg.getOperationName();
+            if (operationName == null) {
+                out.writeString(null);
+            } else {
+                out.writeString(operationName.getLocalPart());
+                out.writeString(operationName.getNamespaceURI());
+                out.writeString(operationName.getPrefix());
+            }
+            out.writeString(axis2Msg.getAction());
+            out.writeString(axis2Msg.getService());
+            out.writeString(axis2Msg.getRelatesToMessageId());
+            out.writeString(axis2Msg.getReplyToAddress());
+            out.writeString(axis2Msg.getFaultToAddress());
+            out.writeString(axis2Msg.getFromAddress());
+            out.writeString(axis2Msg.getToAddress());
+            out.writeString(axis2Msg.getTransportInName());
+            out.writeString(axis2Msg.getTransportOutName());
+            out.writeSignedVarInt(axis2Msg.getFLOW());
+            out.writeString(axis2Msg.getSoapEnvelope());
+            out.writeByteArray(axis2Msg.getJsonStream());
+            out.writeMap(axis2Msg.getProperties());
+        }
+
+        if (synMsg != null) {
+            out.writeSignedVarInt(synMsg.getTracingState());
+            out.writeSignedVarInt(synMsg.getMessageFlowTracingState());
+            List<String> localEntries = synMsg.getLocalEntries();
+            out.writeVarInt(localEntries.size());
+            for (String localEntry : localEntries) {
+                out.writeString(localEntry);
+            }
+            Map<String, String> properties = synMsg.getProperties();
+            out.writeVarInt(properties.size());
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                out.writeName(property.getKey());
+                out.writeString(property.getValue());
+            }
+            Map<String, byte[]> propertyObjects = synMsg.getPropertyObjects();
+            out.writeVarInt(propertyObjects.size());
+            for (Map.Entry<String, byte[]> property : propertyObjects.entrySet()) {
+                out.writeName(property.getKey());
+                out.writeByteArray(property.getValue());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public StorableMessage decode(byte[] bytes) throws IOException {
+        if (JavaMessageCodec.isJavaSerialized(bytes)) {
+            return MessageCodecs.JAVA.decode(bytes);
+        }
+        if (bytes.length < MAGIC.length ||
+                !Arrays.equals(MAGIC, Arrays.copyOf(bytes, MAGIC.length))) {
+            throw new IOException("Unknown format of the stored message");
+        }
+        Input in = new Input(bytes, MAGIC.length);
+        int version = in.readVarInt();
+        if (version > VERSION) {
+            throw new IOException("Unsupported version of the stored message : " + version);
+        }
+
+        StorableMessage message = new StorableMessage();
+        int flags = in.readVarInt();
+        message.setPriority(in.readSignedVarInt());
+
+        if ((flags & FLAG_AXIS2_MESSAGE) != 0) {
+            Axis2Message axis2Msg = new Axis2Message();
+            axis2Msg.setDoingMTOM((flags & FLAG_MTOM) != 0);
+            axis2Msg.setDoingSWA((flags & FLAG_SWA) != 0);
+            axis2Msg.setDoingPOX((flags & FLAG_POX) != 0);
+            axis2Msg.setDoingGET((flags & FLAG_GET) != 0);
+            axis2Msg.setMessageID(in.readString());
+            axis2Msg.setOperationAction(in.readString());
+            String operationName = in.readString();
+            if (operationName != null) {
+                axis2Msg.setOperationName(
+                        new QName(in.readString(), operationName, in.readString()));
+            }
+            axis2Msg.setAction(in.readString());
+            axis2Msg.setService(in.readString());
+            axis2Msg.setRelatesToMessageId(in.readString());
+            axis2Msg.setReplyToAddress(in.readString());
+            axis2Msg.setFaultToAddress(in.readString());
+            axis2Msg.setFromAddress(in.readString());
+            axis2Msg.setToAddress(in.readString());
+            axis2Msg.setTransportInName(in.readString());
+            axis2Msg.setTransportOutName(in.readString());
+            axis2Msg.setFLOW(in.readSignedVarInt());
+            axis2Msg.setSoapEnvelope(in.readString());
+            axis2Msg.setJsonStream(in.readByteArray());
+            Map<String, Object> properties = in.readMap(false);
+            if (properties != null) {
+                axis2Msg.getProperties().putAll(properties);
+            }
+            message.setAxis2message(axis2Msg);
+        }
+
+        if ((flags & FLAG_SYNAPSE_MESSAGE) != 0) {
+            SynapseMessage synMsg = new SynapseMessage();
+            synMsg.setResponse((flags & FLAG_RESPONSE) != 0);
+            synMsg.setFaultResponse((flags & FLAG_FAULT_RESPONSE) != 0);
+            synMsg.setTracingState(in.readSignedVarInt());
+            synMsg.setMessageFlowTracingState(in.readSignedVarInt());
+            for (int i = in.readSize(); i > 0; i--) {
+                synMsg.addLocalEntry(in.readString());
+            }
+            for (int i = in.readSize(); i > 0; i--) {
+                synMsg.addProperty(in.readName(), in.readString());
+            }
+            for (int i = in.readSize(); i > 0; i--) {
+                synMsg.addPropertyObject(in.readName(), in.readByteArray());
+            }
+            message.setSynapseMessage(synMsg);
+        }
+        return message;
+    }
+
+    /**
+     * Buffer the message is encoded into
+     */
+    private static final class Output extends ByteArrayOutputStream {
+
+        /**
+         * Indexes of the property names written so far
+         */
+        private final Map<String, Integer> names = new HashMap<String, Integer>();
+
+        private Output() {
+            super(512);
+        }
+
+        private void writeRaw(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * Write a byte array prefixed with its length plus one, so that null can be written as 0
+         */
+        private void writeByteArray(byte[] bytes) {
+            if (bytes == null) {
+                writeVarInt(0);
+            } else {
+                writeVarInt(bytes.length + 1);
+                writeRaw(bytes);
+            }
+        }
+
+        private void writeString(String value) {
+            writeByteArray(value == null ? null : value.getBytes(UTF_8));
+        }
+
+        /**
+         * Write a property name, as 0 followed by the name the first time it is written and as
+         * its index plus one afterwards
+         */
+        private void writeName(String name) {
+            Integer index = names.get(name);
+            if (index != null) {
+                writeVarInt(index + 1);
+            } else {
+                writeVarInt(0);
+                writeString(name);
+                names.put(name, names.size());
+            }
+        }
+
+        private void writeMap(Map<?, ?> map) throws IOException {
+            writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeName(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                write(TYPE_NULL);
+            } else if (value instanceof String) {
+                write(TYPE_STRING);
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                write((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            } else if (value instanceof Integer) {
+                write(TYPE_INTEGER);
+                writeSignedVarInt((Integer) value);
+            } else if (value instanceof Long) {
+                long l = (Long) value;
+                write(TYPE_LONG);
+                writeVarLong((l << 1) ^ (l >> 63));
+            } else if (value instanceof Double) {
+                write(TYPE_DOUBLE);
+                long bits = Double.doubleToLongBits((Double) value);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    write((int) (bits >>> shift));
+                }
+            } else if (value instanceof Character) {
+                write(TYPE_CHARACTER);
+                writeVarInt((Character) value);
+            } else if (value instanceof byte[]) {
+                write(TYPE_BYTES);
+                writeByteArray((byte[]) value);
+            } else if (value instanceof SortedMap && ((SortedMap) value).comparator() == null) {
+                write(TYPE_SORTED_MAP);
+                writeMap((Map) value);
+            } else if (value instanceof Map) {
+                write(TYPE_MAP);
+                writeMap((Map) value);
+            } else if (value instanceof Serializable) {
+                write(TYPE_SERIALIZED);
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                ObjectOutputStream oos = new ObjectOutputStream(bos);
+                oos.writeObject(value);
+                oos.close();
+                writeByteArray(bos.toByteArray());
+            } else {
+                throw new IOException("Cannot store a property of type " +
+                        value.getClass().getName());
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of an encoded message
+     */
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        /**
+         * Property names read so far, in the order they were written
+         */
+        private final List<String> names = new ArrayList<String>();
+
+        private Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private int read() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Stored message is truncated");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length integer in the stored message");
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length integer in the stored message");
+        }
+
+        private int readSignedVarInt() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Read the number of elements of a collection, which cannot exceed the remaining bytes
+         */
+        private int readSize() throws IOException {
+            int size = readVarInt();
+            if (size < 0 || size > bytes.length - position) {
+                throw new IOException("Invalid size in the stored message : " + size);
+            }
+            return size;
+        }
+
+        private byte[] readByteArray() throws IOException {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length - position) {
+                throw new EOFException("Stored message is truncated");
+            }
+            byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length - position) {
+                throw new EOFException("Stored message is truncated");
+            }
+            String value = new String(bytes, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        private String readName() throws IOException {
+            int index = readVarInt();
+            if (index == 0) {
+                String name = readString();
+                names.add(name);
+                return name;
+            }
+            if (index > names.size()) {
+                throw new IOException("Invalid property name reference in the stored message");
+            }
+            return names.get(index - 1);
+        }
+
+        private Map<String, Object> readMap(boolean sorted) throws IOException {
+            int size = readSize();
+            Map<String, Object> map = sorted ? new TreeMap<String, Object>() :
+                    new HashMap<String, Object>(Math.max((int) (size / .75f) + 1, 16));
+            for (int i = 0; i < size; i++) {
+                String name = readName();
+                map.put(name, readValue());
+            }
+            return map;
+        }
+
+        private Object readValue() throws IOException {
+            int type = read();
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_INTEGER:
+                    return readSignedVarInt();
+                case TYPE_LONG:
+                    long l = readVarLong();
+                    return (l >>> 1) ^ -(l & 1);
+                case TYPE_DOUBLE:
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | read();
+                    }
+                    return Double.longBitsToDouble(bits);
+                case TYPE_CHARACTER:
+                    return (char) readVarInt();
+                case TYPE_BYTES:
+                    return readByteArray();
+                case TYPE_MAP:
+                    return readMap(false);
+                case TYPE_SORTED_MAP:
+                    return readMap(true);
+                case TYPE_SERIALIZED:
+                    byte[] serialized = readByteArray();
+                    if (serialized == null) {
+                        return null;
+                    }
+                    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized));
+                    try {
+                        return ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("Could not find the class of a stored property", e);
+                    } finally {
+                        ois.close();
+                    }
+                default:
+                    throw new IOException("Unknown type of a stored property : " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *  Copyright (c) 2005-2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Stores messages with Java serialization, which is how the message stores wrote them before
+ * {@link BinaryMessageCodec} was introduced. This is only needed while nodes of an older release
+ * still read from the same store.
+ */
+public class JavaMessageCodec implements MessageCodec {
+
+    /**
+     * First two bytes of every Java serialization stream
+     */
+    private static final byte STREAM_MAGIC_0 = (byte) 0xAC;
+    private static final byte STREAM_MAGIC_1 = (byte) 0xED;
+
+    public byte[] encode(StorableMessage message) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(message);
+        oos.close();
+        return bos.toByteArray();
+    }
+
+    public StorableMessage decode(byte[] bytes) throws IOException {
+        if (!isJavaSerialized(bytes)) {
+            return MessageCodecs.BINARY.decode(bytes);
+        }
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            Object message = ois.readObject();
+            if (!(message instanceof StorableMessage)) {
+                throw new IOException("Stored object is not a message : " +
+                        (message == null ? null : message.getClass().getName()));
+            }
+            return (StorableMessage) message;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not find the class of the stored object", e);
+        } finally {
+            ois.close();
+        }
+    }
+
+    /**
+     * @param bytes encoded message
+     * @return whether the message was written with Java serialization
+     */
+    static boolean isJavaSerialized(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == STREAM_MAGIC_0 && bytes[1] == STREAM_MAGIC_1;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ *  Copyright (c) 2005-2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import java.io.IOException;
+
+/**
+ * Converts a {@link StorableMessage} to the bytes kept by a persistent message store and back.
+ * Implementations must be thread safe, as a single instance is shared by all the producers and
+ * consumers of a store.
+ *
+ * @see MessageCodecs
+ */
+public interface MessageCodec {
+
+    /**
+     * Encode the given message
+     *
+     * @param message message to be stored
+     * @return encoded form of the message
+     * @throws IOException if the message cannot be encoded
+     */
+    byte[] encode(StorableMessage message) throws IOException;
+
+    /**
+     * Decode a message read from the store. Implementations should accept the messages encoded
+     * by the other codecs as well, so that the codec of a store can be changed while it still
+     * holds messages.
+     *
+     * @param bytes encoded form of the message
+     * @return the decoded message
+     * @throws IOException if the bytes do not hold a message known to the codec
+     */
+    StorableMessage decode(byte[] bytes) throws IOException;
+}
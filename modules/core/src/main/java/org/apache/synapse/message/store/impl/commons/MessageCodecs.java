@@ -0,0 +1,68 @@
+/**
+ *  Copyright (c) 2005-2015, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.store.Constants;
+
+import java.util.Map;
+
+/**
+ * Looks up the {@link MessageCodec} of a message store from its parameters
+ */
+public final class MessageCodecs {
+
+    /** Name of the compact binary codec, which is used by default */
+    public static final String BINARY_CODEC = "binary";
+
+    /** Name of the codec using Java serialization */
+    public static final String JAVA_CODEC = "java";
+
+    static final MessageCodec BINARY = new BinaryMessageCodec();
+
+    static final MessageCodec JAVA = new JavaMessageCodec();
+
+    private MessageCodecs() {}
+
+    /**
+     * Get the codec named by the {@link Constants#MESSAGE_CODEC} parameter, which is either
+     * one of the names of the built in codecs or the name of a class implementing
+     * {@link MessageCodec}.
+     *
+     * @param parameters parameters of the message store, may be null
+     * @return the codec of the message store
+     */
+    public static MessageCodec getCodec(Map<String, Object> parameters) {
+        Object name = parameters == null ? null : parameters.get(Constants.MESSAGE_CODEC);
+        if (name == null || BINARY_CODEC.equalsIgnoreCase(name.toString().trim())) {
+            return BINARY;
+        }
+        String codec = name.toString().trim();
+        if (JAVA_CODEC.equalsIgnoreCase(codec)) {
+            return JAVA;
+        }
+        try {
+            Class<?> clazz = Class.forName(codec, true, MessageCodecs.class.getClassLoader());
+            return (MessageCodec) clazz.newInstance();
+        } catch (ClassNotFoundException | InstantiationException |
+                IllegalAccessException | ClassCastException e) {
+            throw new SynapseException("Cannot create the message codec : " + codec, e);
+        }
+    }
+}
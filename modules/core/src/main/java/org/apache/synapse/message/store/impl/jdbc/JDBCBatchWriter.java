@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2014, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ * <p>
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.message.store.impl.jdbc;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.store.impl.jdbc.util.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the statements of concurrent producers to the database in batches. A producer which
+ * finds no batch being written becomes the writer of the next batch, and writes the statements
+ * queued until then by all producers in a single transaction. Each producer returns once the
+ * batch holding its statement has been committed.
+ */
+abstract class JDBCBatchWriter {
+
+    /**
+     * Logger for the class
+     */
+    private static final Log logger = LogFactory.getLog(JDBCBatchWriter.class.getName());
+
+    /**
+     * Maximum number of statements written in a single transaction
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Time in milliseconds the writer of a batch waits for more statements before writing it
+     */
+    private final long batchWindowMillis;
+
+    /**
+     * Statements waiting to be written
+     */
+    private final Queue<PendingStatement> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queueSize = new AtomicInteger(0);
+
+    /**
+     * Whether a batch is being written, guarded by this
+     */
+    private boolean writing = false;
+
+    /**
+     * @param maxBatchSize      maximum number of statements written in a single transaction
+     * @param batchWindowMillis time to wait for more statements before writing a batch, 0 to
+     *                          only batch the statements queued while the previous batch was written
+     */
+    JDBCBatchWriter(int maxBatchSize, long batchWindowMillis) {
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.batchWindowMillis = Math.max(batchWindowMillis, 0);
+    }
+
+    /**
+     * Write the given statements in a single transaction
+     *
+     * @param statements statements to be written
+     * @throws SynapseException if the transaction failed
+     */
+    protected abstract void writeBatch(List<Statement> statements) throws SynapseException;
+
+    /**
+     * Write the given statement in a transaction of its own. This is used to find out which
+     * statements of a failed batch can be written
+     *
+     * @param statement statement to be written
+     * @throws SynapseException if the transaction failed
+     */
+    protected abstract void writeStatement(Statement statement) throws SynapseException;
+
+    /**
+     * Write the given statement along with the statements of other producers, and wait until it
+     * has been committed
+     *
+     * @param statement statement to be written
+     * @throws SynapseException if the statement could not be written
+     */
+    void write(Statement statement) throws SynapseException {
+        PendingStatement pending = new PendingStatement(statement);
+        queue.add(pending);
+        queueSize.incrementAndGet();
+
+        boolean interrupted = false;
+        while (true) {
+            synchronized (this) {
+                while (!pending.done && writing) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // the statement is queued already, so wait until it has been written
+                        interrupted = true;
+                    }
+                }
+                if (pending.done) {
+                    break;
+                }
+                writing = true;
+            }
+            try {
+                writeQueuedStatements();
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    notifyAll();
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.error != null) {
+            throw pending.error;
+        }
+    }
+
+    /**
+     * Write a batch of the queued statements, called only by the current writer
+     */
+    private void writeQueuedStatements() {
+        if (batchWindowMillis > 0 && queueSize.get() < maxBatchSize) {
+            try {
+                Thread.sleep(batchWindowMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<PendingStatement> batch = new ArrayList<>();
+        List<Statement> statements = new ArrayList<>();
+        PendingStatement pending;
+        while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(pending);
+            statements.add(pending.statement);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // statements at the start of the batch of which the outcome is known
+        int resolved = 0;
+        Throwable failure = null;
+        try {
+            try {
+                writeBatch(statements);
+                resolved = batch.size();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Wrote a batch of " + statements.size() + " statements");
+                }
+            } catch (SynapseException e) {
+                if (batch.size() == 1) {
+                    batch.get(0).error = e;
+                    resolved = 1;
+                } else {
+                    logger.warn("Writing a batch of " + batch.size() + " statements failed, " +
+                            "writing them individually", e);
+                    for (PendingStatement failed : batch) {
+                        try {
+                            writeStatement(failed.statement);
+                        } catch (SynapseException error) {
+                            failed.error = error;
+                        }
+                        resolved++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+            logger.error("Unexpected error writing a batch of " + batch.size() + " statements", e);
+        } catch (Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            // the producers of the statements polled from the queue wait until they are done
+            for (int i = 0; i < batch.size(); i++) {
+                PendingStatement written = batch.get(i);
+                if (i >= resolved) {
+                    written.error = new SynapseException("Error writing the statement", failure);
+                }
+                written.done = true;
+            }
+        }
+    }
+
+    /**
+     * A statement queued by a producer
+     */
+    private static final class PendingStatement {
+
+        private final Statement statement;
+
+        private volatile boolean done = false;
+
+        private volatile SynapseException error = null;
+
+        private PendingStatement(Statement statement) {
+            this.statement = statement;
+        }
+    }
+}
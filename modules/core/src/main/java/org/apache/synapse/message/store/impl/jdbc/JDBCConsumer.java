@@ -23,8 +23,16 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.message.MessageConsumer;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
 /**
- * JDBC Store Consumer
+ * JDBC Store Consumer. Unless the store requires messages to be taken one by one, the consumer
+ * reads messages ahead in batches, paging through the table on the index of the messages, and
+ * deletes acknowledged messages in batches. A message is only deleted once it is acknowledged,
+ * so a message read ahead is delivered again by the next consumer if this one goes away.
  */
 public class JDBCConsumer implements MessageConsumer {
 
@@ -48,6 +56,26 @@ public class JDBCConsumer implements MessageConsumer {
      */
     private String currentMessageId;
 
+    /**
+     * Messages read ahead from the store, in the order they were stored
+     */
+    private final LinkedList<Map> readAhead = new LinkedList<>();
+
+    /**
+     * Indexes of the acknowledged messages which are yet to be deleted
+     */
+    private final List<Long> acknowledged = new ArrayList<>();
+
+    /**
+     * Index of the last acknowledged message, the next batch is read from the messages after it
+     */
+    private long lastIndexId = -1;
+
+    /**
+     * Purge count of the store when the messages were read ahead
+     */
+    private long purgeCount;
+
     /**
      * Initialize consumer
      *
@@ -64,6 +92,9 @@ public class JDBCConsumer implements MessageConsumer {
      */
     @Override
     public MessageContext receive() {
+        if (store.isReadAheadSupported()) {
+            return receiveReadAhead();
+        }
         // Message will get peeked from the table
         MessageContext msg = null;
         try {
@@ -84,6 +115,9 @@ public class JDBCConsumer implements MessageConsumer {
      */
     @Override
     public boolean ack() {
+        if (store.isReadAheadSupported()) {
+            return ackReadAhead();
+        }
         // Message will be removed at this point
         MessageContext msg = store.remove(currentMessageId);
         if (msg != null) {
@@ -102,9 +136,91 @@ public class JDBCConsumer implements MessageConsumer {
     @Override
     public boolean cleanup() {
         currentMessageId = null;
+        readAhead.clear();
+        try {
+            removeAcknowledged();
+        } catch (SynapseException e) {
+            logger.error(getId() + " could not remove acknowledged messages", e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the first message read ahead, reading the next batch of messages when all messages
+     * read ahead have been acknowledged
+     *
+     * @return the first message which is not acknowledged yet, or null if the store is empty
+     */
+    private MessageContext receiveReadAhead() {
+        try {
+            if (purgeCount != store.getPurgeCount()) {
+                // messages may have been removed from the store since they were read ahead
+                readAhead.clear();
+            }
+            if (readAhead.isEmpty()) {
+                // acknowledged messages are deleted first, so that they are not read again
+                removeAcknowledged();
+                purgeCount = store.getPurgeCount();
+                int batchSize = store.getConsumerBatchSize();
+                List<Map> rows = store.getMessagesAfter(lastIndexId, batchSize);
+                readAhead.addAll(rows);
+                if (rows.size() < batchSize) {
+                    // read from the first message next time, so that messages committed late by
+                    // concurrent producers are not skipped
+                    lastIndexId = -1;
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug(getId() + " read ahead " + rows.size() + " messages");
+                }
+            }
+        } catch (SynapseException e) {
+            logger.error("Can't receive message ", e);
+            return null;
+        }
+        Map row = readAhead.peek();
+        if (row == null) {
+            return null;
+        }
+        MessageContext msg = (MessageContext) row.get(JDBCMessageStore.MESSAGE_COLUMN_NAME);
+        currentMessageId = msg.getMessageID();
+        return msg;
+    }
+
+    /**
+     * Acknowledge the first message read ahead, and delete the acknowledged messages once a
+     * batch of them is complete
+     *
+     * @return Success of removing
+     */
+    private boolean ackReadAhead() {
+        Map row = readAhead.poll();
+        if (row == null) {
+            return false;
+        }
+        lastIndexId = (Long) row.get(JDBCMessageStore.INDEX_COLUMN_NAME);
+        acknowledged.add(lastIndexId);
+        store.dequeued();
+        if (acknowledged.size() >= store.getConsumerAckBatchSize()) {
+            return removeAcknowledged();
+        }
         return true;
     }
 
+    /**
+     * Delete the acknowledged messages from the store
+     *
+     * @return Success of removing
+     */
+    private boolean removeAcknowledged() {
+        if (acknowledged.isEmpty()) {
+            return true;
+        }
+        boolean removed = store.removeMessages(acknowledged);
+        acknowledged.clear();
+        return removed;
+    }
+
 
     /**
      * Check JDBC consumer is alive
@@ -28,15 +28,15 @@ import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.impl.commons.MessageCodec;
+import org.apache.synapse.message.store.impl.commons.MessageCodecs;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 import org.apache.synapse.message.store.impl.jdbc.util.JDBCConfiguration;
 import org.apache.synapse.message.store.impl.jdbc.util.Statement;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -71,6 +72,33 @@ public class JDBCMessageStore extends AbstractMessageStore {
     private final ReentrantLock cleanUpOfferLock = new ReentrantLock();
     private final AtomicBoolean cleaningFlag = new AtomicBoolean(false);
     protected static final String MESSAGE_COLUMN_NAME = "message";
+    protected static final String INDEX_COLUMN_NAME = "indexId";
+
+    /**
+     * Writes the messages of concurrent producers in batches
+     */
+    private JDBCBatchWriter batchWriter;
+
+    /**
+     * Number of messages a consumer reads ahead from the table
+     */
+    private int consumerBatchSize = JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_BATCH_SIZE;
+
+    /**
+     * Number of acknowledged messages a consumer deletes from the table at once
+     */
+    private int consumerAckBatchSize = JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_ACK_BATCH_SIZE;
+
+    /**
+     * Incremented whenever messages are removed other than by acknowledging them, so that
+     * consumers can drop the messages they have read ahead
+     */
+    private final AtomicLong purgeCount = new AtomicLong(0);
+
+    /**
+     * Converts the messages to the bytes stored in the table and back
+     */
+    private MessageCodec messageCodec = MessageCodecs.getCodec(null);
 
     /**
      * Initializes the JDBC Message Store
@@ -89,6 +117,8 @@ public class JDBCMessageStore extends AbstractMessageStore {
         }
         jdbcConfiguration = new JDBCConfiguration();
         jdbcConfiguration.buildDataSource(parameters);
+        initBatchParameters(parameters);
+        messageCodec = MessageCodecs.getCodec(parameters);
 
 //        JDBCMessageConverter.setSynapseEnvironment(synapseEnvironment);
     }
@@ -97,6 +127,59 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return jdbcConfiguration;
     }
 
+    /**
+     * Reads the batching parameters and creates the writer batching the messages of producers
+     *
+     * @param parameters - parameters given in configuration
+     */
+    private void initBatchParameters(Map<String, Object> parameters) {
+        int producerBatchSize = getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_PRODUCER_BATCH_SIZE,
+                JDBCMessageStoreConstants.JDBC_DEFAULT_PRODUCER_BATCH_SIZE);
+        long producerBatchWindow = getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_PRODUCER_BATCH_WINDOW,
+                (int) JDBCMessageStoreConstants.JDBC_DEFAULT_PRODUCER_BATCH_WINDOW);
+        consumerBatchSize = Math.max(getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_CONSUMER_BATCH_SIZE,
+                JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_BATCH_SIZE), 1);
+        consumerAckBatchSize = Math.max(getIntParameter(parameters,
+                JDBCMessageStoreConstants.JDBC_CONSUMER_ACK_BATCH_SIZE,
+                JDBCMessageStoreConstants.JDBC_DEFAULT_CONSUMER_ACK_BATCH_SIZE), 1);
+
+        batchWriter = new JDBCBatchWriter(producerBatchSize, producerBatchWindow) {
+            @Override
+            protected void writeBatch(List<Statement> statements) throws SynapseException {
+                processBatchedStatements(statements);
+            }
+
+            @Override
+            protected void writeStatement(Statement statement) throws SynapseException {
+                List<Statement> statements = new ArrayList<>();
+                statements.add(statement);
+                processNonResultingStatement(statements);
+            }
+        };
+        if (logger.isDebugEnabled()) {
+            logger.debug(getNameString() + " batches up to " + producerBatchSize + " stored messages, "
+                    + "reads ahead " + consumerBatchSize + " messages and deletes acknowledged messages in "
+                    + "batches of " + consumerAckBatchSize);
+        }
+    }
+
+    private int getIntParameter(Map<String, Object> parameters, String name, int defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn(getNameString() + " invalid value " + value + " for parameter " + name
+                    + ", using the default value " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * @see org.apache.synapse.message.store.MessageStore#getProducer()
      */
@@ -135,6 +218,8 @@ public class JDBCMessageStore extends AbstractMessageStore {
         // Rebuild utils after setting new parameters
         if (jdbcConfiguration != null) {
             jdbcConfiguration.buildDataSource(parameters);
+            initBatchParameters(this.parameters);
+            messageCodec = MessageCodecs.getCodec(this.parameters);
         }
     }
 
@@ -167,6 +252,17 @@ public class JDBCMessageStore extends AbstractMessageStore {
      * @return the rows which contains the column data wrapped inside a map.
      */
     protected List<Map> getProcessedRows(Statement statement) {
+        return getProcessedRows(statement, 0);
+    }
+
+    /**
+     * Will return the list of processed message rows, reading at most the given number of rows.
+     *
+     * @param statement the statement executed in the DB.
+     * @param maxRows   the maximum number of rows to read, 0 for no limit.
+     * @return the rows which contains the column data wrapped inside a map.
+     */
+    protected List<Map> getProcessedRows(Statement statement, int maxRows) {
         Connection con = null;
         ResultSet rs = null;
         PreparedStatement ps = null;
@@ -174,6 +270,10 @@ public class JDBCMessageStore extends AbstractMessageStore {
         try {
             con = jdbcConfiguration.getConnection();
             ps = con.prepareStatement(statement.getStatement());
+            if (maxRows > 0) {
+                ps.setMaxRows(maxRows);
+                ps.setFetchSize(maxRows);
+            }
             int index = 1;
             for (Object param : statement.getParameters()) {
                 if (param instanceof String) {
@@ -205,25 +305,14 @@ public class JDBCMessageStore extends AbstractMessageStore {
     protected MessageContext deserializeMessage(byte[] msgObj) {
         MessageContext messageContext = null;
         if (msgObj != null) {
-            ObjectInputStream ios = null;
             try {
                 // Convert back to MessageContext and add to list
-                ios = new ObjectInputStream(new ByteArrayInputStream(msgObj));
-                Object msg = ios.readObject();
-                if (msg instanceof StorableMessage) {
-                    StorableMessage jdbcMsg = (StorableMessage) msg;
-                    org.apache.axis2.context.MessageContext axis2Mc = this.newAxis2Mc();
-                    MessageContext synapseMc = this.newSynapseMc(axis2Mc);
-                    messageContext = MessageConverter.toMessageContext(jdbcMsg, axis2Mc, synapseMc);
-                }
+                StorableMessage jdbcMsg = messageCodec.decode(msgObj);
+                org.apache.axis2.context.MessageContext axis2Mc = this.newAxis2Mc();
+                MessageContext synapseMc = this.newSynapseMc(axis2Mc);
+                messageContext = MessageConverter.toMessageContext(jdbcMsg, axis2Mc, synapseMc);
             } catch (IOException e) {
-                throw new SynapseException("Error reading object input stream", e);
-            } catch (ClassNotFoundException e) {
-                throw new SynapseException("Could not find the class", e);
-            } finally {
-                if (ios != null) {
-                    closeStream(ios);
-                }
+                throw new SynapseException("Error reading the stored message", e);
             }
         } else {
             throw new SynapseException("Retrieved Object is null");
@@ -231,19 +320,6 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return messageContext;
     }
 
-    /**
-     * Closes the object stream after completing the DB operations.
-     *
-     * @param ios stream which should be closed.
-     */
-    private void closeStream(ObjectInputStream ios) {
-        try {
-            ios.close();
-        } catch (IOException e) {
-            logger.error("Error while closing object input stream", e);
-        }
-    }
-
     private org.apache.axis2.context.MessageContext newAxis2Mc() {
         return ((Axis2SynapseEnvironment) synapseEnvironment)
                 .getAxis2ConfigurationContext().createMessageContext();
@@ -286,18 +362,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
             connection.setAutoCommit(false);
             for(Statement statement : statements) {
                 preparedStatement = connection.prepareStatement(statement.getStatement());
-                int index = 1;
-                for (Object param : statement.getParameters()) {
-                    if (param instanceof String) {
-                        preparedStatement.setString(index, (String) param);
-                    } else if (param instanceof Long) {
-                        preparedStatement.setLong(index, (Long) param);
-                    } else if (param instanceof StorableMessage) {
-                        //Serialize the object into byteArray and update the statement
-                        preparedStatement.setBytes(index, serialize(param));
-                    }
-                    index++;
-                }
+                setParameters(preparedStatement, statement);
                 if(logger.isDebugEnabled()){
                     logger.debug("Executing statement:"+preparedStatement);
                 }
@@ -328,6 +393,70 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return result;
     }
 
+    /**
+     * Process statements that do not give a ResultSet in a single transaction, executing
+     * consecutive statements with the same SQL as a JDBC batch
+     *
+     * @param statements - Statements to process
+     */
+    private void processBatchedStatements(List<Statement> statements) throws SynapseException {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        String sql = null;
+        try {
+            connection = jdbcConfiguration.getConnection();
+            connection.setAutoCommit(false);
+            for (Statement statement : statements) {
+                if (!statement.getStatement().equals(sql)) {
+                    if (preparedStatement != null) {
+                        preparedStatement.executeBatch();
+                        preparedStatement.close();
+                        preparedStatement = null;
+                    }
+                    sql = statement.getStatement();
+                    preparedStatement = connection.prepareStatement(sql);
+                }
+                setParameters(preparedStatement, statement);
+                preparedStatement.addBatch();
+            }
+            if (preparedStatement != null) {
+                preparedStatement.executeBatch();
+            }
+            connection.commit();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Executed a batch of " + statements.size() + " statements");
+            }
+        } catch (SQLException | IOException e) {
+            rollback(connection, "storing messages");
+            throw new SynapseException("Processing a batch of " + statements.size()
+                    + " statements failed against DataSource : " + jdbcConfiguration.getDSName(), e);
+        } finally {
+            close(connection, preparedStatement, null);
+        }
+    }
+
+    /**
+     * Set the parameters of a statement on the prepared statement
+     *
+     * @param preparedStatement - Prepared statement of the statement
+     * @param statement         - Statement holding the parameters
+     */
+    private void setParameters(PreparedStatement preparedStatement, Statement statement)
+            throws SQLException, IOException {
+        int index = 1;
+        for (Object param : statement.getParameters()) {
+            if (param instanceof String) {
+                preparedStatement.setString(index, (String) param);
+            } else if (param instanceof Long) {
+                preparedStatement.setLong(index, (Long) param);
+            } else if (param instanceof StorableMessage) {
+                //Serialize the object into byteArray and update the statement
+                preparedStatement.setBytes(index, messageCodec.encode((StorableMessage) param));
+            }
+            index++;
+        }
+    }
+
     public byte[] serialize(Object obj) throws IOException {
         ByteArrayOutputStream b = new ByteArrayOutputStream();
         ObjectOutputStream o = new ObjectOutputStream(b);
@@ -365,10 +494,9 @@ public class JDBCMessageStore extends AbstractMessageStore {
                     logger.error("Message Cleanup lock released unexpectedly", e);
                 }
             }
-            ArrayList<Statement> statements = new ArrayList<>();
             Statement statement = getStoreMessageStatement(messageContext, null);
-            statements.add(statement);
-            return processNonResultingStatement(statements);
+            batchWriter.write(statement);
+            return true;
         } catch (Exception e) {
             throw new SynapseException("Error while creating StorableMessage", e);
         } finally {
@@ -485,6 +613,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
             result = get(msgId);
             List<Statement> statements = removeMessageStatement(msgId);
             processNonResultingStatement(statements);
+            purgeCount.incrementAndGet();
         } catch (Exception e) {
             throw new SynapseException("Removing message with id = " + msgId + " failed !", e);
         } finally {
@@ -514,6 +643,101 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return statements;
     }
 
+    /**
+     * Whether consumers may read messages ahead in batches, in the order they were stored.
+     * Stores which deliver messages in a different order should return false, so that their
+     * consumers take each message through {@link #peek()} instead
+     *
+     * @return true if consumers may read messages ahead
+     */
+    protected boolean isReadAheadSupported() {
+        return true;
+    }
+
+    /**
+     * Select the messages stored after the message with the given index, in the order they were
+     * stored
+     *
+     * @param indexId     index of the last message read, or -1 to read from the first message
+     * @param maxMessages maximum number of messages to select
+     * @return rows holding the index and the content of the messages
+     */
+    protected List<Map> getMessagesAfter(long indexId, int maxMessages) throws SynapseException {
+        Statement statement = new Statement("SELECT indexId,message FROM " + jdbcConfiguration.getTableName()
+                + " WHERE indexId>? ORDER BY indexId ASC") {
+            @Override
+            public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                return indexedMessageContentResultSet(resultSet, this.getStatement());
+            }
+        };
+        statement.addParameter(indexId);
+        try {
+            return getProcessedRows(statement, maxMessages);
+        } catch (SynapseException se) {
+            throw new SynapseException("Error while reading messages after index " + indexId, se);
+        }
+    }
+
+    /**
+     * Remove the messages with the given indexes with a single statement
+     *
+     * @param indexIds - indexes of the messages
+     * @return - Success or Failure of the removal
+     */
+    protected boolean removeMessages(List<Long> indexIds) throws SynapseException {
+        if (indexIds.isEmpty()) {
+            return true;
+        }
+        boolean cleaningState = false;
+        try {
+            if (cleaningFlag.get()) {
+                try {
+                    removeLock.lock();
+                    cleaningState = true;
+                } catch (Exception ie) {
+                    logger.error("Message Cleanup lock released unexpectedly", ie);
+                }
+            }
+            StringBuilder sql = new StringBuilder("DELETE FROM ").append(jdbcConfiguration.getTableName())
+                    .append(" WHERE indexId IN (");
+            for (int i = 0; i < indexIds.size(); i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(")");
+            Statement statement = new Statement(sql.toString()) {
+                @Override
+                public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            for (Long indexId : indexIds) {
+                statement.addParameter(indexId);
+            }
+            List<Statement> statements = new ArrayList<>();
+            statements.add(statement);
+            return processNonResultingStatement(statements);
+        } finally {
+            if (cleaningState) {
+                removeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return number of times messages were removed other than by acknowledging them
+     */
+    long getPurgeCount() {
+        return purgeCount.get();
+    }
+
+    int getConsumerBatchSize() {
+        return consumerBatchSize;
+    }
+
+    int getConsumerAckBatchSize() {
+        return consumerAckBatchSize;
+    }
+
     /**
      * Delete all entries from table
      */
@@ -533,6 +757,7 @@ public class JDBCMessageStore extends AbstractMessageStore {
             List<Statement> statements = new ArrayList<>();
             statements.add(statement);
             processNonResultingStatement(statements);
+            purgeCount.incrementAndGet();
         } catch (Exception e) {
             logger.error("Clearing store failed !", e);
         } finally {
@@ -640,6 +865,25 @@ public class JDBCMessageStore extends AbstractMessageStore {
         return elements;
     }
 
+    /**
+     * Return the index and the content of the messages selected by the provided statement.
+     *
+     * @param resultSet the result-set obtained from the statement.
+     * @param statement the SQL statement results are obtained for.
+     * @return the index and the content of the messages.
+     * @throws SQLException during an error encountered when accessing the database.
+     */
+    protected List<Map> indexedMessageContentResultSet(ResultSet resultSet, String statement) throws SQLException {
+        ArrayList<Map> elements = new ArrayList<>();
+        while (resultSet.next()) {
+            HashMap<String, Object> rowData = new HashMap<>();
+            rowData.put(INDEX_COLUMN_NAME, resultSet.getLong(INDEX_COLUMN_NAME));
+            rowData.put(MESSAGE_COLUMN_NAME, deserializeMessage(resultSet.getBytes(MESSAGE_COLUMN_NAME)));
+            elements.add(rowData);
+        }
+        return elements;
+    }
+
     /**
      * Return number of messages in the store
      *
@@ -60,4 +60,44 @@ public class JDBCMessageStoreConstants {
      * Default name of the database table
      */
     public static final String JDBC_DEFAULT_TABLE_NAME = "jdbc_message_store";
+
+    /**
+     * Maximum number of messages of concurrent producers inserted in a single transaction
+     */
+    public static final String JDBC_PRODUCER_BATCH_SIZE = "store.jdbc.producer.batch.size";
+
+    /**
+     * Default maximum number of messages inserted in a single transaction
+     */
+    public static final int JDBC_DEFAULT_PRODUCER_BATCH_SIZE = 100;
+
+    /**
+     * Time in milliseconds a producer waits for other producers to add their messages to its batch
+     */
+    public static final String JDBC_PRODUCER_BATCH_WINDOW = "store.jdbc.producer.batch.window";
+
+    /**
+     * By default only the messages stored while the previous batch was inserted are batched
+     */
+    public static final long JDBC_DEFAULT_PRODUCER_BATCH_WINDOW = 0;
+
+    /**
+     * Number of messages a consumer reads ahead from the table in a single query
+     */
+    public static final String JDBC_CONSUMER_BATCH_SIZE = "store.jdbc.consumer.batch.size";
+
+    /**
+     * Default number of messages read ahead by a consumer
+     */
+    public static final int JDBC_DEFAULT_CONSUMER_BATCH_SIZE = 20;
+
+    /**
+     * Number of acknowledged messages a consumer deletes from the table in a single statement
+     */
+    public static final String JDBC_CONSUMER_ACK_BATCH_SIZE = "store.jdbc.consumer.ack.batch.size";
+
+    /**
+     * By default acknowledged messages are deleted right away
+     */
+    public static final int JDBC_DEFAULT_CONSUMER_ACK_BATCH_SIZE = 1;
 }
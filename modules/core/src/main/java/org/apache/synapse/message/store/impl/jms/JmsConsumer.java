@@ -29,11 +29,14 @@ import org.apache.synapse.message.store.Constants;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.ObjectMessage;
 import javax.jms.Session;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 public class JmsConsumer implements MessageConsumer {
 
@@ -87,22 +90,34 @@ public class JmsConsumer implements MessageConsumer {
             if (message == null) {
                 return null;
             }
-            if (!(message instanceof ObjectMessage)) {
-                logger.warn("JMS Consumer " + getId() + " did not receive a javax.jms.ObjectMessage");
-                //we just discard this message as we only store Object messages via JMS Message store
-                message.acknowledge();
-                return null;
-            }
-            ObjectMessage msg = (ObjectMessage) message;
-            String messageId = msg.getStringProperty(Constants.OriginalMessageID);
-            if (!(msg.getObject() instanceof StorableMessage)) {
-                logger.warn("JMS Consumer " + getId() + " did not receive a valid message.");
+            StorableMessage storableMessage;
+            if (message instanceof BytesMessage) {
+                try {
+                    storableMessage = store.getMessageCodec().decode(readBytes((BytesMessage) message));
+                } catch (IOException e) {
+                    logger.warn("JMS Consumer " + getId() + " did not receive a valid message.", e);
+                    message.acknowledge();
+                    return null;
+                }
+            } else if (message instanceof ObjectMessage) {
+                // messages stored with Java serialization
+                Object object = ((ObjectMessage) message).getObject();
+                if (!(object instanceof StorableMessage)) {
+                    logger.warn("JMS Consumer " + getId() + " did not receive a valid message.");
+                    message.acknowledge();
+                    return null;
+                }
+                storableMessage = (StorableMessage) object;
+            } else {
+                logger.warn("JMS Consumer " + getId() + " did not receive a javax.jms.BytesMessage " +
+                            "or a javax.jms.ObjectMessage");
+                //we just discard this message as we only store bytes or object messages via JMS Message store
                 message.acknowledge();
                 return null;
             }
+            String messageId = message.getStringProperty(Constants.OriginalMessageID);
 
-            //create a ,essage context back from the stored message
-            StorableMessage storableMessage = (StorableMessage) msg.getObject();
+            //create a message context back from the stored message
             org.apache.axis2.context.MessageContext axis2Mc = store.newAxis2Mc();
             MessageContext synapseMc = store.newSynapseMc(axis2Mc);
             synapseMc = MessageConverter.toMessageContext(storableMessage, axis2Mc, synapseMc);
@@ -126,6 +141,20 @@ public class JmsConsumer implements MessageConsumer {
         }
     }
 
+    /**
+     * Reads the body of a bytes message. The body length is not used, as it is only available
+     * from JMS 1.1 onwards.
+     */
+    private static byte[] readBytes(BytesMessage message) throws JMSException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = message.readBytes(buffer)) > 0) {
+            bos.write(buffer, 0, read);
+        }
+        return bos.toByteArray();
+    }
+
     public boolean ack() {
         boolean result = cachedMessage.ack();
         if (result) {
@@ -25,10 +25,13 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.StoreForwardException;
+import org.apache.synapse.message.store.impl.commons.JavaMessageCodec;
+import org.apache.synapse.message.store.impl.commons.MessageCodec;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
 import javax.jms.*;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 
@@ -81,13 +84,13 @@ public class JmsProducer implements MessageProducer {
         boolean error = false;
         Throwable throwable = null;
         try {
-            ObjectMessage objectMessage = session.createObjectMessage(message);
-            objectMessage.setStringProperty(OriginalMessageID, synCtx.getMessageID());
-            setPriority(producer, objectMessage, message);
+            Message jmsMessage = createMessage(message);
+            jmsMessage.setStringProperty(OriginalMessageID, synCtx.getMessageID());
+            setPriority(producer, jmsMessage, message);
             setJmsProducerProperties(producer, synCtx);
-            setJmsMessageProperties(objectMessage, synCtx);
-            setTransportHeaders(objectMessage,synCtx);
-            producer.send(objectMessage);
+            setJmsMessageProperties(jmsMessage, synCtx);
+            setTransportHeaders(jmsMessage,synCtx);
+            producer.send(jmsMessage);
 
             if (session.getTransacted()) {
                 session.commit();
@@ -211,7 +214,21 @@ public class JmsProducer implements MessageProducer {
         return true;
     }
 
-    private void setPriority(javax.jms.MessageProducer producer, ObjectMessage objectMessage,
+    /**
+     * Creates the JMS message carrying the given message. Messages are sent as object messages
+     * when the store uses Java serialization, so that consumers of older releases can read them.
+     */
+    private Message createMessage(StorableMessage message) throws JMSException, IOException {
+        MessageCodec codec = store.getMessageCodec();
+        if (codec instanceof JavaMessageCodec) {
+            return session.createObjectMessage(message);
+        }
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(codec.encode(message));
+        return bytesMessage;
+    }
+
+    private void setPriority(javax.jms.MessageProducer producer, Message jmsMessage,
                              StorableMessage message) {
         if (message.getPriority(DEFAULT_PRIORITY) != Message.DEFAULT_PRIORITY) {
             try {
@@ -34,6 +34,8 @@ import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.StoreForwardException;
 import org.apache.synapse.message.store.AbstractMessageStore;
 import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.commons.MessageCodec;
+import org.apache.synapse.message.store.impl.commons.MessageCodecs;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
@@ -124,6 +126,9 @@ public class JmsStore extends AbstractMessageStore {
     private MessageProducer producer = null;
 
     private SynapseEnvironment synapseEnvironment;
+
+    /** Converts the messages to the bodies of the JMS messages and back */
+    private MessageCodec messageCodec = MessageCodecs.getCodec(null);
     /** regex for secure vault expression */
     private static final String SECURE_VAULT_REGEX = "\\{(wso2:vault-lookup\\('(.*?)'\\))\\}";
 
@@ -237,6 +242,7 @@ public class JmsStore extends AbstractMessageStore {
             logger.error("Cannot initialize store.");
             return;
         }
+        messageCodec = MessageCodecs.getCodec(parameters);
         try {
             initme();
         } catch (StoreForwardException | JMSException e) {
@@ -468,6 +474,10 @@ public class JmsStore extends AbstractMessageStore {
         }
     }
 
+    public MessageCodec getMessageCodec() {
+        return messageCodec;
+    }
+
     public org.apache.axis2.context.MessageContext newAxis2Mc() {
         return ((Axis2SynapseEnvironment) synapseEnvironment)
                 .getAxis2ConfigurationContext().createMessageContext();
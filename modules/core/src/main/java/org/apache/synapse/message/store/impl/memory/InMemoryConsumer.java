@@ -23,50 +23,42 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.message.MessageConsumer;
 
-import java.util.Queue;
-
 public class InMemoryConsumer implements MessageConsumer {
     private static final Log logger = LogFactory.getLog(InMemoryConsumer.class.getName());
     /** */
-    private Queue<MessageContext> queue;
-    /** */
     private final InMemoryStore store;
     /** ID of this message consumer instance */
     private String idString;
 
-    private MessageContext lastMessage;
-
-    private final Object queueLock;
+    /** Message received and not yet acknowledged, held for this consumer by the store */
+    private InMemoryStore.Entry lastMessage;
 
     public InMemoryConsumer(InMemoryStore store) {
         this.store = store;
-        this.queueLock = store.getQLock();
     }
 
     public MessageContext receive() {
-        MessageContext message;
-        synchronized (queueLock) {
-            message = queue.peek();
-            if (logger.isDebugEnabled()) {
-                if (message != null) {
-                    logger.debug(getId() + " received MessageID : " + message.getMessageID());
-                }
-            }
-            lastMessage = message;
-
+        InMemoryStore.Entry entry = lastMessage;
+        // the message is received again until it is acknowledged, unless it was removed
+        if (entry == null || entry.owner.get() != this) {
+            entry = store.receive(this);
+            lastMessage = entry;
+        }
+        if (entry == null) {
+            return null;
         }
-        return message;
+        if (logger.isDebugEnabled()) {
+            logger.debug(getId() + " received MessageID : " + entry.message.getMessageID());
+        }
+        return entry.message;
     }
 
     public boolean ack() {
         if (logger.isDebugEnabled() && lastMessage != null) {
             logger.debug(getId() + " ack");
         }
-        synchronized (queueLock) {
-            Object o = queue.poll();
-            if (o != null) {
-                store.dequeued();
-            }
+        if (lastMessage != null) {
+            store.acknowledge(lastMessage, this);
             lastMessage = null;
         }
         return true;
@@ -76,6 +68,10 @@ public class InMemoryConsumer implements MessageConsumer {
         if (logger.isDebugEnabled()) {
             logger.debug(getId() + " cleanup");
         }
+        if (lastMessage != null) {
+            store.release(lastMessage, this);
+            lastMessage = null;
+        }
         return true;
     }
 
@@ -90,9 +86,4 @@ public class InMemoryConsumer implements MessageConsumer {
     public String getId() {
         return idString;
     }
-
-    public InMemoryConsumer setDestination(Queue<MessageContext> queue) {
-        this.queue = queue;
-        return this;
-    }
 }
@@ -21,6 +21,7 @@ package org.apache.synapse.message.store.impl.memory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.MessageProducer;
@@ -29,21 +30,54 @@ import org.apache.synapse.message.store.Constants;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Message store keeping the messages in memory, in the order they were stored.
+ * <p>
+ * The store is lock free. Messages are indexed by their message ID and counted as they are
+ * stored and removed, so that neither looking a message up nor getting the size of the store
+ * walks the queue. A message received by a consumer is held for that consumer until it is
+ * acknowledged, so that consumers running in parallel do not receive the same message.
+ * <p>
+ * The number of messages can be bounded with the {@link Constants#INMEMORY_CAPACITY}
+ * parameter. Producers storing into a full store wait up to
+ * {@link Constants#INMEMORY_PRODUCER_TIMEOUT} milliseconds for a message to be removed, and
+ * fail to store the message after that.
+ */
 public class InMemoryStore extends AbstractMessageStore {
     private static final Log logger = LogFactory.getLog(InMemoryStore.class.getName());
 
-    private Queue<MessageContext> queue = new ConcurrentLinkedQueue<MessageContext>();
+    /** Owner of the entries of removed messages */
+    private static final Object REMOVED = new Object();
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+
+    /** Entries of the stored messages by message ID */
+    private final ConcurrentMap<String, Entry> index = new ConcurrentHashMap<String, Entry>();
+
+    /** Number of stored messages missing in the index, as they share an ID or have none */
+    private final AtomicInteger unindexed = new AtomicInteger(0);
 
-    private final Object queueLock = new Object();
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    /** Room left in the store, or null if the store is not bounded */
+    private volatile Semaphore capacity;
+
+    private volatile long producerTimeout = 0;
 
     public MessageProducer getProducer() {
         InMemoryProducer producer = new InMemoryProducer(this);
         producer.setId(nextProducerId());
-        producer.setDestination(queue);
         if (logger.isDebugEnabled()) {
             logger.debug(nameString() + " created a new In Memory Message Producer.");
         }
@@ -53,7 +87,6 @@ public class InMemoryStore extends AbstractMessageStore {
     public MessageConsumer getConsumer() {
         InMemoryConsumer consumer = new InMemoryConsumer(this);
         consumer.setId(nextConsumerId());
-        consumer.setDestination(queue);
         if (logger.isDebugEnabled()) {
             logger.debug(nameString() + " created a new In Memory Message Consumer.");
         }
@@ -64,31 +97,43 @@ public class InMemoryStore extends AbstractMessageStore {
         return Constants.INMEMORY_MS;
     }
 
-    public int size() {
-        synchronized (queueLock) {
-            return queue.size();
+    @Override
+    public void setParameters(Map<String, Object> parameters) {
+        super.setParameters(parameters);
+        Object value = this.parameters.get(Constants.INMEMORY_CAPACITY);
+        if (value != null) {
+            int max = parseParameter(Constants.INMEMORY_CAPACITY, value);
+            if (max <= 0) {
+                throw new SynapseException(nameString() + " capacity must be positive: " + value);
+            }
+            capacity = new Semaphore(Math.max(max - count.get(), 0));
+        }
+        value = this.parameters.get(Constants.INMEMORY_PRODUCER_TIMEOUT);
+        if (value != null) {
+            producerTimeout = parseParameter(Constants.INMEMORY_PRODUCER_TIMEOUT, value);
         }
     }
 
+    public int size() {
+        return count.get();
+    }
+
     public MessageContext remove() throws NoSuchElementException {
-        MessageContext message;
-        synchronized (queueLock) {
-            message = queue.remove();
-        }
-        if (message != null) {
-            dequeued();
-            if (logger.isDebugEnabled()) {
-                logger.debug(nameString() + " removed MessageID:" + message.getMessageID() + " => true");
+        for (Entry entry : queue) {
+            if (removeEntry(entry)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(nameString() + " removed MessageID:" +
+                                 entry.message.getMessageID() + " => true");
+                }
+                return entry.message;
             }
         }
-        return message;
+        throw new NoSuchElementException();
     }
 
     public void clear() {
-        synchronized (queueLock) {
-            while (!queue.isEmpty()) {
-                remove();
-            }
+        for (Entry entry : queue) {
+            removeEntry(entry);
         }
         if (logger.isDebugEnabled()) {
             logger.debug(nameString() + " cleared InMemoryStore...");
@@ -96,61 +141,49 @@ public class InMemoryStore extends AbstractMessageStore {
     }
 
     public MessageContext remove(final String messageID) {
-        MessageContext message = null;
-        synchronized (queueLock) {
-            for (MessageContext m : queue) {
-                if (m.getMessageID().equals(messageID)) {
-                    message = m;
-                    break;
-                }
-            }
-            if (message != null) {
-                boolean result = queue.remove(message);
+        Entry entry;
+        while ((entry = find(messageID)) != null) {
+            // another thread may remove the message first, look again if it does
+            if (removeEntry(entry)) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug(nameString() + " removed MessageID:" + message.getMessageID() + " => " + result);
+                    logger.debug(nameString() + " removed MessageID:" + messageID + " => true");
                 }
+                return entry.message;
             }
         }
-        return message;
+        return null;
     }
 
     public MessageContext get(final int index) {
-        if (index < 0 || index >= queue.size()) {
+        if (index < 0 || index >= count.get()) {
             return null;
         }
-        MessageContext message = null;
-        synchronized (queueLock) {
-            int i = 0;
-            for (MessageContext m : queue) {
-                if (i == index) {
-                    message = m;
-                    break;
-                }
-                ++i;
+        int i = 0;
+        for (Entry entry : queue) {
+            if (entry.isRemoved()) {
+                continue;
             }
+            if (i == index) {
+                return entry.message;
+            }
+            ++i;
         }
-        return message;
+        return null;
     }
 
     public List<MessageContext> getAll() {
-        List<MessageContext> list = new ArrayList<MessageContext>();
-        synchronized (queueLock) {
-            list.addAll(queue);
+        List<MessageContext> list = new ArrayList<MessageContext>(count.get());
+        for (Entry entry : queue) {
+            if (!entry.isRemoved()) {
+                list.add(entry.message);
+            }
         }
         return list;
     }
 
     public MessageContext get(String messageId) {
-        MessageContext message = null;
-        synchronized (queueLock) {
-            for (MessageContext m : queue) {
-                if (m.getMessageID().equals(messageId)) {
-                    message = m;
-                    break;
-                }
-            }
-        }
-        return message;
+        Entry entry = find(messageId);
+        return entry != null ? entry.message : null;
     }
 
     public void init(SynapseEnvironment se) {
@@ -170,11 +203,158 @@ public class InMemoryStore extends AbstractMessageStore {
         super.destroy();
     }
 
-    public Object getQLock() {
-        return queueLock;
+    /**
+     * Store a message, waiting for room in the store if it is full.
+     *
+     * @param message message to store
+     * @return true if the message was stored
+     */
+    boolean offer(MessageContext message) {
+        Semaphore room = capacity;
+        if (room != null && !acquire(room)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(nameString() + " is full");
+            }
+            return false;
+        }
+        Entry entry = new Entry(message);
+        String messageID = message.getMessageID();
+        if (messageID == null || index.putIfAbsent(messageID, entry) != null) {
+            unindexed.incrementAndGet();
+        }
+        // counted before it is queued, so that the size never drops below zero
+        count.incrementAndGet();
+        queue.offer(entry);
+        enqueued();
+        return true;
+    }
+
+    /**
+     * Receive the first message which is not held by another consumer, and hold it for the given
+     * consumer until it is acknowledged or released.
+     *
+     * @param consumer consumer receiving the message
+     * @return entry of the message, or null if there is no message for the consumer
+     */
+    Entry receive(InMemoryConsumer consumer) {
+        for (Entry entry : queue) {
+            if (entry.owner.get() == null && entry.owner.compareAndSet(null, consumer)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove a message received by the given consumer.
+     *
+     * @return false if the message is no longer held by the consumer
+     */
+    boolean acknowledge(Entry entry, InMemoryConsumer consumer) {
+        if (entry.owner.compareAndSet(consumer, REMOVED)) {
+            unlink(entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Make a message received by the given consumer available to the other consumers again.
+     */
+    void release(Entry entry, InMemoryConsumer consumer) {
+        entry.owner.compareAndSet(consumer, null);
+    }
+
+    private Entry find(String messageID) {
+        if (messageID == null) {
+            return null;
+        }
+        Entry entry = index.get(messageID);
+        if (entry != null && !entry.isRemoved()) {
+            return entry;
+        }
+        if (unindexed.get() > 0) {
+            for (Entry e : queue) {
+                if (!e.isRemoved() && messageID.equals(e.message.getMessageID())) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove a message, whether it is held by a consumer or not.
+     *
+     * @return false if the message was removed already
+     */
+    private boolean removeEntry(Entry entry) {
+        Object owner;
+        while ((owner = entry.owner.get()) != REMOVED) {
+            if (entry.owner.compareAndSet(owner, REMOVED)) {
+                unlink(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unlink(Entry entry) {
+        String messageID = entry.message.getMessageID();
+        if (messageID == null || !index.remove(messageID, entry)) {
+            unindexed.decrementAndGet();
+        }
+        // messages are mostly removed at the head of the queue, where this finds them right away
+        queue.remove(entry);
+        count.decrementAndGet();
+        Semaphore room = capacity;
+        if (room != null) {
+            room.release();
+        }
+        dequeued();
+    }
+
+    private boolean acquire(Semaphore room) {
+        if (producerTimeout <= 0) {
+            return room.tryAcquire();
+        }
+        try {
+            return room.tryAcquire(producerTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int parseParameter(String name, Object value) {
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SynapseException(nameString() + " has an invalid value for parameter " +
+                                       name + ": " + value, e);
+        }
     }
 
     private String nameString() {
         return "Store [" + getName() + "]";
     }
+
+    /**
+     * A stored message and the consumer holding it
+     */
+    static final class Entry {
+
+        final MessageContext message;
+
+        /** null while the message is available, the consumer holding it, or REMOVED */
+        final AtomicReference<Object> owner = new AtomicReference<Object>();
+
+        Entry(MessageContext message) {
+            this.message = message;
+        }
+
+        boolean isRemoved() {
+            return owner.get() == REMOVED;
+        }
+    }
 }
@@ -29,10 +29,7 @@ import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
 
 public class RabbitMQConsumer implements MessageConsumer {
 	private static final Log logger = LogFactory.getLog(RabbitMQConsumer.class.getName());
@@ -103,18 +100,14 @@ public class RabbitMQConsumer implements MessageConsumer {
 
 			if (delivery != null) {
 				//deserilizing message
-				StorableMessage storableMessage = null;
-				ByteArrayInputStream bis = new ByteArrayInputStream(delivery.getBody());
-				ObjectInput in = new ObjectInputStream(bis);
+				StorableMessage storableMessage;
 				try {
-					storableMessage = (StorableMessage) in.readObject();
-				} catch (ClassNotFoundException e) {
+					storableMessage = store.getMessageCodec().decode(delivery.getBody());
+				} catch (IOException e) {
 					logger.error(getId() + "unable to read the stored message" + e);
 					channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+					return null;
 				}
-
-				bis.close();
-				in.close();
 				org.apache.axis2.context.MessageContext axis2Mc = store.newAxis2Mc();
 				MessageContext synapseMc = store.newSynapseMc(axis2Mc);
 				synapseMc =
@@ -30,10 +30,7 @@ import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.concurrent.TimeoutException;
 
 public class RabbitMQProducer implements MessageProducer {
@@ -108,12 +105,7 @@ public class RabbitMQProducer implements MessageProducer {
 		Channel channel = null;
 		try {
 			//Serializing message
-			ByteArrayOutputStream os = new ByteArrayOutputStream();
-			ObjectOutput objOut = new ObjectOutputStream(os);
-			objOut.writeObject(message);
-			byte[] byteForm = os.toByteArray();
-			objOut.close();
-			os.close();
+			byte[] byteForm = store.getMessageCodec().encode(message);
 			//building AMQP message
 			AMQP.BasicProperties.Builder builder = new AMQP.BasicProperties().builder();
 			builder.messageId(synCtx.getMessageID());
@@ -33,6 +33,8 @@ import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.AbstractMessageStore;
 import org.apache.synapse.message.store.Constants;
+import org.apache.synapse.message.store.impl.commons.MessageCodec;
+import org.apache.synapse.message.store.impl.commons.MessageCodecs;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -143,6 +145,10 @@ public class RabbitMQStore extends AbstractMessageStore {
 	 * lock protecting the producer connection
 	 */
 	private final Object producerLock = new Object();
+	/**
+	 * converts the messages to the bodies of the AMQP messages and back
+	 */
+	private MessageCodec messageCodec = MessageCodecs.getCodec(null);
 	/**
 	 * records the last retried time between the broker and ESB
 	 */
@@ -164,6 +170,7 @@ public class RabbitMQStore extends AbstractMessageStore {
 	}
 
 	private boolean initme() {
+		messageCodec = MessageCodecs.getCodec(parameters);
 		Set<Map.Entry<String, Object>> mapSet = parameters.entrySet();
 		for (Map.Entry<String, Object> e : mapSet) {
 			if (e.getValue() instanceof String) {
@@ -499,6 +506,10 @@ public class RabbitMQStore extends AbstractMessageStore {
 		return consumer;
 	}
 
+	public MessageCodec getMessageCodec() {
+		return messageCodec;
+	}
+
 	public org.apache.axis2.context.MessageContext newAxis2Mc() {
 		return ((Axis2SynapseEnvironment) synapseEnvironment)
 				.getAxis2ConfigurationContext().createMessageContext();
@@ -199,6 +199,16 @@ public class ResequenceMessageStore extends JDBCMessageStore {
         }
     }
 
+    /**
+     * Messages are delivered in the order of their sequence id, so consumers have to take them one by one.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isReadAheadSupported() {
+        return false;
+    }
+
     /**
      * Extracts the sequence id from the message context.
      *
@@ -37,7 +37,7 @@ import org.apache.synapse.transport.customlogsetter.CustomLogSetter;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.rest.dispatch.DispatcherHelper;
-import org.apache.synapse.rest.dispatch.RESTDispatcher;
+import org.apache.synapse.rest.dispatch.ResourceIndex;
 import org.apache.synapse.rest.version.DefaultStrategy;
 import org.apache.synapse.rest.version.URLBasedVersionStrategy;
 import org.apache.synapse.rest.version.VersionStrategy;
@@ -57,6 +57,17 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
     private int port = -1;
     private String context;
     private Map<String,Resource> resources = new LinkedHashMap<String,Resource>();
+
+    /**
+     * Resources compiled for dispatching, rebuilt after a resource is added
+     */
+    private volatile ResourceIndex resourceIndex;
+
+    private static final ResourceIndex.Filter ALL_RESOURCES = new ResourceIndex.Filter() {
+        public boolean accept(Resource resource) {
+            return true;
+        }
+    };
     private List<Handler> handlers = new ArrayList<Handler>();
 
     /**
@@ -205,6 +216,7 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
             }
         }
         resources.put(resource.getName(), resource);
+        resourceIndex = null;
     }
 
     private boolean resourceMatches(Resource r1, Resource r2) {
@@ -302,7 +314,7 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
         return true;
     }
 
-    void process(MessageContext synCtx) {
+    void process(final MessageContext synCtx) {
 
         auditDebug("Processing message with ID: " + synCtx.getMessageID() + " through the " +
                     "API: " + name);
@@ -397,54 +409,54 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
                     msgCtx.getIncomingTransportName() + "://" + hostHeader);
         }
 
-        Set<Resource> acceptableResources = new LinkedHashSet<Resource>();
-        for (Resource r : resources.values()) {
-            if (r.canProcess(synCtx)) {
-                acceptableResources.add(r);
+        ResourceIndex index = getResourceIndex();
+        Resource resource = index.findResource(synCtx, new ResourceIndex.Filter() {
+            public boolean accept(Resource resource) {
+                return resource.canProcess(synCtx);
             }
-        }
-
-        boolean processed = false;
-        if (!acceptableResources.isEmpty()) {
-            for (RESTDispatcher dispatcher : RESTUtils.getDispatchers()) {
-                Resource resource = dispatcher.findResource(synCtx, acceptableResources);
-                if (resource != null) {
-                    if (synCtx.getEnvironment().isDebuggerEnabled()) {
-                        if (!synCtx.isResponse()) {
-                            SynapseWireLogHolder wireLogHolder = (SynapseWireLogHolder) ((Axis2MessageContext) synCtx).getAxis2MessageContext()
-                                    .getProperty(SynapseDebugInfoHolder.SYNAPSE_WIRE_LOG_HOLDER_PROPERTY);
-                            if (wireLogHolder == null) {
-                                wireLogHolder = new SynapseWireLogHolder();
-                            }
-                            if (synCtx.getProperty(RESTConstants.SYNAPSE_REST_API) != null && !synCtx.getProperty(RESTConstants.SYNAPSE_REST_API).toString().isEmpty()) {
-                                wireLogHolder.setApiName(synCtx.getProperty(RESTConstants.SYNAPSE_REST_API).toString());
-                                if (resource.getDispatcherHelper() != null) {
-                                    if (resource.getDispatcherHelper().getString() != null && !resource.getDispatcherHelper().getString().isEmpty()) {
-                                        wireLogHolder.setResourceUrlString(resource.getDispatcherHelper().getString());
-                                    }
-                                }
+        });
+        if (resource != null) {
+            if (synCtx.getEnvironment().isDebuggerEnabled()) {
+                if (!synCtx.isResponse()) {
+                    SynapseWireLogHolder wireLogHolder = (SynapseWireLogHolder) ((Axis2MessageContext) synCtx).getAxis2MessageContext()
+                            .getProperty(SynapseDebugInfoHolder.SYNAPSE_WIRE_LOG_HOLDER_PROPERTY);
+                    if (wireLogHolder == null) {
+                        wireLogHolder = new SynapseWireLogHolder();
+                    }
+                    if (synCtx.getProperty(RESTConstants.SYNAPSE_REST_API) != null && !synCtx.getProperty(RESTConstants.SYNAPSE_REST_API).toString().isEmpty()) {
+                        wireLogHolder.setApiName(synCtx.getProperty(RESTConstants.SYNAPSE_REST_API).toString());
+                        if (resource.getDispatcherHelper() != null) {
+                            if (resource.getDispatcherHelper().getString() != null && !resource.getDispatcherHelper().getString().isEmpty()) {
+                                wireLogHolder.setResourceUrlString(resource.getDispatcherHelper().getString());
                             }
-                            ((Axis2MessageContext) synCtx).getAxis2MessageContext().setProperty(SynapseDebugInfoHolder.SYNAPSE_WIRE_LOG_HOLDER_PROPERTY, wireLogHolder);
                         }
-
                     }
-                    resource.process(synCtx);
-                    return;
+                    ((Axis2MessageContext) synCtx).getAxis2MessageContext().setProperty(SynapseDebugInfoHolder.SYNAPSE_WIRE_LOG_HOLDER_PROPERTY, wireLogHolder);
                 }
+
+            }
+            resource.process(synCtx);
+            return;
+        }
+
+        boolean acceptableResourceFound = false;
+        for (Resource r : resources.values()) {
+            if (r.canProcess(synCtx)) {
+                acceptableResourceFound = true;
+                break;
             }
+        }
+
+        if (acceptableResourceFound) {
             handleResourceNotFound(synCtx);
         } else {
             //This will get executed only in unhappy path. So ok to have the iterator.
-            boolean resourceFound = false;
+            resource = index.findResource(synCtx, ALL_RESOURCES);
+            boolean resourceFound = resource != null;
             boolean matchingMethodFound = false;
-            for (RESTDispatcher dispatcher : RESTUtils.getDispatchers()) {
-                Resource resource = dispatcher.findResource(synCtx, resources.values());
-                if (resource != null) {
-                    resourceFound = true;
-                    String method = (String) msgCtx.getProperty(Constants.Configuration.HTTP_METHOD);
-                    matchingMethodFound = resource.hasMatchingMethod(method);
-                    break;
-                }
+            if (resourceFound) {
+                String method = (String) msgCtx.getProperty(Constants.Configuration.HTTP_METHOD);
+                matchingMethodFound = resource.hasMatchingMethod(method);
             }
             if (!resourceFound) {
                 handleResourceNotFound(synCtx);
@@ -461,6 +473,16 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
         }
     }
 
+    private ResourceIndex getResourceIndex() {
+        ResourceIndex index = resourceIndex;
+        if (index == null) {
+            // resources are only added while deploying, so an index built twice is the same
+            index = new ResourceIndex(resources.values());
+            resourceIndex = index;
+        }
+        return index;
+    }
+
     /**
      * Helper method to use when no matching resource found
      *
@@ -0,0 +1,103 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.rest;
+
+import org.apache.synapse.rest.dispatch.RadixTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The deployed APIs compiled for dispatching. The APIs whose context is a prefix of the request
+ * path are looked up in a radix tree of the contexts instead of trying every API in turn, and
+ * are returned in the order of the API table, so that a request is dispatched to the same API
+ * as when trying them all. An index is built for a given set of APIs and never changes, so it
+ * is replaced as a whole when APIs are deployed or undeployed.
+ */
+public class APIIndex {
+
+    private final API[] apis;
+
+    private final RadixTree<Integer> contexts = new RadixTree<Integer>();
+
+    private final Map<String, List<Integer>> names = new HashMap<String, List<Integer>>();
+
+    /**
+     * Compile the given APIs for dispatching
+     *
+     * @param apis APIs in the order they should be tried
+     */
+    public APIIndex(Collection<API> apis) {
+        this.apis = apis.toArray(new API[apis.size()]);
+        for (int i = 0; i < this.apis.length; i++) {
+            API api = this.apis[i];
+            // the root context matches any path
+            contexts.put("/".equals(api.getContext()) ? "" : api.getContext(), i);
+            List<Integer> positions = names.get(api.getName());
+            if (positions == null) {
+                positions = new ArrayList<Integer>(1);
+                names.put(api.getName(), positions);
+            }
+            positions.add(i);
+        }
+    }
+
+    boolean isEmpty() {
+        return apis.length == 0;
+    }
+
+    /**
+     * Get the APIs whose context is a prefix of the given request path
+     *
+     * @param path full request path
+     * @return matching APIs in the order they should be tried
+     */
+    List<API> getAPIsByPath(String path) {
+        List<Integer> positions = new ArrayList<Integer>();
+        contexts.collectPrefixesOf(path, positions);
+        Collections.sort(positions);
+        return toAPIs(positions);
+    }
+
+    /**
+     * Get the APIs which may have dispatched the request a response belongs to
+     *
+     * @param name fully qualified name of the API the request was dispatched to
+     * @return matching APIs in the order they should be tried
+     */
+    List<API> getAPIsByName(String name) {
+        List<Integer> positions = name != null ? names.get(name) : null;
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        return toAPIs(positions);
+    }
+
+    private List<API> toAPIs(List<Integer> positions) {
+        List<API> list = new ArrayList<API>(positions.size());
+        for (int position : positions) {
+            list.add(apis[position]);
+        }
+        return list;
+    }
+}
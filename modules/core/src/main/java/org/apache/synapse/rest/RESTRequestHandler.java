@@ -72,22 +72,29 @@ public class RESTRequestHandler {
     }
 
     private boolean dispatchToAPI(MessageContext synCtx) {
-        Collection<API> apiSet = synCtx.getEnvironment().getSynapseConfiguration().getAPIs();
-        //Since swapping elements are not possible with sets, Collection is converted to a List
-        List<API> defaultStrategyApiSet = new ArrayList<API>(apiSet);
+        APIIndex apiIndex = synCtx.getEnvironment().getSynapseConfiguration().getAPIIndex();
+        if (apiIndex.isEmpty()) {
+            return false;
+        }
+        // only the APIs which may process the message are tried, in the order of the API table
+        List<API> apis;
+        if (synCtx.isResponse()) {
+            apis = apiIndex.getAPIsByName((String) synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+        } else {
+            apis = apiIndex.getAPIsByPath(RESTUtils.getFullRequestPath(synCtx));
+        }
 
-        API defaultAPI = null;
-        for (API api : apiSet) {
+        for (API api : apis) {
             api.setLogSetterValue();
-            if ("/".equals(api.getContext())) {
-                defaultAPI = api;
-            } else if (api.getVersionStrategy().getClass().getName().equals(DefaultStrategy.class.getName())) {
-                //APIs whose VersionStrategy is bound to an instance of DefaultStrategy, should be skipped and processed at last.
-                //Otherwise they will be always chosen to process the request without matching the version.
-                defaultStrategyApiSet.add(api);
-            } else if (api.getVersionStrategy().getClass().getName().equals(ContextVersionStrategy.class.getName())
+            if ("/".equals(api.getContext()) ||
+                    api.getVersionStrategy().getClass().getName().equals(DefaultStrategy.class.getName())) {
+                //The default API and APIs whose VersionStrategy is bound to an instance of DefaultStrategy, should be
+                //skipped and processed at last. Otherwise they will be always chosen to process the request without
+                //matching the version.
+                continue;
+            }
+            if (api.getVersionStrategy().getClass().getName().equals(ContextVersionStrategy.class.getName())
                     || api.getVersionStrategy().getClass().getName().equals(URLBasedVersionStrategy.class.getName())) {
-                api.setLogSetterValue();
                 if (api.canProcess(synCtx)) {
                     if (log.isDebugEnabled()) {
                         log.debug("Located specific API: " + api.getName() + " for processing message");
@@ -104,23 +111,20 @@ public class RESTRequestHandler {
             }
         }
 
-        for (API api : defaultStrategyApiSet) {
-            api.setLogSetterValue();
-            if (api.canProcess(synCtx)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Located specific API: " + api.getName() + " for processing message");
+        for (API api : apis) {
+            if ("/".equals(api.getContext()) ||
+                    api.getVersionStrategy().getClass().getName().equals(DefaultStrategy.class.getName())) {
+                api.setLogSetterValue();
+                if (api.canProcess(synCtx)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Located specific API: " + api.getName() + " for processing message");
+                    }
+                    apiProcess(synCtx, api);
+                    return true;
                 }
-	            apiProcess(synCtx, api);
-                return true;
             }
         }
 
-        if (defaultAPI != null && defaultAPI.canProcess(synCtx)) {
-            defaultAPI.setLogSetterValue();
-	        apiProcess(synCtx, defaultAPI);
-            return true;
-        }
-
 		return false;
 	}
 
@@ -0,0 +1,113 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.rest.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A radix tree mapping string keys to values, used to find all the keys which are a prefix of
+ * a request path without comparing the path with each key in turn. A key may have more than
+ * one value. Trees are built when the configuration changes and are only read afterwards.
+ *
+ * @param <V> type of the values
+ */
+public class RadixTree<V> {
+
+    private final Node<V> root = new Node<V>("");
+
+    /**
+     * Add a value for the given key
+     *
+     * @param key key to add the value under
+     * @param value value to be added
+     */
+    public void put(String key, V value) {
+        Node<V> node = root;
+        int index = 0;
+        while (index < key.length()) {
+            Node<V> child = node.children.get(key.charAt(index));
+            if (child == null) {
+                child = new Node<V>(key.substring(index));
+                node.children.put(key.charAt(index), child);
+                node = child;
+                break;
+            }
+
+            int common = 0;
+            int max = Math.min(child.label.length(), key.length() - index);
+            while (common < max && child.label.charAt(common) == key.charAt(index + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                // split the edge where the key leaves it
+                Node<V> parent = new Node<V>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                parent.children.put(child.label.charAt(0), child);
+                node.children.put(parent.label.charAt(0), parent);
+                child = parent;
+            }
+            node = child;
+            index += common;
+        }
+        if (node.values.isEmpty()) {
+            node.values = new ArrayList<V>(1);
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * Collect the values of all the keys which are a prefix of the given string, the values
+     * of shorter keys first.
+     *
+     * @param str string to match the keys against
+     * @param values list to add the values to
+     */
+    public void collectPrefixesOf(String str, List<V> values) {
+        Node<V> node = root;
+        int index = 0;
+        while (true) {
+            values.addAll(node.values);
+            if (index == str.length()) {
+                return;
+            }
+            node = node.children.get(str.charAt(index));
+            if (node == null || !str.startsWith(node.label, index)) {
+                return;
+            }
+            index += node.label.length();
+        }
+    }
+
+    private static class Node<V> {
+
+        private String label;
+
+        private List<V> values = Collections.emptyList();
+
+        private final Map<Character, Node<V>> children = new HashMap<Character, Node<V>>(4);
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.rest.dispatch;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.rest.RESTConstants;
+import org.apache.synapse.rest.RESTUtils;
+import org.apache.synapse.rest.Resource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The resources of an API compiled for dispatching requests. A request is dispatched to the
+ * same resource as with the {@link URLMappingBasedDispatcher}, the
+ * {@link URITemplateBasedDispatcher} and the {@link DefaultDispatcher} tried in turn, but only
+ * the resources whose mapping can match the request are tried. Exact URL mappings are looked up
+ * in a map, path mappings in a trie of path segments and URI templates in a radix tree of the
+ * literals they start with. Resources matching equally well are tried in the order they were
+ * added to the API.
+ */
+public class ResourceIndex {
+
+    private static final Log log = LogFactory.getLog(ResourceIndex.class);
+
+    /**
+     * Decides whether a resource can process a request, regardless of its URL mapping
+     */
+    public interface Filter {
+
+        public boolean accept(Resource resource);
+
+    }
+
+    private final Map<String, List<Resource>> exactMappings = new HashMap<String, List<Resource>>();
+
+    private final List<Resource> pathMappings = new ArrayList<Resource>();
+
+    private final SegmentNode pathMappingTree = new SegmentNode();
+
+    private final List<Resource> extensionMappings = new ArrayList<Resource>();
+
+    private final List<Resource> uriTemplates = new ArrayList<Resource>();
+
+    private final RadixTree<Integer> uriTemplateTree = new RadixTree<Integer>();
+
+    private final List<Resource> defaultResources = new ArrayList<Resource>();
+
+    /**
+     * Compile the given resources for dispatching
+     *
+     * @param resources resources of an API, in the order they were added
+     */
+    public ResourceIndex(Collection<Resource> resources) {
+        for (Resource resource : resources) {
+            DispatcherHelper helper = resource.getDispatcherHelper();
+            if (helper instanceof URLMappingHelper) {
+                URLMappingHelper mapping = (URLMappingHelper) helper;
+                if (mapping.getExactMatch() != null) {
+                    List<Resource> list = exactMappings.get(mapping.getExactMatch());
+                    if (list == null) {
+                        list = new ArrayList<Resource>(1);
+                        exactMappings.put(mapping.getExactMatch(), list);
+                    }
+                    list.add(resource);
+                } else if (mapping.getPathSegments() != null) {
+                    SegmentNode node = pathMappingTree;
+                    for (String segment : mapping.getPathSegments()) {
+                        node = node.getOrAddChild(segment);
+                    }
+                    node.positions.add(pathMappings.size());
+                    pathMappings.add(resource);
+                } else if (mapping.getExtension() != null) {
+                    extensionMappings.add(resource);
+                }
+            } else if (helper instanceof URITemplateHelper) {
+                uriTemplateTree.put(((URITemplateHelper) helper).getLiteralPrefix(),
+                        uriTemplates.size());
+                uriTemplates.add(resource);
+            } else if (helper == null) {
+                defaultResources.add(resource);
+            }
+        }
+    }
+
+    /**
+     * Find the resource to process the given request
+     *
+     * @param synCtx MessageContext of the request, with the sub request path set
+     * @param filter decides which resources can process the request
+     * @return the matching resource or null
+     */
+    public Resource findResource(MessageContext synCtx, Filter filter) {
+        String url = RESTUtils.getSubRequestPath(synCtx);
+        Resource resource = findByURLMapping(url, filter);
+        if (resource == null) {
+            resource = findByURITemplate(synCtx, url, filter);
+        }
+        if (resource == null) {
+            resource = first(defaultResources, filter);
+        }
+        return resource;
+    }
+
+    private Resource findByURLMapping(String url, Filter filter) {
+        if (!exactMappings.isEmpty()) {
+            List<Resource> resources = exactMappings.get(URLMappingHelper.toExactMatchPath(url));
+            Resource resource = resources != null ? first(resources, filter) : null;
+            if (resource != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Found exact URL match for: " + url);
+                }
+                return resource;
+            }
+        }
+
+        if (!pathMappings.isEmpty()) {
+            // the mapping matching the most segments wins, and "/*" matches as much as one segment
+            String[] segments = URLMappingHelper.toPathSegments(url);
+            List<SegmentNode> matched = new ArrayList<SegmentNode>(segments.length + 1);
+            SegmentNode node = pathMappingTree;
+            while (node != null) {
+                matched.add(node);
+                node = matched.size() <= segments.length ?
+                        node.children.get(segments[matched.size() - 1]) : null;
+            }
+            int deepest = matched.size() - 1;
+            for (int length = Math.max(deepest, 1); length > 0; length--) {
+                List<Integer> positions;
+                if (length > 1) {
+                    positions = matched.get(length).positions;
+                } else if (deepest > 0) {
+                    positions = new ArrayList<Integer>(pathMappingTree.positions);
+                    positions.addAll(matched.get(1).positions);
+                    Collections.sort(positions);
+                } else {
+                    positions = pathMappingTree.positions;
+                }
+                Resource resource = first(positions, pathMappings, filter);
+                if (resource != null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Found path match for: " + url + " with matching length: " +
+                                length);
+                    }
+                    return resource;
+                }
+            }
+        }
+
+        for (Resource resource : extensionMappings) {
+            if (((URLMappingHelper) resource.getDispatcherHelper()).isExtensionMatch(url) &&
+                    filter.accept(resource)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Found extension match for: " + url);
+                }
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private Resource findByURITemplate(MessageContext synCtx, String url, Filter filter) {
+        if (uriTemplates.isEmpty()) {
+            return null;
+        }
+        List<Integer> positions = new ArrayList<Integer>();
+        uriTemplateTree.collectPrefixesOf(url, positions);
+        Collections.sort(positions);
+
+        Map<String, String> variables = null;
+        for (int position : positions) {
+            Resource resource = uriTemplates.get(position);
+            if (!filter.accept(resource)) {
+                continue;
+            }
+            if (variables == null) {
+                variables = new HashMap<String, String>();
+            } else {
+                variables.clear();
+            }
+            URITemplateHelper helper = (URITemplateHelper) resource.getDispatcherHelper();
+            if (helper.getUriTemplate().matches(url, variables)) {
+                for (Map.Entry<String, String> entry : variables.entrySet()) {
+                    synCtx.setProperty(RESTConstants.REST_URI_VARIABLE_PREFIX + entry.getKey(),
+                            entry.getValue());
+                }
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private static Resource first(List<Resource> resources, Filter filter) {
+        for (Resource resource : resources) {
+            if (filter.accept(resource)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private static Resource first(List<Integer> positions, List<Resource> resources,
+                                  Filter filter) {
+        for (int position : positions) {
+            Resource resource = resources.get(position);
+            if (filter.accept(resource)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A node of the trie of path mappings, holding the positions of the mappings ending with
+     * the segments leading to it
+     */
+    private static class SegmentNode {
+
+        private final Map<String, SegmentNode> children = new HashMap<String, SegmentNode>(4);
+
+        private final List<Integer> positions = new ArrayList<Integer>(1);
+
+        private SegmentNode getOrAddChild(String segment) {
+            SegmentNode child = children.get(segment);
+            if (child == null) {
+                child = new SegmentNode();
+                children.put(segment, child);
+            }
+            return child;
+        }
+    }
+}
@@ -28,6 +28,8 @@ public class URITemplateHelper implements DispatcherHelper {
 
     private URITemplate uriTemplate;
 
+    private String literalPrefix;
+
     public URITemplateHelper(String templateString) {
         this.templateString = templateString;
         try {
@@ -35,6 +37,7 @@ public class URITemplateHelper implements DispatcherHelper {
         } catch (URITemplateException e) {
             throw new SynapseException("Error while parsing the URI template", e);
         }
+        this.literalPrefix = getLiteralPrefix(templateString);
     }
 
     public URITemplate getUriTemplate() {
@@ -44,4 +47,30 @@ public class URITemplateHelper implements DispatcherHelper {
     public String getString() {
         return templateString;
     }
+
+    /**
+     * Get the literal the template starts with, which any URL matching the template starts with
+     */
+    String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    private static String getLiteralPrefix(String template) {
+        // both the template and its parser drop a trailing slash
+        template = trimTrailingSlash(trimTrailingSlash(template));
+        int index = template.indexOf('{');
+        String literal = index == -1 ? template : template.substring(0, index);
+        if (literal.endsWith("*")) {
+            // a literal ending with a wildcard only matches the characters before it
+            literal = literal.substring(0, literal.length() - 1);
+        }
+        return literal;
+    }
+
+    private static String trimTrailingSlash(String template) {
+        if (!"/".equals(template) && template.endsWith("/")) {
+            return template.substring(0, template.length() - 1);
+        }
+        return template;
+    }
 }
@@ -30,39 +30,34 @@ public class URLMappingBasedDispatcher implements RESTDispatcher {
     private static final Log log = LogFactory.getLog(URLMappingBasedDispatcher.class);
 
     public Resource findResource(MessageContext synCtx, Collection<Resource> resources) {
-        List<URLMappingHelper> mappings = new ArrayList<URLMappingHelper>();
-        List<Resource> filteredResources = new ArrayList<Resource>();
-
+        String url = RESTUtils.getSubRequestPath(synCtx);
+        boolean hasMappings = false;
         for (Resource r : resources) {
             DispatcherHelper helper = r.getDispatcherHelper();
             if (helper instanceof URLMappingHelper) {
-                mappings.add((URLMappingHelper) helper);
-                filteredResources.add(r);
+                hasMappings = true;
+                if (((URLMappingHelper) helper).isExactMatch(url)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Found exact URL match for: " + url);
+                    }
+                    return r;
+                }
             }
         }
-
-        int count = filteredResources.size();
-        if (count == 0) {
+        if (!hasMappings) {
             return null;
         }
 
-        String url = RESTUtils.getSubRequestPath(synCtx);
-        for (int i = 0; i < count; i++) {
-            if (mappings.get(i).isExactMatch(url)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Found exact URL match for: " + url);
-                }
-                return filteredResources.get(i);
-            }
-        }
-
         int maxLength = 0;
         Resource matchedResource = null;
-        for (int i = 0; i < count; i++) {
-            int length = mappings.get(i).getPrefixMatchingLength(url);
-            if (length > maxLength) {
-                maxLength = length;
-                matchedResource = filteredResources.get(i);
+        for (Resource r : resources) {
+            DispatcherHelper helper = r.getDispatcherHelper();
+            if (helper instanceof URLMappingHelper) {
+                int length = ((URLMappingHelper) helper).getPrefixMatchingLength(url);
+                if (length > maxLength) {
+                    maxLength = length;
+                    matchedResource = r;
+                }
             }
         }
         if (matchedResource != null) {
@@ -72,12 +67,13 @@ public class URLMappingBasedDispatcher implements RESTDispatcher {
             return matchedResource;
         }
 
-        for (int i = 0; i < count; i++) {
-            if (mappings.get(i).isExtensionMatch(url)) {
+        for (Resource r : resources) {
+            DispatcherHelper helper = r.getDispatcherHelper();
+            if (helper instanceof URLMappingHelper && ((URLMappingHelper) helper).isExtensionMatch(url)) {
                 if (log.isDebugEnabled()) {
                     log.debug("Found extension match for: " + url);
                 }
-                return filteredResources.get(i);
+                return r;
             }
         }
 
@@ -44,16 +44,7 @@ public class URLMappingHelper implements DispatcherHelper {
     }
 
     public boolean isExactMatch(String url) {
-        if (!"/".equals(url)) {
-            url = RESTUtils.trimTrailingSlashes(url);
-        }
-        int index = url.indexOf('?');
-        if (index > 0) {
-            url = url.substring(0, index);
-        } else if (index == 0) {
-            url = "/";
-        }
-        return exactMatch != null && exactMatch.equals(url);
+        return exactMatch != null && exactMatch.equals(toExactMatchPath(url));
     }
 
     public boolean isExtensionMatch(String url) {
@@ -70,12 +61,7 @@ public class URLMappingHelper implements DispatcherHelper {
                 return 1;
             }
 
-            url = RESTUtils.trimSlashes(url);
-            int index = url.indexOf('?');
-            if (index != -1) {
-                url = url.substring(0, index);
-            }
-            String[] segments = url.split("/");
+            String[] segments = toPathSegments(url);
             int matchingLength = 0;
             for (int i = 0; i < pathSegments.length; i++) {
                 if (segments.length > i) {
@@ -93,6 +79,46 @@ public class URLMappingHelper implements DispatcherHelper {
         return 0;
     }
 
+    String getExactMatch() {
+        return exactMatch;
+    }
+
+    String[] getPathSegments() {
+        return pathSegments;
+    }
+
+    String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Get the path an exact URL mapping must be equal to for matching the given request URL
+     */
+    static String toExactMatchPath(String url) {
+        if (!"/".equals(url)) {
+            url = RESTUtils.trimTrailingSlashes(url);
+        }
+        int index = url.indexOf('?');
+        if (index > 0) {
+            url = url.substring(0, index);
+        } else if (index == 0) {
+            url = "/";
+        }
+        return url;
+    }
+
+    /**
+     * Get the path segments a path mapping is matched against for the given request URL
+     */
+    static String[] toPathSegments(String url) {
+        url = RESTUtils.trimSlashes(url);
+        int index = url.indexOf('?');
+        if (index != -1) {
+            url = url.substring(0, index);
+        }
+        return url.split("/");
+    }
+
     public String getString() {
         if (pathSegments != null) {
             StringBuilder str = new StringBuilder("");
@@ -36,6 +36,7 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.continuation.ContinuationStackManager;
 import org.apache.synapse.continuation.SeqContinuationState;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
@@ -75,6 +76,14 @@ public class MessageHelper {
 
     private static Log log = LogFactory.getLog(MessageHelper.class);
 
+    /**
+     * Whether the properties of a cloned message context share their values with the original
+     * until first use, instead of being deep copied when the message context is cloned
+     */
+    private static final boolean COPY_ON_WRITE_CLONING = Boolean.parseBoolean(
+            SynapsePropertiesLoader.getPropertyValue(SynapseConstants.CLONE_COPY_ON_WRITE,
+                    String.valueOf(SynapseConstants.DEFAULT_CLONE_COPY_ON_WRITE)));
+
     public static MessageContext cloneMessageContext(MessageContext synCtx, boolean cloneSoapEnvelope) throws AxisFault {
         return cloneMessageContext(synCtx, cloneSoapEnvelope, true);
     }
@@ -148,46 +157,16 @@ public class MessageHelper {
         newCtx.setResponse(synCtx.isResponse());
 
         // copy all the synapse level properties to the newCtx
-        for (Object o : synCtx.getPropertyKeySet()) {
-            // If there are non String keyed properties neglect them rather than trow exception
-            if (o instanceof String) {
-                String strkey = (String) o;
-                Object obj = synCtx.getProperty(strkey);
-                if (obj instanceof String) {
-                    // No need to do anything since Strings are immutable
-                } else if (obj instanceof ArrayList) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Deep clone Started for  ArrayList property: " + strkey + ".");
-                    }
-                    // Call this method to deep clone ArrayList
-                    obj = cloneArrayList((ArrayList) obj);
-                    if (log.isDebugEnabled()) {
-                        log.debug("Deep clone Ended for  ArrayList property: " + strkey + ".");
-                    }
-                } else if (obj instanceof Stack
-                           && strkey.equals(SynapseConstants.SYNAPSE__FUNCTION__STACK)) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Deep clone for Template function stack");
-                    }
-                    obj = getClonedTemplateStack((Stack<TemplateContext>) obj);
-                } else if (obj instanceof OMElement) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Deep clone for OMElement");
-                    }
-                    obj = (OMElement) ((OMElement) obj).cloneOMElement();
-                } else if (obj instanceof ResponseState) {
-                    // do nothing and let the same reference to go to the cloned context
-                } else{
-                    /**
-                     * Need to add conditions according to type if found in
-                     * future
-                     */
-                    if (log.isDebugEnabled()) {
-                        log.warn("Deep clone not happened for property : " + strkey +
-                                 ". Class type : " + obj.getClass().getName());
-                    }
+        if (COPY_ON_WRITE_CLONING && synCtx instanceof Axis2MessageContext) {
+            // values which may be modified in place are copied by each message context on first use
+            ((Axis2MessageContext) synCtx).shareProperties(axis2MC);
+        } else {
+            for (Object o : synCtx.getPropertyKeySet()) {
+                // If there are non String keyed properties neglect them rather than trow exception
+                if (o instanceof String) {
+                    String strkey = (String) o;
+                    newCtx.setProperty(strkey, clonePropertyValue(strkey, synCtx.getProperty(strkey)));
                 }
-                newCtx.setProperty(strkey, obj);
             }
         }
 
@@ -258,6 +237,69 @@ public class MessageHelper {
         return cloneMessageContext(synCtx, true, false, true);
     }
 
+    /**
+     * Returns a copy of a Synapse message context property value, which can be modified without
+     * affecting the original. Strings and values of types which are not known to be modified in
+     * place are returned as they are.
+     *
+     * @param key   name of the property
+     * @param value value of the property
+     * @return copy of the property value
+     */
+    public static Object clonePropertyValue(String key, Object value) {
+        Object obj = value;
+        if (obj instanceof String) {
+            // No need to do anything since Strings are immutable
+        } else if (obj instanceof ArrayList) {
+            if (log.isDebugEnabled()) {
+                log.debug("Deep clone Started for  ArrayList property: " + key + ".");
+            }
+            // Call this method to deep clone ArrayList
+            obj = cloneArrayList((ArrayList) obj);
+            if (log.isDebugEnabled()) {
+                log.debug("Deep clone Ended for  ArrayList property: " + key + ".");
+            }
+        } else if (obj instanceof Stack
+                   && key.equals(SynapseConstants.SYNAPSE__FUNCTION__STACK)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Deep clone for Template function stack");
+            }
+            obj = getClonedTemplateStack((Stack<TemplateContext>) obj);
+        } else if (obj instanceof OMElement) {
+            if (log.isDebugEnabled()) {
+                log.debug("Deep clone for OMElement");
+            }
+            obj = ((OMElement) obj).cloneOMElement();
+        } else if (obj instanceof ResponseState) {
+            // do nothing and let the same reference to go to the cloned context
+        } else if (obj != null) {
+            /**
+             * Need to add conditions according to type if found in
+             * future
+             */
+            if (log.isDebugEnabled()) {
+                log.warn("Deep clone not happened for property : " + key +
+                         ". Class type : " + obj.getClass().getName());
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Checks whether a property value is one that {@link #clonePropertyValue(String, Object)}
+     * copies, and which therefore may be shared between a message context and its clones only
+     * until one of them uses it. The template function stack is not shared, since
+     * {@link #cloneMessageContext(MessageContext, boolean, boolean, boolean)} gives each clone
+     * its own copy of it anyway.
+     *
+     * @param key   name of the property
+     * @param value value of the property
+     * @return true if the value has to be copied before it can be used by a clone
+     */
+    public static boolean isClonedOnCopy(String key, Object value) {
+        return value instanceof ArrayList || value instanceof OMElement;
+    }
+
     /**
      * Get a clone of a Template Function stack
      *
@@ -379,6 +421,8 @@ public class MessageHelper {
 
         org.apache.axis2.context.MessageContext newMC = clonePartially(mc, isAggregrate);
         if (cloneSoapEnvelope) {
+            // the envelope is always copied, since Axiom trees are modified in place by mediators and
+            // transports alike. Only the JSON payload is shared between a message and its clones
             newMC.setEnvelope(cloneSOAPEnvelope(mc.getEnvelope()));
         }
         // XXX: always this section must come after the above step. ie. after applying Envelope.
@@ -542,16 +586,17 @@ public class MessageHelper {
         }
 
     /**
-     * This method will clone the provided SOAPEnvelope and returns the cloned envelope
-     * as an exact copy of the provided envelope
+     * Creates a new envelope of the same SOAP version as the provided envelope, which carries a
+     * copy of the headers of the provided envelope and an empty body. The body of the provided
+     * envelope is not read, so that it can still be consumed as a stream
      *
-     * @param envelope - this will be cloned to get the new envelope
-     * @return cloned SOAPEnvelope from the provided one
+     * @param envelope - envelope of which the headers are copied
+     * @return new SOAPEnvelope with the copied headers
      */
-    public static SOAPEnvelope cloneSOAPEnvelope(SOAPEnvelope envelope) {
+    public static SOAPEnvelope cloneSOAPHeaders(SOAPEnvelope envelope) {
         SOAPFactory fac;
         if (SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI
-                .equals(envelope.getBody().getNamespace().getNamespaceURI())) {
+                .equals(envelope.getNamespace().getNamespaceURI())) {
             fac = OMAbstractFactory.getSOAP11Factory();
         } else {
             fac = OMAbstractFactory.getSOAP12Factory();
@@ -575,6 +620,18 @@ public class MessageHelper {
                 }
             }
         }
+        return newEnvelope;
+    }
+
+    /**
+     * This method will clone the provided SOAPEnvelope and returns the cloned envelope
+     * as an exact copy of the provided envelope
+     *
+     * @param envelope - this will be cloned to get the new envelope
+     * @return cloned SOAPEnvelope from the provided one
+     */
+    public static SOAPEnvelope cloneSOAPEnvelope(SOAPEnvelope envelope) {
+        SOAPEnvelope newEnvelope = cloneSOAPHeaders(envelope);
 
         if (envelope.getBody() != null) {
             // treat the SOAPFault cloning as a special case otherwise a cloning OMElement as the
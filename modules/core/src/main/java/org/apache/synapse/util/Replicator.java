@@ -24,6 +24,10 @@ import org.apache.synapse.SynapseException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Helper class for replicating states
  */
@@ -94,6 +98,49 @@ public class Replicator {
         }
     }
 
+    /**
+     * Helper method to replicate the states of several properties at once, so that all instances
+     * across the cluster see them through a single replication message. As with
+     * {@link #setAndReplicateState(String, Object, ConfigurationContext)}, properties with a
+     * null value are left as they are.
+     *
+     * @param states    The keys and values of the properties
+     * @param configCtx Axis2 Configuration Context
+     */
+    public static void setAndReplicateStates(Map<String, Object> states,
+                                             ConfigurationContext configCtx) {
+
+        if (configCtx != null && states != null && !states.isEmpty()) {
+
+            List<String> keys = new ArrayList<String>(states.size());
+            for (Map.Entry<String, Object> state : states.entrySet()) {
+                if (state.getKey() != null && state.getValue() != null) {
+                    configCtx.setNonReplicableProperty(state.getKey(), state.getValue());
+                    keys.add(state.getKey());
+                }
+            }
+            if (keys.isEmpty()) {
+                return;
+            }
+
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("Start replicating the properties with keys : " + keys);
+                }
+
+                org.apache.axis2.clustering.state.Replicator.replicate(
+                        configCtx, keys.toArray(new String[keys.size()]));
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Completed replication of the properties with keys : " + keys);
+                }
+
+            } catch (ClusteringFault clusteringFault) {
+                handleException("Error during the replicating states ", clusteringFault);
+            }
+        }
+    }
+
     /**
      * Helper methods for handle errors.
      *
@@ -0,0 +1,354 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A timer for large numbers of short lived timeouts, most of which are cancelled before they
+ * expire. Timeouts are hashed into the buckets of a wheel which a single thread advances by one
+ * bucket every tick, so that scheduling and cancelling a timeout take constant time and never
+ * wait for the timer thread. A timeout expires within one tick after its delay has elapsed.
+ * <p>
+ * Expired tasks are run by the timer thread itself, and should therefore only hand the actual
+ * work over to another thread. The timer thread is started when the first timeout is scheduled.
+ */
+public class HashedWheelTimer {
+
+    private static final Log log = LogFactory.getLog(HashedWheelTimer.class);
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int STOPPED = 2;
+
+    /** Maximum number of newly scheduled timeouts moved into the wheel on a single tick */
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    /** Timeouts scheduled since the last tick, which are yet to be placed on the wheel */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    /** Timeouts cancelled since the last tick, which are yet to be removed from the wheel */
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private final AtomicInteger state = new AtomicInteger(INIT);
+
+    private final Thread worker;
+
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Create a timer
+     *
+     * @param name          name of the timer thread
+     * @param tickMillis    duration of a tick in milliseconds
+     * @param ticksPerWheel number of buckets of the wheel, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickMillis, int ticksPerWheel) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive : " + tickMillis);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid number of ticks per wheel : " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.worker = new Thread(new Worker(), name);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Schedule a task to be run once the given delay has elapsed
+     *
+     * @param task        task to be run by the timer thread
+     * @param delayMillis delay in milliseconds
+     * @return handle which can be used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null");
+        }
+        start();
+        long deadline = System.nanoTime() - startTime +
+                TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        Timeout timeout = new Timeout(this, task, deadline);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stop the timer. Timeouts which have not expired yet are dropped without running their tasks
+     */
+    public void stop() {
+        if (state.getAndSet(STOPPED) == STARTED) {
+            worker.interrupt();
+        }
+        pendingTimeouts.clear();
+        cancelledTimeouts.clear();
+    }
+
+    /**
+     * @return approximate number of timeouts which have neither expired nor been cancelled
+     */
+    public int getPendingTimeouts() {
+        int count = 0;
+        for (Timeout timeout : pendingTimeouts) {
+            if (timeout.state.get() == Timeout.WAITING) {
+                count++;
+            }
+        }
+        for (Bucket bucket : wheel) {
+            count += bucket.size;
+        }
+        return count;
+    }
+
+    private void start() {
+        switch (state.get()) {
+            case INIT:
+                if (state.compareAndSet(INIT, STARTED)) {
+                    worker.start();
+                }
+                break;
+            case STARTED:
+                break;
+            default:
+                throw new IllegalStateException("Cannot schedule a timeout on a stopped timer");
+        }
+    }
+
+    /**
+     * The thread which advances the wheel and runs the expired tasks
+     */
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        public void run() {
+            tick = (System.nanoTime() - startTime) / tickNanos;
+            while (state.get() == STARTED) {
+                long deadline = waitForNextTick();
+                if (deadline < 0) {
+                    break;
+                }
+                removeCancelledTimeouts();
+                transferPendingTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                tick++;
+            }
+        }
+
+        /**
+         * @return time of the tick relative to the start time of the timer, or -1 if stopped
+         */
+        private long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            while (true) {
+                long sleepMillis = TimeUnit.NANOSECONDS.toMillis(
+                        deadline - (System.nanoTime() - startTime) + 999999);
+                if (sleepMillis <= 0) {
+                    return deadline;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (state.get() == STOPPED) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void removeCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+
+        private void transferPendingTimeouts() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state.get() != Timeout.WAITING) {
+                    continue;
+                }
+                long expiryTick = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+                // timeouts which are already due go into the bucket of the current tick
+                long bucketTick = Math.max(expiryTick, tick);
+                wheel[(int) (bucketTick & mask)].add(timeout);
+            }
+        }
+    }
+
+    /**
+     * Handle of a task scheduled on the timer
+     */
+    public static final class Timeout {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private volatile Runnable task;
+
+        // the following are only accessed by the timer thread
+
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private Timeout next;
+
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task, unless it has already expired
+         *
+         * @return true if the task was cancelled by this call
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            // let go of the task right away, the timer thread may only drop the timeout later
+            task = null;
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) {
+                return;
+            }
+            Runnable runnable = task;
+            task = null;
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                log.warn("Error while running an expired timer task", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed into a bucket of the wheel
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        private int size;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() != Timeout.WAITING) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+        }
+    }
+}
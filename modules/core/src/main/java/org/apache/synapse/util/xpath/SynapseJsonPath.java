@@ -51,11 +51,18 @@ import org.jaxen.JaxenException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SynapseJsonPath extends SynapsePath {
 
     private static final Log log = LogFactory.getLog(SynapseJsonPath.class);
 
+    /** Number of times the JSON payload of a message was parsed for a JSON path evaluation */
+    private static final AtomicLong payloadParseCount = new AtomicLong();
+
+    /** Number of JSON path evaluations which reused the parsed JSON payload of the message */
+    private static final AtomicLong payloadParsesAvoidedCount = new AtomicLong();
+
     private String enableStreamingJsonPath = SynapsePropertiesLoader.loadSynapseProperties().
     getProperty(SynapseConstants.STREAMING_JSONPATH_PROCESSING);
 
@@ -145,13 +152,75 @@ public class SynapseJsonPath extends SynapsePath {
             } catch (IOException e) {
                 handleException("Could not find JSON Stream in PassThrough Pipe during JSON path evaluation.", e);
             }
-        } else {
+        } else if (isWholeBody) {
             stream = JsonUtil.getJsonPayload(amc);
             return stringValueOf(stream);
+        } else {
+            return stringValueOfParsedPayload(amc);
         }
         return "";
     }
 
+    private String stringValueOfParsedPayload(org.apache.axis2.context.MessageContext amc) {
+        Object read;
+        try {
+            Object document = getParsedJsonPayload(amc);
+            if (document == null) {
+                return "";
+            }
+            read = formatJsonPathResponse(jsonPath.read(document));
+        } catch (Exception e) { // catch invalid json paths that do not match with the existing JSON payload.
+            if (log.isDebugEnabled()) {
+                log.debug("#stringValueOf. Error evaluating JSON Path <" + jsonPath.getPath()
+                        + ">. Returning empty result. Error>>> " + e.getLocalizedMessage());
+            }
+            return "";
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("#stringValueOf. Evaluated JSON path <" + jsonPath.getPath() + "> : <" + (read == null ? null : read.toString()) + ">");
+        }
+        return (null == read ? "null" : read.toString());
+    }
+
+    /**
+     * Returns the parsed JSON payload of the message, parsing the JSON stream only if no JSON path evaluation
+     * has parsed the current payload before.
+     */
+    private static Object getParsedJsonPayload(org.apache.axis2.context.MessageContext amc) {
+        Object document = JsonUtil.getParsedJsonPayload(amc);
+        if (document != null) {
+            payloadParsesAvoidedCount.incrementAndGet();
+            return document;
+        }
+        InputStream stream = JsonUtil.getJsonPayload(amc);
+        if (stream == null) {
+            return null;
+        }
+        try {
+            document = Configuration.defaultConfiguration().jsonProvider().parse(stream, "UTF-8");
+        } finally {
+            // closing the read-only stream of the payload resets it for the next reader
+            IOUtils.closeQuietly(stream);
+        }
+        payloadParseCount.incrementAndGet();
+        JsonUtil.setParsedJsonPayload(amc, document);
+        return document;
+    }
+
+    /**
+     * @return number of times a JSON payload was parsed for a JSON path evaluation against a message
+     */
+    public static long getPayloadParseCount() {
+        return payloadParseCount.get();
+    }
+
+    /**
+     * @return number of JSON path evaluations against a message which did not have to parse its JSON payload
+     */
+    public static long getPayloadParsesAvoidedCount() {
+        return payloadParsesAvoidedCount.get();
+    }
+
     public String stringValueOf(final InputStream jsonStream) {
         if (jsonStream == null) {
             return "";
@@ -237,8 +306,18 @@ public class SynapseJsonPath extends SynapsePath {
                 handleException("Could not find JSON Stream in PassThrough Pipe during JSON path evaluation.", e);
             }
         } else {
-            stream = JsonUtil.getJsonPayload(amc);
-            return listValueOf(stream);
+            Object document = getParsedJsonPayload(amc);
+            if (document == null) {
+                return null;
+            }
+            List result = toList(formatJsonPathResponse(jsonPath.read(document)));
+            // the parsed payload is shared with other evaluations, so hand out copies of its elements
+            for (int i = 0; i < result.size(); i++) {
+                if (result.get(i) instanceof JsonElement) {
+                    result.set(i, ((JsonElement) result.get(i)).deepCopy());
+                }
+            }
+            return result;
         }
         return null;
     }
@@ -253,22 +332,9 @@ public class SynapseJsonPath extends SynapsePath {
         if (jsonStream == null) {
             return null;
         }
-        List result = new ArrayList();
+        List result;
         try {
-            Object object = jsonPath.read(jsonStream);
-            object = formatJsonPathResponse(jsonPath.read(jsonStream));
-            if (object != null) {
-                if (object instanceof List && !jsonPath.isDefinite()) {
-                    result = (List) object;
-                } else if (object instanceof JsonArray) {
-                    for (JsonElement element:
-                            (JsonArray) object) {
-                        result.add(element);
-                    }
-                } else {
-                    result.add(object);
-                }
-            }
+            result = toList(formatJsonPathResponse(jsonPath.read(jsonStream)));
         } catch (IOException e) {
             // catch invalid json paths that do not match with the existing JSON payload.
             // not throwing the exception as done in Xpath
@@ -281,6 +347,23 @@ public class SynapseJsonPath extends SynapsePath {
         return result;
     }
 
+    private List toList(Object object) {
+        List result = new ArrayList();
+        if (object != null) {
+            if (object instanceof List && !jsonPath.isDefinite()) {
+                result = (List) object;
+            } else if (object instanceof JsonArray) {
+                for (JsonElement element:
+                        (JsonArray) object) {
+                    result.add(element);
+                }
+            } else {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
     /**
      * JayWay json-path response have additional elements like "members"(for objects) and "elements"(for arrays)
      * This method will correct such strings by removing additional elements.
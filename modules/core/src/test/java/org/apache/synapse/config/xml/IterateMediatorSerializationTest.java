@@ -179,4 +179,35 @@ public class IterateMediatorSerializationTest extends AbstractTestCase {
         }
     }
 
+    public void testStreamingIterateMediatorSerialization() throws Exception {
+        String inputXml = "<iterate xmlns=\"http://ws.apache.org/ns/synapse\" streaming=\"true\" " +
+                          "maxInFlight=\"8\" expression=\"$body/orders/order\"><target sequence=\"sequenceRef1\"/>" +
+                          "</iterate>";
+        assertTrue(serialization(inputXml, iterateMediatorFactory, iterateMediatorSerializer));
+        assertTrue(serialization(inputXml, iterateMediatorSerializer));
+    }
+
+    public void testStreamingIterateMediatorWithPreservedPayload() throws Exception {
+        String inputXml = "<iterate xmlns=\"http://ws.apache.org/ns/synapse\" streaming=\"true\" " +
+                          "preservePayload=\"true\" expression=\"//order\"><target sequence=\"sequenceRef1\"/>" +
+                          "</iterate>";
+        try {
+            serialization(inputXml, iterateMediatorFactory, iterateMediatorSerializer);
+            fail("Streaming should not be allowed when the payload is preserved");
+        } catch (SynapseException syne) {
+            assertTrue(true);
+        }
+    }
+
+    public void testStreamingIterateMediatorWithUnsupportedPath() throws Exception {
+        String inputXml = "<iterate xmlns=\"http://ws.apache.org/ns/synapse\" streaming=\"true\" " +
+                          "expression=\"//order[@id='1']\"><target sequence=\"sequenceRef1\"/></iterate>";
+        try {
+            serialization(inputXml, iterateMediatorFactory, iterateMediatorSerializer);
+            fail("Streaming should not be allowed with a predicate in the expression");
+        } catch (SynapseException syne) {
+            assertTrue(true);
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ package org.apache.synapse.config.xml.endpoints;
 import org.apache.axiom.om.OMElement;
 import org.apache.synapse.config.xml.AbstractTestCase;
 import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
 
 public class LoadBalanceEndpointSerializationTest extends AbstractTestCase {
 
@@ -54,4 +55,26 @@ public class LoadBalanceEndpointSerializationTest extends AbstractTestCase {
 
         assertTrue(compare(serializedOut,inputElement));
     }
+
+    public void testLoadBalanceEndpointWithHedging() throws Exception {
+        String inputXml = "<endpoint xmlns=\"http://ws.apache.org/ns/synapse\">" +
+                "<loadbalance algorithm=\"org.apache.synapse.endpoints.algorithms.RoundRobin\" " +
+                "hedging=\"true\">" +
+                "<endpoint>" +
+                "<address uri=\"http://localhost:9001/services/LBService1\"/>" +
+                "</endpoint>" +
+                "<endpoint>" +
+                "<address uri=\"http://localhost:9002/services/LBService1\"/>" +
+                "</endpoint>" +
+                "</loadbalance>" +
+                "</endpoint>";
+
+        OMElement inputElement = createOMElement(inputXml);
+        Endpoint endpoint = LoadbalanceEndpointFactory.getEndpointFromElement(
+                inputElement, true, null);
+        assertTrue(((LoadbalanceEndpoint) endpoint).isHedging());
+        OMElement serializedOut = LoadbalanceEndpointSerializer.getElementFromEndpoint(endpoint);
+
+        assertTrue(compare(serializedOut, inputElement));
+    }
 }
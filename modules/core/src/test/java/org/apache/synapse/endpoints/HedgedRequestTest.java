@@ -0,0 +1,307 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.addressing.RelatesTo;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.AsyncCallback;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.SynapseCallbackReceiver;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests hedging the requests of group endpoints and limiting their retries to a budget
+ */
+public class HedgedRequestTest extends TestCase {
+
+    public void testRetryBudget() {
+        RetryBudget budget = new RetryBudget(0.5, 0);
+        assertNull(budget.tryRetry());
+        budget.requestSent();
+        budget.requestSent();
+        assertTrue(budget.hasRetries());
+        RetryBudget.Retry retry = budget.tryRetry();
+        assertNotNull(retry);
+        assertNull(budget.tryRetry());
+        budget.refund(retry);
+        assertNotNull(budget.tryRetry());
+
+        // a few retries per second are allowed without any requests
+        budget = new RetryBudget(0, 1000);
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(budget.tryRetry());
+        }
+    }
+
+    public void testRetryIsRefundedWhereItWasTaken() {
+        RetryBudget budget = new RetryBudget(0, 1);
+        RetryBudget.Retry retry = budget.tryRetry();
+        assertNotNull(retry);
+        assertNull(budget.tryRetry());
+
+        // the retry goes back to the retries of the second, and does not add to the balance
+        budget.refund(retry);
+        assertNotNull(budget.tryRetry());
+        assertNull(budget.tryRetry());
+    }
+
+    public void testHedgingDelay() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy();
+        assertEquals(0, policy.getDelay(System.currentTimeMillis()));
+
+        for (int i = 0; i < SynapseConstants.DEFAULT_HEDGING_MIN_RESPONSES; i++) {
+            policy.responseReceived(200);
+        }
+        long now = System.currentTimeMillis();
+        // the delay is updated once per period only
+        assertEquals(0, policy.getDelay(now));
+        assertEquals(200, policy.getDelay(now + 1000), 200 / 16);
+
+        MessageContext synCtx = createMessageContext("GET");
+        assertTrue(policy.isHedgeable(synCtx));
+        assertFalse(policy.isHedgeable(createMessageContext("POST")));
+        synCtx.setProperty(SynapseConstants.OUT_ONLY, "true");
+        assertFalse(policy.isHedgeable(synCtx));
+    }
+
+    public void testHedgedRequest() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        HedgingPolicy policy = createWarmPolicy();
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+        assertNotSame(synCtx, hedgeCtx);
+
+        // the first member failed, but the hedged request may still respond
+        assertTrue(HedgedRequest.attemptFailed(synCtx));
+        assertTrue(HedgedRequest.responseReceived(hedgeCtx));
+    }
+
+    public void testOnlyFirstResponseIsMediated() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        HedgingPolicy policy = createWarmPolicy();
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+
+        assertTrue(HedgedRequest.responseReceived(hedgeCtx));
+        assertFalse(HedgedRequest.responseReceived(synCtx));
+
+        hedged.clear();
+        synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        hedgeCtx = waitForHedge(hedged);
+        assertTrue(HedgedRequest.responseReceived(synCtx));
+        // a failure of the other attempt after the response is ignored as well
+        assertTrue(HedgedRequest.attemptFailed(hedgeCtx));
+    }
+
+    public void testRequestFailsOverWhenAllAttemptsFail() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        HedgingPolicy policy = createWarmPolicy();
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+
+        assertTrue(HedgedRequest.attemptFailed(hedgeCtx));
+        assertFalse(HedgedRequest.attemptFailed(synCtx));
+
+        // requests which are not hedged fail over right away
+        synCtx = createMessageContext("POST");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        assertFalse(HedgedRequest.attemptFailed(synCtx));
+        assertTrue(HedgedRequest.responseReceived(synCtx));
+    }
+
+    public void testResponseTimeOfLosingPrimaryIsLearnt() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        List<Long> responseTimes = Collections.synchronizedList(new ArrayList<Long>());
+        HedgingPolicy policy = createWarmPolicy(responseTimes);
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+
+        // the response time of the hedge is not learnt, as it is the faster of two attempts
+        assertTrue(HedgedRequest.responseReceived(hedgeCtx));
+        assertTrue(responseTimes.isEmpty());
+
+        // the primary was sent no later than the hedging delay before the hedge
+        assertFalse(HedgedRequest.responseReceived(synCtx));
+        assertEquals(1, responseTimes.size());
+        assertTrue(responseTimes.get(0) >= SynapseConstants.DEFAULT_HEDGING_MIN_DELAY);
+    }
+
+    public void testLosingResponseIsConsumed() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        List<Long> responseTimes = Collections.synchronizedList(new ArrayList<Long>());
+        HedgingPolicy policy = createWarmPolicy(responseTimes);
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+
+        SynapseCallbackReceiver receiver = new SynapseCallbackReceiver(new SynapseConfiguration(), null);
+        receiver.addCallback("primary", new AsyncCallback(
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext(), synCtx));
+        // the hedge responds first, which cancels the callback of the primary
+        assertTrue(HedgedRequest.responseReceived(hedgeCtx));
+        assertEquals(0, receiver.getCallbackCount());
+
+        InputStream body = new ByteArrayInputStream(new byte[64 * 1024]);
+        receiver.receive(createResponse("primary", body));
+        assertEquals(0, body.available());
+        // the response time of the primary is learnt although its callback was cancelled
+        assertEquals(1, responseTimes.size());
+    }
+
+    public void testLateLosingResponseIsConsumed() throws Exception {
+        List<MessageContext> hedged = Collections.synchronizedList(new ArrayList<MessageContext>());
+        List<Endpoint> members = createMembers(hedged);
+        HedgingPolicy policy = createWarmPolicy();
+
+        MessageContext synCtx = createMessageContext("GET");
+        HedgedRequest.prepare(policy, members, members.get(0), synCtx);
+        MessageContext hedgeCtx = waitForHedge(hedged);
+
+        // the callback of the primary is still registered when its response is received, as
+        // both attempts respond at the same time, so it is cancelled on another receiver
+        SynapseCallbackReceiver receiver = new SynapseCallbackReceiver(new SynapseConfiguration(), null);
+        SynapseCallbackReceiver other = new SynapseCallbackReceiver(new SynapseConfiguration(), null);
+        org.apache.axis2.context.MessageContext axis2Ctx =
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        receiver.addCallback("primary", new AsyncCallback(axis2Ctx, synCtx));
+        other.addCallback("primary", new AsyncCallback(axis2Ctx, synCtx));
+        assertTrue(HedgedRequest.responseReceived(hedgeCtx));
+        assertEquals(1, receiver.getCallbackCount());
+
+        InputStream body = new ByteArrayInputStream(new byte[64 * 1024]);
+        receiver.receive(createResponse("primary", body));
+        assertEquals(0, body.available());
+    }
+
+    private static HedgingPolicy createWarmPolicy() {
+        return createWarmPolicy(new ArrayList<Long>());
+    }
+
+    /**
+     * Create a policy which learnt its hedging delay, and records the response times learnt
+     * after that
+     */
+    private static HedgingPolicy createWarmPolicy(final List<Long> responseTimes) {
+        HedgingPolicy policy = new HedgingPolicy() {
+            @Override
+            void responseReceived(long responseTime) {
+                super.responseReceived(responseTime);
+                responseTimes.add(responseTime);
+            }
+        };
+        for (int i = 0; i < SynapseConstants.DEFAULT_HEDGING_MIN_RESPONSES; i++) {
+            policy.responseReceived(20);
+        }
+        responseTimes.clear();
+        return policy;
+    }
+
+    private static MessageContext waitForHedge(List<MessageContext> hedged) throws Exception {
+        long end = System.currentTimeMillis() + 10000;
+        while (hedged.isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, hedged.size());
+        return hedged.get(0);
+    }
+
+    private static MessageContext createMessageContext(String method) throws Exception {
+        MessageContext synCtx = TestUtils.createSynapseMessageContext(
+                "<getQuote/>", new SynapseConfiguration());
+        ((Axis2MessageContext) synCtx).getAxis2MessageContext().setProperty(
+                org.apache.axis2.Constants.Configuration.HTTP_METHOD, method);
+        return synCtx;
+    }
+
+    /**
+     * Create a response to the request with the given message ID, whose body is read from the
+     * given stream through a pipe
+     */
+    private static org.apache.axis2.context.MessageContext createResponse(
+            String messageID, final InputStream body) throws Exception {
+        Pipe pipe = Mockito.mock(Pipe.class);
+        Mockito.when(pipe.isProducerCompleted()).thenReturn(true);
+        Mockito.when(pipe.getInputStream()).thenReturn(body);
+        Mockito.when(pipe.isConsumeRequired()).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return body.available() > 0;
+            }
+        });
+
+        org.apache.axis2.context.MessageContext response = new org.apache.axis2.context.MessageContext();
+        response.getOptions().setRelatesTo(new RelatesTo(messageID));
+        response.setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
+        return response;
+    }
+
+    /**
+     * Create the members of a group, the second of which records the messages sent to it
+     */
+    private static List<Endpoint> createMembers(final List<MessageContext> sent) {
+        List<Endpoint> members = new ArrayList<Endpoint>();
+        for (int i = 0; i < 2; i++) {
+            final boolean recording = i == 1;
+            members.add(new AddressEndpoint() {
+                @Override
+                public boolean readyToSend() {
+                    return true;
+                }
+
+                @Override
+                public void send(MessageContext synCtx) {
+                    if (recording) {
+                        sent.add(synCtx);
+                    }
+                }
+            });
+        }
+        return members;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests ejecting the members of a group which fail or respond much slower than their peers
+ */
+public class OutlierDetectorTest extends TestCase {
+
+    private static final int MIN_REQUESTS =
+            SynapseConstants.DEFAULT_OUTLIER_DETECTION_MIN_REQUESTS;
+
+    public void testFailingMemberIsEjected() {
+        List<Endpoint> endpoints = createGroup(4);
+        EndpointContext failing = getContext(endpoints, 0);
+        for (int i = 0; i < MIN_REQUESTS; i++) {
+            failing.onResponse(10, true);
+            getContext(endpoints, 1).onResponse(10, false);
+        }
+        assertFalse(failing.readyToSend());
+        assertTrue(failing.isState(EndpointContext.ST_SUSPENDED));
+        assertTrue(getContext(endpoints, 1).readyToSend());
+
+        // switching the endpoint on manually lets it back in right away
+        failing.switchOn();
+        assertTrue(failing.readyToSend());
+    }
+
+    public void testSlowMemberIsEjected() {
+        List<Endpoint> endpoints = createGroup(4);
+        for (int i = 0; i < MIN_REQUESTS; i++) {
+            for (int j = 1; j < 4; j++) {
+                getContext(endpoints, j).onResponse(20, false);
+            }
+            getContext(endpoints, 0).onResponse(5000, false);
+        }
+        assertFalse(getContext(endpoints, 0).readyToSend());
+        for (int j = 1; j < 4; j++) {
+            assertTrue(getContext(endpoints, j).readyToSend());
+        }
+    }
+
+    public void testMembersFasterThanMinLatencyAreNotEjected() {
+        List<Endpoint> endpoints = createGroup(3);
+        for (int i = 0; i < MIN_REQUESTS; i++) {
+            getContext(endpoints, 1).onResponse(1, false);
+            getContext(endpoints, 2).onResponse(1, false);
+            getContext(endpoints, 0).onResponse(50, false);
+        }
+        assertTrue(getContext(endpoints, 0).readyToSend());
+    }
+
+    public void testEjectionsAreCapped() {
+        List<Endpoint> endpoints = createGroup(4);
+        for (int i = 0; i < MIN_REQUESTS; i++) {
+            for (int j = 0; j < 4; j++) {
+                getContext(endpoints, j).onResponse(10, true);
+            }
+        }
+        int ejected = 0;
+        for (int j = 0; j < 4; j++) {
+            if (!getContext(endpoints, j).readyToSend()) {
+                ejected++;
+            }
+        }
+        assertEquals(4 * SynapseConstants.DEFAULT_OUTLIER_DETECTION_MAX_EJECTION_PERCENT / 100,
+                ejected);
+    }
+
+    public void testEjectionTimeGrowsAndTrafficRampsUp() {
+        List<Endpoint> endpoints = createGroup(2);
+        OutlierDetector.Member member = getContext(endpoints, 0).getOutlierDetection();
+        long ejectionTime = SynapseConstants.DEFAULT_OUTLIER_DETECTION_EJECTION_TIME;
+        long rampTime = SynapseConstants.DEFAULT_OUTLIER_DETECTION_RAMP_TIME;
+
+        long now = 1000;
+        assertEquals(ejectionTime, member.eject(now));
+        assertEquals(0, member.eject(now + 1));
+        assertTrue(member.isEjected(now + ejectionTime - 1));
+        assertFalse(member.admit(now + ejectionTime - 1));
+        assertTrue(member.admit(now + ejectionTime + rampTime));
+
+        // only part of the traffic is let through while ramping up
+        int admitted = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (member.admit(now + ejectionTime)) {
+                admitted++;
+            }
+        }
+        assertTrue(admitted > 0 && admitted < 500);
+
+        // a member ejected again soon after is ejected for longer
+        now += ejectionTime + 1;
+        assertEquals(2 * ejectionTime, member.eject(now));
+    }
+
+    private static EndpointContext getContext(List<Endpoint> endpoints, int index) {
+        return ((AbstractEndpoint) endpoints.get(index)).getContext();
+    }
+
+    private static List<Endpoint> createGroup(int count) {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < count; i++) {
+            AddressEndpoint addressEndpoint = new AddressEndpoint();
+            addressEndpoint.setName("endpoint" + i);
+            EndpointDefinition definition = new EndpointDefinition();
+            definition.setAddress("http://localhost:" + (9000 + i) + "/");
+            addressEndpoint.setDefinition(definition);
+            endpoints.add(addressEndpoint);
+        }
+
+        LoadbalanceEndpoint loadbalanceEndpoint = new LoadbalanceEndpoint();
+        loadbalanceEndpoint.setChildren(endpoints);
+        SynapseEnvironment env = new Axis2SynapseEnvironment(
+                new ConfigurationContext(new AxisConfiguration()), new SynapseConfiguration());
+        loadbalanceEndpoint.init(env);
+        OutlierDetector.attach(endpoints);
+        return endpoints;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the load balancing algorithms which choose endpoints without locking
+ */
+public class LoadAwareAlgorithmTest extends TestCase {
+
+    public void testAtomicRoundRobin() {
+        List<Endpoint> endpoints = createEndpoints(3);
+        AtomicRoundRobin algorithm = new AtomicRoundRobin();
+        createLoadBalanceEndpoint(endpoints, algorithm);
+
+        for (int i = 0; i < 6; i++) {
+            assertSame(endpoints.get(i % 3), algorithm.getNextEndpoint(createMessageContext(), null));
+        }
+
+        ((AddressEndpoint) endpoints.get(1)).getContext().switchOff();
+        for (int i = 0; i < 4; i++) {
+            assertNotSame(endpoints.get(1), algorithm.getNextEndpoint(createMessageContext(), null));
+        }
+
+        for (Endpoint endpoint : endpoints) {
+            ((AddressEndpoint) endpoint).getContext().switchOff();
+        }
+        assertNull(algorithm.getNextEndpoint(createMessageContext(), null));
+    }
+
+    public void testLeastOutstandingRequests() {
+        List<Endpoint> endpoints = createEndpoints(3);
+        LeastOutstandingRequests algorithm = new LeastOutstandingRequests();
+        createLoadBalanceEndpoint(endpoints, algorithm);
+
+        // no responses are received, so each endpoint gets one request before any gets two
+        List<MessageContext> messages = new ArrayList<MessageContext>();
+        List<Endpoint> chosen = new ArrayList<Endpoint>();
+        for (int i = 0; i < 3; i++) {
+            MessageContext synCtx = createMessageContext();
+            Endpoint endpoint = algorithm.getNextEndpoint(synCtx, null);
+            assertFalse(chosen.contains(endpoint));
+            chosen.add(endpoint);
+            messages.add(synCtx);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, algorithm.getEndpointLoad(i).getOutstandingRequests());
+        }
+
+        // the endpoint which responds is the only one without an outstanding request
+        EndpointLoad.requestsCompleted(messages.get(1), false);
+        EndpointLoad.requestsCompleted(messages.get(1), false);
+        int responded = endpoints.indexOf(chosen.get(1));
+        assertEquals(0, algorithm.getEndpointLoad(responded).getOutstandingRequests());
+        assertSame(chosen.get(1), algorithm.getNextEndpoint(createMessageContext(), null));
+
+        ((AddressEndpoint) chosen.get(1)).getContext().switchOff();
+        assertNotSame(chosen.get(1), algorithm.getNextEndpoint(createMessageContext(), null));
+    }
+
+    public void testPowerOfTwoChoices() {
+        List<Endpoint> endpoints = createEndpoints(2);
+        PowerOfTwoChoices algorithm = new PowerOfTwoChoices();
+        createLoadBalanceEndpoint(endpoints, algorithm);
+
+        EndpointLoad fast = algorithm.getEndpointLoad(0);
+        EndpointLoad slow = algorithm.getEndpointLoad(1);
+        fast.requestStarted();
+        fast.requestCompleted(1000000, false);
+        slow.requestStarted();
+        slow.requestCompleted(50000000, false);
+
+        // with two endpoints both are compared for every message
+        for (int i = 0; i < 10; i++) {
+            assertSame(endpoints.get(0), algorithm.getNextEndpoint(createMessageContext(), null));
+        }
+        // until enough requests are outstanding on the faster endpoint
+        for (int i = 0; i < 50; i++) {
+            fast.requestStarted();
+        }
+        assertSame(endpoints.get(1), algorithm.getNextEndpoint(createMessageContext(), null));
+
+        ((AddressEndpoint) endpoints.get(1)).getContext().switchOff();
+        assertSame(endpoints.get(0), algorithm.getNextEndpoint(createMessageContext(), null));
+    }
+
+    public void testEndpointLoad() {
+        EndpointLoad load = new EndpointLoad();
+        assertEquals(0d, load.getLatency());
+        assertEquals(0d, load.getCost());
+
+        load.requestStarted();
+        load.requestCompleted(100, false);
+        assertEquals(100d, load.getLatency());
+        load.requestStarted();
+        load.requestCompleted(200, false);
+        assertEquals(130d, load.getLatency(), 0.001);
+
+        // a quick failure counts as slower than the usual response
+        load.requestStarted();
+        load.requestCompleted(1, true);
+        assertTrue(load.getLatency() > 130d);
+
+        load.requestStarted();
+        assertEquals(1, load.getOutstandingRequests());
+        assertEquals(2 * load.getLatency(), load.getCost());
+    }
+
+    private static void createLoadBalanceEndpoint(List<Endpoint> endpoints,
+                                                  LoadbalanceAlgorithm algorithm) {
+        LoadbalanceEndpoint loadbalanceEndpoint = new LoadbalanceEndpoint();
+        algorithm.setEndpoints(endpoints);
+        algorithm.setLoadBalanceEndpoint(loadbalanceEndpoint);
+        loadbalanceEndpoint.setChildren(endpoints);
+        loadbalanceEndpoint.setAlgorithm(algorithm);
+
+        SynapseEnvironment env = new Axis2SynapseEnvironment(
+                new ConfigurationContext(new AxisConfiguration()), new SynapseConfiguration());
+        loadbalanceEndpoint.init(env);
+    }
+
+    private static MessageContext createMessageContext() {
+        return new Axis2MessageContext(new org.apache.axis2.context.MessageContext(), null, null);
+    }
+
+    private static List<Endpoint> createEndpoints(int count) {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < count; i++) {
+            AddressEndpoint addressEndpoint = new AddressEndpoint();
+            EndpointDefinition definition = new EndpointDefinition();
+            definition.setAddress("http://localhost:" + (9000 + i) + "/");
+            addressEndpoint.setDefinition(definition);
+            endpoints.add(addressEndpoint);
+        }
+        return endpoints;
+    }
+}
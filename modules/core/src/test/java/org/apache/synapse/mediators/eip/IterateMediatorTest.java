@@ -21,12 +21,26 @@ package org.apache.synapse.mediators.eip;
 
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.xml.IterateMediatorFactory;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.mediators.eip.splitter.IterationWindow;
 
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -87,4 +101,136 @@ public class IterateMediatorTest extends AbstractSplitMediatorTestCase {
                                  .getFirstElement().getFirstElement().getText(), helperMediator.getCheckString());
         }
     }
+
+    public void testStreamingIteration() throws Exception {
+        Mediator iterate = fac.createMediator(createOMElement("<iterate " +
+                                                              "expression=\"$body/original/itr\" streaming=\"true\" sequential=\"true\" " +
+                                                              "xmlns=\"http://ws.apache.org/ns/synapse\"><target soapAction=\"urn:iterate\" " +
+                                                              "sequence=\"seqRef\"/></iterate>"), new Properties());
+        helperMediator.clearMediatedContexts();
+        iterate.mediate(testCtx);
+        MessageContext mediatedCtx = helperMediator.getMediatedContext(0);
+        assertEquals("urn:iterate", mediatedCtx.getSoapAction());
+        assertEquals("test-split-context-itr1-body",
+                     mediatedCtx.getEnvelope().getBody().getFirstElement().getText());
+        // the total is only known by the last message of a streamed split
+        assertEquals("0/-1", mediatedCtx.getProperty(EIPConstants.MESSAGE_SEQUENCE));
+        mediatedCtx = helperMediator.getMediatedContext(1);
+        assertEquals("test-split-context-itr2-body",
+                     mediatedCtx.getEnvelope().getBody().getFirstElement().getText());
+        assertEquals("1/2", mediatedCtx.getProperty(EIPConstants.MESSAGE_SEQUENCE));
+    }
+
+    public void testStreamingJsonIteration() throws Exception {
+        JsonUtil.getNewJsonPayload(((Axis2MessageContext) testCtx).getAxis2MessageContext(),
+                "{\"orders\":[{\"id\":1},{\"id\":\"2\"},[3]]}", true, true);
+        RecordingMediator recorder = new RecordingMediator();
+        addTargetSequence("jsonSeq", recorder);
+        Mediator iterate = fac.createMediator(createOMElement("<iterate " +
+                "expression=\"json-eval($.orders)\" streaming=\"true\" sequential=\"true\" " +
+                "xmlns=\"http://ws.apache.org/ns/synapse\"><target sequence=\"jsonSeq\"/></iterate>"),
+                new Properties());
+        iterate.mediate(testCtx);
+
+        assertEquals(3, recorder.messages.size());
+        // each element keeps its JSON type
+        assertEquals("{\"id\":1}", recorder.payloads.get(0));
+        assertEquals("{\"id\":\"2\"}", recorder.payloads.get(1));
+        assertEquals("[3]", recorder.payloads.get(2));
+        assertEquals("0/-1", recorder.messages.get(0).getProperty(EIPConstants.MESSAGE_SEQUENCE));
+        assertEquals("2/3", recorder.messages.get(2).getProperty(EIPConstants.MESSAGE_SEQUENCE));
+    }
+
+    public void testStreamingIterationKeepsInScopeNamespaces() throws Exception {
+        SOAPEnvelope envelope = OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope();
+        envelope.declareNamespace("urn:env", "e");
+        envelope.getBody().addChild(createOMElement("<o:orders xmlns:o=\"urn:orders\" " +
+                "xmlns:t=\"urn:types\"><o:order t:type=\"e:Rush\"><t:id>1</t:id></o:order></o:orders>"));
+        testCtx.setEnvelope(envelope);
+        RecordingMediator recorder = new RecordingMediator();
+        addTargetSequence("nsSeq", recorder);
+        Mediator iterate = fac.createMediator(createOMElement("<iterate " +
+                "expression=\"$body/o:orders/o:order\" streaming=\"true\" sequential=\"true\" " +
+                "xmlns:o=\"urn:orders\" xmlns=\"http://ws.apache.org/ns/synapse\">" +
+                "<target sequence=\"nsSeq\"/></iterate>"), new Properties());
+        iterate.mediate(testCtx);
+
+        assertEquals(1, recorder.messages.size());
+        OMElement order = recorder.messages.get(0).getEnvelope().getBody().getFirstElement();
+        // the fragment declares the namespaces of its ancestors, so it can be read on its own
+        OMElement detached = AXIOMUtil.stringToOM(order.toString());
+        assertEquals("urn:types", detached.findNamespaceURI("t").getNamespaceURI());
+        assertEquals("urn:env", detached.findNamespaceURI("e").getNamespaceURI());
+        assertEquals("e:Rush", detached.getAttributeValue(new QName("urn:types", "type")));
+        assertEquals("1", detached.getFirstChildWithName(new QName("urn:types", "id")).getText());
+    }
+
+    public void testStreamingWindowHeldUntilResponse() throws Exception {
+        StringBuilder body = new StringBuilder("<original>");
+        for (int i = 0; i < 10; i++) {
+            body.append("<itr>").append(i).append("</itr>");
+        }
+        SOAPEnvelope envelope = OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope();
+        envelope.getBody().addChild(createOMElement(body.append("</original>").toString()));
+        testCtx.setEnvelope(envelope);
+
+        // each split message sends a request, of which the response is received by the test
+        final BlockingQueue<MessageContext> sent = new LinkedBlockingQueue<MessageContext>();
+        addTargetSequence("sendSeq", new AbstractMediator() {
+            public boolean mediate(MessageContext synCtx) {
+                IterationWindow.requestSent(synCtx);
+                sent.add(synCtx);
+                return true;
+            }
+        });
+        final Mediator iterate = fac.createMediator(createOMElement("<iterate " +
+                "expression=\"$body/original/itr\" streaming=\"true\" maxInFlight=\"2\" " +
+                "xmlns=\"http://ws.apache.org/ns/synapse\"><target sequence=\"sendSeq\"/></iterate>"),
+                new Properties());
+        Thread splitter = new Thread(new Runnable() {
+            public void run() {
+                iterate.mediate(testCtx);
+            }
+        });
+        splitter.start();
+
+        Queue<MessageContext> awaiting = new LinkedList<MessageContext>();
+        for (int i = 0; i < 10; i++) {
+            MessageContext request = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull("The split message " + i + " was not sent", request);
+            awaiting.add(request);
+            if (awaiting.size() == 2) {
+                // the mediation of the messages is done, but their requests await a response
+                Thread.sleep(100);
+                assertTrue("More messages are in flight than allowed", sent.isEmpty());
+                IterationWindow.responseReceived(awaiting.remove());
+            }
+        }
+        splitter.join(5000);
+        assertFalse(splitter.isAlive());
+    }
+
+    private void addTargetSequence(String name, Mediator mediator) {
+        SequenceMediator sequence = new SequenceMediator();
+        sequence.addChild(mediator);
+        testCtx.getConfiguration().addSequence(name, sequence);
+    }
+
+    /**
+     * Keeps the split messages it mediates and their JSON payloads
+     */
+    private static class RecordingMediator extends AbstractMediator {
+
+        private final List<MessageContext> messages = new ArrayList<MessageContext>();
+
+        private final List<String> payloads = new ArrayList<String>();
+
+        public synchronized boolean mediate(MessageContext synCtx) {
+            messages.add(synCtx);
+            org.apache.axis2.context.MessageContext axis2Ctx =
+                    ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+            payloads.add(JsonUtil.hasAJsonPayload(axis2Ctx) ? JsonUtil.jsonPayloadToString(axis2Ctx) : null);
+            return true;
+        }
+    }
 }
@@ -0,0 +1,56 @@
+/*
+*Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*WSO2 Inc. licenses this file to you under the Apache License,
+*Version 2.0 (the "License"); you may not use this file except
+*in compliance with the License.
+*You may obtain a copy of the License at
+*
+*http://www.apache.org/licenses/LICENSE-2.0
+*
+*Unless required by applicable law or agreed to in writing,
+*software distributed under the License is distributed on an
+*"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*KIND, either express or implied.  See the License for the
+*specific language governing permissions and limitations
+*under the License.
+*/
+
+package org.apache.synapse.mediators.transform;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the compiled format of the payloadFactory mediator
+ */
+public class PayloadTemplateTest extends TestCase {
+
+    public void testCompile() {
+        PayloadTemplate template = PayloadTemplate.compile("<a>$1</a><b>$12</b>$ $x", null);
+        assertEquals(2, template.getPlaceholderCount());
+        assertEquals("<a>", template.getLiteral(0));
+        assertEquals(1, template.getArgumentIndex(0));
+        assertEquals("</a><b>", template.getLiteral(1));
+        assertEquals(12, template.getArgumentIndex(1));
+        assertEquals("</b>$ $x", template.getLiteral(2));
+    }
+
+    public void testCompileWithoutPlaceholders() {
+        PayloadTemplate template = PayloadTemplate.compile("{\"a\":1}", null);
+        assertEquals(0, template.getPlaceholderCount());
+        assertEquals("{\"a\":1}", template.getLiteral(0));
+    }
+
+    public void testInvalidArgumentIndex() {
+        PayloadTemplate template = PayloadTemplate.compile("$99999999999", null);
+        assertEquals(1, template.getPlaceholderCount());
+        assertEquals(-1, template.getArgumentIndex(0));
+    }
+
+    public void testAppendRemainder() {
+        PayloadTemplate template = PayloadTemplate.compile("{\"a\":$1,\"b\":$2,\"c\":$3}", null);
+        StringBuilder result = new StringBuilder();
+        template.appendRemainder(result, 1);
+        assertEquals("$2,\"c\":$3}", result.toString());
+    }
+}
@@ -22,11 +22,14 @@ package org.apache.synapse.mediators.transform;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 import org.apache.axiom.om.*;
+import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axis2.transport.base.BaseConstants;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.TestMessageContextBuilder;
+import org.apache.synapse.config.Entry;
 import org.apache.synapse.mediators.Value;
+import org.apache.synapse.util.resolver.ResourceMap;
 import org.apache.synapse.util.jaxp.*;
 import org.apache.synapse.util.xpath.SynapseXPath;
 
@@ -349,6 +352,55 @@ public class XSLTMediatorTest extends TestCase {
         assertEquals("test", out.getText());
     }
 
+    /**
+     * Test that a stylesheet reading a local entry with document() still resolves it once its
+     * transformer is reused from the pool. The transformers of the XSLTC of the JDK lose their
+     * URI resolver when they are reset.
+     *
+     * @throws Exception in case of an error in tests
+     */
+    public void testDocumentResolvedByPooledTransformer() throws Exception {
+        String oldTransformerFactory = System.getProperty(TransformerFactory.class.getName());
+        System.setProperty(TransformerFactory.class.getName(),
+                "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl");
+        XSLTMediator transformMediator;
+        try {
+            transformMediator = new XSLTMediator();
+        } finally {
+            if (oldTransformerFactory != null) {
+                System.setProperty(TransformerFactory.class.getName(), oldTransformerFactory);
+            } else {
+                System.clearProperty(TransformerFactory.class.getName());
+            }
+        }
+        setXsltTransformationURL(transformMediator, "xslt-key");
+        ResourceMap resourceMap = new ResourceMap();
+        resourceMap.addResource("lookup.xml", "lookup-key");
+        transformMediator.setResourceMap(resourceMap);
+
+        Entry xslt = new Entry("xslt-key");
+        xslt.setType(Entry.INLINE_XML);
+        xslt.setValue(AXIOMUtil.stringToOM(
+                "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+                "<xsl:template match=\"/\"><out>" +
+                "<xsl:value-of select=\"document('lookup.xml')/lookup/value\"/>" +
+                "</out></xsl:template></xsl:stylesheet>"));
+        Entry lookup = new Entry("lookup-key");
+        lookup.setType(Entry.INLINE_XML);
+        lookup.setValue(AXIOMUtil.stringToOM("<lookup><value>found</value></lookup>"));
+
+        for (int i = 0; i < 2; i++) {
+            MessageContext mc = new TestMessageContextBuilder().addEntry("xslt-key", xslt)
+                    .addEntry("lookup-key", lookup).setBodyFromString("<in/>")
+                    .setRequireAxis2MessageContext(true).build();
+            transformMediator.mediate(mc);
+
+            OMElement out = mc.getEnvelope().getBody().getFirstElement();
+            assertEquals("out", out.getLocalName());
+            assertEquals("Message " + i, "found", out.getText());
+        }
+    }
+
     /**
      * Test that the XSLT mediator is able to handle dynamic keys
      * Xpath expression can be used to generate real key dynamically
@@ -0,0 +1,156 @@
+/*
+*Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*WSO2 Inc. licenses this file to you under the Apache License,
+*Version 2.0 (the "License"); you may not use this file except
+*in compliance with the License.
+*You may obtain a copy of the License at
+*
+*http://www.apache.org/licenses/LICENSE-2.0
+*
+*Unless required by applicable law or agreed to in writing,
+*software distributed under the License is distributed on an
+*"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*KIND, either express or implied.  See the License for the
+*specific language governing permissions and limitations
+*under the License.
+*/
+
+package org.apache.synapse.mediators.transform;
+
+import junit.framework.TestCase;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the compiled stylesheet cache of the XSLT mediator
+ */
+public class XSLTTemplateCacheTest extends TestCase {
+
+    private static final String XSLT = "<xsl:stylesheet version=\"1.0\" " +
+            "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" +
+            "<xsl:template match=\"/\"><result/></xsl:template></xsl:stylesheet>";
+
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    private Callable<Templates> compiler() {
+        return new Callable<Templates>() {
+            public Templates call() throws Exception {
+                compilations.incrementAndGet();
+                return TransformerFactory.newInstance().newTemplates(
+                        new StreamSource(new StringReader(XSLT)));
+            }
+        };
+    }
+
+    public void testCompiledOnce() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(10, 0, 4);
+        XSLTTemplateCache.CachedTemplates first = cache.get("key", false, compiler());
+        XSLTTemplateCache.CachedTemplates second = cache.get("key", false, compiler());
+        assertSame(first, second);
+        assertEquals(1, compilations.get());
+    }
+
+    public void testRecreate() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(10, 0, 4);
+        XSLTTemplateCache.CachedTemplates first = cache.get("key", false, compiler());
+        XSLTTemplateCache.CachedTemplates second = cache.get("key", true, compiler());
+        assertNotSame(first, second);
+        assertEquals(2, compilations.get());
+    }
+
+    public void testSizeBound() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(2, 0, 4);
+        cache.get("a", false, compiler());
+        Thread.sleep(2);
+        cache.get("b", false, compiler());
+        Thread.sleep(2);
+        cache.get("a", false, compiler());
+        cache.get("c", false, compiler());
+        assertEquals(2, cache.size());
+        // b was the least recently used one
+        cache.get("a", false, compiler());
+        assertEquals(3, compilations.get());
+        cache.get("b", false, compiler());
+        assertEquals(4, compilations.get());
+    }
+
+    public void testIdleTemplatesDropped() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(10, 1, 4);
+        cache.get("key", false, compiler());
+        Thread.sleep(10);
+        cache.get("key", false, compiler());
+        assertEquals(2, compilations.get());
+    }
+
+    public void testSingleFlightCompilation() throws Exception {
+        final XSLTTemplateCache cache = new XSLTTemplateCache(10, 0, 4);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Templates> slowCompiler = new Callable<Templates>() {
+            public Templates call() throws Exception {
+                started.countDown();
+                release.await();
+                return compiler().call();
+            }
+        };
+        Thread[] threads = new Thread[4];
+        final AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        cache.get("key", false, slowCompiler);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        started.await();
+        Thread.sleep(50);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertEquals(1, compilations.get());
+    }
+
+    public void testFailedCompilationNotCached() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(10, 0, 4);
+        try {
+            cache.get("key", false, new Callable<Templates>() {
+                public Templates call() throws Exception {
+                    throw new IllegalStateException("broken stylesheet");
+                }
+            });
+            fail("Compilation failure not reported");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(0, cache.size());
+        cache.get("key", false, compiler());
+        assertEquals(1, compilations.get());
+    }
+
+    public void testTransformerReused() throws Exception {
+        XSLTTemplateCache cache = new XSLTTemplateCache(10, 0, 4);
+        XSLTTemplateCache.CachedTemplates cached = cache.get("key", false, compiler());
+        Transformer transformer = cached.borrowTransformer();
+        transformer.setParameter("name", "value");
+        cached.releaseTransformer(transformer);
+        Transformer reused = cached.borrowTransformer();
+        assertSame(transformer, reused);
+        assertNull(reused.getParameter("name"));
+        assertNotSame(reused, cached.borrowTransformer());
+    }
+}
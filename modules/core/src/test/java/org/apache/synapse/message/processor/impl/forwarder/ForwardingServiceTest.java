@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.impl.llom.soap11.SOAP11Factory;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.processor.MessageProcessorConstants;
+import org.apache.synapse.message.store.impl.jdbc.JDBCMessageStore;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests forwarding messages in parallel from a message store
+ */
+public class ForwardingServiceTest extends TestCase {
+
+    private static final int MESSAGES = 200;
+
+    public void testParallelForwardingDeliversEachMessageOnce() throws Exception {
+        SynapseConfiguration synapseConfiguration = new SynapseConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(synapseConfiguration.getAxisConfiguration());
+        SynapseEnvironment synapseEnvironment = new Axis2SynapseEnvironment(cfgCtx, synapseConfiguration);
+
+        InMemoryStore store = new InMemoryStore();
+        store.setName("store");
+        synapseConfiguration.addMessageStore("store", store);
+        store.init(synapseEnvironment);
+
+        RecordingEndpoint endpoint = new RecordingEndpoint();
+        synapseConfiguration.addEndpoint("endpoint", endpoint);
+
+        MessageProducer producer = store.getProducer();
+        for (int i = 0; i < MESSAGES; i++) {
+            Axis2MessageContext messageContext = new Axis2MessageContext(
+                    new org.apache.axis2.context.MessageContext(), synapseConfiguration, synapseEnvironment);
+            SOAPEnvelope envelope = new SOAP11Factory().getDefaultEnvelope();
+            envelope.getBody().addChild(AXIOMUtil.stringToOM("<name><value>" + i + "</value></name>"));
+            messageContext.setEnvelope(envelope);
+            messageContext.setMessageID("ID" + i);
+            assertTrue(producer.storeMessage(messageContext));
+        }
+
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(MessageProcessorConstants.INTERVAL, "100");
+        parameters.put(ForwardingProcessorConstants.TARGET_ENDPOINT, "endpoint");
+        parameters.put(ForwardingProcessorConstants.CONCURRENCY, "4");
+        parameters.put(ForwardingProcessorConstants.ORDERED, "false");
+        parameters.put(ForwardingProcessorConstants.ADAPTIVE_POLLING, "true");
+        TestProcessor processor = new TestProcessor();
+        processor.setName("processor");
+        processor.setParameters(parameters);
+        processor.setMessageStoreName("store");
+        synapseConfiguration.addMessageProcessor("processor", processor);
+
+        ForwardingService service = new ForwardingService(processor, null, synapseEnvironment, 100);
+        try {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (endpoint.received.get() < MESSAGES && System.currentTimeMillis() < deadline) {
+                service.execute();
+            }
+            // messages are acknowledged once they were sent
+            while (store.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            service.terminate();
+        }
+
+        assertEquals(MESSAGES, endpoint.received.get());
+        assertEquals(MESSAGES, endpoint.deliveries.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals("ID" + i + " was not delivered once", 1, endpoint.deliveries.get("ID" + i).get());
+        }
+        assertEquals(0, store.size());
+    }
+
+    public void testParallelForwardingOnlyFromCompetingConsumers() {
+        assertTrue(ForwardingService.hasCompetingConsumers(new InMemoryStore()));
+        assertFalse(ForwardingService.hasCompetingConsumers(new JDBCMessageStore()));
+        assertFalse(ForwardingService.hasCompetingConsumers(null));
+    }
+
+    /**
+     * Processor which is active without a task manager
+     */
+    private static class TestProcessor extends ScheduledMessageForwardingProcessor {
+
+        @Override
+        public boolean isDeactivated() {
+            return false;
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+    }
+
+    /**
+     * Endpoint counting the messages sent to it by ID
+     */
+    private static class RecordingEndpoint extends AddressEndpoint {
+
+        private final ConcurrentMap<String, AtomicInteger> deliveries =
+                new ConcurrentHashMap<String, AtomicInteger>();
+
+        private final AtomicInteger received = new AtomicInteger(0);
+
+        RecordingEndpoint() {
+            EndpointDefinition definition = new EndpointDefinition();
+            // no response is validated for a non HTTP address
+            definition.setAddress("jms:/test");
+            setDefinition(definition);
+        }
+
+        @Override
+        public boolean isInitialized() {
+            return true;
+        }
+
+        @Override
+        public void send(MessageContext synCtx) {
+            AtomicInteger count = new AtomicInteger(0);
+            AtomicInteger existing = deliveries.putIfAbsent(synCtx.getMessageID(), count);
+            (existing != null ? existing : count).incrementAndGet();
+            synCtx.setProperty(SynapseConstants.OUT_ONLY, "true");
+            received.incrementAndGet();
+        }
+    }
+}
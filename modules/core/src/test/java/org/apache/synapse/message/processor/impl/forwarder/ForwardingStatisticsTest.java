@@ -0,0 +1,73 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the statistics shared by the services forwarding messages for a processor
+ */
+public class ForwardingStatisticsTest extends TestCase {
+
+    public void testCountsFromConcurrentServices() throws Exception {
+        final ForwardingStatistics statistics = new ForwardingStatistics();
+        final int services = 4;
+        final int messages = 1000;
+        final CountDownLatch done = new CountDownLatch(services);
+        for (int i = 0; i < services; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < messages; j++) {
+                        statistics.dispatchStarted();
+                        statistics.messageForwarded();
+                        statistics.dispatchCompleted();
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(0, statistics.getInFlightCount());
+        assertEquals(services * messages, statistics.getForwardedCount());
+    }
+
+    public void testInFlightCount() {
+        ForwardingStatistics statistics = new ForwardingStatistics();
+        statistics.dispatchStarted();
+        statistics.dispatchStarted();
+        assertEquals(2, statistics.getInFlightCount());
+        statistics.dispatchCompleted();
+        assertEquals(1, statistics.getInFlightCount());
+        assertEquals(0, statistics.getForwardedCount());
+    }
+
+    public void testThroughput() throws Exception {
+        ForwardingStatistics statistics = new ForwardingStatistics();
+        for (int i = 0; i < 100; i++) {
+            statistics.messageForwarded();
+        }
+        // nothing is reported until a full second has been measured
+        assertEquals(0d, statistics.getThroughput());
+        Thread.sleep(1100);
+        double throughput = statistics.getThroughput();
+        assertTrue(throughput > 0 && throughput <= 100);
+        // the last measurement is reported until the next window ends
+        assertEquals(throughput, statistics.getThroughput());
+    }
+}
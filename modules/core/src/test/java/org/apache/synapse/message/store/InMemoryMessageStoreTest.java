@@ -20,10 +20,18 @@ import junit.framework.TestCase;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.mediators.TestUtils;
 import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.impl.memory.InMemoryStore;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InMemoryMessageStoreTest extends TestCase {
     
@@ -117,6 +125,113 @@ public class InMemoryMessageStoreTest extends TestCase {
 
     }
     
+    public void testRemoveById() throws Exception {
+        MessageStore store = new InMemoryStore();
+        populateStore(store, 10);
+        assertEquals("ID5", store.remove("ID5").getMessageID());
+        assertNull(store.get("ID5"));
+        assertNull(store.remove("ID5"));
+        assertEquals(9, store.size());
+        assertEquals("ID6", store.get(5).getMessageID());
+
+        // messages sharing an ID are found once the first one is removed
+        store.clear();
+        populateStore(store, 1);
+        populateStore(store, 1);
+        assertNotNull(store.remove("ID0"));
+        assertEquals("ID0", store.get("ID0").getMessageID());
+        assertNotNull(store.remove("ID0"));
+        assertNull(store.get("ID0"));
+        assertEquals(0, store.size());
+    }
+
+    public void testParallelConsumers() throws Exception {
+        MessageStore store = new InMemoryStore();
+        populateStore(store, 3);
+        MessageConsumer consumer1 = store.getConsumer();
+        MessageConsumer consumer2 = store.getConsumer();
+        assertEquals("ID0", consumer1.receive().getMessageID());
+        assertEquals("ID1", consumer2.receive().getMessageID());
+        assertEquals("ID1", consumer2.receive().getMessageID());
+
+        consumer2.ack();
+        assertEquals("ID2", consumer2.receive().getMessageID());
+        assertEquals(2, store.size());
+
+        // a consumer cleaned up gives its message back to the others
+        consumer1.cleanup();
+        consumer2.ack();
+        assertEquals("ID0", consumer2.receive().getMessageID());
+        consumer2.ack();
+        assertNull(consumer1.receive());
+        assertEquals(0, store.size());
+    }
+
+    public void testCapacity() throws Exception {
+        MessageStore store = new InMemoryStore();
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(Constants.INMEMORY_CAPACITY, "2");
+        parameters.put(Constants.INMEMORY_PRODUCER_TIMEOUT, "100");
+        store.setParameters(parameters);
+        MessageProducer producer = store.getProducer();
+        assertTrue(producer.storeMessage(createMessageContext("ID0")));
+        assertTrue(producer.storeMessage(createMessageContext("ID1")));
+        assertFalse(producer.storeMessage(createMessageContext("ID2")));
+
+        MessageConsumer consumer = store.getConsumer();
+        consumer.receive();
+        consumer.ack();
+        assertTrue(producer.storeMessage(createMessageContext("ID2")));
+        assertEquals(2, store.size());
+    }
+
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final MessageStore store = new InMemoryStore();
+        final int threads = 4;
+        final int messages = 500;
+        final Set<String> received = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger(0);
+        final List<MessageContext> toStore = new ArrayList<MessageContext>();
+        for (int i = 0; i < threads * messages; i++) {
+            toStore.add(createMessageContext("ID" + i));
+        }
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final int first = i * messages;
+            workers.add(new Thread(new Runnable() {
+                public void run() {
+                    MessageProducer producer = store.getProducer();
+                    for (MessageContext message : toStore.subList(first, first + messages)) {
+                        producer.storeMessage(message);
+                    }
+                }
+            }));
+            workers.add(new Thread(new Runnable() {
+                public void run() {
+                    MessageConsumer consumer = store.getConsumer();
+                    while (received.size() + duplicates.get() < threads * messages) {
+                        MessageContext message = consumer.receive();
+                        if (message != null) {
+                            if (!received.add(message.getMessageID())) {
+                                duplicates.incrementAndGet();
+                            }
+                            consumer.ack();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join(60000);
+        }
+        assertEquals(0, duplicates.get());
+        assertEquals(threads * messages, received.size());
+        assertEquals(0, store.size());
+    }
+
     private MessageContext createMessageContext(String identifier) throws Exception {
         MessageContext msg = TestUtils.createLightweightSynapseMessageContext("<test/>");
         msg.setMessageID(identifier);
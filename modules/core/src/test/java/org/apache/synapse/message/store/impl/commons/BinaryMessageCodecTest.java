@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.store.impl.commons;
+
+import junit.framework.TestCase;
+import org.apache.synapse.message.store.Constants;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests encoding and decoding stored messages with the binary codec
+ */
+public class BinaryMessageCodecTest extends TestCase {
+
+    private static final String ENVELOPE = "<soapenv:Envelope " +
+            "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>" +
+            "<m:getQuote xmlns:m=\"http://services.samples\"><m:request><m:symbol>IBM</m:symbol>" +
+            "</m:request></m:getQuote></soapenv:Body></soapenv:Envelope>";
+
+    private final MessageCodec codec = new BinaryMessageCodec();
+
+    public void testSoapMessage() throws Exception {
+        StorableMessage message = newMessage();
+        StorableMessage decoded = codec.decode(codec.encode(message));
+        assertMessage(message, decoded);
+
+        Map<String, Object> properties = decoded.getAxis2message().getProperties();
+        Map headers = (Map) properties.get("TRANSPORT_HEADERS");
+        assertTrue(headers instanceof TreeMap);
+        assertEquals("text__SLASH__xml", headers.get("Content__HYPHEN__Type"));
+        Map abstractProperties = (Map) properties.get("ABSTRACT_MC_PROPERTIES");
+        assertEquals("value", abstractProperties.get("string"));
+        assertEquals(Boolean.TRUE, abstractProperties.get("boolean"));
+        assertEquals(-42, abstractProperties.get("integer"));
+        assertEquals(1.5d, abstractProperties.get("double"));
+        assertEquals('c', abstractProperties.get("character"));
+        assertEquals(Long.MIN_VALUE, abstractProperties.get("long"));
+        assertTrue(abstractProperties.containsKey("null"));
+        assertNull(abstractProperties.get("null"));
+        assertEquals("value", properties.get("string"));
+    }
+
+    public void testJsonPayloadIsStoredRaw() throws Exception {
+        StorableMessage message = newMessage();
+        byte[] json = "{\"getQuote\":{\"request\":{\"symbol\":\"IBM\"}}}".getBytes("UTF-8");
+        message.getAxis2message().setJsonStream(json);
+        byte[] encoded = codec.encode(message);
+        assertTrue(indexOf(encoded, json) > 0);
+        assertTrue(Arrays.equals(json, codec.decode(encoded).getAxis2message().getJsonStream()));
+    }
+
+    public void testEmptyMessage() throws Exception {
+        StorableMessage decoded = codec.decode(codec.encode(new StorableMessage()));
+        assertNull(decoded.getAxis2message());
+        assertNull(decoded.getSynapseMessage());
+        assertEquals(7, decoded.getPriority(7));
+    }
+
+    /**
+     * Messages stored with Java serialization before upgrading can still be read, and messages
+     * stored with the binary codec can be read after switching back to Java serialization
+     */
+    public void testJavaSerializedMessages() throws Exception {
+        StorableMessage message = newMessage();
+        MessageCodec javaCodec = new JavaMessageCodec();
+        assertMessage(message, codec.decode(javaCodec.encode(message)));
+        assertMessage(message, javaCodec.decode(codec.encode(message)));
+        assertTrue(codec.encode(message).length < javaCodec.encode(message).length);
+    }
+
+    public void testPropertyNamesAreWrittenOnce() throws Exception {
+        StorableMessage message = newMessage();
+        String name = "a.property.with.a.long.name";
+        message.getSynapseMessage().addProperty(name, "value");
+        message.getAxis2message().addProperty(name, "value");
+        byte[] encoded = codec.encode(message);
+        byte[] nameBytes = name.getBytes("UTF-8");
+        int first = indexOf(encoded, nameBytes);
+        assertTrue(first > 0);
+        assertEquals(-1, indexOf(Arrays.copyOfRange(encoded, first + 1, encoded.length), nameBytes));
+    }
+
+    public void testInvalidMessages() throws Exception {
+        byte[] encoded = codec.encode(newMessage());
+        try {
+            codec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+            fail("A truncated message should not be decoded");
+        } catch (IOException expected) {
+        }
+
+        byte[] newerVersion = encoded.clone();
+        newerVersion[BinaryMessageCodec.MAGIC.length] = (byte) (BinaryMessageCodec.VERSION + 1);
+        try {
+            codec.decode(newerVersion);
+            fail("A message of an unknown version should not be decoded");
+        } catch (IOException expected) {
+        }
+
+        try {
+            codec.decode("not a message".getBytes("UTF-8"));
+            fail("An unknown format should not be decoded");
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testGetCodec() {
+        assertTrue(MessageCodecs.getCodec(null) instanceof BinaryMessageCodec);
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(Constants.MESSAGE_CODEC, "java");
+        assertTrue(MessageCodecs.getCodec(parameters) instanceof JavaMessageCodec);
+        parameters.put(Constants.MESSAGE_CODEC, BinaryMessageCodec.class.getName());
+        assertTrue(MessageCodecs.getCodec(parameters) instanceof BinaryMessageCodec);
+    }
+
+    private static StorableMessage newMessage() {
+        StorableMessage message = new StorableMessage();
+        message.setPriority(4);
+
+        Axis2Message axis2Msg = new Axis2Message();
+        axis2Msg.setMessageID("urn:uuid:9b2d7b8e-2c8f-4b3a-9d6e-1f0a6c3e5d21");
+        axis2Msg.setOperationName(new QName("http://services.samples", "getQuote", "m"));
+        axis2Msg.setAction("urn:getQuote");
+        axis2Msg.setService("StockQuoteProxy");
+        axis2Msg.setReplyToAddress("http://www.w3.org/2005/08/addressing/anonymous");
+        axis2Msg.setToAddress("http://localhost:9000/services/SimpleStockQuoteService");
+        axis2Msg.setTransportInName("http");
+        axis2Msg.setTransportOutName("http");
+        axis2Msg.setDoingMTOM(true);
+        axis2Msg.setFLOW(1);
+        axis2Msg.setSoapEnvelope(ENVELOPE);
+        Map<String, Object> abstractProperties = new HashMap<String, Object>();
+        abstractProperties.put("string", "value");
+        abstractProperties.put("boolean", Boolean.TRUE);
+        abstractProperties.put("integer", -42);
+        abstractProperties.put("double", 1.5d);
+        abstractProperties.put("character", 'c');
+        abstractProperties.put("long", Long.MIN_VALUE);
+        abstractProperties.put("null", null);
+        axis2Msg.addProperty("ABSTRACT_MC_PROPERTIES", abstractProperties);
+        Map<String, String> headers = new TreeMap<String, String>();
+        headers.put("Content__HYPHEN__Type", "text__SLASH__xml");
+        headers.put("SOAPAction", "urn__COLON__getQuote");
+        axis2Msg.addProperty("TRANSPORT_HEADERS", headers);
+        axis2Msg.addProperty("string", "value");
+        message.setAxis2message(axis2Msg);
+
+        SynapseMessage synMsg = new SynapseMessage();
+        synMsg.setResponse(true);
+        synMsg.setTracingState(1);
+        synMsg.addLocalEntry("entry");
+        synMsg.addProperty("symbol", "IBM \u00e9\u4e2d");
+        synMsg.addProperty("string", "value");
+        synMsg.addPropertyObject("OM_ELEMENT_PREFIX_element", "<a/>".getBytes());
+        message.setSynapseMessage(synMsg);
+        return message;
+    }
+
+    private static void assertMessage(StorableMessage expected, StorableMessage actual) {
+        assertEquals(expected.getPriority(), actual.getPriority());
+
+        Axis2Message expectedAxis2Msg = expected.getAxis2message();
+        Axis2Message actualAxis2Msg = actual.getAxis2message();
+        assertEquals(expectedAxis2Msg.getMessageID(), actualAxis2Msg.getMessageID());
+        assertEquals(expectedAxis2Msg.getOperationName(), actualAxis2Msg.getOperationName());
+        assertEquals(expectedAxis2Msg.getOperationName().getPrefix(),
+                actualAxis2Msg.getOperationName().getPrefix());
+        assertEquals(expectedAxis2Msg.getAction(), actualAxis2Msg.getAction());
+        assertEquals(expectedAxis2Msg.getService(), actualAxis2Msg.getService());
+        assertNull(actualAxis2Msg.getRelatesToMessageId());
+        assertEquals(expectedAxis2Msg.getReplyToAddress(), actualAxis2Msg.getReplyToAddress());
+        assertEquals(expectedAxis2Msg.getToAddress(), actualAxis2Msg.getToAddress());
+        assertEquals(expectedAxis2Msg.getTransportInName(), actualAxis2Msg.getTransportInName());
+        assertEquals(expectedAxis2Msg.getTransportOutName(), actualAxis2Msg.getTransportOutName());
+        assertEquals(expectedAxis2Msg.isDoingMTOM(), actualAxis2Msg.isDoingMTOM());
+        assertEquals(expectedAxis2Msg.isDoingPOX(), actualAxis2Msg.isDoingPOX());
+        assertEquals(expectedAxis2Msg.getFLOW(), actualAxis2Msg.getFLOW());
+        assertEquals(expectedAxis2Msg.getSoapEnvelope(), actualAxis2Msg.getSoapEnvelope());
+        assertEquals(expectedAxis2Msg.getProperties(), actualAxis2Msg.getProperties());
+
+        SynapseMessage expectedSynMsg = expected.getSynapseMessage();
+        SynapseMessage actualSynMsg = actual.getSynapseMessage();
+        assertEquals(expectedSynMsg.isResponse(), actualSynMsg.isResponse());
+        assertEquals(expectedSynMsg.isFaultResponse(), actualSynMsg.isFaultResponse());
+        assertEquals(expectedSynMsg.getTracingState(), actualSynMsg.getTracingState());
+        assertEquals(expectedSynMsg.getMessageFlowTracingState(),
+                actualSynMsg.getMessageFlowTracingState());
+        assertEquals(expectedSynMsg.getLocalEntries(), actualSynMsg.getLocalEntries());
+        assertEquals(expectedSynMsg.getProperties(), actualSynMsg.getProperties());
+        assertEquals(expectedSynMsg.getPropertyObjects().keySet(),
+                actualSynMsg.getPropertyObjects().keySet());
+        for (Map.Entry<String, byte[]> entry : expectedSynMsg.getPropertyObjects().entrySet()) {
+            assertTrue(Arrays.equals(entry.getValue(),
+                    actualSynMsg.getPropertyObjects().get(entry.getKey())));
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(part, Arrays.copyOfRange(bytes, i, i + part.length))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jdbc;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.store.impl.jdbc.util.Statement;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the batching of the statements of concurrent producers
+ */
+public class JDBCBatchWriterTest extends TestCase {
+
+    public void testSingleStatement() {
+        RecordingWriter writer = new RecordingWriter(10, null);
+        writer.write(newStatement("1"));
+        assertEquals(1, writer.batches.size());
+        assertEquals(1, writer.batches.get(0).size());
+    }
+
+    /**
+     * Statements queued while a batch is being written are written together in the next batch
+     */
+    public void testConcurrentStatementsAreBatched() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final RecordingWriter writer = new RecordingWriter(100, null) {
+            @Override
+            protected void writeBatch(List<Statement> statements) throws SynapseException {
+                super.writeBatch(statements);
+                if (batches.size() == 1) {
+                    firstBatchStarted.countDown();
+                    try {
+                        releaseFirstBatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new SynapseException(e);
+                    }
+                }
+            }
+        };
+
+        Thread first = startWriter(writer, "first");
+        assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+
+        List<Thread> others = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            others.add(startWriter(writer, "other-" + i));
+        }
+        while (writer.queued() < 5) {
+            Thread.sleep(10);
+        }
+        // let the producers queue their statements
+        Thread.sleep(200);
+        releaseFirstBatch.countDown();
+        first.join(10000);
+        for (Thread thread : others) {
+            thread.join(10000);
+        }
+
+        assertEquals(2, writer.batches.size());
+        assertEquals(1, writer.batches.get(0).size());
+        assertEquals(5, writer.batches.get(1).size());
+    }
+
+    /**
+     * Only the producer of the statement which cannot be written fails when a batch fails
+     */
+    public void testFailedBatchIsWrittenIndividually() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final RecordingWriter writer = new RecordingWriter(100, "bad") {
+            @Override
+            protected void writeBatch(List<Statement> statements) throws SynapseException {
+                if (batches.isEmpty()) {
+                    firstBatchStarted.countDown();
+                    try {
+                        releaseFirstBatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new SynapseException(e);
+                    }
+                }
+                super.writeBatch(statements);
+            }
+        };
+        final AtomicInteger failures = new AtomicInteger(0);
+
+        Thread first = startWriter(writer, "first");
+        assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+        List<Thread> others = new ArrayList<>();
+        others.add(startWriter(writer, "good"));
+        others.add(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    writer.write(newStatement("bad"));
+                } catch (SynapseException e) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+        others.get(1).start();
+        while (writer.queued() < 2) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        releaseFirstBatch.countDown();
+        first.join(10000);
+        for (Thread thread : others) {
+            thread.join(10000);
+        }
+
+        assertEquals(1, failures.get());
+        assertTrue(writer.individual.contains("good"));
+        assertFalse(writer.individual.contains("bad"));
+    }
+
+    /**
+     * The producers of a batch failing with an unexpected exception fail instead of waiting
+     * for their statements forever
+     */
+    public void testUnexpectedFailureCompletesBatch() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final RecordingWriter writer = new RecordingWriter(100, null) {
+            @Override
+            protected void writeBatch(List<Statement> statements) throws SynapseException {
+                super.writeBatch(statements);
+                if (batches.size() == 1) {
+                    firstBatchStarted.countDown();
+                    try {
+                        releaseFirstBatch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new SynapseException(e);
+                    }
+                } else {
+                    throw new IllegalStateException("Connection pool closed");
+                }
+            }
+        };
+        final AtomicInteger failures = new AtomicInteger(0);
+
+        Thread first = startWriter(writer, "first");
+        assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+        List<Thread> others = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final String id = "other-" + i;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        writer.write(newStatement(id));
+                    } catch (SynapseException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            thread.start();
+            others.add(thread);
+        }
+        while (writer.queued() < 3) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        releaseFirstBatch.countDown();
+        first.join(10000);
+        for (Thread thread : others) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+
+        assertEquals(2, writer.batches.size());
+        assertEquals(3, failures.get());
+    }
+
+    private static Thread startWriter(final JDBCBatchWriter writer, final String id) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                writer.write(newStatement(id));
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    private static Statement newStatement(String id) {
+        Statement statement = new Statement("INSERT INTO jdbc_message_store (msg_id,message) VALUES (?,?)") {
+            @Override
+            public List<Map> getResult(ResultSet resultSet) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        statement.addParameter(id);
+        return statement;
+    }
+
+    /**
+     * Records the written batches, failing the batches and statements holding the given id
+     */
+    private static class RecordingWriter extends JDBCBatchWriter {
+
+        final List<List<Statement>> batches = Collections.synchronizedList(new ArrayList<List<Statement>>());
+
+        final List<Object> individual = Collections.synchronizedList(new ArrayList<Object>());
+
+        private final AtomicInteger queued = new AtomicInteger(0);
+
+        private final String failingId;
+
+        RecordingWriter(int maxBatchSize, String failingId) {
+            super(maxBatchSize, 0);
+            this.failingId = failingId;
+        }
+
+        @Override
+        void write(Statement statement) throws SynapseException {
+            queued.incrementAndGet();
+            super.write(statement);
+        }
+
+        /**
+         * @return number of statements handed to the writer after the first one
+         */
+        int queued() {
+            return queued.get() - 1;
+        }
+
+        @Override
+        protected void writeBatch(List<Statement> statements) throws SynapseException {
+            batches.add(new ArrayList<>(statements));
+            for (Statement statement : statements) {
+                if (statement.getParameters().get(0).equals(failingId)) {
+                    throw new SynapseException("Cannot write " + failingId);
+                }
+            }
+        }
+
+        @Override
+        protected void writeStatement(Statement statement) throws SynapseException {
+            Object id = statement.getParameters().get(0);
+            if (id.equals(failingId)) {
+                throw new SynapseException("Cannot write " + failingId);
+            }
+            individual.add(id);
+        }
+    }
+}
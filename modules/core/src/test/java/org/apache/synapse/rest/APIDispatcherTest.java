@@ -144,6 +144,37 @@ public class APIDispatcherTest extends RESTMediationTestCase {
         assertEquals(TEST_API, synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
     }
 
+    public void testNestedContextAPIDispatch() throws Exception {
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        synapseConfig.addAPI("TestAPI1", new API("TestAPI1", "/foo"));
+        synapseConfig.addAPI("TestAPI2", new API("TestAPI2", "/foo/bar"));
+        synapseConfig.addAPI("TestAPI3", new API("TestAPI3", "/"));
+
+        RESTRequestHandler handler = new RESTRequestHandler();
+        MessageContext synCtx = getMessageContext(synapseConfig, false, "/foo/bar/baz", "GET");
+        handler.process(synCtx);
+        assertEquals("TestAPI2", synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+
+        synCtx = getMessageContext(synapseConfig, false, "/foo/baz?a=5", "GET");
+        handler.process(synCtx);
+        assertEquals("TestAPI1", synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+
+        synCtx = getMessageContext(synapseConfig, false, "/foobar", "GET");
+        handler.process(synCtx);
+        assertEquals("TestAPI3", synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+
+        // the APIs are indexed again when they are deployed and undeployed
+        synapseConfig.removeAPI("TestAPI2");
+        synCtx = getMessageContext(synapseConfig, false, "/foo/bar/baz", "GET");
+        handler.process(synCtx);
+        assertEquals("TestAPI1", synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+
+        synapseConfig.addAPI("TestAPI4", new API("TestAPI4", "/foo/bar/baz"));
+        synCtx = getMessageContext(synapseConfig, false, "/foo/bar/baz/qux", "GET");
+        handler.process(synCtx);
+        assertEquals("TestAPI4", synCtx.getProperty(RESTConstants.SYNAPSE_REST_API));
+    }
+
     public void testMultipleAPIDispatch() throws Exception {
         String apiName1 = "TestAPI1";
         String apiName2 = "TestAPI2";
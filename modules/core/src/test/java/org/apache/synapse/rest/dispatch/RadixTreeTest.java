@@ -0,0 +1,58 @@
+/*
+*  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.apache.synapse.rest.dispatch;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RadixTreeTest extends TestCase {
+
+    public void testPrefixes() {
+        RadixTree<String> tree = new RadixTree<String>();
+        tree.put("/foo/bar", "bar");
+        tree.put("/foo", "foo");
+        tree.put("/fox", "fox");
+        tree.put("", "root");
+        tree.put("/foo/baz", "baz");
+        tree.put("/foo", "foo2");
+
+        assertEquals(Arrays.asList("root", "foo", "foo2", "bar"), prefixesOf(tree, "/foo/bar/qux"));
+        assertEquals(Arrays.asList("root", "foo", "foo2"), prefixesOf(tree, "/foo/ba"));
+        assertEquals(Arrays.asList("root", "foo", "foo2"), prefixesOf(tree, "/foo"));
+        assertEquals(Arrays.asList("root", "fox"), prefixesOf(tree, "/fox?a=5"));
+        assertEquals(Arrays.asList("root"), prefixesOf(tree, "/fo"));
+        assertEquals(Arrays.asList("root"), prefixesOf(tree, ""));
+    }
+
+    public void testEmptyTree() {
+        RadixTree<String> tree = new RadixTree<String>();
+        assertTrue(prefixesOf(tree, "/foo").isEmpty());
+        tree.put("/foo", "foo");
+        assertTrue(prefixesOf(tree, "/bar").isEmpty());
+    }
+
+    private static List<String> prefixesOf(RadixTree<String> tree, String str) {
+        List<String> values = new ArrayList<String>();
+        tree.collectPrefixesOf(str, values);
+        return values;
+    }
+}
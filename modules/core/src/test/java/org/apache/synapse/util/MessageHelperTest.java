@@ -30,8 +30,11 @@ import org.apache.axiom.soap.SOAPHeaderBlock;
 import org.apache.axiom.soap.impl.llom.soap11.SOAP11HeaderBlockImpl;
 import org.apache.axiom.soap.impl.llom.soap12.SOAP12HeaderBlockImpl;
 import org.apache.axis2.context.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.mediators.TestUtils;
 
 import javax.activation.DataHandler;
+import java.util.ArrayList;
 
 /**
  * 
@@ -75,6 +78,53 @@ public class MessageHelperTest extends TestCase {
         performTestForCloneEnvelope(soapFactory, header, childNode);
     }
 
+    public void testClonePropertyValue() {
+        OMElement element = OMAbstractFactory.getOMFactory().createOMElement("test", null);
+        ArrayList<Object> list = new ArrayList<Object>();
+        list.add(element);
+
+        Object clonedList = MessageHelper.clonePropertyValue("list", list);
+        assertNotSame(list, clonedList);
+        assertNotSame(element, ((ArrayList) clonedList).get(0));
+        assertEquals(element.toString(), ((ArrayList) clonedList).get(0).toString());
+
+        Object clonedElement = MessageHelper.clonePropertyValue("element", element);
+        assertNotSame(element, clonedElement);
+        assertEquals("value", MessageHelper.clonePropertyValue("string", "value"));
+    }
+
+    public void testSharedPropertiesCopiedOnFirstUse() throws Exception {
+        Axis2MessageContext original = (Axis2MessageContext) TestUtils.getTestContext("<test/>");
+        Axis2MessageContext clone = (Axis2MessageContext) TestUtils.getTestContext("<test/>");
+        ArrayList<Object> list = new ArrayList<Object>();
+        list.add(OMAbstractFactory.getOMFactory().createOMElement("item", null));
+        original.setProperty("list", list);
+        original.setProperty("string", "value");
+
+        original.shareProperties(clone);
+        assertEquals("value", clone.getProperty("string"));
+
+        ArrayList clonedList = (ArrayList) clone.getProperty("list");
+        assertNotSame(list, clonedList);
+        assertSame(clonedList, clone.getProperty("list"));
+        clonedList.clear();
+
+        ArrayList originalList = (ArrayList) original.getProperty("list");
+        assertEquals(1, originalList.size());
+        assertNotSame(clonedList, originalList);
+    }
+
+    public void testSharedPropertyReplacedWithoutCopy() throws Exception {
+        Axis2MessageContext original = (Axis2MessageContext) TestUtils.getTestContext("<test/>");
+        Axis2MessageContext clone = (Axis2MessageContext) TestUtils.getTestContext("<test/>");
+        original.setProperty("list", new ArrayList<Object>());
+        original.shareProperties(clone);
+
+        ArrayList<Object> replacement = new ArrayList<Object>();
+        clone.setProperty("list", replacement);
+        assertSame(replacement, clone.getProperty("list"));
+    }
+
     private void performTestForCloneEnvelope(SOAPFactory soapFactory, SOAPHeaderBlock header, OMElement childNode) {
 
         SOAPEnvelope tempEnvelope = soapFactory.getDefaultEnvelope();
@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link HashedWheelTimer}
+ */
+public class HashedWheelTimerTest extends TestCase {
+
+    private HashedWheelTimer timer;
+
+    @Override
+    protected void setUp() throws Exception {
+        timer = new HashedWheelTimer("HashedWheelTimerTest", 10, 8);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        timer.stop();
+    }
+
+    public void testTimeoutExpires() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 50);
+
+        assertTrue("Timeout did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Timeout expired too early",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    public void testTimeoutLongerThanWheel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // 8 buckets of 10ms, so this timeout has to wait for a few rounds of the wheel
+        timer.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 250);
+
+        assertTrue("Timeout did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Timeout expired too early",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    public void testCancelledTimeoutDoesNotExpire() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        HashedWheelTimer.Timeout cancelled = timer.schedule(new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 20);
+        timer.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 100);
+
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertTrue("Timeout did not expire", latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    public void testManyTimeouts() throws Exception {
+        int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(count / 2);
+        final AtomicInteger runs = new AtomicInteger();
+        // long enough for all the timeouts to be scheduled and cancelled before any expires
+        HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = timer.schedule(new Runnable() {
+                public void run() {
+                    runs.incrementAndGet();
+                    latch.countDown();
+                }
+            }, 1000 + i % 200);
+        }
+        for (int i = 0; i < count; i += 2) {
+            timeouts[i].cancel();
+        }
+
+        assertTrue("Timeouts did not expire", latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(count / 2, runs.get());
+    }
+
+    public void testScheduleOnStoppedTimer() {
+        timer.stop();
+        try {
+            timer.schedule(new Runnable() {
+                public void run() {
+                }
+            }, 10);
+            fail("Timeout scheduled on a stopped timer");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}
@@ -19,12 +19,14 @@
 package org.apache.synapse.transport.http.conn;
 
 import java.net.InetSocketAddress;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 
 import org.apache.commons.httpclient.HttpHost;
 import org.apache.http.HttpResponseFactory;
@@ -109,10 +111,7 @@ public class ClientConnFactory {
         IOSession customSession;
         if (ssl != null && route.isSecure() && !route.isTunnelled()) {
             SSLContext customContext = getSSLContext(iosession);
-            SSLIOSession ssliosession = new SSLIOSession(
-                       iosession, SSLMode.CLIENT, customContext, ssl.getHandler());
-            iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
-            customSession = ssliosession;
+            customSession = createSSLIOSession(iosession, customContext, route.getTargetHost());
         } else {
             customSession = iosession;
         }
@@ -123,15 +122,19 @@ public class ClientConnFactory {
         return conn;
     }
 
+    /**
+     * Upgrade the given connection to TLS without knowing the target host. The peer of a
+     * tunnelled connection is the proxy, so the session is created without a peer and cannot be
+     * resumed. Use {@link #upgrade(UpgradableNHttpConnection, HttpRoute)} where the route is known.
+     *
+     * @param conn connection to upgrade
+     */
     public void upgrade(final UpgradableNHttpConnection conn) {
         if (ssl != null) {
             IOSession iosession = conn.getIOSession();
             if (!(iosession instanceof SSLIOSession)) {
                 SSLContext customContext = getSSLContext(iosession);
-                SSLIOSession ssliosession = new SSLIOSession(
-                    iosession, SSLMode.CLIENT, customContext, ssl.getHandler());
-                iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
-                conn.bind(ssliosession);
+                conn.bind(createSSLIOSession(iosession, customContext, null));
             }
         }
     }
@@ -142,14 +145,61 @@ public class ClientConnFactory {
             IOSession iosession = conn.getIOSession();
             if (!(iosession instanceof SSLIOSession)) {
                 SSLContext customContext = getSSLContext(targetHost);
-                SSLIOSession ssliosession = new SSLIOSession(
-                           iosession, SSLMode.CLIENT, customContext, ssl.getHandler());
-                iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
-                conn.bind(ssliosession);
+                conn.bind(createSSLIOSession(iosession, customContext, targetHost));
             }
         }
     }
 
+    /**
+     * @param host target host of the connection, null if it is not known
+     */
+    private SSLIOSession createSSLIOSession(final IOSession iosession, final SSLContext context,
+                                           final org.apache.http.HttpHost host) {
+        // the SSL engine needs to know the peer to look up, and resume, a cached session
+        SSLIOSession ssliosession = new SSLIOSession(
+                iosession, SSLMode.CLIENT, host, context, ssl.getHandler());
+        iosession.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
+        SSLHandshakeStatistics.handshakeStarted(iosession);
+        return ssliosession;
+    }
+
+    /**
+     * Bound the client session caches of the SSL contexts used by this factory. The sessions
+     * of a context are shared by all the connections created with it, so that reconnecting to
+     * a backend can resume an earlier session with an abbreviated handshake.
+     *
+     * @param size    maximum number of cached sessions per context, 0 for no limit
+     * @param timeout time in seconds after which a cached session can no longer be resumed
+     */
+    public void configureSessionCache(int size, int timeout) {
+        if (ssl == null) {
+            return;
+        }
+        Set<SSLContext> contexts = new HashSet<SSLContext>();
+        contexts.add(ssl.getContext());
+        if (sslByHostMap != null) {
+            contexts.addAll(sslByHostMap.values());
+        }
+        for (SSLContext context : contexts) {
+            SSLSessionContext sessionContext = context.getClientSessionContext();
+            if (sessionContext != null) {
+                sessionContext.setSessionCacheSize(size);
+                sessionContext.setSessionTimeout(timeout);
+            }
+        }
+    }
+
+    /**
+     * Set the statistics to be updated by each TLS handshake of the connections of this factory
+     *
+     * @param statistics handshake statistics
+     */
+    public void setHandshakeStatistics(SSLHandshakeStatistics statistics) {
+        if (ssl != null && ssl.getHandler() instanceof ClientSSLSetupHandler) {
+            ((ClientSSLSetupHandler) ssl.getHandler()).setHandshakeStatistics(statistics);
+        }
+    }
+
     /**
      * Returns Set of Host:Port String entries
      *
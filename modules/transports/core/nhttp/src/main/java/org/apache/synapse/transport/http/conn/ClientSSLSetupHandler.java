@@ -49,6 +49,9 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
      **/
     private String[] preferredCiphers;
 
+    /** Counts the completed handshakes, may be null */
+    private volatile SSLHandshakeStatistics handshakeStatistics;
+
     static {
         Arrays.sort(LOCALHOSTS);
     }
@@ -189,6 +192,11 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
                 throw new SSLException("Certificate Chain Validation failed for host : " + address, e);
             }
         }
+
+        SSLHandshakeStatistics statistics = handshakeStatistics;
+        if (statistics != null) {
+            statistics.handshakeCompleted(iosession, sslsession);
+        }
     }
 
     /**
@@ -209,4 +217,13 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
         this.preferredCiphers = enabledCiphers;
     }
 
+    /**
+     * Set the statistics which should be updated on each successful handshake
+     *
+     * @param handshakeStatistics handshake statistics, null to stop counting
+     */
+    public void setHandshakeStatistics(SSLHandshakeStatistics handshakeStatistics) {
+        this.handshakeStatistics = handshakeStatistics;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.conn;
+
+import org.apache.http.nio.reactor.IOSession;
+
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the TLS handshakes completed by client connections, telling full handshakes apart from
+ * abbreviated handshakes which resumed a cached session.
+ * <p>
+ * JSSE does not tell whether a session was resumed. A resumed session however was created by an
+ * earlier handshake, so its creation time predates the start of the current handshake, which the
+ * connection factory records on the IO session under {@link #HANDSHAKE_START_TIME}.
+ */
+public class SSLHandshakeStatistics {
+
+    /** IO session attribute holding the time at which the TLS handshake was started */
+    public static final String HANDSHAKE_START_TIME = "synapse.ssl.handshake.start.time";
+
+    private final AtomicLong fullHandshakes = new AtomicLong(0);
+    private final AtomicLong resumedHandshakes = new AtomicLong(0);
+
+    /**
+     * Mark the start of the handshake of the given session
+     *
+     * @param iosession IO session about to start a TLS handshake
+     */
+    public static void handshakeStarted(IOSession iosession) {
+        iosession.setAttribute(HANDSHAKE_START_TIME, System.currentTimeMillis());
+    }
+
+    /**
+     * Record a successfully completed handshake
+     *
+     * @param iosession  IO session which completed the handshake
+     * @param sslsession the negotiated TLS session
+     */
+    public void handshakeCompleted(IOSession iosession, SSLSession sslsession) {
+        Object start = iosession.getAttribute(HANDSHAKE_START_TIME);
+        if (start instanceof Long && sslsession.getCreationTime() < (Long) start) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of handshakes which negotiated a new session
+     */
+    public long getFullHandshakeCount() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * @return number of abbreviated handshakes which resumed a cached session
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * @return fraction of the handshakes which resumed a cached session, 0 if there were none
+     */
+    public double getResumptionRatio() {
+        long resumed = resumedHandshakes.get();
+        long total = resumed + fullHandshakes.get();
+        return total == 0 ? 0 : (double) resumed / total;
+    }
+
+    public void reset() {
+        fullHandshakes.set(0);
+        resumedHandshakes.set(0);
+    }
+}
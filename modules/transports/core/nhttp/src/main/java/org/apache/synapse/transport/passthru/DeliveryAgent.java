@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -110,40 +111,15 @@ public class DeliveryAgent {
             if (log.isDebugEnabled()) {
                 log.debug("Submitting request for MessageID: " + msgContext.getMessageID());
             }
-            URL url = new URL(epr.getAddress());
-            String scheme = url.getProtocol() != null ? url.getProtocol() : "http";
-            String hostname = url.getHost();
-            int port = url.getPort();
-            if (port == -1) {
-                // use default
-                if ("http".equals(scheme)) {
-                    port = 80;
-                } else if ("https".equals(scheme)) {
-                    port = 443;
-                }
-            }
-            HttpHost target = new HttpHost(hostname, port, scheme);
-            boolean secure = "https".equalsIgnoreCase(target.getSchemeName());
-
-            HttpHost proxy = proxyConfig.selectProxy(target);
-            msgContext.setProperty(PassThroughConstants.PROXY_PROFILE_TARGET_HOST, target.getHostName());
-
-            HttpRoute route;
-            if (proxy != null) {
-                route = new HttpRoute(target, null, proxy, secure);
-            } else {
-                route = new HttpRoute(target, null, secure);
-            }
+            HttpRoute route = getRoute(new URL(epr.getAddress()));
+            msgContext.setProperty(PassThroughConstants.PROXY_PROFILE_TARGET_HOST,
+                    route.getTargetHost().getHostName());
 
             // first we queue the message
             Queue<MessageContext> queue = null;
             lock.lock();
             try {
-                queue = waitingMessages.get(route);
-                if (queue == null) {
-                    queue = new ConcurrentLinkedQueue<MessageContext>();
-                    waitingMessages.put(route, queue);
-                }
+                queue = getQueue(route);
                 if (queue.size() == maxWaitingMessages) {
                     MessageContext msgCtx = queue.poll();
 
@@ -154,6 +130,8 @@ public class DeliveryAgent {
                             ProtocolState.REQUEST_READY);
                 }
 
+                msgContext.setProperty(PassThroughConstants.CONNECTION_WAIT_START_TIME,
+                        System.currentTimeMillis());
                 queue.add(msgContext);
             } finally {
                 lock.unlock();
@@ -179,6 +157,62 @@ public class DeliveryAgent {
         }
     }
 
+    /**
+     * Open connections to the server of the given address before any message is sent to it.
+     *
+     * @param address the endpoint address
+     * @param count number of connections the route of the address should have
+     * @return number of connections requested
+     * @throws MalformedURLException if the address is not a valid URL
+     */
+    public int prewarmConnections(String address, int count) throws MalformedURLException {
+        HttpRoute route = getRoute(new URL(address));
+        // the connection callbacks expect a queue for the route, even if it stays empty
+        lock.lock();
+        try {
+            getQueue(route);
+        } finally {
+            lock.unlock();
+        }
+        return targetConnections.prewarmConnections(route, count);
+    }
+
+    /**
+     * Get the queue of the messages waiting for a connection to the given route, called with
+     * the lock held
+     */
+    private Queue<MessageContext> getQueue(HttpRoute route) {
+        Queue<MessageContext> queue = waitingMessages.get(route);
+        if (queue == null) {
+            queue = new ConcurrentLinkedQueue<MessageContext>();
+            waitingMessages.put(route, queue);
+        }
+        return queue;
+    }
+
+    private HttpRoute getRoute(URL url) {
+        String scheme = url.getProtocol() != null ? url.getProtocol() : "http";
+        String hostname = url.getHost();
+        int port = url.getPort();
+        if (port == -1) {
+            // use default
+            if ("http".equals(scheme)) {
+                port = 80;
+            } else if ("https".equals(scheme)) {
+                port = 443;
+            }
+        }
+        HttpHost target = new HttpHost(hostname, port, scheme);
+        boolean secure = "https".equalsIgnoreCase(target.getSchemeName());
+
+        HttpHost proxy = proxyConfig.selectProxy(target);
+        if (proxy != null) {
+            return new HttpRoute(target, null, proxy, secure);
+        } else {
+            return new HttpRoute(target, null, secure);
+        }
+    }
+
 	public void errorConnecting(HttpRoute route, int errorCode, String message) {
 		Queue<MessageContext> queue = waitingMessages.get(route);
 		if (queue != null) {
@@ -188,11 +222,10 @@ public class DeliveryAgent {
 				targetErrorHandler.handleError(msgCtx, errorCode,
 				                               "Error connecting to the back end", null,
 				                               ProtocolState.REQUEST_READY);
-				synchronized (msgCtx) {
-					msgCtx.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE,
-					                   Boolean.TRUE);
-					msgCtx.notifyAll();
-				}
+				notifyBuilderOutputStreamReady(msgCtx);
+			} else if (log.isDebugEnabled()) {
+				// connections opened to pre-warm the pool fail before a message is queued
+				log.debug("Failed to connect to " + route + " with no message waiting : " + message);
 			}
 		} else {
 			throw new IllegalStateException("Queue cannot be null for: " + route);
@@ -217,7 +250,11 @@ public class DeliveryAgent {
         } finally {
             lock.unlock();
         }
+        if (queue == null) {
+            throw new IllegalStateException("Queue cannot be null for: " + route);
+        }
 
+        // the queue is empty when the connection was opened to pre-warm the pool
         while (queue.size() > 0) {
             if(conn == null) {
                 conn = targetConnections.getExistingConnection(route);
@@ -242,6 +279,12 @@ public class DeliveryAgent {
 
     private void tryNextMessage(MessageContext messageContext, HttpRoute route, NHttpClientConnection conn) {
         if (conn != null) {
+            Long waitStartTime = (Long) messageContext.getProperty(
+                    PassThroughConstants.CONNECTION_WAIT_START_TIME);
+            if (waitStartTime != null && targetConfiguration.getMetrics() != null) {
+                targetConfiguration.getMetrics().notifyConnectionWaitTime(
+                        System.currentTimeMillis() - waitStartTime);
+            }
             try {
                 conn.getContext().setAttribute(PassThroughConstants.CORRELATION_ID,
                         messageContext.getProperty(PassThroughConstants.CORRELATION_ID));
@@ -278,19 +321,32 @@ public class DeliveryAgent {
             pipe.attachConsumer(conn);
             request.connect(pipe);
             if (Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
-                synchronized (msgContext) {
-                    OutputStream out = pipe.getOutputStream();
-                    msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM, out);
-                    msgContext.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE, Boolean.TRUE);
-                    msgContext.notifyAll();
-                }
+                OutputStream out = pipe.getOutputStream();
+                msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM, out);
+                notifyBuilderOutputStreamReady(msgContext);
                 return;
             }
+            if (targetConfiguration.isDirectRelayEnabled()) {
+                pipe.enableDirectRelay();
+            }
         }
 
         conn.requestOutput();
     }    
 
+    /**
+     * Wake up the worker waiting for the builder output stream of the given message
+     * @param msgContext the message which is ready to be serialized, or failed to connect
+     */
+    private void notifyBuilderOutputStreamReady(MessageContext msgContext) {
+        msgContext.setProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE, Boolean.TRUE);
+        CountDownLatch ready =
+                (CountDownLatch) msgContext.getProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_READY);
+        if (ready != null) {
+            ready.countDown();
+        }
+    }
+
     /**
      * Throws an AxisFault if an error occurs at this level
      * @param s a message describing the error
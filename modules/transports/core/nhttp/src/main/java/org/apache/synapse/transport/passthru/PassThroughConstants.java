@@ -26,6 +26,7 @@ public class PassThroughConstants {
     public static final String TUNNEL_HANDLER = "TUNNEL_HANDLER";
     public static final String CONNECTION_INIT_TIME = "CONNECTION_INIT_TIME";
     public static final String CONNECTION_RELEASE_TIME = "CONNECTION_RELEASE_TIME";
+    public static final String CONNECTION_WAIT_START_TIME = "CONNECTION_WAIT_START_TIME";
 
     public static final String TRUE = "TRUE";
 
@@ -174,6 +175,12 @@ public class PassThroughConstants {
 	
 	public static final String BUILDER_OUTPUT_STREAM="BUILDER_OUTPUT_STREAM";
 
+    /** Off-heap buffer holding the body of a large message while it is built */
+    public static final String MESSAGE_SPILL_BUFFER = "MESSAGE_SPILL_BUFFER";
+
+    /** Latch released once the builder output stream is available or the connection failed */
+    public static final String BUILDER_OUTPUT_STREAM_READY = "BUILDER_OUTPUT_STREAM_READY";
+
     // Enable the SOAP trace facility to PassThrough
     public static final String TRACE_SOAP_MESSAGE = "wso2tracer";
 
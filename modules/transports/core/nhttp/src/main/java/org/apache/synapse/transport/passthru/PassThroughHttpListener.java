@@ -67,6 +67,7 @@ import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.core.PassThroughSharedListenerConfiguration;
 import org.apache.synapse.transport.passthru.core.PassThroughListeningIOReactorManager;
 
+import org.apache.synapse.transport.passthru.jmx.BufferPoolView;
 import org.apache.synapse.transport.passthru.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.jmx.TransportView;
@@ -112,6 +113,8 @@ public class PassThroughHttpListener implements TransportListener {
 
     private String namePrefix;
 
+    private BufferPoolView bufferPoolView;
+
     /** Active Connection Monitor Scheduler **/
     private final ScheduledExecutorService activeConnectionMonitorScheduler = Executors.newSingleThreadScheduledExecutor();
 
@@ -174,6 +177,9 @@ public class PassThroughHttpListener implements TransportListener {
 
         sourceConfiguration = new SourceConfiguration(cfgCtx, transportInDescription, scheme, workerPool, metrics);
         sourceConfiguration.build();
+        view.setWorkerPool(sourceConfiguration.getWorkerPool());
+        bufferPoolView = new BufferPoolView("passthru-" + namePrefix.toLowerCase() + "-receiver",
+                sourceConfiguration.getBufferFactory());
 
         HttpHost host = new HttpHost(
                 sourceConfiguration.getHostname(),
@@ -445,6 +451,9 @@ public class PassThroughHttpListener implements TransportListener {
                 getAxisConfiguration().getObserversList().remove(axisObserver);*/
 //        serviceTracker.stop();
         sourceConfiguration.getMetrics().destroy();
+        if (bufferPoolView != null) {
+            bufferPoolView.destroy();
+        }
     }
 
     /**
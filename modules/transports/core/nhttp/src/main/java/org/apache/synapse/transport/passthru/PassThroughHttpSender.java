@@ -48,16 +48,19 @@ import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.exceptions.InvalidConfigurationException;
 import org.apache.synapse.transport.http.conn.ClientConnFactory;
 import org.apache.synapse.transport.http.conn.ProxyConfig;
+import org.apache.synapse.transport.http.conn.SSLHandshakeStatistics;
 import org.apache.synapse.transport.http.conn.Scheme;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.nhttp.config.ClientConnFactoryBuilder;
 import org.apache.synapse.transport.nhttp.config.ProxyConfigBuilder;
 import org.apache.synapse.transport.nhttp.util.MessageFormatterDecoratorFactory;
 import org.apache.synapse.transport.nhttp.util.NhttpUtil;
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
 import org.apache.synapse.transport.passthru.connections.TargetConnections;
 import org.apache.synapse.transport.passthru.core.PassThroughSenderManager;
+import org.apache.synapse.transport.passthru.jmx.BufferPoolView;
 import org.apache.synapse.transport.passthru.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.jmx.TransportView;
@@ -69,10 +72,12 @@ import org.wso2.caching.digest.DigestGenerator;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.MalformedURLException;
 import java.rmi.RemoteException;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
 import javax.xml.stream.XMLStreamException;
 
 /**
@@ -90,6 +95,8 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
     private ClientIODispatch ioEventDispatch;
     /** The connection factory */
     private ClientConnFactory connFactory;
+    /** Handshake counts of the TLS connections, kept across SSL profile reloads */
+    private final SSLHandshakeStatistics handshakeStatistics = new SSLHandshakeStatistics();
     
     /** Delivery agent used for delivering the messages to the servers */
     private DeliveryAgent deliveryAgent;
@@ -110,6 +117,8 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
 
     private String namePrefix;
 
+    private BufferPoolView bufferPoolView;
+
     private DigestGenerator digestGenerator  = CachingConstants.DEFAULT_XML_IDENTIFIER;
 
     private ConfigurationContext configurationContext;
@@ -157,6 +166,9 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
                 transportOutDescription, workerPool, metrics,
                 proxyConfig.createProxyAuthenticator());
         targetConfiguration.build();
+        view.setWorkerPool(targetConfiguration.getWorkerPool());
+        bufferPoolView = new BufferPoolView("passthru-" + namePrefix.toLowerCase() + "-sender",
+                targetConfiguration.getBufferFactory());
 
         PassThroughSenderManager.registerPassThroughHttpSender(this);
 
@@ -166,6 +178,10 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         
         ClientConnFactoryBuilder connFactoryBuilder = initConnFactoryBuilder(transportOutDescription, configurationContext);
         connFactory = connFactoryBuilder.createConnFactory(targetConfiguration.getHttpParams());
+        configureSSL(connFactory);
+        if (scheme.isSSL()) {
+            metrics.setHandshakeStatistics(handshakeStatistics);
+        }
         
         try {
             String prefix = namePrefix + "-Sender I/O dispatcher";
@@ -198,6 +214,7 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
 
         targetConnections = new TargetConnections(ioReactor, targetConfiguration, connectCallback);
         targetConfiguration.setConnections(targetConnections);
+        metrics.setTargetConnections(targetConnections);
 
         // create the delivery agent to hand over messages
         deliveryAgent = new DeliveryAgent(targetConfiguration, targetConnections, proxyConfig);
@@ -236,6 +253,12 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         } catch (IOException e) {
             log.error("Error shutting down the PassThroughHttpSender", e);
         }
+        if (bufferPoolView != null) {
+            bufferPoolView.destroy();
+        }
+        if (targetConnections != null) {
+            targetConnections.destroy();
+        }
     }
 
 
@@ -341,16 +364,18 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
     }
 
     private boolean waitForReady(final MessageContext msgContext) {
-        synchronized (msgContext) {
-            while (!Boolean.TRUE.equals(msgContext.getProperty(PassThroughConstants.WAIT_BUILDER_IN_STREAM_COMPLETE)) &&
-                   !Boolean.TRUE.equals(msgContext.getProperty("PASSTHRU_CONNECT_ERROR"))) {
-                try {
-                    msgContext.wait();
-                } catch (InterruptedException e) {
-                    log.error("Interrupted while waiting for passthru connection..", e);
-                }
+        // a latch is awaited rather than the message context monitor, so that a worker running
+        // on a virtual thread does not pin its carrier thread until the connection is ready
+        CountDownLatch ready =
+                (CountDownLatch) msgContext.getProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_READY);
+        while (ready.getCount() > 0) {
+            try {
+                ready.await();
+            } catch (InterruptedException e) {
+                log.error("Interrupted while waiting for passthru connection..", e);
             }
         }
+        msgContext.removeProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_READY);
 
         if (Boolean.TRUE.equals(msgContext.getProperty("PASSTHRU_CONNECT_ERROR"))) {
             return false;
@@ -377,6 +402,8 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
                     OverflowBlob overflowBlob = setStreamAsTempData(formatter, msgContext, format);
                     messageSize = overflowBlob.getLength();
                     msgContext.setProperty(PassThroughConstants.PASSTROUGH_MESSAGE_LENGTH, messageSize);
+                    msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_READY,
+                            new CountDownLatch(1));
                     deliveryAgent.submit(msgContext, epr);
                     if (!waitForReady(msgContext)) {
                         return;
@@ -404,6 +431,8 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
                     handleException("IO while building message", e);
                 }
             } else {
+                msgContext.setProperty(PassThroughConstants.BUILDER_OUTPUT_STREAM_READY,
+                        new CountDownLatch(1));
                 deliveryAgent.submit(msgContext, epr);
                 if (!waitForReady(msgContext)) {
                     return;
@@ -540,6 +569,10 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
 
             pipe.attachConsumer(conn);
             sourceResponse.connect(pipe);
+            if (sourceConfiguration.isDirectRelayEnabled() && (noEntityBody == null || !noEntityBody)
+                    && !msgContext.isPropertyTrue(PassThroughConstants.MESSAGE_BUILDER_INVOKED)) {
+                pipe.enableDirectRelay();
+            }
         }
 
         Integer errorCode = (Integer) msgContext.getProperty(PassThroughConstants.ERROR_CODE);
@@ -683,6 +716,39 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         }
     }
 
+    /**
+     * Open connections to the server of the given endpoint address before messages are sent to
+     * it, so that the first messages do not pay for the TCP and TLS handshakes.
+     *
+     * @param address endpoint address
+     * @param count   number of connections to keep open to the server
+     * @return number of connections requested, 0 if the sender is not running or the address is
+     *         invalid
+     */
+    public int prewarmConnections(String address, int count) {
+        if (deliveryAgent == null || state != BaseConstants.STARTED) {
+            return 0;
+        }
+        try {
+            return deliveryAgent.prewarmConnections(address, count);
+        } catch (MalformedURLException e) {
+            log.warn("Cannot pre-warm connections to the invalid address : " + address);
+            return 0;
+        }
+    }
+
+    /**
+     * Bound the TLS session caches used for session resumption and count the handshakes of the
+     * connections created by the given factory
+     *
+     * @param connFactory the connection factory
+     */
+    private void configureSSL(ClientConnFactory connFactory) {
+        PassThroughConfiguration conf = PassThroughConfiguration.getInstance();
+        connFactory.configureSessionCache(conf.getSSLSessionCacheSize(), conf.getSSLSessionTimeout());
+        connFactory.setHandshakeStatistics(handshakeStatistics);
+    }
+
     private void handleException(String s, Exception e) throws AxisFault {
         log.error(s, e);
         throw new AxisFault(s, e);
@@ -704,6 +770,7 @@ public class PassThroughHttpSender extends AbstractHandler implements TransportS
         try {
             ClientConnFactoryBuilder connFactoryBuilder = initConnFactoryBuilder(transport, this.configurationContext);
             connFactory = connFactoryBuilder.createConnFactory(targetConfiguration.getHttpParams());
+            configureSSL(connFactory);
 
             //Set new configurations
             handler.setConnFactory(connFactory);
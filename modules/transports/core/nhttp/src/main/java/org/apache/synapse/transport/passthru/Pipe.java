@@ -25,11 +25,13 @@ import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.NHttpServerConnection;
 import org.apache.synapse.transport.passthru.config.BaseConfiguration;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+import org.apache.synapse.transport.passthru.util.AdaptiveWorkerPool;
 import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -53,7 +55,7 @@ public class Pipe {
 
     private ControlledByteBuffer outputBuffer;
 
-    private boolean producerCompleted = false;
+    private volatile boolean producerCompleted = false;
 
     public boolean isProducerCompleted() {
         return producerCompleted;
@@ -68,9 +70,9 @@ public class Pipe {
     /** Name to identify the buffer */
     private String name = "Buffer";
 
-    private boolean consumerError = false;
+    private volatile boolean consumerError = false;
 
-    private boolean producerError = false;
+    private volatile boolean producerError = false;
 
     /**
      * Socket Time out value specified in the nttp properties file.
@@ -100,6 +102,23 @@ public class Pipe {
     private ByteBufferInputStream inputStream;
     private ByteBufferOutputStream outputStream;
 
+    /**
+     * Whether the pipe relays bytes between the producer and the consumer without locking. In this
+     * mode the buffer is used as a single producer, single consumer ring and the producer and the
+     * consumer only communicate through the relayHead and relayTail counters.
+     */
+    private volatile boolean directRelay = false;
+
+    /** Total number of bytes written to the encoder in direct relay mode, updated by the consumer */
+    private volatile long relayHead;
+
+    /** Total number of bytes read from the decoder in direct relay mode, updated by the producer */
+    private volatile long relayTail;
+
+    /** Views of the buffer owned by the producer and the consumer in direct relay mode */
+    private ByteBuffer relayProducerView;
+    private ByteBuffer relayConsumerView;
+
     public Pipe(IOControl producerIoControl, ControlledByteBuffer buffer,
                 String name, BaseConfiguration baseConfig) {
         this.producerIoControl = producerIoControl;
@@ -123,6 +142,45 @@ public class Pipe {
         this.consumerIoControl = consumerIoControl;
     }
 
+    /**
+     * Switch the pipe to direct relay mode, in which the bytes read from the decoder are handed to
+     * the encoder without locking the pipe for each chunk. This is only possible for pure
+     * pass-through messages, i.e. when both a producer and a consumer are attached and nobody
+     * has read or written the message through the streams of this pipe. Once enabled the streams
+     * of the pipe can no longer be used.
+     *
+     * @return true if the pipe is in direct relay mode
+     */
+    public boolean enableDirectRelay() {
+        lock.lock();
+        try {
+            if (directRelay) {
+                return true;
+            }
+            if (!hasHttpProducer || producerIoControl == null || consumerIoControl == null
+                    || inputStream != null || outputStream != null || outputBuffer != null
+                    || consumerError || producerError) {
+                return false;
+            }
+
+            // Whatever the producer has already read is in the range [position, limit)
+            setOutputMode(buffer);
+            ByteBuffer byteBuffer = buffer.getByteBuffer();
+            relayHead = byteBuffer.position();
+            relayTail = byteBuffer.limit();
+            relayProducerView = byteBuffer.duplicate();
+            relayConsumerView = byteBuffer.duplicate();
+            directRelay = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isDirectRelay() {
+        return directRelay;
+    }
+
     /**
      * Consume the data from the buffer. Before calling this method attachConsumer
      * method must be called with a valid IOControl.
@@ -141,6 +199,10 @@ public class Pipe {
             throw new IllegalStateException("Producer cannot be null when calling consume");
         }
 
+        if (directRelay) {
+            return consumeDirect(encoder);
+        }
+
         lock.lock();
         ControlledByteBuffer consumerBuffer;
         if (outputBuffer != null) {
@@ -149,6 +211,10 @@ public class Pipe {
             consumerBuffer = buffer;
         }
         try {
+            if (directRelay) {
+                return consumeDirect(encoder);
+            }
+
             // if producer at error we have to stop the encoding and return immediately
             if (producerError) {
                 encoder.complete();
@@ -175,7 +241,7 @@ public class Pipe {
 
             if (bytesWritten > 0) {
                 if (!encoder.isCompleted() && !producerCompleted && hasHttpProducer) {
-                    producerIoControl.requestInput();
+                    AdaptiveWorkerPool.requestInput(producerIoControl);
                 }
             }
 
@@ -198,8 +264,16 @@ public class Pipe {
             throw new IllegalStateException("Producer cannot be null when calling produce");
         }
 
+        if (directRelay) {
+            return produceDirect(decoder);
+        }
+
         lock.lock();
         try {
+            if (directRelay) {
+                return produceDirect(decoder);
+            }
+
             setInputMode(buffer);
             int bytesRead=0;
             try{
@@ -242,6 +316,115 @@ public class Pipe {
         }
     }
 
+    /**
+     * Write the bytes available in the ring to the encoder. Only called by the consumer thread.
+     */
+    private int consumeDirect(final ContentEncoder encoder) throws IOException {
+        if (producerError) {
+            encoder.complete();
+            return -1;
+        }
+
+        // read the completion flag before the tail, the producer sets it after the last tail update
+        boolean completed = producerCompleted;
+        long head = relayHead;
+        long tail = relayTail;
+        int capacity = relayConsumerView.capacity();
+        int bytesWritten = 0;
+
+        while (head < tail) {
+            int index = (int) (head % capacity);
+            int length = (int) Math.min(tail - head, capacity - index);
+            relayConsumerView.clear();
+            relayConsumerView.position(index);
+            relayConsumerView.limit(index + length);
+            int written = encoder.write(relayConsumerView);
+            if (written <= 0) {
+                break;
+            }
+            head += written;
+            relayHead = head;
+            bytesWritten += written;
+            if (written < length) {
+                break;
+            }
+        }
+
+        if (head == tail) {
+            if (completed) {
+                encoder.complete();
+            } else {
+                // Wait until the producer fills up the buffer. The producer may have added data
+                // after the check above, in which case its output request may have been lost.
+                consumerIoControl.suspendOutput();
+                if (relayTail != head || producerCompleted) {
+                    consumerIoControl.requestOutput();
+                }
+            }
+        }
+
+        if (bytesWritten > 0 && !encoder.isCompleted() && !completed) {
+            AdaptiveWorkerPool.requestInput(producerIoControl);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Read the bytes available from the decoder in to the ring. Only called by the producer thread.
+     */
+    private int produceDirect(final ContentDecoder decoder) throws IOException {
+        long head = relayHead;
+        long tail = relayTail;
+        int capacity = relayProducerView.capacity();
+        int bytesRead = 0;
+
+        try {
+            if (consumerError) {
+                // nobody is going to consume the data, read it and drop it
+                relayProducerView.clear();
+                bytesRead = Math.max(decoder.read(relayProducerView), 0);
+            } else {
+                while (tail - head < capacity) {
+                    int index = (int) (tail % capacity);
+                    int length = (int) Math.min(capacity - (tail - head), capacity - index);
+                    relayProducerView.clear();
+                    relayProducerView.position(index);
+                    relayProducerView.limit(index + length);
+                    int read = decoder.read(relayProducerView);
+                    if (read <= 0) {
+                        break;
+                    }
+                    tail += read;
+                    relayTail = tail;
+                    bytesRead += read;
+                    if (read < length) {
+                        break;
+                    }
+                }
+            }
+        } catch (MalformedChunkCodingException ignore) {
+            // we assume that this is a truncated chunk, hence simply ignore the exception
+            // https://issues.apache.org/jira/browse/HTTPCORE-195
+        }
+
+        if (!consumerError && tail - head == capacity) {
+            // Ring is full. Suspend input until the consumer frees up some space, unless the
+            // consumer has already done so after the check above.
+            producerIoControl.suspendInput();
+            if (relayHead != head) {
+                AdaptiveWorkerPool.requestInput(producerIoControl);
+            }
+        }
+
+        if (decoder.isCompleted()) {
+            producerCompleted = true;
+        }
+        if (bytesRead > 0 || decoder.isCompleted()) {
+            consumerIoControl.requestOutput();
+        }
+        return bytesRead;
+    }
+
     /**
      * Helper method to mark as producer completed. The normal behavior only set the boolean param to true only when
      * decoder is completed. However in some cases it is needed to intentionally close chunk stream and mark as
@@ -302,6 +485,7 @@ public class Pipe {
      * @return An InputStream object
      */
     public synchronized InputStream getInputStream() {
+        assertNotDirectRelay();
         if (inputStream == null) {
             inputStream = new ByteBufferInputStream();
         }
@@ -315,6 +499,7 @@ public class Pipe {
      * @return An OutputStream object
      */
     public synchronized OutputStream getOutputStream() {
+        assertNotDirectRelay();
         if (outputStream == null) {
             outputBuffer = baseConfig.getBufferFactory().getBuffer();
             outputStream = new ByteBufferOutputStream();
@@ -330,6 +515,7 @@ public class Pipe {
      * @return An OutputStream object
      */
     public synchronized OutputStream resetOutputStream() {
+        assertNotDirectRelay();
         outputBuffer = baseConfig.getBufferFactory().getBuffer();
         outputStream = new ByteBufferOutputStream();
         return outputStream;
@@ -378,6 +564,12 @@ public class Pipe {
         return hasHttpProducer;
     }
 
+    private void assertNotDirectRelay() {
+        if (directRelay) {
+            throw new IllegalStateException("Pipe " + name + " is in direct relay mode");
+        }
+    }
+
     private void setInputMode(ControlledByteBuffer buffer) {
         if (buffer.setInputMode()) {
             if (buffer.hasRemaining()) {
@@ -498,7 +690,7 @@ public class Pipe {
                         if(producerError){
                             break;
                         }
-                        producerIoControl.requestInput();
+                        AdaptiveWorkerPool.requestInput(producerIoControl);
                         readCondition.await();
                     }
                 } catch (InterruptedException e) {
@@ -16,6 +16,7 @@
 
 package org.apache.synapse.transport.passthru;
 
+import org.apache.axis2.context.MessageContext;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpRequest;
@@ -24,6 +25,10 @@ import org.apache.log4j.MDC;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -35,6 +40,8 @@ public class SourceContext {
     public static final String CONNECTION_INFORMATION = "CONNECTION_INFORMATION";
 
     /** logger for correlation.log */
+    private static final Log log = LogFactory.getLog(SourceContext.class);
+
     private static final Log correlationLog = LogFactory.getLog(PassThroughConstants.CORRELATION_LOGGER);
 
     private SourceConfiguration sourceConfiguration;
@@ -54,6 +61,9 @@ public class SourceContext {
 
     private Lock lock = new ReentrantLock();
 
+    /** Resources to be released once the current request/response exchange completes */
+    private final Queue<Closeable> exchangeResources = new ConcurrentLinkedQueue<Closeable>();
+
     /** Time that state got updated*/
     private long lastStateUpdatedTime;
 
@@ -120,8 +130,47 @@ public class SourceContext {
 
 		this.reader = null;
 		this.writer = null;
+
+		Closeable resource;
+		while ((resource = exchangeResources.poll()) != null) {
+			try {
+				resource.close();
+			} catch (IOException e) {
+				log.warn("Error while releasing a resource of the exchange", e);
+			}
+		}
 	}
 
+    /**
+     * Register a resource, such as a buffered message body, to be released when the current
+     * request/response exchange of this connection completes.
+     *
+     * @param resource resource to be released
+     */
+    public void addExchangeResource(Closeable resource) {
+        exchangeResources.add(resource);
+    }
+
+    /**
+     * Register a resource to be released when the exchange of the client connection the given
+     * message belongs to completes.
+     *
+     * @param msgContext message received from, or to be sent to, a client connection
+     * @param resource   resource to be released
+     * @return false if the message is not associated with a pass-through client connection
+     */
+    public static boolean addExchangeResource(MessageContext msgContext, Closeable resource) {
+        Object conn = msgContext.getProperty(PassThroughConstants.PASS_THROUGH_SOURCE_CONNECTION);
+        if (conn instanceof NHttpConnection) {
+            SourceContext info = get((NHttpConnection) conn);
+            if (info != null) {
+                info.addExchangeResource(resource);
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Lock getLock() {
         return lock;
     }
@@ -44,6 +44,7 @@ import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.jmx.LatencyCollector;
 import org.apache.synapse.transport.passthru.jmx.LatencyView;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+import org.apache.synapse.transport.passthru.util.AdaptiveWorkerPool;
 
 import javax.ws.rs.HttpMethod;
 import java.io.IOException;
@@ -338,7 +339,7 @@ public class SourceHandler implements NHttpServerEventHandler {
                       metrics.incrementBytesSent(bytesWritten);
                   }
                 
-                  conn.requestInput();
+                  AdaptiveWorkerPool.requestNextRequest(sourceConfiguration.getWorkerPool(), conn);
                   if(outBuf instanceof SimpleOutputBuffer && !((SimpleOutputBuffer)outBuf).hasData()){
                 	  sourceConfiguration.getSourceConnections().releaseConnection(conn);
                   }
@@ -38,6 +38,7 @@ import org.apache.http.params.DefaultedHttpParams;
 import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.util.AdaptiveWorkerPool;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 
@@ -201,8 +202,8 @@ public class SourceResponse {
             hasEntity = false;
             // Reset connection state
             sourceConfiguration.getSourceConnections().releaseConnection(conn);
-            // Make ready to deal with a new request
-            conn.requestInput();
+            // Make ready to deal with a new request, unless the workers are overloaded
+            AdaptiveWorkerPool.requestNextRequest(sourceConfiguration.getWorkerPool(), conn);
         }
     }
 
@@ -299,8 +300,8 @@ public class SourceResponse {
             } else {
                 // Reset connection state
                 sourceConfiguration.getSourceConnections().releaseConnection(conn);
-                // Ready to deal with a new request                
-                conn.requestInput();
+                // Ready to deal with a new request, unless the workers are overloaded
+                AdaptiveWorkerPool.requestNextRequest(sourceConfiguration.getWorkerPool(), conn);
             }
         }
         return bytes;
@@ -21,7 +21,11 @@ import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.description.ParameterInclude;
 import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.util.ByteBufferAllocator;
+import org.apache.http.nio.util.DirectByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
@@ -30,13 +34,19 @@ import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
+import org.apache.synapse.transport.passthru.util.AdaptiveWorkerPool;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
+import org.apache.synapse.transport.passthru.util.VirtualThreadWorkerPool;
+
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class has common configurations for both sender and receiver.
  */
 public abstract class BaseConfiguration {
 
+    private static final Log log = LogFactory.getLog(BaseConfiguration.class);
+
     /**
      * Configurations given by axis2.xml
      */
@@ -63,6 +73,8 @@ public abstract class BaseConfiguration {
 
     private Boolean correlationLoggingEnabled = false;
 
+    private boolean directRelayEnabled = false;
+
     private static final String PASSTHROUGH_THREAD_GROUP = "Pass-through Message Processing Thread Group";
     private static final String PASSTHROUGH_THREAD_ID ="PassThroughMessageProcessor";
 
@@ -79,7 +91,30 @@ public abstract class BaseConfiguration {
     public void build() throws AxisFault {
         iOBufferSize = conf.getIOBufferSize();
 
-        if (workerPool == null) {
+        if (workerPool == null && conf.isWorkerPoolVirtualThreads()) {
+            ThreadFactory threadFactory =
+                    VirtualThreadWorkerPool.newVirtualThreadFactory(PASSTHROUGH_THREAD_ID);
+            if (threadFactory != null) {
+                workerPool = new VirtualThreadWorkerPool(conf.getWorkerPoolMaxConcurrency(),
+                        threadFactory);
+            } else {
+                log.warn("Virtual threads are not supported by the JVM, " +
+                        "using platform threads for the pass-through worker pool");
+            }
+        }
+
+        if (workerPool == null && conf.isWorkerPoolAdaptive()) {
+            workerPool = new AdaptiveWorkerPool(
+                            conf.getWorkerPoolCoreSize(),
+                            conf.getWorkerPoolMaxSize(),
+                            conf.getWorkerThreadKeepaliveSec(),
+                            conf.getWorkerPoolQueueLen(),
+                            PASSTHROUGH_THREAD_GROUP,
+                            PASSTHROUGH_THREAD_ID,
+                            conf.getWorkerPoolTargetQueueTime(),
+                            conf.getWorkerPoolSuspendQueueTime(),
+                            conf.getWorkerPoolAdjustInterval());
+        } else if (workerPool == null) {
             workerPool = WorkerPoolFactory.getWorkerPool(
                             conf.getWorkerPoolCoreSize(),
                             conf.getWorkerPoolMaxSize(),
@@ -96,7 +131,12 @@ public abstract class BaseConfiguration {
             correlationLoggingEnabled = sysCorrelationStatus.equalsIgnoreCase("true");
         }
 
-        bufferFactory = new BufferFactory(iOBufferSize, new HeapByteBufferAllocator(), 512);
+        directRelayEnabled = conf.isDirectRelayEnabled();
+
+        ByteBufferAllocator allocator = conf.isIOBufferDirect() ?
+                new DirectByteBufferAllocator() : new HeapByteBufferAllocator();
+        bufferFactory = new BufferFactory(iOBufferSize, allocator, conf.getIOBufferPoolSize(),
+                conf.getIOBufferPoolMaxSize(), conf.getIOBufferThreadCacheSize());
     }
 
 
@@ -182,4 +222,8 @@ public abstract class BaseConfiguration {
 
     public Boolean isCorrelationLoggingEnabled() { return correlationLoggingEnabled; }
 
+    public boolean isDirectRelayEnabled() {
+        return directRelayEnabled;
+    }
+
 }
@@ -44,6 +44,38 @@ public interface PassThroughConfigPNames {
      */
     public String WORKER_POOL_QUEUE_LENGTH = "worker_pool_queue_length";
 
+    /**
+     * Defines whether the core size of the worker pool is adjusted according to the time
+     * tasks spend waiting in the queue
+     */
+    public String WORKER_POOL_ADAPTIVE = "worker_pool_adaptive";
+
+    /**
+     * Defines the queue time in milliseconds the adaptive worker pool tries to stay below
+     */
+    public String WORKER_POOL_TARGET_QUEUE_TIME = "worker_pool_target_queue_time";
+
+    /**
+     * Defines the queue time in milliseconds after which the adaptive worker pool stops reading
+     * new requests from client connections, a negative value disables it
+     */
+    public String WORKER_POOL_SUSPEND_QUEUE_TIME = "worker_pool_suspend_queue_time";
+
+    /**
+     * Defines the interval in milliseconds at which the adaptive worker pool is resized
+     */
+    public String WORKER_POOL_ADJUST_INTERVAL = "worker_pool_adjust_interval";
+
+    /**
+     * Defines whether worker tasks are executed on virtual threads, when supported by the JVM
+     */
+    public String WORKER_POOL_VIRTUAL_THREADS = "worker_pool_virtual_threads";
+
+    /**
+     * Defines the maximum number of worker tasks running at the same time on virtual threads
+     */
+    public String WORKER_POOL_MAX_CONCURRENCY = "worker_pool_max_concurrency";
+
     /**
      * Defines the number of IO dispatcher threads used per reactor
      */
@@ -54,6 +86,56 @@ public interface PassThroughConfigPNames {
      */
     public String IO_BUFFER_SIZE = "io_buffer_size";
 
+    /**
+     * Defines the initial number of IO buffers kept in the shared buffer pool
+     */
+    public String IO_BUFFER_POOL_SIZE = "io_buffer_pool_size";
+
+    /**
+     * Defines the number of IO buffers up to which the shared buffer pool may grow
+     */
+    public String IO_BUFFER_POOL_MAX_SIZE = "io_buffer_pool_max_size";
+
+    /**
+     * Defines the number of IO buffers cached locally by each thread
+     */
+    public String IO_BUFFER_THREAD_CACHE_SIZE = "io_buffer_thread_cache_size";
+
+    /**
+     * Defines whether IO buffers are allocated outside of the heap
+     */
+    public String IO_BUFFER_DIRECT = "io_buffer_direct";
+
+
+    /**
+     * Defines whether pure pass-through messages are relayed from the source to the target
+     * without locking the pipe for each chunk
+     */
+    public String DIRECT_RELAY_ENABLED = "direct_relay_enabled";
+
+    /**
+     * Defines the content length in bytes above which a message body is buffered outside of
+     * the heap before it is built, messages without a content length are always buffered.
+     * A negative value disables buffering.
+     */
+    public String MESSAGE_SPILL_THRESHOLD = "message_spill_threshold";
+
+    /**
+     * Defines the number of bytes of a buffered message body kept in direct memory before the
+     * rest is written to a temporary file
+     */
+    public String MESSAGE_SPILL_MEMORY_LIMIT = "message_spill_memory_limit";
+
+    /**
+     * Defines the maximum number of TLS sessions the https sender caches for resumption
+     * per SSL context, 0 for no limit
+     */
+    public String SSL_SESSION_CACHE_SIZE = "ssl_session_cache_size";
+
+    /**
+     * Defines the time in seconds during which a cached TLS session can be resumed
+     */
+    public String SSL_SESSION_TIMEOUT = "ssl_session_timeout";
 
     /**
      * Defines the maximum open connection limit.
@@ -42,7 +42,18 @@ public class PassThroughConfiguration {
     private static final int DEFAULT_WORKER_POOL_SIZE_MAX        = 200;
     private static final int DEFAULT_WORKER_THREAD_KEEPALIVE_SEC = 60;
     private static final int DEFAULT_WORKER_POOL_QUEUE_LENGTH    = -1;
+    private static final int DEFAULT_WORKER_POOL_TARGET_QUEUE_TIME  = 20;
+    private static final int DEFAULT_WORKER_POOL_SUSPEND_QUEUE_TIME = 1000;
+    private static final int DEFAULT_WORKER_POOL_ADJUST_INTERVAL    = 500;
+    private static final int DEFAULT_WORKER_POOL_MAX_CONCURRENCY    = 2000;
     private static final int DEFAULT_IO_BUFFER_SIZE              = 8 * 1024;
+    private static final int DEFAULT_IO_BUFFER_POOL_SIZE         = 512;
+    private static final int DEFAULT_IO_BUFFER_POOL_MAX_SIZE     = 4096;
+    private static final int DEFAULT_IO_BUFFER_THREAD_CACHE_SIZE = 16;
+    private static final int DEFAULT_MESSAGE_SPILL_THRESHOLD     = -1;
+    private static final int DEFAULT_MESSAGE_SPILL_MEMORY_LIMIT  = 1024 * 1024;
+    private static final int DEFAULT_SSL_SESSION_CACHE_SIZE      = 1024;
+    private static final int DEFAULT_SSL_SESSION_TIMEOUT         = 60 * 60;
     private static final int DEFAULT_IO_THREADS_PER_REACTOR      =
                                                          Runtime.getRuntime().availableProcessors();
     private static final int DEFAULT_MAX_ACTIVE_CON = -1;
@@ -91,6 +102,34 @@ public class PassThroughConfiguration {
                 DEFAULT_WORKER_POOL_QUEUE_LENGTH);
     }
 
+    public boolean isWorkerPoolAdaptive() {
+        return getBooleanProperty(PassThroughConfigPNames.WORKER_POOL_ADAPTIVE, false);
+    }
+
+    public int getWorkerPoolTargetQueueTime() {
+        return getIntProperty(PassThroughConfigPNames.WORKER_POOL_TARGET_QUEUE_TIME,
+                DEFAULT_WORKER_POOL_TARGET_QUEUE_TIME);
+    }
+
+    public int getWorkerPoolSuspendQueueTime() {
+        return getIntProperty(PassThroughConfigPNames.WORKER_POOL_SUSPEND_QUEUE_TIME,
+                DEFAULT_WORKER_POOL_SUSPEND_QUEUE_TIME);
+    }
+
+    public int getWorkerPoolAdjustInterval() {
+        return getIntProperty(PassThroughConfigPNames.WORKER_POOL_ADJUST_INTERVAL,
+                DEFAULT_WORKER_POOL_ADJUST_INTERVAL);
+    }
+
+    public boolean isWorkerPoolVirtualThreads() {
+        return getBooleanProperty(PassThroughConfigPNames.WORKER_POOL_VIRTUAL_THREADS, false);
+    }
+
+    public int getWorkerPoolMaxConcurrency() {
+        return getIntProperty(PassThroughConfigPNames.WORKER_POOL_MAX_CONCURRENCY,
+                DEFAULT_WORKER_POOL_MAX_CONCURRENCY);
+    }
+
     public int getIOThreadsPerReactor() {
         return getIntProperty(PassThroughConfigPNames.IO_THREADS_PER_REACTOR,
                 DEFAULT_IO_THREADS_PER_REACTOR);
@@ -101,6 +140,49 @@ public class PassThroughConfiguration {
                 DEFAULT_IO_BUFFER_SIZE);
     }
 
+    public int getIOBufferPoolSize() {
+        return getIntProperty(PassThroughConfigPNames.IO_BUFFER_POOL_SIZE,
+                DEFAULT_IO_BUFFER_POOL_SIZE);
+    }
+
+    public int getIOBufferPoolMaxSize() {
+        return getIntProperty(PassThroughConfigPNames.IO_BUFFER_POOL_MAX_SIZE,
+                DEFAULT_IO_BUFFER_POOL_MAX_SIZE);
+    }
+
+    public int getIOBufferThreadCacheSize() {
+        return getIntProperty(PassThroughConfigPNames.IO_BUFFER_THREAD_CACHE_SIZE,
+                DEFAULT_IO_BUFFER_THREAD_CACHE_SIZE);
+    }
+
+    public boolean isIOBufferDirect() {
+        return getBooleanProperty(PassThroughConfigPNames.IO_BUFFER_DIRECT, false);
+    }
+
+    public boolean isDirectRelayEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.DIRECT_RELAY_ENABLED, false);
+    }
+
+    public int getMessageSpillThreshold() {
+        return getIntProperty(PassThroughConfigPNames.MESSAGE_SPILL_THRESHOLD,
+                DEFAULT_MESSAGE_SPILL_THRESHOLD);
+    }
+
+    public int getMessageSpillMemoryLimit() {
+        return getIntProperty(PassThroughConfigPNames.MESSAGE_SPILL_MEMORY_LIMIT,
+                DEFAULT_MESSAGE_SPILL_MEMORY_LIMIT);
+    }
+
+    public int getSSLSessionCacheSize() {
+        return getIntProperty(PassThroughConfigPNames.SSL_SESSION_CACHE_SIZE,
+                DEFAULT_SSL_SESSION_CACHE_SIZE);
+    }
+
+    public int getSSLSessionTimeout() {
+        return getIntProperty(PassThroughConfigPNames.SSL_SESSION_TIMEOUT,
+                DEFAULT_SSL_SESSION_TIMEOUT);
+    }
+
     public boolean isKeepAliveDisabled() {
         if (isKeepAliveDisabled == null) {
             isKeepAliveDisabled = getBooleanProperty(PassThroughConfigPNames.DISABLE_KEEPALIVE, false);
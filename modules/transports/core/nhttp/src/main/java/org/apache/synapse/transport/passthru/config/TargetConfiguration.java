@@ -111,6 +111,10 @@ public class TargetConfiguration extends BaseConfiguration {
         return maxConnections;
     }
 
+    public ConnectionTimeoutConfiguration getConnectionTimeoutConfiguration() {
+        return connectionTimeoutConfiguration;
+    }
+
     public TargetConnections getConnections() {
         return connections;
     }
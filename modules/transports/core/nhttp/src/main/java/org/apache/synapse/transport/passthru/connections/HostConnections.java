@@ -27,13 +27,20 @@ import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This stores connections for a particular host + port.
+ * <p>
+ * Free connections are kept in a lock free deque and reused in LIFO order, so that the most
+ * recently used (warm) connections are handed out first. Connections that stay at the bottom of
+ * the deque for too long are closed by {@link #closeExpiredConnections()}, which is invoked
+ * periodically by {@link TargetConnections}.
  */
 public class HostConnections {
     private static final Log log = LogFactory.getLog(HostConnections.class);
@@ -48,7 +55,7 @@ public class HostConnections {
     /**
      * number of awaiting connections
      */
-    private int pendingConnections;
+    private final AtomicInteger pendingConnections = new AtomicInteger(0);
     /**
      * connection idle time for connection removal
      */
@@ -58,15 +65,19 @@ public class HostConnections {
      */
     private int maximumConnectionLifeSpan;
     /**
-     * list of free connections available
+     * free connections available, the most recently released connection is at the head
      */
-    private List<NHttpClientConnection> freeConnections = new ArrayList<NHttpClientConnection>();
+    private Deque<NHttpClientConnection> freeConnections = new ConcurrentLinkedDeque<NHttpClientConnection>();
     /**
-     * list of connections in use
+     * connections in use
      */
-    private List<NHttpClientConnection> busyConnections = new ArrayList<NHttpClientConnection>();
-
-    private Lock lock = new ReentrantLock();
+    private Set<NHttpClientConnection> busyConnections =
+            Collections.newSetFromMap(new ConcurrentHashMap<NHttpClientConnection, Boolean>());
+    /**
+     * sizes of the free and busy collections, kept separately as the deque has no O(1) size
+     */
+    private final AtomicInteger freeCount = new AtomicInteger(0);
+    private final AtomicInteger busyCount = new AtomicInteger(0);
 
     public HostConnections(HttpRoute route, int maxSize) {
         if (log.isDebugEnabled()) {
@@ -94,38 +105,68 @@ public class HostConnections {
      * @return a connection
      */
     public NHttpClientConnection getConnection() {
-        lock.lock();
-        try {
-            while (!freeConnections.isEmpty()) {
+        NHttpClientConnection conn;
+        while ((conn = freeConnections.pollFirst()) != null) {
+            freeCount.decrementAndGet();
+            // the reaper only runs periodically, so the connection at hand may have expired
+            if (isExpired(conn, System.currentTimeMillis())) {
+                shutdown(conn);
+            } else {
                 if (log.isDebugEnabled()) {
                     log.debug("Returning an existing free connection " + route);
                 }
-                NHttpClientConnection conn = freeConnections.get(0);
-                long currentTime = System.currentTimeMillis();
-                long connectionInitTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                                                                                        CONNECTION_INIT_TIME);
-                long lastReleasedTime = (Long) conn.getContext().getAttribute(PassThroughConstants.
-                                                                                      CONNECTION_RELEASE_TIME);
-                if (isMaximumLifeSpanExceeded(currentTime, connectionInitTime) || isIdleTimeExceeded(currentTime,
-                                                                                                     lastReleasedTime)) {
-                    freeConnections.remove(conn);
-                    try {
-                        conn.shutdown();
-                    } catch (IOException io) {
-                        log.error("Error occurred while shutting down connection." + io.getMessage(), io);
-                    }
-                } else {
-                    freeConnections.remove(conn);
-                    busyConnections.add(conn);
-                    return conn;
-                }
+                busyConnections.add(conn);
+                busyCount.incrementAndGet();
+                return conn;
             }
-        } finally {
-            lock.unlock();
         }
         return null;
     }
 
+    /**
+     * Close the free connections which have exceeded the idle time or the maximum life span.
+     *
+     * @return number of connections closed
+     */
+    public int closeExpiredConnections() {
+        int closed = 0;
+        long currentTime = System.currentTimeMillis();
+        for (NHttpClientConnection conn : freeConnections) {
+            // the connection may be taken by a sender in the meantime, in which case it is not
+            // in the deque anymore and must not be touched
+            if (isExpired(conn, currentTime) && freeConnections.removeFirstOccurrence(conn)) {
+                freeCount.decrementAndGet();
+                shutdown(conn);
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * @return true if free connections of this pool may expire
+     */
+    public boolean isExpiryEnabled() {
+        return (connectionIdleTime > 0 && connectionIdleTime < Integer.MAX_VALUE) ||
+               (maximumConnectionLifeSpan > 0 && maximumConnectionLifeSpan < Integer.MAX_VALUE);
+    }
+
+    private boolean isExpired(NHttpClientConnection conn, long currentTime) {
+        HttpContext ctx = conn.getContext();
+        Long connectionInitTime = (Long) ctx.getAttribute(PassThroughConstants.CONNECTION_INIT_TIME);
+        Long lastReleasedTime = (Long) ctx.getAttribute(PassThroughConstants.CONNECTION_RELEASE_TIME);
+        return (connectionInitTime != null && isMaximumLifeSpanExceeded(currentTime, connectionInitTime)) ||
+               (lastReleasedTime != null && isIdleTimeExceeded(currentTime, lastReleasedTime));
+    }
+
+    private void shutdown(NHttpClientConnection conn) {
+        try {
+            conn.shutdown();
+        } catch (IOException io) {
+            log.error("Error occurred while shutting down connection." + io.getMessage(), io);
+        }
+    }
+
     private boolean isIdleTimeExceeded(long currentTime, long lastReleasedTime) {
         if (connectionIdleTime > 0 && currentTime > lastReleasedTime + connectionIdleTime) {
             if (log.isDebugEnabled()) {
@@ -155,26 +196,20 @@ public class HostConnections {
         ctx.removeAttribute(ExecutionContext.HTTP_RESPONSE);
         ctx.setAttribute(PassThroughConstants.CONNECTION_RELEASE_TIME, System.currentTimeMillis());
         ctx.removeAttribute(SynapseHTTPRequestFactory.ENDPOINT_URL);
-        lock.lock();
-        try {
-            if (busyConnections.remove(conn)) {
-                freeConnections.add(conn);
-            } else {
-                log.error("Attempted to releaseConnection connection not in the busy list");
-            }
-        } finally {
-            lock.unlock();
+        if (busyConnections.remove(conn)) {
+            busyCount.decrementAndGet();
+            freeConnections.offerFirst(conn);
+            freeCount.incrementAndGet();
+        } else {
+            log.error("Attempted to releaseConnection connection not in the busy list");
         }
     }
 
     public void forget(NHttpClientConnection conn) {
-        lock.lock();
-        try {
-            if (!freeConnections.remove(conn)) {
-                busyConnections.remove(conn);
-            }
-        } finally {
-            lock.unlock();
+        if (busyConnections.remove(conn)) {
+            busyCount.decrementAndGet();
+        } else if (freeConnections.removeFirstOccurrence(conn)) {
+            freeCount.decrementAndGet();
         }
     }
 
@@ -182,26 +217,25 @@ public class HostConnections {
         if (log.isDebugEnabled()) {
             log.debug("New connection " + route + " is added to the free list");
         }
-        lock.lock();
-        try {
-            conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
-            busyConnections.add(conn);
-        } finally {
-            lock.unlock();
+        conn.getContext().setAttribute(PassThroughConstants.CONNECTION_INIT_TIME, System.currentTimeMillis());
+        if (busyConnections.add(conn)) {
+            busyCount.incrementAndGet();
         }
     }
 
+    /**
+     * Indicates that a new connection to the remote server has been requested.
+     */
+    public void pendingConnectionRequested() {
+        pendingConnections.incrementAndGet();
+    }
+
     /**
      * Indicates that a connection has been successfully established with a remote server
      * as notified by the session request call back.
      */
-    public synchronized void pendingConnectionSucceeded() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
-        }
+    public void pendingConnectionSucceeded() {
+        pendingConnections.decrementAndGet();
     }
 
     /**
@@ -209,12 +243,7 @@ public class HostConnections {
      * consecutively
      */
     public void pendingConnectionFailed() {
-        lock.lock();
-        try {
-            pendingConnections--;
-        } finally {
-            lock.unlock();
-        }
+        pendingConnections.decrementAndGet();
     }
 
     public HttpRoute getRoute() {
@@ -222,6 +251,18 @@ public class HostConnections {
     }
 
     public boolean canHaveMoreConnections() {
-        return busyConnections.size() + pendingConnections < maxSize;
+        return busyCount.get() + pendingConnections.get() < maxSize;
+    }
+
+    public int getBusyConnectionCount() {
+        return busyCount.get();
+    }
+
+    public int getFreeConnectionCount() {
+        return freeCount.get();
+    }
+
+    public int getPendingConnectionCount() {
+        return pendingConnections.get();
     }
 }
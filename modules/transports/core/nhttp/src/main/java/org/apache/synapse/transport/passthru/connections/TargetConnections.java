@@ -25,13 +25,20 @@ import org.apache.http.nio.reactor.ConnectingIOReactor;
 import org.apache.synapse.transport.passthru.ConnectCallback;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.TargetContext;
+import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
 import org.apache.synapse.transport.passthru.config.TargetConfiguration;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the connection from transport to the back end servers. It keeps track of the
@@ -41,9 +48,13 @@ public class TargetConnections {
     private static final Log log = LogFactory.getLog(TargetConnections.class);
 
     /** map to hold the ConnectionPools. The key is host:port */
-    private final Map<HttpRoute, HostConnections> poolMap =
+    private final ConcurrentMap<HttpRoute, HostConnections> poolMap =
             new ConcurrentHashMap<HttpRoute, HostConnections>();
 
+    /** minimum and maximum interval between two runs of the expired connection reaper */
+    private static final long MIN_REAPER_INTERVAL = 1000;
+    private static final long MAX_REAPER_INTERVAL = 60 * 1000;
+
     private final String sslSchemaName = "https";
 
     /** max connections per host:port pair. At the moment all the host:ports can
@@ -56,6 +67,12 @@ public class TargetConnections {
     /** callback invoked when a connection is made */
     private ConnectCallback callback = null;
 
+    /** idle time and life span limits of the connections */
+    private ConnectionTimeoutConfiguration connectionTimeoutConfiguration;
+
+    /** closes the free connections which have expired, null if connections never expire */
+    private ScheduledExecutorService reaper = null;
+
     /**
      * Create a TargetConnections with the given IO-Reactor
      *
@@ -70,6 +87,83 @@ public class TargetConnections {
         this.maxConnections = targetConfiguration.getMaxConnections();
         this.ioReactor = ioReactor;
         this.callback = callback;
+        this.connectionTimeoutConfiguration = targetConfiguration.getConnectionTimeoutConfiguration();
+
+        long interval = getReaperInterval();
+        if (interval > 0) {
+            reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "PassThroughConnectionReaper");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            reaper.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    closeExpiredConnections();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop closing expired connections in the background
+     */
+    public void destroy() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+    }
+
+    /**
+     * Close the free connections of all the pools which have exceeded the idle time or the
+     * maximum life span
+     */
+    public void closeExpiredConnections() {
+        for (HostConnections pool : poolMap.values()) {
+            try {
+                int closed = pool.closeExpiredConnections();
+                if (closed > 0 && log.isDebugEnabled()) {
+                    log.debug("Closed " + closed + " expired connections of " + pool.getRoute());
+                }
+            } catch (Exception e) {
+                log.warn("Error closing expired connections of " + pool.getRoute(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the occupancy of the connection pool of each route
+     *
+     * @return map of route to busy, free and pending connection counts
+     */
+    public Map<String, String> getConnectionPoolOccupancy() {
+        Map<String, String> occupancy = new LinkedHashMap<String, String>();
+        for (HostConnections pool : poolMap.values()) {
+            occupancy.put(pool.getRoute().toString(), "busy=" + pool.getBusyConnectionCount() +
+                    ", free=" + pool.getFreeConnectionCount() +
+                    ", pending=" + pool.getPendingConnectionCount());
+        }
+        return occupancy;
+    }
+
+    private long getReaperInterval() {
+        if (connectionTimeoutConfiguration == null) {
+            return 0;
+        }
+        long limit = Long.MAX_VALUE;
+        int idleTime = connectionTimeoutConfiguration.getConnectionIdleTime();
+        int lifeSpan = connectionTimeoutConfiguration.getMaximumConnectionLifeSpane();
+        if (idleTime > 0 && idleTime < Integer.MAX_VALUE) {
+            limit = idleTime;
+        }
+        if (lifeSpan > 0 && lifeSpan < Integer.MAX_VALUE) {
+            limit = Math.min(limit, lifeSpan);
+        }
+        if (limit == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.min(Math.max(limit / 2, MIN_REAPER_INTERVAL), MAX_REAPER_INTERVAL);
     }
 
     /**
@@ -93,8 +187,7 @@ public class TargetConnections {
         NHttpClientConnection connection = pool.getConnection();
         if (connection == null) {
             if (pool.canHaveMoreConnections()) {
-                HttpHost host = route.getProxyHost() != null ? route.getProxyHost() : route.getTargetHost();
-                ioReactor.connect(new InetSocketAddress(host.getHostName(), host.getPort()), null, pool, callback);
+                connect(pool);
             } else {
                 log.warn("Connection pool reached maximum allowed connections for route "
                         + route + ". Target server may have become slow");
@@ -106,6 +199,38 @@ public class TargetConnections {
         return null;
     }
 
+    /**
+     * Open connections to the given route ahead of the first requests, so that they do not pay
+     * for the TCP and TLS handshakes. Connections which already exist, or are being opened, count
+     * towards the requested number and the per route maximum is never exceeded. The connections
+     * are added to the pool as free connections once they are established.
+     *
+     * @param route Http route
+     * @param count number of connections the route should have
+     * @return number of connections requested
+     */
+    public int prewarmConnections(HttpRoute route, int count) {
+        HostConnections pool = getConnectionPool(route);
+        int existing = pool.getBusyConnectionCount() + pool.getFreeConnectionCount()
+                + pool.getPendingConnectionCount();
+        int requested = 0;
+        for (int i = existing; i < count && pool.canHaveMoreConnections(); i++) {
+            connect(pool);
+            requested++;
+        }
+        if (requested > 0 && log.isDebugEnabled()) {
+            log.debug("Opening " + requested + " connections to pre-warm " + route);
+        }
+        return requested;
+    }
+
+    private void connect(HostConnections pool) {
+        HttpRoute route = pool.getRoute();
+        HttpHost host = route.getProxyHost() != null ? route.getProxyHost() : route.getTargetHost();
+        pool.pendingConnectionRequested();
+        ioReactor.connect(new InetSocketAddress(host.getHostName(), host.getPort()), null, pool, callback);
+    }
+
     public NHttpClientConnection getExistingConnection(HttpRoute route) {
         if (log.isDebugEnabled()) {
             log.debug("Trying to get a existing connection connection " + route);
@@ -192,16 +317,17 @@ public class TargetConnections {
 
     private HostConnections getConnectionPool(HttpRoute route) {
         // see weather a pool already exists for this host:port
-        synchronized (poolMap) {
-            HostConnections pool = poolMap.get(route);
-
+        HostConnections pool = poolMap.get(route);
+        if (pool == null) {
+            HostConnections newPool = connectionTimeoutConfiguration != null ?
+                    new HostConnections(route, maxConnections, connectionTimeoutConfiguration) :
+                    new HostConnections(route, maxConnections);
+            pool = poolMap.putIfAbsent(route, newPool);
             if (pool == null) {
-                pool = new HostConnections(route, maxConnections);
-                poolMap.put(route, pool);
+                pool = newPool;
             }
-            return pool;
-
         }
+        return pool;
     }
 
     /**
@@ -0,0 +1,87 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import org.apache.axis2.AxisFault;
+import org.apache.synapse.transport.passthru.util.BufferFactory;
+
+/**
+ * Exposes the usage statistics of the buffer pool of a pass-through listener or sender.
+ */
+public class BufferPoolView implements BufferPoolViewMBean {
+
+    private static final String PASS_THROUGH_BUFFER_POOL = "PassThroughBufferPool";
+
+    private BufferFactory bufferFactory;
+
+    private String name;
+
+    public BufferPoolView(String name, BufferFactory bufferFactory) throws AxisFault {
+        this.name = name;
+        this.bufferFactory = bufferFactory;
+        MBeanRegistrar.getInstance().registerMBean(this, PASS_THROUGH_BUFFER_POOL, name);
+    }
+
+    public void destroy() {
+        MBeanRegistrar.getInstance().unRegisterMBean(PASS_THROUGH_BUFFER_POOL, name);
+    }
+
+    public long getHitCount() {
+        return bufferFactory.getHitCount();
+    }
+
+    public long getMissCount() {
+        return bufferFactory.getMissCount();
+    }
+
+    public long getOverflowCount() {
+        return bufferFactory.getOverflowCount();
+    }
+
+    public double getHitRatio() {
+        long hits = bufferFactory.getHitCount();
+        long total = hits + bufferFactory.getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public int getCapacity() {
+        return bufferFactory.getCapacity();
+    }
+
+    public int getMaxCapacity() {
+        return bufferFactory.getMaxCapacity();
+    }
+
+    public int getAvailableBuffers() {
+        return bufferFactory.getAvailableCount();
+    }
+
+    public int getBufferSize() {
+        return bufferFactory.getBufferSize();
+    }
+
+    public boolean isDirectBuffers() {
+        return bufferFactory.isDirect();
+    }
+
+    public void reset() {
+        bufferFactory.resetStatistics();
+    }
+}
@@ -20,6 +20,8 @@
 package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
+import org.apache.synapse.transport.http.conn.SSLHandshakeStatistics;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
 
 import java.util.*;
 import java.util.concurrent.Executors;
@@ -49,6 +51,14 @@ public class ConnectionsView implements ConnectionsViewMBean {
     private static final int LESS_THAN_10M      = 4;
     private static final int GREATER_THAN_10M   = 5;
 
+    // Connection wait time bucket definitions
+    private static final int LESS_THAN_1MS      = 0;
+    private static final int LESS_THAN_10MS     = 1;
+    private static final int LESS_THAN_100MS    = 2;
+    private static final int LESS_THAN_1S       = 3;
+    private static final int LESS_THAN_10S      = 4;
+    private static final int GREATER_THAN_10S   = 5;
+
     private static final int SHORT_DATA_COLLECTION_PERIOD = 60;
     private static final int LONG_DATA_COLLECTION_PERIOD = 60 * 5;
 
@@ -64,6 +74,13 @@ public class ConnectionsView implements ConnectionsViewMBean {
     // The array length must be equal to the number of buckets
     private AtomicInteger[] requestSizeCounters = new AtomicInteger[6];
     private AtomicInteger[] responseSizeCounters = new AtomicInteger[6];
+    private AtomicInteger[] connectionWaitTimeCounters = new AtomicInteger[6];
+
+    // Only available for senders
+    private volatile TargetConnections targetConnections;
+
+    // Only available for https senders
+    private volatile SSLHandshakeStatistics handshakeStatistics;
 
     private Date resetTime = Calendar.getInstance().getTime();
 
@@ -76,6 +93,7 @@ public class ConnectionsView implements ConnectionsViewMBean {
 
         initCounters(requestSizeCounters);
         initCounters(responseSizeCounters);
+        initCounters(connectionWaitTimeCounters);
 
         Runnable task = new Runnable() {
             public void run() {
@@ -157,6 +175,31 @@ public class ConnectionsView implements ConnectionsViewMBean {
         }
     }
 
+    protected void notifyConnectionWaitTime(long millis) {
+        // Same as the message sizes, a fixed set of buckets keeps this O(1)
+        if (millis < 1) {
+            connectionWaitTimeCounters[LESS_THAN_1MS].incrementAndGet();
+        } else if (millis < 10) {
+            connectionWaitTimeCounters[LESS_THAN_10MS].incrementAndGet();
+        } else if (millis < 100) {
+            connectionWaitTimeCounters[LESS_THAN_100MS].incrementAndGet();
+        } else if (millis < 1000) {
+            connectionWaitTimeCounters[LESS_THAN_1S].incrementAndGet();
+        } else if (millis < 10000) {
+            connectionWaitTimeCounters[LESS_THAN_10S].incrementAndGet();
+        } else {
+            connectionWaitTimeCounters[GREATER_THAN_10S].incrementAndGet();
+        }
+    }
+
+    protected void setTargetConnections(TargetConnections targetConnections) {
+        this.targetConnections = targetConnections;
+    }
+
+    protected void setHandshakeStatistics(SSLHandshakeStatistics handshakeStatistics) {
+        this.handshakeStatistics = handshakeStatistics;
+    }
+
     public int getActiveConnections() {
         return activeConnections.get();
     }
@@ -193,6 +236,40 @@ public class ConnectionsView implements ConnectionsViewMBean {
         return getCountersMap(responseSizeCounters);
     }
 
+    public Map getConnectionWaitTimesMap() {
+        Map<String,Integer> map = new LinkedHashMap<String,Integer>();
+        map.put("< 1 ms", connectionWaitTimeCounters[LESS_THAN_1MS].get());
+        map.put("< 10 ms", connectionWaitTimeCounters[LESS_THAN_10MS].get());
+        map.put("< 100 ms", connectionWaitTimeCounters[LESS_THAN_100MS].get());
+        map.put("< 1 s", connectionWaitTimeCounters[LESS_THAN_1S].get());
+        map.put("< 10 s", connectionWaitTimeCounters[LESS_THAN_10S].get());
+        map.put("> 10 s", connectionWaitTimeCounters[GREATER_THAN_10S].get());
+        return map;
+    }
+
+    public Map getConnectionPoolOccupancyMap() {
+        TargetConnections connections = targetConnections;
+        if (connections == null) {
+            return new LinkedHashMap<String,String>();
+        }
+        return connections.getConnectionPoolOccupancy();
+    }
+
+    public long getSslFullHandshakes() {
+        SSLHandshakeStatistics statistics = handshakeStatistics;
+        return statistics != null ? statistics.getFullHandshakeCount() : 0;
+    }
+
+    public long getSslResumedHandshakes() {
+        SSLHandshakeStatistics statistics = handshakeStatistics;
+        return statistics != null ? statistics.getResumedHandshakeCount() : 0;
+    }
+
+    public double getSslSessionResumptionRatio() {
+        SSLHandshakeStatistics statistics = handshakeStatistics;
+        return statistics != null ? statistics.getResumptionRatio() : 0;
+    }
+
     public Date getLastResetTime() {
         return resetTime;
     }
@@ -213,6 +290,11 @@ public class ConnectionsView implements ConnectionsViewMBean {
     public void reset() {
         initCounters(requestSizeCounters);
         initCounters(responseSizeCounters);
+        initCounters(connectionWaitTimeCounters);
+        SSLHandshakeStatistics statistics = handshakeStatistics;
+        if (statistics != null) {
+            statistics.reset();
+        }
         shortTermDataQueue.clear();
         longTermDataQueue.clear();
         resetTime = Calendar.getInstance().getTime();
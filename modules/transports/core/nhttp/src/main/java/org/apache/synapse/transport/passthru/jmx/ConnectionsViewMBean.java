@@ -33,6 +33,11 @@ public interface ConnectionsViewMBean {
     public int getLast24HourConnections();
     public Map getRequestSizesMap();
     public Map getResponseSizesMap();
+    public Map getConnectionWaitTimesMap();
+    public Map getConnectionPoolOccupancyMap();
+    public long getSslFullHandshakes();
+    public long getSslResumedHandshakes();
+    public double getSslSessionResumptionRatio();
     public Date getLastResetTime();
 
     public void reset();
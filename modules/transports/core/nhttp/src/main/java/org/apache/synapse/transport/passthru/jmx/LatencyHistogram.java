@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2005-2014, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A log-linear histogram of latency values in milliseconds, in the spirit of HdrHistogram.
+ * <p>
+ * Values below 32 get a bucket of their own, larger values are grouped into 16 buckets per power
+ * of two, which bounds the relative error of a reported percentile to about 6%. Recording a value
+ * only increments a counter of one of a few stripes selected by the recording thread, so it is
+ * lock free and does not allocate.
+ * <p>
+ * Percentiles are reported for a sliding window. {@link #rollWindow()} has to be called at a
+ * fixed rate and keeps the cumulative counts seen at each call, so that the counts of the last
+ * <code>windowSize</code> periods can be computed by subtracting the oldest snapshot.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+    /** Values larger than this (~50 days) are recorded as this value */
+    private static final long MAX_TRACKABLE_VALUE = (1L << 32) - 1;
+
+    private static final int BUCKET_COUNT = getBucketIndex(MAX_TRACKABLE_VALUE) + 1;
+
+    private static final int STRIPES = getStripeCount();
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKET_COUNT);
+
+    private final AtomicLong max = new AtomicLong(0);
+
+    /** Cumulative counts taken at each roll of the window, a ring of windowSize + 1 entries */
+    private final long[][] snapshots;
+
+    private int snapshotIndex = 0;
+
+    public LatencyHistogram(int windowSize) {
+        snapshots = new long[windowSize + 1][BUCKET_COUNT];
+    }
+
+    /**
+     * Record a latency value
+     *
+     * @param value latency in milliseconds, negative values are ignored
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        if (value > MAX_TRACKABLE_VALUE) {
+            value = MAX_TRACKABLE_VALUE;
+        }
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKET_COUNT + getBucketIndex(value));
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Take a snapshot of the cumulative counts, moving the window forward by one period
+     */
+    public synchronized void rollWindow() {
+        snapshotIndex = (snapshotIndex + 1) % snapshots.length;
+        collect(snapshots[snapshotIndex]);
+    }
+
+    /**
+     * Returns the count, the 50th, 90th, 99th and 99.9th percentiles and the maximum of the
+     * values recorded during the current window
+     *
+     * @return map of statistic name to value in milliseconds
+     */
+    public synchronized Map<String, Long> getWindowPercentiles() {
+        long[] window = new long[BUCKET_COUNT];
+        long total = collectWindow(window);
+
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        map.put("count", total);
+        map.put("p50", getValueAtPercentile(window, total, 50.0));
+        map.put("p90", getValueAtPercentile(window, total, 90.0));
+        map.put("p99", getValueAtPercentile(window, total, 99.0));
+        map.put("p99.9", getValueAtPercentile(window, total, 99.9));
+        map.put("max", getValueAtPercentile(window, total, 100.0));
+        return map;
+    }
+
+    /**
+     * Returns a percentile of the values recorded during the current window
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @param minCount   the least number of values the window must hold
+     * @return the value in milliseconds, or -1 if fewer than minCount values were recorded
+     */
+    public synchronized long getWindowPercentile(double percentile, long minCount) {
+        long[] window = new long[BUCKET_COUNT];
+        long total = collectWindow(window);
+        return total < minCount ? -1 : getValueAtPercentile(window, total, percentile);
+    }
+
+    /**
+     * @return the largest value recorded since the last reset
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        for (long[] snapshot : snapshots) {
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = 0;
+            }
+        }
+        max.set(0);
+    }
+
+    /**
+     * Collect the counts of the current window into the target
+     *
+     * @return the number of values in the window
+     */
+    private long collectWindow(long[] target) {
+        collect(target);
+        long[] oldest = snapshots[(snapshotIndex + 1) % snapshots.length];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] -= oldest[i];
+            total += target[i];
+        }
+        return total;
+    }
+
+    private void collect(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long sum = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                sum += counts.get(stripe * BUCKET_COUNT + i);
+            }
+            target[i] = sum;
+        }
+    }
+
+    private long getValueAtPercentile(long[] buckets, long total, double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(getHighestValueInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (top - SUB_BUCKET_HALF);
+    }
+
+    static long getHighestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF + 1;
+        long top = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    private static int getStripeCount() {
+        int stripes = 1;
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        while (stripes < processors) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
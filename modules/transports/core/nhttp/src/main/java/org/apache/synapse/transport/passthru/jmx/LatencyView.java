@@ -23,8 +23,10 @@ import org.apache.synapse.commons.jmx.MBeanRegistrar;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -59,6 +61,9 @@ public class LatencyView implements LatencyViewMBean {
     private static final int SMALL_DATA_COLLECTION_PERIOD = 5;
     private static final int LARGE_DATA_COLLECTION_PERIOD = 5 * 60;
 
+    /** Number of short term collection periods covered by the percentile histograms (1 minute) */
+    private static final int HISTOGRAM_WINDOW_SIZE = 60 / SMALL_DATA_COLLECTION_PERIOD;
+
     /** Keeps track of th last reported latency value */
     private LatencyParameter lastLatency = new LatencyParameter(true);
 
@@ -84,6 +89,21 @@ public class LatencyView implements LatencyViewMBean {
 
     private List<LatencyParameter> latencies = new ArrayList<LatencyParameter>(10);
 
+    /** Histograms used to report latency percentiles over the last minute */
+    private LatencyHistogram latencyHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+
+    private LatencyHistogram backendLatencyHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+
+    private LatencyHistogram serverWorkerWaitTimeHistogram;
+
+    private LatencyHistogram clientWorkerWaitTimeHistogram;
+
+    private LatencyHistogram requestMediationLatencyHistogram;
+
+    private LatencyHistogram responseMediationLatencyHistogram;
+
+    private List<LatencyHistogram> histograms = new ArrayList<LatencyHistogram>(6);
+
     /** Scheduled executor on which data collectors are executed */
     private ScheduledExecutorService scheduler;
 
@@ -167,6 +187,15 @@ public class LatencyView implements LatencyViewMBean {
         clientWorkerWaitTime.update(collector.getClientWorkerQueuedTime());
         requestMediationLatency.update(collector.getServerWorkerLatency());
         responseMediationLatency.update(collector.getClientWorkerLatency());
+
+        latencyHistogram.record(collector.getLatency());
+        backendLatencyHistogram.record(collector.getBackendLatency());
+        if (serverWorkerWaitTimeHistogram != null) {
+            serverWorkerWaitTimeHistogram.record(collector.getServerWorkerQueuedTime());
+            clientWorkerWaitTimeHistogram.record(collector.getClientWorkerQueuedTime());
+            requestMediationLatencyHistogram.record(collector.getServerWorkerLatency());
+            responseMediationLatencyHistogram.record(collector.getClientWorkerLatency());
+        }
     }
 
     private void registerAllLatencies(boolean recordAdditionalLatencies) {
@@ -188,6 +217,19 @@ public class LatencyView implements LatencyViewMBean {
         latencies.add(clientWorkerWaitTime);
         latencies.add(requestMediationLatency);
         latencies.add(responseMediationLatency);
+
+        histograms.add(latencyHistogram);
+        histograms.add(backendLatencyHistogram);
+        if (recordAdditionalLatencies) {
+            serverWorkerWaitTimeHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+            clientWorkerWaitTimeHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+            requestMediationLatencyHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+            responseMediationLatencyHistogram = new LatencyHistogram(HISTOGRAM_WINDOW_SIZE);
+            histograms.add(serverWorkerWaitTimeHistogram);
+            histograms.add(clientWorkerWaitTimeHistogram);
+            histograms.add(requestMediationLatencyHistogram);
+            histograms.add(responseMediationLatencyHistogram);
+        }
     }
 
     public double getAvg_Latency() {
@@ -470,10 +512,44 @@ public class LatencyView implements LatencyViewMBean {
         return responseMediationLatency.getAverageLatency24h();
     }
 
+    public Map<String, Long> get1m_Percentiles_Latency() {
+        return getPercentiles(latencyHistogram);
+    }
+
+    public Map<String, Long> get1m_Percentiles_Latency_BackEnd() {
+        return getPercentiles(backendLatencyHistogram);
+    }
+
+    public Map<String, Long> get1m_Percentiles_ServerWorker_QueuedTime() {
+        return getPercentiles(serverWorkerWaitTimeHistogram);
+    }
+
+    public Map<String, Long> get1m_Percentiles_ClientWorker_QueuedTime() {
+        return getPercentiles(clientWorkerWaitTimeHistogram);
+    }
+
+    public Map<String, Long> get1m_Percentiles_request_Mediation_Latency() {
+        return getPercentiles(requestMediationLatencyHistogram);
+    }
+
+    public Map<String, Long> get1m_Percentiles_response_Mediation_Latency() {
+        return getPercentiles(responseMediationLatencyHistogram);
+    }
+
+    private Map<String, Long> getPercentiles(LatencyHistogram histogram) {
+        if (histogram == null) {
+            return Collections.emptyMap();
+        }
+        return histogram.getWindowPercentiles();
+    }
+
     public void reset() {
         for (LatencyParameter latency : latencies) {
             latency.reset();
         }
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
         resetTime = Calendar.getInstance().getTime();
     }
 
@@ -486,6 +562,9 @@ public class LatencyView implements LatencyViewMBean {
             for (LatencyParameter latency : latencies) {
                 latency.updateCache();
             }
+            for (LatencyHistogram histogram : histograms) {
+                histogram.rollWindow();
+            }
         }
     }
 
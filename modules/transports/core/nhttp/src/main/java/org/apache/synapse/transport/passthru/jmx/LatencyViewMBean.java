@@ -20,6 +20,7 @@
 package org.apache.synapse.transport.passthru.jmx;
 
 import java.util.Date;
+import java.util.Map;
 
 /**
  * Provides metrics related to the latency added by the NHTTP transport while mediating
@@ -112,6 +113,14 @@ public interface LatencyViewMBean {
     public double get24h_Avg_request_Mediation_Latency();
     public double get24h_Avg_response_Mediation_Latency();
 
+    /** 1m percentiles (p50, p90, p99, p99.9 and max) **/
+    public Map<String, Long> get1m_Percentiles_Latency();
+    public Map<String, Long> get1m_Percentiles_Latency_BackEnd();
+    public Map<String, Long> get1m_Percentiles_ServerWorker_QueuedTime();
+    public Map<String, Long> get1m_Percentiles_ClientWorker_QueuedTime();
+    public Map<String, Long> get1m_Percentiles_request_Mediation_Latency();
+    public Map<String, Long> get1m_Percentiles_response_Mediation_Latency();
+
     /** Reset all values **/
     public void reset();
 
@@ -21,6 +21,8 @@ package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.transport.base.MetricsCollector;
+import org.apache.synapse.transport.http.conn.SSLHandshakeStatistics;
+import org.apache.synapse.transport.passthru.connections.TargetConnections;
 
 /**
  * <p>This simple extension of the Axis2 transport MetricsCollector implementation,
@@ -31,7 +33,10 @@ import org.apache.axis2.transport.base.MetricsCollector;
  *    <li>connected (this should get called whenever a new connection is created)</li>
  *    <li>disconnected (this should get called whenever an existing connection is closed)</li>
  * <ul>
- * <p>These new events are used to update the ConnectionsView at runtime.</p>
+ * <p>These new events are used to update the ConnectionsView at runtime. Senders additionally
+ * report the time messages waited for a connection, and register their connection pools so that
+ * the pool occupancy can be monitored. Https senders also register the statistics of their TLS
+ * handshakes.</p>
  */
 public class PassThroughTransportMetricsCollector extends MetricsCollector {
 
@@ -57,6 +62,18 @@ public class PassThroughTransportMetricsCollector extends MetricsCollector {
         view.disconnected();
     }
 
+    public void notifyConnectionWaitTime(long millis) {
+        view.notifyConnectionWaitTime(millis);
+    }
+
+    public void setTargetConnections(TargetConnections targetConnections) {
+        view.setTargetConnections(targetConnections);
+    }
+
+    public void setHandshakeStatistics(SSLHandshakeStatistics handshakeStatistics) {
+        view.setHandshakeStatistics(handshakeStatistics);
+    }
+
     @Override
     public void notifyReceivedMessageSize(long l) {
         super.notifyReceivedMessageSize(l);
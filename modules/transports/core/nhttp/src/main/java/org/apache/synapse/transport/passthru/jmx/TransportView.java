@@ -20,8 +20,10 @@
 package org.apache.synapse.transport.passthru.jmx;
 
 import org.apache.axis2.AxisFault;
+import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.synapse.transport.passthru.PassThroughHttpListener;
 import org.apache.synapse.transport.passthru.PassThroughHttpSender;
+import org.apache.synapse.transport.passthru.util.AdaptiveWorkerPool;
 
 import java.util.Map;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -36,6 +38,8 @@ public class TransportView implements TransportViewMBean {
 
     private ThreadPoolExecutor threadPool = null;
 
+    private WorkerPool workerPool = null;
+
     public TransportView(PassThroughHttpListener listener,
                          PassThroughHttpSender sender,
                          PassThroughTransportMetricsCollector metrics,
@@ -46,6 +50,15 @@ public class TransportView implements TransportViewMBean {
         this.sender = sender;
     }
 
+    /**
+     * Set the worker pool whose queue is reported by this view, if no thread pool is given
+     *
+     * @param workerPool worker pool used by the listener or the sender
+     */
+    public void setWorkerPool(WorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
     public void pause() throws AxisFault {
         if (listener != null) {
             listener.pause();
@@ -73,6 +86,8 @@ public class TransportView implements TransportViewMBean {
     public int getActiveThreadCount() {
         if (threadPool != null) {
             return threadPool.getActiveCount();
+        } else if (workerPool != null) {
+            return workerPool.getActiveCount();
         }
         return 0;
     }
@@ -80,10 +95,59 @@ public class TransportView implements TransportViewMBean {
     public int getQueueSize() {
         if (threadPool != null && threadPool.getQueue() != null) {
             return threadPool.getQueue().size();
+        } else if (workerPool != null) {
+            return workerPool.getQueueSize();
         }
         return 0;
     }
 
+    public int getWorkerPoolCoreSize() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getCorePoolSize();
+        }
+        return -1;
+    }
+
+    public int getWorkerPoolMaxSize() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getMaxPoolSize();
+        }
+        return -1;
+    }
+
+    public int getWorkerPoolSize() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getPoolSize();
+        }
+        return -1;
+    }
+
+    public double getAvgQueueTime() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getAverageQueueTime();
+        }
+        return -1;
+    }
+
+    public boolean isInputSuspended() {
+        return workerPool instanceof AdaptiveWorkerPool &&
+                ((AdaptiveWorkerPool) workerPool).isOverloaded();
+    }
+
+    public int getSuspendedConnectionCount() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getSuspendedConnectionCount();
+        }
+        return -1;
+    }
+
+    public long getInputSuspendCount() {
+        if (workerPool instanceof AdaptiveWorkerPool) {
+            return ((AdaptiveWorkerPool) workerPool).getSuspendEventCount();
+        }
+        return -1;
+    }
+
     public long getMessagesReceived() {
         if (metrics != null) {
             return metrics.getMessagesReceived();
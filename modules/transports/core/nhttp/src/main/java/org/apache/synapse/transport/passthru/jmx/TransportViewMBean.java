@@ -40,6 +40,13 @@ public interface TransportViewMBean {
     public double getAvgSizeSent();
     public int  getActiveThreadCount();
     public int getQueueSize();
+    public int getWorkerPoolCoreSize();
+    public int getWorkerPoolMaxSize();
+    public int getWorkerPoolSize();
+    public double getAvgQueueTime();
+    public boolean isInputSuspended();
+    public int getSuspendedConnectionCount();
+    public long getInputSuspendCount();
     public Map getResponseCodeTable();
 
     // JMX Operations
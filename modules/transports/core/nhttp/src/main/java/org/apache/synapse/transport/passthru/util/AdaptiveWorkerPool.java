@@ -0,0 +1,333 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.axis2.transport.base.threads.NativeThreadFactory;
+import org.apache.axis2.transport.base.threads.WorkerPool;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpConnection;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link WorkerPool} which adjusts its core size according to the time tasks spend in the
+ * queue before a worker thread picks them up.
+ * <p>
+ * Every adjust interval the average queue time of the tasks started during the interval is
+ * compared with the target queue time. The core size grows by a quarter when the target is
+ * exceeded and shrinks slowly, but never below the initial core size, when the pool is mostly
+ * idle.
+ * <p>
+ * When the queue time goes above the suspend threshold the pool is considered overloaded. A
+ * client connection which is done with a request is then left suspended, rather than asked for
+ * its next request, by {@link #requestNextRequest(WorkerPool, IOControl)}. The bodies of the
+ * requests already being read are not held back. Suspended connections are resumed as soon as
+ * the queue time drops below half of the threshold.
+ */
+public class AdaptiveWorkerPool implements WorkerPool {
+
+    private static final Log log = LogFactory.getLog(AdaptiveWorkerPool.class);
+
+    /** Connection context attribute marking a connection suspended because of an overload */
+    private static final String INPUT_SUSPENDED = "synapse.worker.pool.input.suspended";
+
+    private final ThreadPoolExecutor executor;
+
+    private final BlockingQueue<Runnable> queue;
+
+    private final ScheduledExecutorService controller;
+
+    private final int minCoreSize;
+
+    private final int maxSize;
+
+    /** Target queue time in nanoseconds */
+    private final long targetQueueTime;
+
+    /** Queue time in nanoseconds above which input is suspended, negative if disabled */
+    private final long suspendQueueTime;
+
+    private final AtomicLong queueTimeSum = new AtomicLong(0);
+
+    private final AtomicLong startedTasks = new AtomicLong(0);
+
+    /** Average queue time in nanoseconds observed during the last adjust interval */
+    private volatile long lastQueueTime = 0;
+
+    private volatile boolean overloaded = false;
+
+    private final Queue<IOControl> suspendedConnections = new ConcurrentLinkedQueue<IOControl>();
+
+    private final AtomicInteger suspendedCount = new AtomicInteger(0);
+
+    private final AtomicLong suspendEvents = new AtomicLong(0);
+
+    /**
+     * Create an adaptive worker pool
+     *
+     * @param coreSize         initial and minimum core size
+     * @param maxSize          maximum number of threads
+     * @param keepAliveSec     keep alive time of threads above the core size
+     * @param queueLength      length of the task queue, -1 for an unbounded queue
+     * @param threadGroupName  name of the thread group of the worker threads
+     * @param threadGroupId    prefix of the names of the worker threads
+     * @param targetQueueTime  queue time in milliseconds the pool tries to stay below
+     * @param suspendQueueTime queue time in milliseconds after which input should be suspended,
+     *                         negative to never suspend input
+     * @param adjustInterval   interval in milliseconds at which the pool is resized
+     */
+    public AdaptiveWorkerPool(int coreSize, int maxSize, int keepAliveSec, int queueLength,
+                              String threadGroupName, String threadGroupId,
+                              long targetQueueTime, long suspendQueueTime, long adjustInterval) {
+        this.minCoreSize = coreSize;
+        this.maxSize = Math.max(maxSize, coreSize);
+        this.targetQueueTime = TimeUnit.MILLISECONDS.toNanos(targetQueueTime);
+        this.suspendQueueTime = suspendQueueTime < 0 ?
+                -1 : TimeUnit.MILLISECONDS.toNanos(suspendQueueTime);
+
+        queue = queueLength == -1 ? new LinkedBlockingQueue<Runnable>() :
+                new LinkedBlockingQueue<Runnable>(queueLength);
+        executor = new ThreadPoolExecutor(coreSize, this.maxSize, keepAliveSec, TimeUnit.SECONDS,
+                queue, new NativeThreadFactory(new ThreadGroup(threadGroupName), threadGroupId));
+
+        controller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PassThroughWorkerPoolController");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        controller.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    adjust();
+                } catch (Throwable t) {
+                    log.error("Error while adjusting the worker pool", t);
+                }
+            }
+        }, adjustInterval, adjustInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(new QueuedTask(task));
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public void shutdown(int timeout) throws InterruptedException {
+        controller.shutdownNow();
+        overloaded = false;
+        resumeSuspendedConnections();
+        executor.shutdown();
+        executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return whether new requests should not be read until the queue time goes down
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Ask a client connection which is done with a request for its next request. If the pool is
+     * overloaded the connection is left suspended instead, until the pool catches up.
+     *
+     * @param pool worker pool the requests of the connection are handed to
+     * @param conn connection to read the next request from
+     */
+    public static void requestNextRequest(WorkerPool pool, IOControl conn) {
+        if (pool instanceof AdaptiveWorkerPool && ((AdaptiveWorkerPool) pool).isOverloaded()) {
+            ((AdaptiveWorkerPool) pool).suspendInput(conn);
+        } else {
+            requestInput(conn);
+        }
+    }
+
+    /**
+     * Request input from a connection, unless it is suspended because a pool is overloaded.
+     * Connections are only suspended between two requests, so this never holds back the body
+     * of a request being read.
+     *
+     * @param conn connection to request input from
+     */
+    public static void requestInput(IOControl conn) {
+        if (!isInputSuspended(conn)) {
+            conn.requestInput();
+        }
+    }
+
+    /**
+     * @param conn a connection
+     * @return whether the input of the connection is suspended because a pool is overloaded
+     */
+    public static boolean isInputSuspended(IOControl conn) {
+        return conn instanceof NHttpConnection && ((NHttpConnection) conn).getContext() != null &&
+                ((NHttpConnection) conn).getContext().getAttribute(INPUT_SUSPENDED) != null;
+    }
+
+    /**
+     * Stop reading input from the given connection until the pool is no longer overloaded
+     *
+     * @param conn connection to suspend
+     */
+    public void suspendInput(IOControl conn) {
+        if (conn instanceof NHttpConnection) {
+            ((NHttpConnection) conn).getContext().setAttribute(INPUT_SUSPENDED, Boolean.TRUE);
+        }
+        conn.suspendInput();
+        suspendedConnections.add(conn);
+        suspendedCount.incrementAndGet();
+        suspendEvents.incrementAndGet();
+        if (!overloaded) {
+            // the controller may have resumed the connections before this one was added
+            resumeSuspendedConnections();
+        }
+    }
+
+    public int getCorePoolSize() {
+        return executor.getCorePoolSize();
+    }
+
+    public int getMaxPoolSize() {
+        return maxSize;
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    /**
+     * @return average queue time in milliseconds observed during the last adjust interval
+     */
+    public double getAverageQueueTime() {
+        return lastQueueTime / 1000000.0;
+    }
+
+    public int getSuspendedConnectionCount() {
+        return suspendedCount.get();
+    }
+
+    /**
+     * @return number of times input was suspended because the pool was overloaded
+     */
+    public long getSuspendEventCount() {
+        return suspendEvents.get();
+    }
+
+    void adjust() {
+        long tasks = startedTasks.getAndSet(0);
+        long sum = queueTimeSum.getAndSet(0);
+        long queueTime = tasks > 0 ? sum / tasks : 0;
+        // tasks which are still waiting count as well, otherwise a stalled pool looks idle
+        queueTime = Math.max(queueTime, getOldestQueueTime());
+        lastQueueTime = queueTime;
+
+        int coreSize = executor.getCorePoolSize();
+        if (queueTime > targetQueueTime && coreSize < maxSize) {
+            int newSize = Math.min(maxSize, coreSize + Math.max(1, coreSize / 4));
+            executor.setCorePoolSize(newSize);
+            if (log.isDebugEnabled()) {
+                log.debug("Worker pool core size increased to " + newSize + ", queue time " +
+                        TimeUnit.NANOSECONDS.toMillis(queueTime) + "ms");
+            }
+        } else if (queueTime < targetQueueTime / 4 && coreSize > minCoreSize &&
+                executor.getActiveCount() < coreSize / 2) {
+            int newSize = Math.max(minCoreSize, coreSize - Math.max(1, coreSize / 16));
+            executor.setCorePoolSize(newSize);
+            if (log.isDebugEnabled()) {
+                log.debug("Worker pool core size decreased to " + newSize);
+            }
+        }
+
+        if (suspendQueueTime < 0) {
+            return;
+        }
+        if (!overloaded && queueTime > suspendQueueTime) {
+            overloaded = true;
+            log.warn("Worker pool queue time " + TimeUnit.NANOSECONDS.toMillis(queueTime) +
+                    "ms exceeds the threshold, suspending input from client connections");
+        } else if (overloaded && queueTime < suspendQueueTime / 2) {
+            overloaded = false;
+            log.info("Worker pool queue time is back to " +
+                    TimeUnit.NANOSECONDS.toMillis(queueTime) + "ms, resuming input");
+        }
+        if (!overloaded) {
+            resumeSuspendedConnections();
+        }
+    }
+
+    private long getOldestQueueTime() {
+        Runnable head = queue.peek();
+        if (head instanceof QueuedTask) {
+            return System.nanoTime() - ((QueuedTask) head).queuedTime;
+        }
+        return 0;
+    }
+
+    private void resumeSuspendedConnections() {
+        IOControl conn;
+        while ((conn = suspendedConnections.poll()) != null) {
+            suspendedCount.decrementAndGet();
+            if (conn instanceof NHttpConnection) {
+                ((NHttpConnection) conn).getContext().removeAttribute(INPUT_SUSPENDED);
+            }
+            conn.requestInput();
+        }
+    }
+
+    /**
+     * Wraps a task to measure the time it spent in the queue
+     */
+    private final class QueuedTask implements Runnable {
+
+        private final Runnable task;
+
+        private final long queuedTime = System.nanoTime();
+
+        private QueuedTask(Runnable task) {
+            this.task = task;
+        }
+
+        public void run() {
+            queueTimeSum.addAndGet(System.nanoTime() - queuedTime);
+            startedTasks.incrementAndGet();
+            task.run();
+        }
+    }
+}
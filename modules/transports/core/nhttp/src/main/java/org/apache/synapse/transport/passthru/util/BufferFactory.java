@@ -19,22 +19,68 @@ package org.apache.synapse.transport.passthru.util;
 import org.apache.http.nio.util.ByteBufferAllocator;
 import org.apache.http.nio.util.HeapByteBufferAllocator;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Pool of {@link ControlledByteBuffer}s used by the pass-through transport.
+ * <p>
+ * Buffers are first served from a small per thread cache, which is only ever touched by the
+ * owning thread (usually an IO reactor thread) and therefore needs no synchronization at all.
+ * When the thread cache is empty, or full on release, the shared pool is used. The shared pool
+ * is an array of slots which are claimed and filled with CAS operations, and each thread starts
+ * probing at its own offset so that reactor threads do not compete for the same slots.
+ * <p>
+ * The shared pool starts with the configured capacity and doubles, up to the configured maximum,
+ * whenever a released buffer cannot be pooled because all slots are taken.
+ */
 public class BufferFactory {
 
-    private volatile ControlledByteBuffer [] buffers;
+    private static final int DEFAULT_THREAD_CACHE_SIZE = 16;
 
-    private volatile int marker = -1;
+    /** Number of stripes used by the statistics counters, must be a power of two */
+    private static final int COUNTER_STRIPES = 16;
 
-    private ByteBufferAllocator allocator = null;
+    /** Stride between two stripes of a counter, keeps each stripe on its own cache line */
+    private static final int COUNTER_STRIDE = 8;
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int OVERFLOWS = 2;
+
+    private final AtomicReferenceArray<ControlledByteBuffer> buffers;
 
-    private Lock lock = new ReentrantLock();
+    /** Number of slots of the shared pool that are currently in use */
+    private final AtomicInteger capacity;
+
+    /** Approximate number of buffers available in the shared pool */
+    private final AtomicInteger available = new AtomicInteger(0);
+
+    private final ThreadLocal<ThreadCache> threadCache;
+
+    private final AtomicLongArray counters =
+            new AtomicLongArray(3 * COUNTER_STRIPES * COUNTER_STRIDE);
+
+    private ByteBufferAllocator allocator = null;
 
     private int bufferSize = 1024 * 8;
 
     public BufferFactory(int bufferSize, ByteBufferAllocator allocator, int size) {
+        this(bufferSize, allocator, size, size, DEFAULT_THREAD_CACHE_SIZE);
+    }
+
+    /**
+     * Create a buffer factory.
+     *
+     * @param bufferSize      size of each buffer in bytes
+     * @param allocator       allocator used to create new buffers, a heap allocator if null
+     * @param size            initial capacity of the shared pool
+     * @param maxSize         capacity up to which the shared pool may grow
+     * @param threadCacheSize number of buffers kept in the cache of each thread, 0 to disable
+     */
+    public BufferFactory(int bufferSize, ByteBufferAllocator allocator, int size, int maxSize,
+                         final int threadCacheSize) {
         this.bufferSize = bufferSize;
         if (allocator != null) {
             this.allocator = allocator;
@@ -42,45 +88,206 @@ public class BufferFactory {
             this.allocator = new HeapByteBufferAllocator();
         }
 
-        buffers = new ControlledByteBuffer[size];
+        int initialSize = Math.max(size, 0);
+        buffers = new AtomicReferenceArray<ControlledByteBuffer>(Math.max(maxSize, initialSize));
+        capacity = new AtomicInteger(initialSize);
+        threadCache = new ThreadLocal<ThreadCache>() {
+            @Override
+            protected ThreadCache initialValue() {
+                return new ThreadCache(threadCacheSize);
+            }
+        };
     }
 
-
     public ControlledByteBuffer getBuffer() {
+        ControlledByteBuffer controlledByteBuffer = threadCache.get().poll();
+        if (controlledByteBuffer == null) {
+            controlledByteBuffer = pollShared();
+        }
 
-        if (marker == -1) {
-            // System.out.println("allocating marker -1");
+        if (controlledByteBuffer == null) {
+            increment(MISSES);
             return new ControlledByteBuffer(allocator.allocate(bufferSize));
-        } else {
-            try {
-                lock.lock();
-                if (marker >= 0) {
-                    // System.out.println("Returning buffer");
-                    ControlledByteBuffer controlledByteBuffer = buffers[marker];
-                    controlledByteBuffer.clear();
-                    controlledByteBuffer.forceSetInputMode();
-                    buffers[marker] = null;
-                    marker--;
-                    return controlledByteBuffer;
+        }
+
+        increment(HITS);
+        controlledByteBuffer.clear();
+        controlledByteBuffer.forceSetInputMode();
+        return controlledByteBuffer;
+    }
+
+    public void release(ControlledByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+
+        buffer.clear();
+        buffer.forceSetInputMode();
+        if (threadCache.get().offer(buffer)) {
+            return;
+        }
+
+        if (!offerShared(buffer)) {
+            // all the slots are taken, try to make room for the buffer before dropping it
+            int current = capacity.get();
+            int max = buffers.length();
+            if (current < max) {
+                capacity.compareAndSet(current, Math.min(Math.max(current * 2, 1), max));
+                if (offerShared(buffer)) {
+                    return;
                 }
-            } finally {
-                lock.unlock();
             }
+            increment(OVERFLOWS);
         }
+    }
 
-        return new ControlledByteBuffer(allocator.allocate(bufferSize));
+    /**
+     * @return number of buffer requests served from the pool
+     */
+    public long getHitCount() {
+        return sum(HITS);
     }
 
-    public void release(ControlledByteBuffer buffer) {
-        lock.lock();
-        try {
-            if (marker < buffers.length - 1) {
-                buffer.clear();
-                buffer.forceSetInputMode();
-                buffers[++marker] = buffer;
+    /**
+     * @return number of buffer requests which required a new buffer to be allocated
+     */
+    public long getMissCount() {
+        return sum(MISSES);
+    }
+
+    /**
+     * @return number of released buffers which were dropped because the pool was full
+     */
+    public long getOverflowCount() {
+        return sum(OVERFLOWS);
+    }
+
+    /**
+     * @return current capacity of the shared pool
+     */
+    public int getCapacity() {
+        return capacity.get();
+    }
+
+    /**
+     * @return maximum capacity of the shared pool
+     */
+    public int getMaxCapacity() {
+        return buffers.length();
+    }
+
+    /**
+     * @return approximate number of buffers available in the shared pool
+     */
+    public int getAvailableCount() {
+        return available.get();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public boolean isDirect() {
+        return !(allocator instanceof HeapByteBufferAllocator);
+    }
+
+    public void resetStatistics() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private ControlledByteBuffer pollShared() {
+        if (available.get() <= 0) {
+            return null;
+        }
+
+        int limit = capacity.get();
+        int start = probe(limit);
+        for (int i = 0; i < limit; i++) {
+            int index = start + i;
+            if (index >= limit) {
+                index -= limit;
+            }
+            ControlledByteBuffer buffer = buffers.get(index);
+            if (buffer != null && buffers.compareAndSet(index, buffer, null)) {
+                available.decrementAndGet();
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+    private boolean offerShared(ControlledByteBuffer buffer) {
+        int limit = capacity.get();
+        if (available.get() >= limit) {
+            return false;
+        }
+
+        int start = probe(limit);
+        for (int i = 0; i < limit; i++) {
+            int index = start + i;
+            if (index >= limit) {
+                index -= limit;
+            }
+            if (buffers.get(index) == null && buffers.compareAndSet(index, null, buffer)) {
+                available.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int probe(int limit) {
+        if (limit <= 1) {
+            return 0;
+        }
+        // spread the thread ids so that consecutive threads start far from each other
+        long id = Thread.currentThread().getId() * 0x9E3779B9L;
+        return (int) ((id & Long.MAX_VALUE) % limit);
+    }
+
+    private void increment(int counter) {
+        int stripe = (int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1);
+        counters.incrementAndGet((counter * COUNTER_STRIPES + stripe) * COUNTER_STRIDE);
+    }
+
+    private long sum(int counter) {
+        long sum = 0;
+        for (int stripe = 0; stripe < COUNTER_STRIPES; stripe++) {
+            sum += counters.get((counter * COUNTER_STRIPES + stripe) * COUNTER_STRIDE);
+        }
+        return sum;
+    }
+
+    /**
+     * Bounded stack of buffers owned by a single thread.
+     */
+    private static final class ThreadCache {
+
+        private final ControlledByteBuffer[] stack;
+
+        private int top = 0;
+
+        private ThreadCache(int size) {
+            stack = new ControlledByteBuffer[Math.max(size, 0)];
+        }
+
+        private ControlledByteBuffer poll() {
+            if (top == 0) {
+                return null;
+            }
+            ControlledByteBuffer buffer = stack[--top];
+            stack[top] = null;
+            return buffer;
+        }
+
+        private boolean offer(ControlledByteBuffer buffer) {
+            if (top == stack.length) {
+                return false;
             }
-        } finally {
-            lock.unlock();
+            stack[top++] = buffer;
+            return true;
         }
     }
 }
@@ -0,0 +1,397 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the raw bytes of a message body outside of the heap while the message is being built.
+ * <p>
+ * Data is first stored in fixed size direct chunks, up to the configured memory limit, and the
+ * remainder is written to a temporary file which is memory mapped for reading. The input stream
+ * returned by {@link #getInputStream()} supports mark and reset and can be created any number of
+ * times, so that a deferred AXIOM tree can be built lazily, and rebuilt, from the buffered data.
+ * <p>
+ * The buffered data is reference counted. The owner of the buffer holds one reference, which it
+ * gives up with {@link #release()}, and each stream holds one until it is closed or has been read
+ * to the end. A message which outlives the exchange it was received on can therefore still be
+ * built from its buffer. The chunks are returned to a shared pool once the last reference is
+ * given up, and are otherwise collected with the buffer.
+ */
+public class MessageSpillBuffer implements Closeable {
+
+    private static final Log log = LogFactory.getLog(MessageSpillBuffer.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /** Largest number of chunks kept for reuse, 8MB of direct memory */
+    private static final int MAX_POOLED_CHUNKS = 128;
+
+    private static final BlockingQueue<ByteBuffer> chunkPool =
+            new ArrayBlockingQueue<ByteBuffer>(MAX_POOLED_CHUNKS);
+
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+    /** Largest region of the temporary file mapped at once */
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final long memoryLimit;
+
+    private final String tempPrefix;
+
+    private final String tempSuffix;
+
+    /** Direct chunks followed by the mapped regions of the temporary file, in read mode */
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+
+    /** Number of direct chunks at the start of the segments */
+    private int chunks = 0;
+
+    private long memoryUsed = 0;
+
+    private long length = 0;
+
+    private boolean spilled = false;
+
+    /** Temporary file while it is written, or which could not be deleted while it is mapped */
+    private File file;
+
+    /** Channel of the temporary file while it is written */
+    private FileChannel channel;
+
+    /** References held by the owner and the open streams */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private volatile boolean released = false;
+
+    /**
+     * @param memoryLimit number of bytes kept in direct memory before spilling to disk
+     * @param tempPrefix  prefix of the temporary file name
+     * @param tempSuffix  suffix of the temporary file name
+     */
+    public MessageSpillBuffer(long memoryLimit, String tempPrefix, String tempSuffix) {
+        this.memoryLimit = memoryLimit;
+        this.tempPrefix = tempPrefix;
+        this.tempSuffix = tempSuffix;
+    }
+
+    /**
+     * Read the given stream to the end into this buffer
+     *
+     * @param in stream to read, it is not closed
+     * @throws IOException if reading the stream or writing the temporary file fails
+     */
+    public void readFrom(InputStream in) throws IOException {
+        if (released) {
+            throw new IOException("Message spill buffer is already released");
+        }
+        byte[] bytes = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer current = null;
+        int read;
+        while ((read = in.read(bytes)) != -1) {
+            int offset = 0;
+            while (offset < read) {
+                if (channel == null && (current == null || !current.hasRemaining())) {
+                    if (memoryUsed < memoryLimit) {
+                        current = acquireChunk();
+                        current.limit((int) Math.min(CHUNK_SIZE, memoryLimit - memoryUsed));
+                        memoryUsed += current.limit();
+                        segments.add(current);
+                        chunks++;
+                    } else {
+                        openFile();
+                    }
+                }
+
+                int chunk;
+                if (channel == null) {
+                    chunk = Math.min(read - offset, current.remaining());
+                    current.put(bytes, offset, chunk);
+                } else {
+                    chunk = read - offset;
+                    ByteBuffer src = ByteBuffer.wrap(bytes, offset, chunk);
+                    while (src.hasRemaining()) {
+                        channel.write(src);
+                    }
+                }
+                offset += chunk;
+                length += chunk;
+            }
+        }
+
+        for (ByteBuffer segment : segments) {
+            segment.flip();
+        }
+        if (channel != null) {
+            mapFile();
+        }
+    }
+
+    /**
+     * @return a new stream reading the buffered data from the start, which keeps the data
+     * available until it is closed or read to the end
+     * @throws IOException if the buffer is already released
+     */
+    public InputStream getInputStream() throws IOException {
+        if (released || !retain()) {
+            throw new IOException("Message spill buffer is already released");
+        }
+        List<ByteBuffer> views = new ArrayList<ByteBuffer>(segments.size());
+        for (ByteBuffer segment : segments) {
+            views.add(segment.duplicate());
+        }
+        return new SpillInputStream(views);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return whether part of the data is stored in a temporary file
+     */
+    public boolean isSpilledToDisk() {
+        return spilled;
+    }
+
+    /**
+     * Give up the reference of the owner of this buffer. No new streams can be created once it
+     * is released, while the streams already created keep reading the buffered data.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        releaseReference();
+    }
+
+    public void close() {
+        release();
+    }
+
+    /**
+     * @return number of chunks in the shared pool
+     */
+    static int getPooledChunkCount() {
+        return chunkPool.size();
+    }
+
+    private boolean retain() {
+        while (true) {
+            int count = references.get();
+            if (count == 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseReference() {
+        if (references.decrementAndGet() != 0) {
+            return;
+        }
+        // no stream reads the chunks anymore, so they can be handed to other buffers
+        for (int i = 0; i < chunks; i++) {
+            ByteBuffer chunk = segments.get(i);
+            chunk.clear();
+            chunkPool.offer(chunk);
+        }
+        segments.clear();
+        closeFile();
+        if (file != null && !file.delete()) {
+            log.warn("Could not delete the message spill file " + file);
+        }
+    }
+
+    private static ByteBuffer acquireChunk() {
+        ByteBuffer chunk = chunkPool.poll();
+        return chunk != null ? chunk : ByteBuffer.allocateDirect(CHUNK_SIZE);
+    }
+
+    private void openFile() throws IOException {
+        file = File.createTempFile(tempPrefix, tempSuffix);
+        spilled = true;
+        channel = new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error while closing the message spill file " + file, e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Map the temporary file for reading and delete it. The mapped regions stay readable after
+     * the file is deleted, and the disk space is reclaimed once they are collected, so the file
+     * is not left behind when the buffer is never released.
+     */
+    private void mapFile() throws IOException {
+        try {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_SEGMENT_SIZE) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAX_SEGMENT_SIZE, size - position)));
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Message of " + length + " bytes spilled to " + file);
+            }
+        } finally {
+            closeFile();
+            if (file.delete()) {
+                file = null;
+            }
+            // otherwise the platform does not delete mapped files, it is deleted on release
+        }
+    }
+
+    private class SpillInputStream extends InputStream {
+
+        private final List<ByteBuffer> views;
+
+        private int index = 0;
+
+        private int markIndex = 0;
+
+        private int markPosition = 0;
+
+        /** Whether this stream holds a reference to the buffered data */
+        private boolean retained = true;
+
+        private SpillInputStream(List<ByteBuffer> views) {
+            this.views = views;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (retained) {
+                retained = false;
+                releaseReference();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer view = current();
+            if (view == null) {
+                return -1;
+            }
+            return view.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer view = current();
+            if (view == null) {
+                return -1;
+            }
+            int chunk = Math.min(len, view.remaining());
+            view.get(b, off, chunk);
+            return chunk;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            ByteBuffer view;
+            while (skipped < n && (view = current()) != null) {
+                int chunk = (int) Math.min(n - skipped, view.remaining());
+                view.position(view.position() + chunk);
+                skipped += chunk;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ByteBuffer view = current();
+            return view == null ? 0 : view.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            markIndex = index;
+            markPosition = index < views.size() ? views.get(index).position() : 0;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            if (!retained) {
+                if (!retain()) {
+                    throw new IOException("Message spill buffer is already released");
+                }
+                retained = true;
+            }
+            for (int i = markIndex; i < views.size(); i++) {
+                views.get(i).position(i == markIndex ? markPosition : 0);
+            }
+            index = markIndex;
+        }
+
+        private ByteBuffer current() throws IOException {
+            if (!retained) {
+                // the data may be reused once the reference is given up
+                if (index >= views.size()) {
+                    return null;
+                }
+                throw new IOException("Message spill input stream is already closed");
+            }
+            while (index < views.size()) {
+                ByteBuffer view = views.get(index);
+                if (view.hasRemaining()) {
+                    return view;
+                }
+                index++;
+            }
+            // builders do not always close the stream once they are done
+            close();
+            return null;
+        }
+    }
+}
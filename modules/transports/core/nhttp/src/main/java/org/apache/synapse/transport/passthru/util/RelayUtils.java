@@ -37,9 +37,11 @@ import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.SourceContext;
 import org.apache.synapse.transport.passthru.TargetRequest;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 
@@ -68,6 +70,12 @@ public class RelayUtils {
 
     private static boolean forceJSONValidation = false;
 
+    private static final int messageSpillThreshold =
+            PassThroughConfiguration.getInstance().getMessageSpillThreshold();
+
+    private static final int messageSpillMemoryLimit =
+            PassThroughConfiguration.getInstance().getMessageSpillMemoryLimit();
+
     static {
         if (forcePTBuild == null) {
             forcePTBuild = PassThroughConfiguration.getInstance().getBooleanProperty(
@@ -155,6 +163,9 @@ public class RelayUtils {
             }
 
         } else {
+            if (byteArrayOutputStream == null) {
+                in = spillIfRequired(messageContext, in);
+            }
             bufferedInputStream = new BufferedInputStream(in);
             // TODO: need to handle properly for the moment lets use around 100k
             // buffer.
@@ -218,6 +229,51 @@ public class RelayUtils {
 
 
 
+    /**
+     * Buffer the body of a large message, or of a message of unknown length, outside of the heap
+     * before it is built. The message is then built lazily from the buffer, so that only the
+     * parts which are accessed by the mediation end up on the heap. The buffer is released when
+     * the exchange with the client completes, while the stream the message is built from keeps
+     * the data available until the message is fully built.
+     *
+     * @param messageContext message to be built
+     * @param in             stream of the message body
+     * @return the stream to build the message from
+     * @throws IOException if the message body cannot be buffered
+     */
+    private static InputStream spillIfRequired(MessageContext messageContext, InputStream in)
+            throws IOException {
+        if (messageSpillThreshold < 0) {
+            return in;
+        }
+        Map headers = (Map) messageContext.getProperty(MessageContext.TRANSPORT_HEADERS);
+        String contentLength = headers != null ? (String) headers.get(HTTP.CONTENT_LEN) : null;
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) <= messageSpillThreshold) {
+                    return in;
+                }
+            } catch (NumberFormatException ignore) {
+                // buffer the message as if the length is not known
+            }
+        }
+
+        MessageSpillBuffer spillBuffer =
+                new MessageSpillBuffer(messageSpillMemoryLimit, "synapse-msg_", ".dat");
+        try {
+            spillBuffer.readFrom(in);
+        } catch (IOException e) {
+            spillBuffer.release();
+            throw e;
+        }
+        if (!SourceContext.addExchangeResource(messageContext, spillBuffer) && log.isDebugEnabled()) {
+            log.debug("Message is not associated with a client connection, the spill buffer " +
+                    "is collected with the message");
+        }
+        messageContext.setProperty(PassThroughConstants.MESSAGE_SPILL_BUFFER, spillBuffer);
+        return spillBuffer.getInputStream();
+    }
+
     /**
      * Function to check whether the processing request (enclosed within MessageContext) is a DELETE request without
      * entity body since we allow to have payload for DELETE requests, we treat same as POST. Hence this function can be
@@ -0,0 +1,151 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.axis2.transport.base.threads.WorkerPool;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WorkerPool} which runs each task on a thread of its own, meant to be used with
+ * virtual threads, so that workers blocked on a backend or a database do not hold on to a
+ * platform thread.
+ * <p>
+ * Concurrency is bounded by a semaphore instead of the number of threads. Tasks beyond the limit
+ * are parked on the semaphore, which is cheap for virtual threads, and are reported as queued.
+ * The pool is also an {@link java.util.concurrent.ExecutorService} so that it can execute the
+ * asynchronous mediation tasks of the Synapse environment.
+ */
+public class VirtualThreadWorkerPool extends AbstractExecutorService implements WorkerPool {
+
+    private final ThreadPoolExecutor executor;
+
+    private final Semaphore permits;
+
+    private final int maxConcurrency;
+
+    private final AtomicInteger waiting = new AtomicInteger(0);
+
+    private final AtomicInteger active = new AtomicInteger(0);
+
+    /**
+     * Create a pool running tasks on threads created by the given factory
+     *
+     * @param maxConcurrency maximum number of tasks running at the same time
+     * @param threadFactory  factory creating the thread of each task, usually obtained from
+     *                       {@link #newVirtualThreadFactory(String)}
+     */
+    public VirtualThreadWorkerPool(int maxConcurrency, ThreadFactory threadFactory) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        // no thread is kept alive, so that this is a thread per task executor
+        this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), threadFactory);
+    }
+
+    /**
+     * Create a factory of virtual threads, if the running JVM supports them. Reflection is used
+     * as the transport is still built for older Java versions.
+     *
+     * @param namePrefix prefix of the thread names
+     * @return a virtual thread factory or null if virtual threads are not available
+     */
+    public static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public void execute(final Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        waiting.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    permits.acquireUninterruptibly();
+                    waiting.decrementAndGet();
+                    active.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        active.decrementAndGet();
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getQueueSize() {
+        return waiting.get();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void shutdown(int timeout) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
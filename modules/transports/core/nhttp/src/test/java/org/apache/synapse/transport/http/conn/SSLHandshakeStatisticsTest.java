@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package org.apache.synapse.transport.http.conn;
+
+import junit.framework.TestCase;
+import org.apache.http.nio.reactor.IOSession;
+import org.junit.Test;
+
+import javax.net.ssl.SSLSession;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test cases for SSLHandshakeStatistics class
+ */
+public class SSLHandshakeStatisticsTest extends TestCase {
+
+    /**
+     * A session created before the handshake started was resumed from the session cache
+     */
+    @Test
+    public void testResumedHandshake() {
+        SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+        long start = System.currentTimeMillis();
+
+        statistics.handshakeCompleted(session(start), sslSession(start));
+        statistics.handshakeCompleted(session(start), sslSession(start - 1000));
+        statistics.handshakeCompleted(session(start), sslSession(start - 2000));
+        statistics.handshakeCompleted(session(start), sslSession(start + 5));
+
+        assertEquals(2, statistics.getFullHandshakeCount());
+        assertEquals(2, statistics.getResumedHandshakeCount());
+        assertEquals(0.5, statistics.getResumptionRatio(), 0.0001);
+
+        statistics.reset();
+        assertEquals(0, statistics.getFullHandshakeCount());
+        assertEquals(0, statistics.getResumedHandshakeCount());
+        assertEquals(0.0, statistics.getResumptionRatio(), 0.0001);
+    }
+
+    /**
+     * Without a recorded start time a handshake can only be counted as a full handshake
+     */
+    @Test
+    public void testUnknownStartTime() {
+        SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+        IOSession iosession = mock(IOSession.class);
+        statistics.handshakeCompleted(iosession, sslSession(0));
+        assertEquals(1, statistics.getFullHandshakeCount());
+        assertEquals(0, statistics.getResumedHandshakeCount());
+    }
+
+    private static IOSession session(long handshakeStart) {
+        IOSession iosession = mock(IOSession.class);
+        when(iosession.getAttribute(SSLHandshakeStatistics.HANDSHAKE_START_TIME)).thenReturn(handshakeStart);
+        return iosession;
+    }
+
+    private static SSLSession sslSession(long creationTime) {
+        SSLSession sslSession = mock(SSLSession.class);
+        when(sslSession.getCreationTime()).thenReturn(creationTime);
+        return sslSession;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Test cases for the direct relay mode of the Pipe
+ */
+public class PipeTest {
+
+    /**
+     * A payload larger than the buffer should be relayed intact, wrapping around the buffer
+     */
+    @Test
+    public void testDirectRelay() throws Exception {
+        byte[] payload = new byte[10000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        IOControl producer = Mockito.mock(IOControl.class);
+        IOControl consumer = Mockito.mock(IOControl.class);
+        Pipe pipe = new Pipe(producer, new ControlledByteBuffer(ByteBuffer.allocate(1024)), "test", null);
+        TestDecoder decoder = new TestDecoder(payload, 300);
+        TestEncoder encoder = new TestEncoder(700);
+
+        // some data reaches the pipe before the consumer is attached
+        pipe.produce(decoder);
+        pipe.attachConsumer(consumer);
+        Assert.assertTrue(pipe.enableDirectRelay());
+
+        int rounds = 0;
+        while (!encoder.isCompleted()) {
+            pipe.produce(decoder);
+            pipe.consume(encoder);
+            Assert.assertTrue("Relay did not complete", ++rounds < 1000);
+        }
+
+        Assert.assertTrue(Arrays.equals(payload, encoder.getBytes()));
+    }
+
+    /**
+     * Direct relay must not be enabled once the message has been read through the pipe streams
+     */
+    @Test
+    public void testDirectRelayRefusedAfterStreamAccess() throws Exception {
+        Pipe pipe = new Pipe(Mockito.mock(IOControl.class),
+                new ControlledByteBuffer(ByteBuffer.allocate(1024)), "test", null);
+        pipe.getInputStream();
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+        Assert.assertFalse(pipe.enableDirectRelay());
+        Assert.assertFalse(pipe.isDirectRelay());
+    }
+
+    /**
+     * A full buffer must suspend the producer until the consumer drains it
+     */
+    @Test
+    public void testDirectRelaySuspendsProducerWhenFull() throws Exception {
+        IOControl producer = Mockito.mock(IOControl.class);
+        Pipe pipe = new Pipe(producer, new ControlledByteBuffer(ByteBuffer.allocate(16)), "test", null);
+        pipe.attachConsumer(Mockito.mock(IOControl.class));
+        Assert.assertTrue(pipe.enableDirectRelay());
+
+        Assert.assertEquals(16, pipe.produce(new TestDecoder(new byte[64], 64)));
+        Mockito.verify(producer).suspendInput();
+
+        TestEncoder encoder = new TestEncoder(64);
+        Assert.assertEquals(16, pipe.consume(encoder));
+        Mockito.verify(producer).requestInput();
+    }
+
+    private static class TestDecoder implements ContentDecoder {
+
+        private final byte[] data;
+        private final int chunk;
+        private int position = 0;
+
+        TestDecoder(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            int length = Math.min(Math.min(chunk, dst.remaining()), data.length - position);
+            dst.put(data, position, length);
+            position += length;
+            return length;
+        }
+
+        public boolean isCompleted() {
+            return position == data.length;
+        }
+    }
+
+    private static class TestEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int chunk;
+        private boolean completed = false;
+
+        TestEncoder(int chunk) {
+            this.chunk = chunk;
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            int length = Math.min(chunk, src.remaining());
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            out.write(bytes);
+            return length;
+        }
+
+        public void complete() throws IOException {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        byte[] getBytes() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -22,17 +22,19 @@ package org.apache.synapse.transport.passthru.connections;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.apache.http.HttpConnectionMetrics;
 import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.protocol.HttpContext;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.ConnectionTimeoutConfiguration;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.powermock.api.support.membermodification.MemberModifier;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import static org.mockito.Mockito.times;
 
@@ -53,7 +55,7 @@ public class HostConnectionsTest {
     public void testGetConnection(final int connectionIdleTime, final int maximumConnectionLifeSpan) throws Exception {
 
         NHttpClientConnection nHttpClientConnection = Mockito.mock(NHttpClientConnection.class);
-        List<NHttpClientConnection> freeConnections = new ArrayList<>();
+        Deque<NHttpClientConnection> freeConnections = new ConcurrentLinkedDeque<>();
         freeConnections.add(nHttpClientConnection);
         ConnectionTimeoutConfiguration conf = new ConnectionTimeoutConfiguration(connectionIdleTime,
                                                                                  maximumConnectionLifeSpan);
@@ -76,4 +78,41 @@ public class HostConnectionsTest {
         hostConnections.getConnection();
         Mockito.verify(nHttpClientConnection, times(1)).shutdown();
     }
+
+    /**
+     * The most recently released connection should be reused first and expired free connections
+     * should be closed by the reaper
+     */
+    @Test
+    public void testLifoReuseAndReaper() throws Exception {
+        ConnectionTimeoutConfiguration conf = new ConnectionTimeoutConfiguration(1000, Integer.MAX_VALUE);
+        HostConnections hostConnections = new HostConnections(null, 2, conf);
+        long currentTime = System.currentTimeMillis();
+        NHttpClientConnection cold = mockConnection(currentTime - 5000);
+        NHttpClientConnection warm = mockConnection(currentTime);
+
+        hostConnections.addConnection(cold);
+        hostConnections.addConnection(warm);
+        Assert.assertFalse(hostConnections.canHaveMoreConnections());
+
+        hostConnections.release(cold);
+        hostConnections.release(warm);
+        Assert.assertEquals(2, hostConnections.getFreeConnectionCount());
+
+        Assert.assertEquals(1, hostConnections.closeExpiredConnections());
+        Mockito.verify(cold, times(1)).shutdown();
+        Mockito.verify(warm, times(0)).shutdown();
+        Assert.assertSame(warm, hostConnections.getConnection());
+        Assert.assertNull(hostConnections.getConnection());
+        Assert.assertEquals(1, hostConnections.getBusyConnectionCount());
+    }
+
+    private NHttpClientConnection mockConnection(long releaseTime) {
+        NHttpClientConnection connection = Mockito.mock(NHttpClientConnection.class);
+        HttpContext context = Mockito.mock(HttpContext.class);
+        Mockito.when(connection.getContext()).thenReturn(context);
+        Mockito.when(connection.getMetrics()).thenReturn(Mockito.mock(HttpConnectionMetrics.class));
+        Mockito.when(context.getAttribute(PassThroughConstants.CONNECTION_RELEASE_TIME)).thenReturn(releaseTime);
+        return connection;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Test cases for LatencyHistogram class
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    /**
+     * Each value should fall into a bucket whose upper bound is within ~6% of the value
+     */
+    @Test
+    public void testBucketPrecision() {
+        for (long value = 0; value < 1000000; value += 7) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            long highest = LatencyHistogram.getHighestValueInBucket(index);
+            assertTrue("Value " + value + " is above its bucket", value <= highest);
+            assertTrue("Bucket of value " + value + " is too wide", highest - value <= value / 16);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.getHighestValueInBucket(index - 1) < value);
+            }
+        }
+    }
+
+    /**
+     * Percentiles should be computed from the values recorded during the current window only
+     */
+    @Test
+    public void testWindowPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(2);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Map<String, Long> percentiles = histogram.getWindowPercentiles();
+        assertEquals(1000L, (long) percentiles.get("count"));
+        assertEquals(500L, percentiles.get("p50"), 500 / 16);
+        assertEquals(990L, percentiles.get("p99"), 990 / 16);
+        assertEquals(1000L, (long) percentiles.get("max"));
+
+        histogram.rollWindow();
+        histogram.record(5);
+        assertEquals(1001L, (long) histogram.getWindowPercentiles().get("count"));
+        histogram.rollWindow();
+        histogram.rollWindow();
+        assertEquals(1L, (long) histogram.getWindowPercentiles().get("count"));
+        histogram.rollWindow();
+        percentiles = histogram.getWindowPercentiles();
+        assertEquals(0L, (long) percentiles.get("count"));
+        assertEquals(0L, (long) percentiles.get("p99.9"));
+
+        assertEquals(-1L, histogram.getWindowPercentile(99.0, 1));
+
+        histogram.record(40);
+        histogram.record(80);
+        assertEquals(-1L, histogram.getWindowPercentile(50.0, 3));
+        assertEquals(40L, histogram.getWindowPercentile(50.0, 2), 40 / 16);
+        assertEquals(80L, histogram.getWindowPercentile(99.0, 2), 80 / 16);
+
+        histogram.reset();
+        histogram.record(-1);
+        assertEquals(0L, (long) histogram.getWindowPercentiles().get("count"));
+        assertEquals(0L, histogram.getMax());
+    }
+}
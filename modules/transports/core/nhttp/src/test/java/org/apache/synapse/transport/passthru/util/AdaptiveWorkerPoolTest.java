@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpServerConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for AdaptiveWorkerPool class
+ */
+public class AdaptiveWorkerPoolTest {
+
+    /**
+     * The core size should grow while tasks wait in the queue and input should be suspended
+     * until the queue is drained
+     */
+    @Test
+    public void testGrowAndSuspendInput() throws Exception {
+        // a long adjust interval keeps the controller out of the way, adjust() is called directly
+        AdaptiveWorkerPool pool = new AdaptiveWorkerPool(1, 4, 60, -1, "test", "test-worker",
+                1, 5, 60000);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+            Thread.sleep(20);
+            pool.adjust();
+            Assert.assertEquals(2, pool.getCorePoolSize());
+            Assert.assertTrue(pool.isOverloaded());
+
+            IOControl conn = Mockito.mock(IOControl.class);
+            pool.suspendInput(conn);
+            Mockito.verify(conn).suspendInput();
+            Assert.assertEquals(1, pool.getSuspendedConnectionCount());
+            Mockito.verify(conn, Mockito.never()).requestInput();
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((pool.getQueueSize() > 0 || pool.getActiveCount() > 0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            // the tasks which waited are accounted in the next interval
+            pool.adjust();
+            pool.adjust();
+            Assert.assertFalse(pool.isOverloaded());
+            Mockito.verify(conn).requestInput();
+            Assert.assertEquals(0, pool.getSuspendedConnectionCount());
+            Assert.assertEquals(1, pool.getSuspendEventCount());
+        } finally {
+            release.countDown();
+            pool.shutdown(1000);
+        }
+    }
+
+    /**
+     * While the pool is overloaded the body of a request already handed to a worker should
+     * still be read, but the connection should not be asked for its next request until the
+     * pool catches up
+     */
+    @Test
+    public void testOverloadHoldsBackOnlyNewRequests() throws Exception {
+        AdaptiveWorkerPool pool = new AdaptiveWorkerPool(1, 1, 60, -1, "test", "test-worker",
+                1, 5, 60000);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+            Thread.sleep(20);
+            pool.adjust();
+            Assert.assertTrue(pool.isOverloaded());
+
+            NHttpServerConnection conn = Mockito.mock(NHttpServerConnection.class);
+            Mockito.when(conn.getContext()).thenReturn(new BasicHttpContext());
+            final AtomicInteger inputRequests = new AtomicInteger(0);
+            Mockito.doAnswer(new Answer<Void>() {
+                public Void answer(InvocationOnMock invocation) {
+                    inputRequests.incrementAndGet();
+                    return null;
+                }
+            }).when(conn).requestInput();
+
+            // the body of the request in flight is relayed through the pipe of the connection
+            byte[] body = new byte[4096];
+            Pipe pipe = new Pipe(conn, new ControlledByteBuffer(ByteBuffer.allocate(1024)),
+                    "test", null);
+            pipe.attachConsumer(Mockito.mock(IOControl.class));
+            TestDecoder decoder = new TestDecoder(body, 512);
+            TestEncoder encoder = new TestEncoder(body.length);
+            int rounds = 0;
+            while (!encoder.isCompleted()) {
+                pipe.produce(decoder);
+                pipe.consume(encoder);
+                Assert.assertTrue("The body was not relayed", ++rounds < 100);
+            }
+            Assert.assertEquals(body.length, encoder.out.size());
+            Assert.assertTrue(inputRequests.get() > 0);
+            Assert.assertFalse(AdaptiveWorkerPool.isInputSuspended(conn));
+
+            // the response is complete, the next request must wait for the pool
+            int requested = inputRequests.get();
+            AdaptiveWorkerPool.requestNextRequest(pool, conn);
+            Assert.assertTrue(AdaptiveWorkerPool.isInputSuspended(conn));
+            Assert.assertEquals(1, pool.getSuspendedConnectionCount());
+            AdaptiveWorkerPool.requestInput(conn);
+            Assert.assertEquals(requested, inputRequests.get());
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((pool.getQueueSize() > 0 || pool.getActiveCount() > 0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            pool.adjust();
+            pool.adjust();
+            Assert.assertFalse(pool.isOverloaded());
+            Assert.assertEquals(requested + 1, inputRequests.get());
+            Assert.assertFalse(AdaptiveWorkerPool.isInputSuspended(conn));
+
+            // without an overload the next request is read right away
+            AdaptiveWorkerPool.requestNextRequest(pool, conn);
+            Assert.assertEquals(requested + 2, inputRequests.get());
+        } finally {
+            release.countDown();
+            pool.shutdown(1000);
+        }
+    }
+
+    /**
+     * The core size should shrink back towards its initial value when the pool is idle
+     */
+    @Test
+    public void testShrinkWhenIdle() throws Exception {
+        AdaptiveWorkerPool pool = new AdaptiveWorkerPool(2, 8, 60, -1, "test", "test-worker",
+                100, -1, 60000);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 4; i++) {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+            Thread.sleep(150);
+            pool.adjust();
+            Assert.assertEquals(3, pool.getCorePoolSize());
+            Assert.assertFalse(pool.isOverloaded());
+            release.countDown();
+            Thread.sleep(100);
+            // the first interval still accounts the tasks which were waiting
+            for (int i = 0; i < 8; i++) {
+                pool.adjust();
+            }
+            Assert.assertEquals(2, pool.getCorePoolSize());
+        } finally {
+            pool.shutdown(1000);
+        }
+    }
+
+    private static class TestDecoder implements ContentDecoder {
+
+        private final byte[] data;
+        private final int chunk;
+        private int position = 0;
+
+        TestDecoder(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        public int read(ByteBuffer dst) {
+            int length = Math.min(Math.min(chunk, dst.remaining()), data.length - position);
+            dst.put(data, position, length);
+            position += length;
+            return length;
+        }
+
+        public boolean isCompleted() {
+            return position == data.length;
+        }
+    }
+
+    private static class TestEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final int length;
+        private boolean completed = false;
+
+        TestEncoder(int length) {
+            this.length = length;
+        }
+
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            out.write(bytes, 0, count);
+            if (out.size() >= length) {
+                completed = true;
+            }
+            return count;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import junit.framework.TestCase;
+import org.apache.http.nio.util.DirectByteBufferAllocator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test cases for BufferFactory class
+ */
+public class BufferFactoryTest extends TestCase {
+
+    /**
+     * Released buffers should be handed out again, first from the thread cache
+     */
+    @Test
+    public void testBufferReuse() {
+        BufferFactory factory = new BufferFactory(1024, null, 4, 4, 2);
+        ControlledByteBuffer buffer = factory.getBuffer();
+        assertEquals(1, factory.getMissCount());
+
+        buffer.put((byte) 1);
+        buffer.setOutputMode();
+        factory.release(buffer);
+
+        ControlledByteBuffer reused = factory.getBuffer();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertTrue(reused.isInputMode());
+        assertEquals(1, factory.getHitCount());
+    }
+
+    /**
+     * Buffers which do not fit in the thread cache should go to the shared pool, which grows up
+     * to its maximum capacity before buffers are dropped
+     */
+    @Test
+    public void testSharedPoolGrowthAndOverflow() {
+        BufferFactory factory = new BufferFactory(1024, null, 2, 4, 0);
+        List<ControlledByteBuffer> buffers = new ArrayList<ControlledByteBuffer>();
+        for (int i = 0; i < 6; i++) {
+            buffers.add(factory.getBuffer());
+        }
+        for (ControlledByteBuffer buffer : buffers) {
+            factory.release(buffer);
+        }
+
+        assertEquals(4, factory.getCapacity());
+        assertEquals(4, factory.getAvailableCount());
+        assertEquals(2, factory.getOverflowCount());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffers.contains(factory.getBuffer()));
+        }
+        assertEquals(4, factory.getHitCount());
+        assertEquals(0, factory.getAvailableCount());
+    }
+
+    /**
+     * Buffers released from another thread should be available through the shared pool
+     */
+    @Test
+    public void testCrossThreadRelease() throws InterruptedException {
+        final BufferFactory factory = new BufferFactory(1024, new DirectByteBufferAllocator(), 4, 4, 0);
+        final ControlledByteBuffer buffer = factory.getBuffer();
+        assertTrue(buffer.getByteBuffer().isDirect());
+
+        Thread releaser = new Thread(new Runnable() {
+            public void run() {
+                factory.release(buffer);
+            }
+        });
+        releaser.start();
+        releaser.join();
+
+        assertSame(buffer, factory.getBuffer());
+    }
+
+    /**
+     * Buffers of a different size must not be pooled
+     */
+    @Test
+    public void testForeignBufferIsNotPooled() {
+        BufferFactory factory = new BufferFactory(1024, null, 4, 4, 2);
+        factory.release(new BufferFactory(2048, null, 1, 1, 0).getBuffer());
+        factory.release(null);
+        factory.getBuffer();
+        assertEquals(0, factory.getHitCount());
+        assertEquals(1, factory.getMissCount());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Test cases for MessageSpillBuffer class
+ */
+public class MessageSpillBufferTest extends TestCase {
+
+    /**
+     * Data beyond the memory limit should be spilled to disk and read back intact
+     */
+    @Test
+    public void testSpillToDisk() throws IOException {
+        byte[] payload = createPayload(300 * 1024);
+        MessageSpillBuffer buffer = new MessageSpillBuffer(100 * 1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(payload));
+
+        assertTrue(buffer.isSpilledToDisk());
+        assertEquals(payload.length, buffer.getLength());
+        assertTrue(Arrays.equals(payload, readFully(buffer.getInputStream())));
+        // each stream reads from the start
+        assertTrue(Arrays.equals(payload, readFully(buffer.getInputStream())));
+        buffer.release();
+    }
+
+    /**
+     * Small messages should stay in memory
+     */
+    @Test
+    public void testInMemory() throws IOException {
+        byte[] payload = createPayload(1000);
+        MessageSpillBuffer buffer = new MessageSpillBuffer(100 * 1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(payload));
+
+        assertFalse(buffer.isSpilledToDisk());
+        assertTrue(Arrays.equals(payload, readFully(buffer.getInputStream())));
+        buffer.release();
+    }
+
+    /**
+     * Reset should go back to the marked position, across the memory and file segments
+     */
+    @Test
+    public void testMarkAndReset() throws IOException {
+        byte[] payload = createPayload(200 * 1024);
+        MessageSpillBuffer buffer = new MessageSpillBuffer(64 * 1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(payload));
+
+        InputStream in = buffer.getInputStream();
+        assertEquals(1000, in.skip(1000));
+        in.mark(0);
+        byte[] first = new byte[150 * 1024];
+        int read = 0;
+        while (read < first.length) {
+            read += in.read(first, read, first.length - read);
+        }
+        in.reset();
+        assertEquals(payload[1000] & 0xff, in.read());
+        buffer.release();
+    }
+
+    /**
+     * No new streams can be created once the buffer is released
+     */
+    @Test
+    public void testRelease() throws IOException {
+        MessageSpillBuffer buffer = new MessageSpillBuffer(1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(createPayload(4096)));
+        buffer.release();
+        try {
+            buffer.getInputStream();
+            fail("Reading a released buffer should fail");
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * A message built after the exchange completed should still read the buffered data
+     */
+    @Test
+    public void testStreamOutlivesRelease() throws IOException {
+        byte[] payload = createPayload(300 * 1024);
+        MessageSpillBuffer buffer = new MessageSpillBuffer(100 * 1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(payload));
+        InputStream in = buffer.getInputStream();
+        buffer.release();
+
+        // the chunks are in use until the stream is read to the end
+        MessageSpillBuffer other = new MessageSpillBuffer(100 * 1024, "test", ".dat");
+        other.readFrom(new ByteArrayInputStream(createPayload(100 * 1024)));
+        assertTrue(Arrays.equals(payload, readFully(in)));
+        other.release();
+    }
+
+    /**
+     * Chunks should be returned to the pool once no stream reads them
+     */
+    @Test
+    public void testChunksAreReused() throws IOException {
+        MessageSpillBuffer buffer = new MessageSpillBuffer(256 * 1024, "test", ".dat");
+        buffer.readFrom(new ByteArrayInputStream(createPayload(256 * 1024)));
+        int pooled = MessageSpillBuffer.getPooledChunkCount();
+        InputStream in = buffer.getInputStream();
+        buffer.release();
+        assertEquals(pooled, MessageSpillBuffer.getPooledChunkCount());
+
+        in.close();
+        assertEquals(pooled + 4, MessageSpillBuffer.getPooledChunkCount());
+        try {
+            in.read();
+            fail("Reading a closed stream should fail");
+        } catch (IOException expected) {
+        }
+
+        MessageSpillBuffer next = new MessageSpillBuffer(256 * 1024, "test", ".dat");
+        byte[] payload = createPayload(200 * 1024);
+        next.readFrom(new ByteArrayInputStream(payload));
+        assertEquals(pooled, MessageSpillBuffer.getPooledChunkCount());
+        assertTrue(Arrays.equals(payload, readFully(next.getInputStream())));
+        next.release();
+    }
+
+    private byte[] createPayload(int size) {
+        byte[] payload = new byte[size];
+        for (int i = 0; i < size; i++) {
+            payload[i] = (byte) (i * 31);
+        }
+        return payload;
+    }
+
+    private byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = new byte[1000];
+        int read;
+        while ((read = in.read(bytes)) != -1) {
+            out.write(bytes, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for VirtualThreadWorkerPool class
+ */
+public class VirtualThreadWorkerPoolTest {
+
+    /**
+     * Tasks above the concurrency limit should wait, and be reported as queued
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        VirtualThreadWorkerPool pool =
+                new VirtualThreadWorkerPool(2, Executors.defaultThreadFactory());
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        final AtomicInteger running = new AtomicInteger(0);
+        final AtomicInteger maxRunning = new AtomicInteger(0);
+        try {
+            for (int i = 0; i < 5; i++) {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        int max;
+                        while ((max = maxRunning.get()) < current &&
+                                !maxRunning.compareAndSet(max, current)) {
+                        }
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException ignored) {
+                        }
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getQueueSize() != 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(2, pool.getActiveCount());
+            Assert.assertEquals(3, pool.getQueueSize());
+
+            release.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, maxRunning.get());
+        } finally {
+            pool.shutdown(1000);
+        }
+    }
+
+    /**
+     * Workers waiting for data in a pipe must not pin their carrier threads, so that many more
+     * workers than carrier threads can wait at the same time. Only runs on JVMs with virtual
+     * threads.
+     */
+    @Test
+    public void testPipeWaitDoesNotPinCarrier() throws Exception {
+        ThreadFactory threadFactory = VirtualThreadWorkerPool.newVirtualThreadFactory("test-");
+        Assume.assumeNotNull(threadFactory);
+
+        int workers = Runtime.getRuntime().availableProcessors() * 8;
+        VirtualThreadWorkerPool pool = new VirtualThreadWorkerPool(workers, threadFactory);
+        final CountDownLatch waiting = new CountDownLatch(workers);
+        final CountDownLatch done = new CountDownLatch(workers);
+        Pipe[] pipes = new Pipe[workers];
+        try {
+            for (int i = 0; i < workers; i++) {
+                final Pipe pipe = new Pipe(Mockito.mock(IOControl.class),
+                        new ControlledByteBuffer(ByteBuffer.allocate(16)), "test", null);
+                pipes[i] = pipe;
+                pool.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            InputStream in = pipe.getInputStream();
+                            waiting.countDown();
+                            if (in.read() == 7) {
+                                done.countDown();
+                            }
+                        } catch (IOException ignored) {
+                        }
+                    }
+                });
+            }
+            Assert.assertTrue("Workers are pinned to their carrier threads",
+                    waiting.await(10, TimeUnit.SECONDS));
+
+            for (Pipe pipe : pipes) {
+                pipe.produce(new SingleByteDecoder((byte) 7));
+            }
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown(1000);
+        }
+    }
+
+    private static class SingleByteDecoder implements ContentDecoder {
+
+        private final byte value;
+        private boolean completed = false;
+
+        SingleByteDecoder(byte value) {
+            this.value = value;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            if (completed) {
+                return -1;
+            }
+            dst.put(value);
+            completed = true;
+            return 1;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}